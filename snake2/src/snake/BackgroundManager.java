@@ -5,20 +5,30 @@ import java.util.Properties;
 import java.util.Random;
 import java.util.UUID;
 import java.io.FileInputStream;
+import java.io.InputStream;
 import java.awt.Point;
 import snake.data.SnakeStartPoint;
+import snake.util.AssetPack;
 import snake.util.ImageLoader;
 
 /**
  * Manager for the background of the game, loads level background obstacles image
  * and level properties, calculates the position correction for large maps, and
  * checks new positions for collectables.
+ * The obstacles are converted once when the level is loaded: into a bitplane with one bit
+ * per pixel, and into a clearance field that holds for every pixel the size of the largest
+ * square without obstacles that starts at this pixel (to the right and down). Checking if
+ * an area is free is a single lookup in the clearance field then.
  * @author Thomas Scheller, Markus Karolus
  */
 public class BackgroundManager
 {
 	private BufferedImage gameMap = null; //gif in black an white showing the obstacles on the map (areas the snake cannot enter)
 	private int rgb_Border = java.awt.Color.BLACK.getRGB(); //color of the obstacles on the gameMap
+	private long[] obstacles = null; //bitplane of the obstacles, one bit per pixel, rows of obstacleRowWords longs
+	private int obstacleRowWords = 0;
+	private byte[] clearance = null; //size of the free square starting at each pixel (unsigned, at most MAX_CLEARANCE)
+	private static final int MAX_CLEARANCE = 255;
 
 	private int maxHeight;
 	private int maxWidth;
@@ -55,6 +65,7 @@ public class BackgroundManager
 			gameMap = loader.loadImage(dataImagePath, false);
 			//System.out.println("Backgroundfile loaded: " + dataImagePath);
 			calcCorrection();
+			buildObstacleMap();
 			loadSettings(settingsPath);
 		}
 		catch (Exception err)
@@ -99,15 +110,22 @@ public class BackgroundManager
 	 */
 	private void loadSettings(String settingsPath)
 	{
-		FileInputStream in = null;
+		InputStream in = null;
 		try
 		{
 			//java.util.Date today = new java.util.Date();
 			//rand = new java.util.Random(today.getTime());
 			Properties props = new Properties();
-			java.io.File info = new java.io.File(settingsPath);
-			System.out.println(info.getAbsolutePath() + " " + info.exists());
-			in = new FileInputStream(settingsPath);
+			//use the properties from the asset pack of the level, if there is one
+			AssetPack pack = AssetPack.forFile(settingsPath);
+			if (pack != null)
+				in = pack.getStream(settingsPath);
+			if (in == null)
+			{
+				java.io.File info = new java.io.File(settingsPath);
+				System.out.println(info.getAbsolutePath() + " " + info.exists());
+				in = new FileInputStream(settingsPath);
+			}
 			props.load(in);
 
 			collectableCount = Integer.parseInt(props.getProperty("items"));
@@ -157,7 +175,8 @@ public class BackgroundManager
 	}
 
 	/**
-	 * Checks an area around the given coordinate position for any obstacles.
+	 * Checks an area around the given coordinate position for any obstacles. The area is
+	 * moved into the map, if it is partly outside.
 	 * @param x x coordinate
 	 * @param y y coordinate
 	 * @param controllBereich pixel width and height of the square area that is checked
@@ -166,10 +185,8 @@ public class BackgroundManager
 	private boolean freePlace(int x, int y, int controllBereich)
 	{
 
-		if (gameMap != null)
+		if (clearance != null)
 		{
-			int[] temp = new int[controllBereich * controllBereich];
-
 			int controllx = x - controllBereich / 2;
 			int controlly = y - controllBereich / 2;
 			if (controllx < 0)
@@ -190,22 +207,82 @@ public class BackgroundManager
 				controlly = imageHeight - controllBereich;
 			}
 
-			gameMap.getRGB(controllx, controlly, controllBereich, controllBereich, temp, 0, controllBereich); //get all rgb values in the control area
+			if (controllx < 0 || controlly < 0 || controllBereich > MAX_CLEARANCE)
+			{
+				return false; //map smaller than the area
+			}
 
-			boolean erg = true;
-			for (int i = 0; i < temp.length; i++)
+			//the area is free if the free square starting at its upper left corner is large enough
+			return (clearance[controlly * imageWidth + controllx] & 0xFF) >= controllBereich;
+		}
+		else
+		{
+			return false;
+		}
+	}
+
+	/**
+	 * Check if there is an obstacle at the given pixel.
+	 * @param x x coordinate
+	 * @param y y coordinate
+	 * @return true if the pixel is an obstacle or outside of the map
+	 */
+	public boolean isObstacle(int x, int y)
+	{
+		if (obstacles == null || x < 0 || y < 0 || x >= imageWidth || y >= imageHeight)
+		{
+			return true;
+		}
+		return (obstacles[y * obstacleRowWords + (x >> 6)] & (1L << x)) != 0;
+	}
+
+	/**
+	 * Convert the obstacles of the gameMap into the bitplane and calculate the clearance
+	 * field from it. The clearance of a pixel is 0 for an obstacle, otherwise one more than
+	 * the smallest clearance of the pixels right, below and right below of it (pixels outside
+	 * of the map count as obstacles), at most MAX_CLEARANCE.
+	 */
+	private void buildObstacleMap()
+	{
+		int width = gameMap.getWidth();
+		int height = gameMap.getHeight();
+		obstacleRowWords = (width + 63) >> 6;
+		obstacles = new long[obstacleRowWords * height];
+		int[] row = new int[width];
+		for (int y = 0; y < height; y++)
+		{
+			gameMap.getRGB(0, y, width, 1, row, 0, width);
+			for (int x = 0; x < width; x++)
 			{
-				if (temp[i] == rgb_Border)
+				if (row[x] == rgb_Border)
 				{
-					erg = false; //obstacle found
-					break;
+					obstacles[y * obstacleRowWords + (x >> 6)] |= 1L << x;
 				}
 			}
-			return erg;
 		}
-		else
+
+		clearance = new byte[width * height];
+		for (int y = height - 1; y >= 0; y--)
 		{
-			return false;
+			for (int x = width - 1; x >= 0; x--)
+			{
+				int i = y * width + x;
+				if (isObstacle(x, y))
+				{
+					clearance[i] = 0;
+				}
+				else if (x == width - 1 || y == height - 1)
+				{
+					clearance[i] = 1;
+				}
+				else
+				{
+					int right = clearance[i + 1] & 0xFF;
+					int down = clearance[i + width] & 0xFF;
+					int diagonal = clearance[i + width + 1] & 0xFF;
+					clearance[i] = (byte) Math.min(MAX_CLEARANCE, 1 + Math.min(diagonal, Math.min(right, down)));
+				}
+			}
 		}
 	}
 
@@ -213,7 +213,7 @@ public class GameListManager implements DataChangeListener
 			}
 
 			// updated player must be sent
-			Util.getInstance().update(
+			Util.getInstance().updateAsync(
 					ContainerCoordinatorMapper.GAME_LIST,
 					currentGame,
 					String.valueOf(currentGame.getNr())
@@ -0,0 +1,215 @@
+package snake;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import snake.data.LevelInfo;
+
+/**
+ * The catalog of the installed levels, saved in the levels folder. For every level it keeps
+ * the name, the size and modification time of the level files, the checksum and a small
+ * thumbnail (see {@link LevelInfo}). An entry is only used while the files of the level have
+ * the same size and modification time, so only new or changed levels are read and hashed
+ * at startup.
+ * @author Jakob Lahmer, Matthias Steinboeck
+ */
+public class LevelCatalog
+{
+	private static final int VERSION = 1;
+
+	private File file;
+	private Map<String, LevelInfo> entries = new HashMap<String, LevelInfo>();
+	private boolean changed = false;
+
+	private Logger log = LoggerFactory.getLogger(LevelCatalog.class);
+
+	/**
+	 * Load the catalog from the file. A missing or damaged catalog is rebuilt.
+	 * @param file file of the catalog
+	 */
+	public LevelCatalog(File file)
+	{
+		this.file = file;
+		load();
+	}
+
+	/**
+	 * Get the entry of a level, if its files have not changed.
+	 * @param dirName directory of the level
+	 * @param sizes size of every level file
+	 * @param times modification time of every level file
+	 * @return the entry or null if the level is not in the catalog or has changed
+	 */
+	public LevelInfo get(String dirName, long[] sizes, long[] times)
+	{
+		LevelInfo info = entries.get(dirName);
+		if (info != null && info.matches(sizes, times))
+		{
+			return info;
+		}
+		return null;
+	}
+
+	/**
+	 * Add or replace the entry of a level.
+	 * @param info LevelInfo
+	 */
+	public void put(LevelInfo info)
+	{
+		entries.put(info.getDirName(), info);
+		changed = true;
+	}
+
+	/**
+	 * Remove the entries of the levels that are not installed anymore.
+	 * @param dirNames directories of the installed levels
+	 */
+	public void retain(Collection<String> dirNames)
+	{
+		Iterator<String> it = entries.keySet().iterator();
+		while (it.hasNext())
+		{
+			if (!dirNames.contains(it.next()))
+			{
+				it.remove();
+				changed = true;
+			}
+		}
+	}
+
+	/**
+	 * Save the catalog, if it has changed. It is written to a temporary file first,
+	 * so a crash never leaves a half written catalog.
+	 */
+	public void save()
+	{
+		if (!changed)
+		{
+			return;
+		}
+		File temp = new File(file.getPath() + ".tmp");
+		try
+		{
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+			try
+			{
+				out.writeInt(VERSION);
+				out.writeInt(entries.size());
+				for (LevelInfo info : entries.values())
+				{
+					out.writeUTF(info.getDirName());
+					out.writeUTF(info.getName());
+					long[] sizes = info.getFileSizes();
+					long[] times = info.getFileTimes();
+					out.writeInt(sizes.length);
+					for (int i = 0; i < sizes.length; i++)
+					{
+						out.writeLong(sizes[i]);
+						out.writeLong(times[i]);
+					}
+					writeBytes(out, info.getCheckSum());
+					writeBytes(out, info.getThumbnail());
+				}
+			}
+			finally
+			{
+				out.close();
+			}
+			file.delete();
+			if (!temp.renameTo(file))
+			{
+				log.error("could not save level catalog " + file);
+				return;
+			}
+			changed = false;
+		}
+		catch (IOException e)
+		{
+			log.error("could not save level catalog " + file);
+			e.printStackTrace();
+		}
+	}
+
+	private void load()
+	{
+		if (!file.exists())
+		{
+			return;
+		}
+		try
+		{
+			DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+			try
+			{
+				if (in.readInt() != VERSION)
+				{
+					log.debug("level catalog has an old version, rebuilding it");
+					return;
+				}
+				int count = in.readInt();
+				for (int i = 0; i < count; i++)
+				{
+					LevelInfo info = new LevelInfo(in.readUTF());
+					info.setName(in.readUTF());
+					int files = in.readInt();
+					long[] sizes = new long[files];
+					long[] times = new long[files];
+					for (int j = 0; j < files; j++)
+					{
+						sizes[j] = in.readLong();
+						times[j] = in.readLong();
+					}
+					info.setFileStamps(sizes, times);
+					info.setCheckSum(readBytes(in));
+					info.setThumbnail(readBytes(in));
+					entries.put(info.getDirName(), info);
+				}
+			}
+			finally
+			{
+				in.close();
+			}
+		}
+		catch (IOException e)
+		{
+			log.error("level catalog " + file + " is damaged, rebuilding it");
+			entries.clear();
+		}
+	}
+
+	private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException
+	{
+		if (bytes == null)
+		{
+			out.writeInt(-1);
+			return;
+		}
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static byte[] readBytes(DataInputStream in) throws IOException
+	{
+		int length = in.readInt();
+		if (length < 0)
+		{
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return bytes;
+	}
+}
@@ -1,18 +1,28 @@
 package snake;
 
 import java.util.Vector;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 
+import javax.imageio.ImageIO;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import snake.data.LevelInfo;
 import snake.ui.FLevelSelection;
+import snake.util.Hash;
 
 /**
  * Manages the list of all available levels: Loads levels from disk and checks if
  * they are valid, provides methods to get the paths to all necessary files for a
  * level, a current level can be set.
+ * The name, checksum and thumbnail of the levels are kept in the level catalog
+ * (see {@link LevelCatalog}), so only new or changed levels are read at startup.
  * @author Thomas Scheller, Markus Karolus
  */
 public class LevelsManager
@@ -22,12 +32,20 @@ public class LevelsManager
 	private final String backDefinitionFilename = "back.gif"; //background obstacles definition file
 	private final String thumbnailFilename = "thumb.jpg"; //thumbnail file
 	private final String startPosPropsFilename = "back.properties"; //level settings file (name, player start points, ...)
+	private final String catalogFilename = "levels.idx"; //catalog of the installed levels
+	//files of a level, in the order they are hashed
+	private final String[] levelFilenames = {startPosPropsFilename, backPictureFilename, thumbnailFilename, backDefinitionFilename};
+
+	//size of the level previews, the thumbnails in the catalog have this size
+	public static final int PREVIEW_WIDTH = 160;
+	public static final int PREVIEW_HEIGHT = 120;
 
 	public static final String DEFAULTLEVELDIR = "Level1"; //directory of the def
 
 	private String absolutePath = null;
 	private LevelInfo[] levelList;
 	private int currentLevelIndex = -1;
+	private LevelCatalog catalog;
 
 
 	private Logger log = LoggerFactory.getLogger(LevelsManager.class);
@@ -38,23 +56,28 @@ public class LevelsManager
 		//read all subfolders in the levels folder, save all that contain correct leveldata
 		File levelFolder = new File(levelPath);
 		absolutePath = levelFolder.getAbsolutePath();
+		catalog = new LevelCatalog(new File(levelFolder, catalogFilename));
 		File[] levelFiles = levelFolder.listFiles();
 		Vector<String> levelDirs = new Vector<String>();
+		Vector<LevelInfo> levels = new Vector<LevelInfo>();
 		for (int i = 0; i < levelFiles.length; i++)
 		{
-			if (levelFiles[i].isDirectory() && levelIsCorrect(levelFiles[i]))
+			if (levelFiles[i].isDirectory())
 			{
-				levelDirs.addElement(levelFiles[i].getName());
+				//levels from the catalog are not read again, if their files have not changed
+				LevelInfo info = loadLevelInfo(levelFiles[i]);
+				if (info != null)
+				{
+					levelDirs.addElement(levelFiles[i].getName());
+					levels.addElement(info);
+				}
 			}
 		}
+		catalog.retain(levelDirs);
+		catalog.save();
 
 		//save levels in array as LevelInfo objects
-		levelList = new LevelInfo[levelDirs.size()];
-		for (int i = 0; i < levelList.length; i++)
-		{
-			levelList[i] = new LevelInfo( (String) levelDirs.elementAt(i));
-			levelList[i].loadLevelName(absolutePath, startPosPropsFilename);
-		}
+		levelList = levels.toArray(new LevelInfo[levels.size()]);
 
 		//choose default level as currently set level
 		currentLevelIndex = getLevelIndex(DEFAULTLEVELDIR);
@@ -68,7 +91,8 @@ public class LevelsManager
 	{
 		if (currentLevelIndex >= 0 && currentLevelIndex < levelList.length)
 		{
-			return levelList[currentLevelIndex].getName();
+			//a level read from the space gets its name when its files are saved
+			return getUpToDateLevelInfo(levelList[currentLevelIndex]).getName();
 		}
 		return "<unknown>";
 	}
@@ -114,6 +138,162 @@ public class LevelsManager
 		currentLevelIndex = levelList.length - 1;
 	}
 
+	/**
+	 * Get the folder where the chunks of levels are kept while they are downloaded
+	 * from the space, so an interrupted download can be resumed.
+	 * @return path of the download folder
+	 */
+	public String getDownloadPath()
+	{
+		return absolutePath + File.separator + ".download";
+	}
+
+	/**
+	 * Get the information of a level from the catalog, or read it from the level files
+	 * if the level is new or has changed.
+	 * @param levelFolder folder of the level
+	 * @return the information or null if the folder contains no valid level
+	 */
+	private LevelInfo loadLevelInfo(File levelFolder)
+	{
+		long[] sizes = new long[levelFilenames.length];
+		long[] times = new long[levelFilenames.length];
+		getFileStamps(levelFolder, sizes, times);
+		LevelInfo info = catalog.get(levelFolder.getName(), sizes, times);
+		if (info != null)
+		{
+			return info;
+		}
+		if (!levelIsCorrect(levelFolder))
+		{
+			return null;
+		}
+		info = new LevelInfo(levelFolder.getName());
+		updateLevelInfo(info, sizes, times);
+		return info;
+	}
+
+	/**
+	 * Read the name of a level from its files and save it in the catalog. The checksum and
+	 * the thumbnail are created when they are needed the first time.
+	 * @param info information of the level
+	 * @param sizes size of every level file
+	 * @param times modification time of every level file
+	 */
+	private void updateLevelInfo(LevelInfo info, long[] sizes, long[] times)
+	{
+		info.loadLevelName(absolutePath, startPosPropsFilename);
+		info.setFileStamps(sizes, times);
+		info.setCheckSum(null);
+		info.setThumbnail(null);
+		catalog.put(info);
+	}
+
+	/**
+	 * Get the information of a level, updated if its files have changed since it was read
+	 * (eg a level that has been read from the space).
+	 * @param info information of the level
+	 * @return the information
+	 */
+	private LevelInfo getUpToDateLevelInfo(LevelInfo info)
+	{
+		long[] sizes = new long[levelFilenames.length];
+		long[] times = new long[levelFilenames.length];
+		getFileStamps(new File(absolutePath, info.getDirName()), sizes, times);
+		if (!info.matches(sizes, times))
+		{
+			updateLevelInfo(info, sizes, times);
+			catalog.save();
+		}
+		return info;
+	}
+
+	/**
+	 * Get the size and modification time of the level files, 0 for missing files.
+	 * @param levelFolder folder of the level
+	 * @param sizes size of every level file
+	 * @param times modification time of every level file
+	 */
+	private void getFileStamps(File levelFolder, long[] sizes, long[] times)
+	{
+		for (int i = 0; i < levelFilenames.length; i++)
+		{
+			File file = new File(levelFolder, levelFilenames[i]);
+			sizes[i] = file.length();
+			times[i] = file.lastModified();
+		}
+	}
+
+	/**
+	 * Create the thumbnail of a level in the size of the previews.
+	 * @param thumbnailFile thumbnail file of the level
+	 * @return the thumbnail as jpg or null if it can't be read
+	 */
+	private byte[] createThumbnail(File thumbnailFile)
+	{
+		try
+		{
+			BufferedImage image = ImageIO.read(thumbnailFile);
+			if (image == null)
+			{
+				return null;
+			}
+			if (image.getWidth() > PREVIEW_WIDTH || image.getHeight() > PREVIEW_HEIGHT)
+			{
+				//keep the proportions, like ImageLoader.getResizedImage
+				double scale = Math.min((double) PREVIEW_WIDTH / image.getWidth(), (double) PREVIEW_HEIGHT / image.getHeight());
+				int width = Math.max(1, (int) (image.getWidth() * scale));
+				int height = Math.max(1, (int) (image.getHeight() * scale));
+				BufferedImage resized = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+				Graphics2D g2d = resized.createGraphics();
+				g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+				g2d.drawImage(image, 0, 0, width, height, null);
+				g2d.dispose();
+				image = resized;
+			}
+			ByteArrayOutputStream jpg = new ByteArrayOutputStream();
+			ImageIO.write(image, "jpg", jpg);
+			return jpg.toByteArray();
+		}
+		catch (Exception ex)
+		{
+			log.error("Can't create thumbnail of " + thumbnailFile);
+			return null;
+		}
+	}
+
+	/**
+	 * Get the thumbnail of the current level in the size of the previews.
+	 * @return the thumbnail or null if there is no current level
+	 */
+	public BufferedImage getThumbnailImage()
+	{
+		if (currentLevelIndex == -1)
+		{
+			return null;
+		}
+		LevelInfo info = getUpToDateLevelInfo(levelList[currentLevelIndex]);
+		if (info.getThumbnail() == null)
+		{
+			info.setThumbnail(createThumbnail(new File(getThumbnailPath())));
+			catalog.put(info);
+			catalog.save();
+		}
+		try
+		{
+			if (info.getThumbnail() != null)
+			{
+				return ImageIO.read(new ByteArrayInputStream(info.getThumbnail()));
+			}
+			return ImageIO.read(new File(getThumbnailPath()));
+		}
+		catch (Exception ex)
+		{
+			log.error("Can't read thumbnail of level " + info.getDirName());
+			return null;
+		}
+	}
+
 	/**
 	 * Check if all files exist in the folder that are needed for a valid level.
 	 * @param levelFile folder to check
@@ -335,19 +515,30 @@ public class LevelsManager
 	 */
 	public byte[] getLevelHash()
 	{
-		try
+		if (currentLevelIndex == -1)
 		{
-			String[] fileHashList = new String[4];
-			fileHashList[0] = getStartPosPropsPath();
-			fileHashList[1] = getBackPicturePath();
-			fileHashList[2] = getThumbnailPath();
-			fileHashList[3] = getBackDefinitionPath();
-
-			return snake.util.Hash.getDigest(fileHashList);
+			return null;
 		}
-		catch (Exception ex)
+		//the checksum from the catalog, the level is hashed again only if its files have changed
+		LevelInfo info = getUpToDateLevelInfo(levelList[currentLevelIndex]);
+		if (info.getCheckSum() == null)
 		{
-			return null;
+			try
+			{
+				String[] fileHashList = new String[levelFilenames.length];
+				for (int i = 0; i < fileHashList.length; i++)
+				{
+					fileHashList[i] = absolutePath + File.separator + info.getDirName() + File.separator + levelFilenames[i];
+				}
+				info.setCheckSum(Hash.getDigest(fileHashList));
+				catalog.put(info);
+				catalog.save();
+			}
+			catch (Exception ex)
+			{
+				return null;
+			}
 		}
+		return info.getCheckSum();
 	}
 }
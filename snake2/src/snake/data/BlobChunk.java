@@ -0,0 +1,56 @@
+package snake.data;
+
+import java.io.Serializable;
+
+/**
+ * One chunk of a file in the level blob container. A file is stored once, keyed by its
+ * hash, and split into chunks of a fixed size, so a client only fetches the chunks it
+ * does not have yet (see snake.mzspaces.LevelBlobStore).
+ * @author Jakob Lahmer, Matthias Steinboeck
+ */
+public class BlobChunk implements Serializable
+{
+	private static final long serialVersionUID = 1L;
+
+	private String blobHash;
+	private int index;
+	private byte[] data;
+
+	/**
+	 * Create a new chunk.
+	 * @param blobHash hex hash of the whole file
+	 * @param index number of the chunk in the file
+	 * @param data bytes of the chunk
+	 */
+	public BlobChunk(String blobHash, int index, byte[] data)
+	{
+		this.blobHash = blobHash;
+		this.index = index;
+		this.data = data;
+	}
+
+	public String getBlobHash()
+	{
+		return blobHash;
+	}
+
+	public int getIndex()
+	{
+		return index;
+	}
+
+	public byte[] getData()
+	{
+		return data;
+	}
+
+	/**
+	 * @param blobHash hex hash of the file
+	 * @param index number of the chunk
+	 * @return key of the chunk in the level blob container
+	 */
+	public static String getKey(String blobHash, int index)
+	{
+		return blobHash + "-" + index;
+	}
+}
@@ -99,15 +99,10 @@ public class Game implements Serializable
 		return levelCheckSum;
 	}
 
-	public LevelData getLevelData()
-	{
-		LevelData levelData = new LevelData();
-		return levelData;
-	}
-
 	/**
-	 * Change the level for the game. The new level is written to the space, so the
-	 * other players can download it if they don't have it.
+	 * Change the level for the game. Only the directory and the checksum of the level are
+	 * kept, the files are written to the level blob container (see LevelBlobStore), so the
+	 * other players can download them if they don't have the level.
 	 * @param newData LevelData
 	 */
 	public void setLevelData(LevelData newData)
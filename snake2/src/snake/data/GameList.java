@@ -22,6 +22,7 @@ import snake.mzspaces.ContainerCoordinatorMapper;
 import snake.mzspaces.DataChangeEvent;
 import snake.mzspaces.DataChangeListener;
 import snake.mzspaces.DataChangeType;
+import snake.mzspaces.LevelBlobStore;
 import snake.mzspaces.Util;
 
 /**
@@ -135,9 +136,10 @@ public class GameList implements Serializable, NotificationListener
 		Game game = new Game(0, name, leader);
 		game.setLevelData(initData);
 		games.addElement(game);
+		LevelBlobStore.publishAsync(initData);
 		
 		// however we have to write it to the space. but first we have to delete this very game:
-		Util.getInstance().update(
+		Util.getInstance().updateAsync(
 				ContainerCoordinatorMapper.GAME_LIST,
 				game,
 				String.valueOf(game.getNr())
@@ -157,7 +159,7 @@ public class GameList implements Serializable, NotificationListener
 			if ( ( (Game) games.elementAt(i)).getNr().equals(game.getNr()))
 			{
 				games.removeElementAt(i);
-				Util.getInstance().delete(ContainerCoordinatorMapper.GAME_LIST, String.valueOf(game.getNr()));
+				Util.getInstance().deleteAsync(ContainerCoordinatorMapper.GAME_LIST, String.valueOf(game.getNr()));
 			}
 		}
 	}
@@ -179,7 +181,7 @@ public class GameList implements Serializable, NotificationListener
 
 			// however we have to write it to the space
 			// log.debug("\n\nwriting game to space again\n\n");
-			Util.getInstance().update(
+			Util.getInstance().updateAsync(
 					ContainerCoordinatorMapper.GAME_LIST,
 					game,
 					String.valueOf(game.getNr())
@@ -227,7 +229,7 @@ public class GameList implements Serializable, NotificationListener
 					//determine new leader, if leader has left the game
 					game.updateLeader();
 				}
-				Util.getInstance().update(
+				Util.getInstance().updateAsync(
 						ContainerCoordinatorMapper.GAME_LIST,
 						game,
 						String.valueOf(game.getNr())
@@ -253,7 +255,7 @@ public class GameList implements Serializable, NotificationListener
 				collisionOther);
 		
 		// write game to space
-		Util.getInstance().update(
+		Util.getInstance().updateAsync(
 				ContainerCoordinatorMapper.GAME_LIST,
 				game,
 				String.valueOf(game.getNr())
@@ -262,8 +264,9 @@ public class GameList implements Serializable, NotificationListener
 	
 	public void setGameLevel(Game game, LevelData levelData) {
 		game.setLevelData(levelData);
+		LevelBlobStore.publishAsync(levelData);
 		
-		Util.getInstance().update(
+		Util.getInstance().updateAsync(
 				ContainerCoordinatorMapper.GAME_LIST,
 				game,
 				String.valueOf(game.getNr())
@@ -278,7 +281,7 @@ public class GameList implements Serializable, NotificationListener
 			game = (Game)games.elementAt(index);
 			game.setState(state);
 			if (update) {
-				Util.getInstance().update(
+				Util.getInstance().updateAsync(
 						ContainerCoordinatorMapper.GAME_LIST,
 						game,
 						String.valueOf(game.getNr())
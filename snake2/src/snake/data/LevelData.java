@@ -33,6 +33,34 @@ public class LevelData implements Serializable
 	{
 	}
 
+	/**
+	 * Create a level data object from files that have been read from the space.
+	 * @param levelDir directory of the level
+	 * @param levelName name of the level
+	 * @param checkSum checksum of the level
+	 * @param files content of the files, in the order of {@link #getFiles()}
+	 */
+	public LevelData(String levelDir, String levelName, byte[] checkSum, byte[][] files)
+	{
+		this.levelDir = levelDir;
+		this.levelName = levelName;
+		this.checkSum = checkSum;
+		backgroundImg = files[0];
+		backgroundMapImg = files[1];
+		thumbnailFilenameImg = files[2];
+		startPosPropsFilename = files[3];
+	}
+
+	/**
+	 * Content of all files of the level: background picture, background obstacles definition,
+	 * thumbnail and level settings.
+	 * @return byte[][]
+	 */
+	public byte[][] getFiles()
+	{
+		return new byte[][] {backgroundImg, backgroundMapImg, thumbnailFilenameImg, startPosPropsFilename};
+	}
+
 	/**
 	 * CheckSum from all data
 	 *
@@ -7,12 +7,21 @@ import java.io.FileInputStream;
 /**
  * The LevelInfo class represents the short information from one level
  * Reading the level name from the levelsettingsfile
+ * The information is kept in the level catalog (see snake.LevelCatalog) together with
+ * the size and modification time of the level files, the checksum and a small thumbnail,
+ * so they are only read again when the files change.
  * @author Thomas Scheller, Markus Karolus
  */
 public class LevelInfo
 {
   private String name;
   private String dirName;
+  // size and modification time of the level files, when the information was read
+  private long[] fileSizes;
+  private long[] fileTimes;
+  private byte[] checkSum;
+  // thumbnail in the size of the level previews, as jpg
+  private byte[] thumbnail;
 
   /**
    * Default constructor for a newly created highscore list.
@@ -63,6 +72,63 @@ public class LevelInfo
     return name;
   }
 
+  public void setName(String name)
+  {
+    this.name = name;
+  }
+
+  public long[] getFileSizes()
+  {
+    return fileSizes;
+  }
+
+  public long[] getFileTimes()
+  {
+    return fileTimes;
+  }
+
+  /**
+   * Set the size and modification time of the level files the information belongs to.
+   * @param fileSizes long[]
+   * @param fileTimes long[]
+   */
+  public void setFileStamps(long[] fileSizes, long[] fileTimes)
+  {
+    this.fileSizes = fileSizes;
+    this.fileTimes = fileTimes;
+  }
+
+  /**
+   * Check if the information belongs to the level files with the given size and modification time.
+   * @param sizes long[]
+   * @param times long[]
+   * @return true if no file has changed
+   */
+  public boolean matches(long[] sizes, long[] times)
+  {
+    return java.util.Arrays.equals(fileSizes, sizes) && java.util.Arrays.equals(fileTimes, times);
+  }
+
+  public byte[] getCheckSum()
+  {
+    return checkSum;
+  }
+
+  public void setCheckSum(byte[] checkSum)
+  {
+    this.checkSum = checkSum;
+  }
+
+  public byte[] getThumbnail()
+  {
+    return thumbnail;
+  }
+
+  public void setThumbnail(byte[] thumbnail)
+  {
+    this.thumbnail = thumbnail;
+  }
+
   public String getDirName()
   {
     return dirName;
@@ -0,0 +1,64 @@
+package snake.data;
+
+import java.io.Serializable;
+
+/**
+ * Describes a level in the level blob container: the name and directory of the level and
+ * the hash and size of every file of the level. The files themselves are stored as blobs,
+ * split into chunks (see {@link BlobChunk} and snake.mzspaces.LevelBlobStore).
+ * The manifest is keyed by the checksum of the level, the same checksum the game carries.
+ * @author Jakob Lahmer, Matthias Steinboeck
+ */
+public class LevelManifest implements Serializable
+{
+	private static final long serialVersionUID = 1L;
+
+	private String levelDir;
+	private String levelName;
+	private byte[] checkSum;
+	// hex hash of every file of the level, in the order of LevelData.getFiles()
+	private String[] fileHashes;
+	private int[] fileSizes;
+
+	/**
+	 * Create a new manifest.
+	 * @param levelDir directory of the level
+	 * @param levelName name of the level
+	 * @param checkSum checksum of the level
+	 * @param fileHashes hex hash of every file
+	 * @param fileSizes size of every file in bytes
+	 */
+	public LevelManifest(String levelDir, String levelName, byte[] checkSum, String[] fileHashes, int[] fileSizes)
+	{
+		this.levelDir = levelDir;
+		this.levelName = levelName;
+		this.checkSum = checkSum;
+		this.fileHashes = fileHashes;
+		this.fileSizes = fileSizes;
+	}
+
+	public String getLevelDir()
+	{
+		return levelDir;
+	}
+
+	public String getLevelName()
+	{
+		return levelName;
+	}
+
+	public byte[] getCheckSum()
+	{
+		return checkSum;
+	}
+
+	public String[] getFileHashes()
+	{
+		return fileHashes;
+	}
+
+	public int[] getFileSizes()
+	{
+		return fileSizes;
+	}
+}
@@ -0,0 +1,152 @@
+package snake.data;
+
+/**
+ * Spatial hash grid over the points of a snake, used for the collision checks. The points
+ * are identified by their index in the ring of snake positions, every point is kept in the
+ * cell of its coordinates. When a point gets new coordinates (the head advances), only this
+ * point is moved to its new cell, so the grid is kept up to date with a constant effort per
+ * update. Points that are not part of the snake anymore (behind the tail) stay in the grid,
+ * the caller filters them by their index. Finding the points near a position looks only at
+ * the few cells around it, independent of the length of the snake. The cells are hashed
+ * into a fixed number of buckets, so the map can have any size and the grid does not
+ * allocate anything after it was created.
+ * @author Jakob Lahmer, Matthias Steinboeck
+ */
+public class PointGrid
+{
+	public static final int CELL_BITS = 5; //cells are 32x32 pixels
+	private static final int BUCKETS = 256; //power of two
+	private static final int NONE = -1;
+
+	private final int[] bucketFirst = new int[BUCKETS]; //first point of each bucket
+	private final int[] next; //next point in the same bucket
+	private final int[] prev; //previous point in the same bucket
+	private final int[] bucket; //bucket of each point, NONE if not in the grid
+	private final int[] cellX;
+	private final int[] cellY;
+	private final int[] pointX;
+	private final int[] pointY;
+
+	/**
+	 * Create a new empty grid.
+	 * @param capacity number of points (indices 0 to capacity - 1)
+	 */
+	public PointGrid(int capacity)
+	{
+		next = new int[capacity];
+		prev = new int[capacity];
+		bucket = new int[capacity];
+		cellX = new int[capacity];
+		cellY = new int[capacity];
+		pointX = new int[capacity];
+		pointY = new int[capacity];
+		clear();
+	}
+
+	/**
+	 * Remove all points.
+	 */
+	public void clear()
+	{
+		for (int i = 0; i < BUCKETS; i++)
+		{
+			bucketFirst[i] = NONE;
+		}
+		for (int i = 0; i < bucket.length; i++)
+		{
+			bucket[i] = NONE;
+		}
+	}
+
+	/**
+	 * Set the coordinates of a point, the point is added if it is not in the grid.
+	 * @param index index of the point
+	 * @param x x coordinate
+	 * @param y y coordinate
+	 */
+	public void update(int index, int x, int y)
+	{
+		int cx = x >> CELL_BITS;
+		int cy = y >> CELL_BITS;
+		pointX[index] = x;
+		pointY[index] = y;
+		if (bucket[index] != NONE && cellX[index] == cx && cellY[index] == cy)
+		{
+			return; //still in the same cell
+		}
+		remove(index);
+		int b = getBucket(cx, cy);
+		cellX[index] = cx;
+		cellY[index] = cy;
+		bucket[index] = b;
+		prev[index] = NONE;
+		next[index] = bucketFirst[b];
+		if (bucketFirst[b] != NONE)
+		{
+			prev[bucketFirst[b]] = index;
+		}
+		bucketFirst[b] = index;
+	}
+
+	/**
+	 * Remove a point from the grid.
+	 * @param index index of the point
+	 */
+	public void remove(int index)
+	{
+		int b = bucket[index];
+		if (b == NONE)
+		{
+			return;
+		}
+		if (prev[index] != NONE)
+		{
+			next[prev[index]] = next[index];
+		}
+		else
+		{
+			bucketFirst[b] = next[index];
+		}
+		if (next[index] != NONE)
+		{
+			prev[next[index]] = prev[index];
+		}
+		bucket[index] = NONE;
+	}
+
+	/**
+	 * Find all points inside the given area (bounds included).
+	 * @param minX left bound
+	 * @param minY upper bound
+	 * @param maxX right bound
+	 * @param maxY lower bound
+	 * @param found array the indices of the found points are written to, must have the
+	 * capacity of the grid
+	 * @return number of found points
+	 */
+	public int find(int minX, int minY, int maxX, int maxY, int[] found)
+	{
+		int count = 0;
+		for (int cy = minY >> CELL_BITS; cy <= maxY >> CELL_BITS; cy++)
+		{
+			for (int cx = minX >> CELL_BITS; cx <= maxX >> CELL_BITS; cx++)
+			{
+				for (int i = bucketFirst[getBucket(cx, cy)]; i != NONE; i = next[i])
+				{
+					//other cells can be in the same bucket
+					if (cellX[i] == cx && cellY[i] == cy
+							&& pointX[i] >= minX && pointX[i] <= maxX && pointY[i] >= minY && pointY[i] <= maxY)
+					{
+						found[count++] = i;
+					}
+				}
+			}
+		}
+		return count;
+	}
+
+	private static int getBucket(int cx, int cy)
+	{
+		return (cx * 73856093 ^ cy * 19349663) & (BUCKETS - 1);
+	}
+}
@@ -1,12 +1,12 @@
 package snake.data;
 
 import snake.*;
+import snake.mzspaces.CellPublisher;
 import snake.mzspaces.Util;
 import snake.util.*;
 import snake.ui.SnakePanel;
 import snake.ui.SnakeSprite;
 import snake.ui.CollectableSprite;
-import java.awt.Rectangle;
 
 import org.mozartspaces.core.ContainerReference;
 import org.mozartspaces.core.Entry;
@@ -80,6 +80,11 @@ public class SnakeSpriteData
 	private SnakePanel snakePanel;
 	private GameListManager gameListManager;
 	private ContainerReference gCont;
+	// writes the own snake to the cell of its head
+	private CellPublisher cellPublisher;
+	// points of the own snake by position, for the collision checks
+	private final PointGrid partGrid = new PointGrid(MAXPOINTS);
+	private final int[] gridHits = new int[MAXPOINTS];
 
 	/**
 	 * SnakeSpriteData constructor for active (writing) snake. Get all oids from the player
@@ -158,6 +163,16 @@ public class SnakeSpriteData
 		this.sprite = sprite;
 	}
 
+	/**
+	 * Set the SnakePanel of the game, the heads of the other snakes are read from it for
+	 * the collision check with others.
+	 * @param panel SnakePanel
+	 */
+	public void setSnakePanel(SnakePanel panel)
+	{
+		this.snakePanel = panel;
+	}
+
 	/**
 	 * Set the collectable sprite of the game.
 	 * @param collectables CollectableSprite
@@ -317,6 +332,11 @@ public class SnakeSpriteData
 			}
 			*/
 		}
+		partGrid.clear();
+		for (int i = 0; i < MAXPOINTS; i++)
+		{
+			updatePartGrid(i);
+		}
 
 		//initialize pixel positions
 		for (int i = 0; i <= pixelHeadPos; i++)
@@ -548,6 +568,7 @@ public class SnakeSpriteData
 		//parts[headPos].x = newStartPoint.getX();
 		getPlayer().getHeadPart().y = newStartPoint.getY();
 		//parts[headPos].y = newStartPoint.getY();
+		updatePartGrid(getPlayer().getHeadPos());
 		int end = getPlayer().getHeadPos();
 		//int end = headPos;
 		for (int i = 0; i < STARTPARTS * POINTDIST; i++)
@@ -579,52 +600,67 @@ public class SnakeSpriteData
 	}
 
 	/**
-	 * Check if a part of the snake crashes with the given control rectangle.
-	 * @param controllRect the rectangle that is checked for crash
+	 * Update the position of a point of the snake in the grid, must be called whenever
+	 * the coordinates of a point are changed.
+	 * @param index index of the point
+	 */
+	private void updatePartGrid(int index)
+	{
+		SnakePos pos = getPlayer().getPart(index);
+		partGrid.update(index, (int) pos.x, (int) pos.y);
+	}
+
+	/**
+	 * Check if a part of the snake crashes with the given control rectangle. The rectangle
+	 * of a part starts 2 pixels right and below of its point and is 4 pixels smaller than
+	 * a snake part. Only the points near the control rectangle are looked up in the grid,
+	 * and the points between tail and the checked end are taken.
+	 * @param x x coordinate of the control rectangle
+	 * @param y y coordinate of the control rectangle
+	 * @param width width of the control rectangle
+	 * @param height height of the control rectangle
 	 * @param abstandHead number of parts that are not checked, in direction from head to tail
 	 * @param snakeLength length of the other snake, if crash with another snake is checked
 	 * @return true if a part of the snake crashes with the given control rectangle
 	 */
-	private boolean checkCrash(Rectangle controllRect, int abstandHead, int snakeLength)
+	private boolean checkCrash(int x, int y, int width, int height, int abstandHead, int snakeLength)
 	{
-		int start = getPlayer().getTailPos();
+		int partWidth = snakePartWidth - 4;
+		int partHeight = snakePartHeight - 4;
+		if (width <= 0 || height <= 0 || partWidth <= 0 || partHeight <= 0)
+		{
+			return false; //empty rectangles do not intersect
+		}
+
+		int tailPos = getPlayer().getTailPos();
 		int stop = getPlayer().getHeadPos() - abstandHead;
 		if (stop < 0)
 		{
 			stop = MAXPOINTS + stop;
 		}
+		int checked = (stop - tailPos + MAXPOINTS) % MAXPOINTS; //number of checked points from the tail on
+		int lastPos = (getPlayer().getHeadPos() - 1 + MAXPOINTS) % MAXPOINTS; //point before the head
 
-		while (start != stop)
+		//points whose part rectangle intersects with the control rectangle (-> crash)
+		int hits = partGrid.find(x - partWidth - 1, y - partHeight - 1, x + width - 3, y + height - 3, gridHits);
+		boolean headCrash = false;
+		for (int i = 0; i < hits; i++)
 		{
-			//create a rectangle for the current snake part
-			Rectangle rect = new Rectangle( (int) getPlayer().getPart(start).x + 2, (int) getPlayer().getPart(start).y + 2,
-																		 snakePartWidth - 4,
-																		 snakePartHeight - 4);
-
-			start++;
-			if (start >= MAXPOINTS)
+			int index = gridHits[i];
+			if ((index - tailPos + MAXPOINTS) % MAXPOINTS >= checked)
 			{
-				start = start - MAXPOINTS;
+				continue; //behind the tail or too near to the head
 			}
-
-			//check if the rectangle intersects with the control rectangle (-> crash)
-			if (rect.intersects(controllRect))
+			if (index != lastPos)
 			{
-				if (start == getPlayer().getHeadPos())
-				{
-					if (getSnakeLength() > snakeLength)
-					{ //own snake is longer and wins
-						//System.out.println("Ueber Kopf gewonnen");
-						return false;
-					}
-					else
-					{
-						//own snake is shorter and looses
-						//System.out.println("Ueber Kopf verloren");
-					}
-				}
 				return true;
 			}
+			headCrash = true;
+		}
+		if (headCrash)
+		{
+			//crash of the heads: the longer snake wins, the shorter one looses
+			return getSnakeLength() <= snakeLength;
 		}
 		return false;
 	}
@@ -648,9 +684,8 @@ public class SnakeSpriteData
 			{
 				return false;
 			}
-			Rectangle headRect = new Rectangle( (int) controllPosX + 2, (int) controllPosY + 2,
-																				 snakePartWidth - 4, snakePartHeight - 4);
-			return checkCrash(headRect, POINTDIST * 3, -1);
+			return checkCrash(controllPosX + 2, controllPosY + 2, snakePartWidth - 4, snakePartHeight - 4,
+					POINTDIST * 3, -1);
 		}
 		else
 		{
@@ -660,25 +695,31 @@ public class SnakeSpriteData
 
 	/**
 	 * If collision with others is used, check if the Snake crashes with other snakes, by
-	 * checking if the body of the snake crashes with the head of another snake. Use the
-	 * checkCrash() method for the control.
+	 * checking if the body of the snake crashes with the head of another snake. The heads
+	 * of all other snakes are checked, each with the checkCrash() method.
 	 * @return true if snake crashes with another snake
 	 */
 	private boolean checkCrashOther()
 	{
 		if (useCollisionOTHER())
 		{
-			if (snakePanel != null && snakePanel.getOtherSnakes().length > 0)
+			SnakeSprite[] others = (snakePanel != null) ? snakePanel.getOtherSnakes() : null;
+			if (others != null)
 			{
-				for (int j = 0; j < snakePanel.getOtherSnakes().length; j++)
+				for (int j = 0; j < others.length; j++)
 				{
-					SnakeSpriteData otherSnakeData = snakePanel.getOtherSnakes()[j].getData();
-
-					Rectangle headRectOther = new Rectangle( (int) otherSnakeData.getPlayer().getHeadPart().x + 2,
-						(int) otherSnakeData.getPlayer().getHeadPart().y + 2,
-						snakePartWidth - 4, snakePartHeight - 4
-					);
-					return checkCrash(headRectOther, 0, otherSnakeData.getSnakeLength());
+					//the other snakes are read from space, their data holds the player of the other snake
+					Player other = (others[j] != null) ? others[j].getData().getOtherPlayer() : null;
+					if (other == null || other.getHeadPart() == null)
+					{
+						continue; //not loaded yet
+					}
+					int otherLength = ((other.getHeadPos() - other.getTailPos() + MAXPOINTS) % MAXPOINTS) / POINTDIST;
+					if (checkCrash( (int) other.getHeadPart().x + 2, (int) other.getHeadPart().y + 2,
+						snakePartWidth - 4, snakePartHeight - 4, 0, otherLength))
+					{
+						return true;
+					}
 				}
 			}
 		}
@@ -849,6 +890,7 @@ public class SnakeSpriteData
 			getPlayer().getHeadPart().y = newPosY;
 		}
 		getPlayer().getHeadPart().direction = direction;
+		updatePartGrid(getPlayer().getHeadPos());
 
 		//calculate pixel positions from last headpos to new headpos
 		updatePixelPositions(getPlayer().getHeadPos(), prevPos, true);
@@ -1037,6 +1079,42 @@ public class SnakeSpriteData
 		return otherPlayer;
 	}
 
+	/**
+	 * Get the area of the level covered by the snake: the points from the tail to the head,
+	 * enlarged by the size of a part.
+	 * @return bounding box of the snake
+	 */
+	public java.awt.Rectangle getBounds()
+	{
+		SnakePos[] parts = getPlayer().getParts();
+		int headPos = getPlayer().getHeadPos();
+		double minX = parts[headPos].x;
+		double minY = parts[headPos].y;
+		double maxX = minX;
+		double maxY = minY;
+		for (int pos = getPlayer().getTailPos(); pos != headPos; pos = (pos + 1) % MAXPOINTS)
+		{
+			minX = Math.min(minX, parts[pos].x);
+			minY = Math.min(minY, parts[pos].y);
+			maxX = Math.max(maxX, parts[pos].x);
+			maxY = Math.max(maxY, parts[pos].y);
+		}
+		return new java.awt.Rectangle((int) minX, (int) minY,
+				(int) (maxX - minX) + snakePartWidth, (int) (maxY - minY) + snakePartHeight);
+	}
+
+	/**
+	 * Remove the state of the snake from the space, when the player leaves the game or the
+	 * game is over, so the other players do not receive it anymore.
+	 */
+	public void removeFromSpace()
+	{
+		if (cellPublisher != null)
+		{
+			cellPublisher.remove();
+		}
+	}
+
 	/*
 	public void setOtherPlayer(Player otherPlayer) {
 		this.otherPlayer = otherPlayer;
@@ -1063,8 +1141,9 @@ public class SnakeSpriteData
 					//snakeState = SnakeState.active;
 					getPlayer().setSnakeState(SnakeState.active);
 					//snakeStateOid.writeInt(snakeState.ordinal(), tx);
-					holder.snakeState = getPlayer().getSnakeState();
 				}
+				// always send the state, only the latest holder of the snake may reach the others
+				holder.snakeState = getPlayer().getSnakeState();
 				/*
 				if (snake.corso.Util.usingOneSpace)
 				{
@@ -1090,13 +1169,12 @@ public class SnakeSpriteData
 				
 				//CorsoTopTransaction tx = conn.createTopTransaction();
 
-				if (gCont == null) {
-					gCont = Util.getInstance().getGameContainer(gameListManager.getCurrentGame());
+				// only the clients near to the snake get the update (see AreaOfInterest)
+				if (cellPublisher == null) {
+					cellPublisher = new CellPublisher(gameListManager.getCurrentGame(), getPlayer().getNr().toString());
 				}
-				/*Util.getInstance().getConnection().write(
-					gCont,
-					new Entry(holder)
-				);*/
+				holder.sentMillis = System.currentTimeMillis();
+				cellPublisher.publish(holder, getBounds());
 
 				count = -1;
 
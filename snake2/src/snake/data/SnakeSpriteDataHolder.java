@@ -10,4 +10,5 @@ public class SnakeSpriteDataHolder implements Serializable {
 	public int tailPos;
 	public int headPos;
 	public UUID id;
+	public long sentMillis; // time the state was published by the writing client
 }
@@ -0,0 +1,335 @@
+package snake.mzspaces;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.mozartspaces.core.ContainerReference;
+import org.mozartspaces.core.Entry;
+import org.mozartspaces.notifications.Notification;
+import org.mozartspaces.notifications.NotificationListener;
+import org.mozartspaces.notifications.Operation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import snake.data.Game;
+import snake.data.SnakeSpriteDataHolder;
+
+/**
+ * The area of interest of a client in a network game.
+ * The level is divided into square cells, and every cell has its own container in the space
+ * ("game-[nr]-cell-[column]-[row]"). A snake is written to the cells its body overlaps (see
+ * {@link CellPublisher}), and a client only listens to the cells overlapping its viewport plus
+ * a margin. When the viewport moves, the notifications of the cells that are out of range are
+ * destroyed and the ones of the new cells are created, so a client only receives the updates
+ * of the snakes near to it. The cells every snake is in are tracked by the writes and deletes
+ * of the cells in range, the listener is told when a snake is not in any of them anymore, so
+ * it is not drawn with its last received state.
+ * The cell containers are destroyed when the game is over.
+ * @author Jakob Lahmer, Matthias Steinboeck
+ */
+public class AreaOfInterest
+{
+	// width and height of a cell in pixels
+	public static final int CELL_SIZE = 200;
+	// snakes this far outside the viewport are received too, so they do not pop up at the border
+	public static final int MARGIN = 100;
+
+	private Logger log = LoggerFactory.getLogger(AreaOfInterest.class);
+
+	/**
+	 * Receives the states of the snakes in the cells in range.
+	 */
+	public interface Listener extends NotificationListener
+	{
+		/**
+		 * The snake is not in any of the cells in range anymore, no more states of it are
+		 * received until it enters one of them again.
+		 * @param id id of the snake (the player nr)
+		 */
+		void snakeLeft(UUID id);
+	}
+
+	private Game game;
+	private Listener listener;
+	private int columns;
+	private int rows;
+
+	// cells of the last viewport (game loop only)
+	private Set<Point> wanted = Collections.emptySet();
+	// cells with a notification (writer thread of Util only)
+	private Map<Point, Notification> notifications = new HashMap<Point, Notification>();
+	// cells in range every snake is in (notification threads and writer thread, guarded by itself)
+	private Map<UUID, Set<Point>> snakeCells = new HashMap<UUID, Set<Point>>();
+	private volatile boolean destroyed = false;
+
+	/**
+	 * @param game the network game
+	 * @param listener receives the entries written to the cells in range
+	 * @param levelWidth width of the level in pixels
+	 * @param levelHeight height of the level in pixels
+	 */
+	public AreaOfInterest(Game game, Listener listener, int levelWidth, int levelHeight)
+	{
+		this.game = game;
+		this.listener = listener;
+		this.columns = Math.max(1, (levelWidth + CELL_SIZE - 1) / CELL_SIZE);
+		this.rows = Math.max(1, (levelHeight + CELL_SIZE - 1) / CELL_SIZE);
+	}
+
+	/**
+	 * Get the cells overlapping an area of the level.
+	 * @param area part of the level in pixels
+	 * @return column and row of the cells
+	 */
+	public static Set<Point> getCells(Rectangle area)
+	{
+		return getCells(area, Integer.MAX_VALUE, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * @param game
+	 * @param cell column and row of the cell
+	 * @return name of the container of the cell
+	 */
+	public static String getCellContainerName(Game game, Point cell)
+	{
+		return getCellContainerPrefix(game) + cell.x + "-" + cell.y;
+	}
+
+	/**
+	 * @param game
+	 * @return start of the names of all cell containers of the game
+	 */
+	public static String getCellContainerPrefix(Game game)
+	{
+		return "game-" + game.getNr() + "-cell-";
+	}
+
+	/**
+	 * Set the viewport of the client (the correction position and the size of the panel).
+	 * Called every frame by the game loop, so nothing is done unless the viewport enters
+	 * or leaves a cell. The notifications are changed in the background.
+	 * @param viewport visible part of the level
+	 */
+	public void setViewport(Rectangle viewport)
+	{
+		Rectangle area = new Rectangle(viewport);
+		area.grow(MARGIN, MARGIN);
+		final Set<Point> cells = getCells(area, columns, rows);
+		if (cells.equals(wanted))
+		{
+			return;
+		}
+		wanted = cells;
+		Util.getInstance().executeAsync(new Runnable()
+		{
+			public void run()
+			{
+				subscribe(cells);
+			}
+		});
+	}
+
+	/**
+	 * Destroy all notifications, no more entries are received.
+	 * @param gameOver true if the game is over for all players, the cell containers of the
+	 * game are destroyed then, otherwise only the references to them are dropped
+	 */
+	public void destroy(final boolean gameOver)
+	{
+		destroyed = true;
+		Util.getInstance().executeAsync(new Runnable()
+		{
+			public void run()
+			{
+				subscribe(Collections.<Point>emptySet());
+				if (gameOver)
+				{
+					Util.getInstance().destroyCellContainers(game, columns, rows);
+				}
+				else
+				{
+					Util.getInstance().forgetCellContainers(game);
+				}
+			}
+		});
+	}
+
+	/**
+	 * @param area part of the level in pixels
+	 * @param columns number of columns of the level
+	 * @param rows number of rows of the level
+	 * @return the cells of the level overlapping the area
+	 */
+	private static Set<Point> getCells(Rectangle area, int columns, int rows)
+	{
+		int minColumn = Math.max(0, area.x / CELL_SIZE);
+		int minRow = Math.max(0, area.y / CELL_SIZE);
+		int maxColumn = Math.min(columns - 1, (area.x + area.width) / CELL_SIZE);
+		int maxRow = Math.min(rows - 1, (area.y + area.height) / CELL_SIZE);
+
+		Set<Point> cells = new HashSet<Point>();
+		for (int column = minColumn; column <= maxColumn; column++)
+		{
+			for (int row = minRow; row <= maxRow; row++)
+			{
+				cells.add(new Point(column, row));
+			}
+		}
+		return cells;
+	}
+
+	/**
+	 * Destroy the notifications of the cells that are not needed anymore and create the
+	 * missing ones. A cell that failed is tried again, when the cells change the next time.
+	 * @param cells the cells to listen to
+	 */
+	private void subscribe(Set<Point> cells)
+	{
+		if (destroyed && !cells.isEmpty())
+		{
+			return;
+		}
+
+		Iterator<Map.Entry<Point, Notification>> it = notifications.entrySet().iterator();
+		while (it.hasNext())
+		{
+			Map.Entry<Point, Notification> entry = it.next();
+			if (!cells.contains(entry.getKey()))
+			{
+				try
+				{
+					entry.getValue().destroy();
+				}
+				catch (Exception e)
+				{
+					log.error("could not destroy notification of cell " + entry.getKey());
+					e.printStackTrace();
+				}
+				it.remove();
+				leaveCell(entry.getKey());
+			}
+		}
+
+		for (Point cell : cells)
+		{
+			if (notifications.containsKey(cell))
+			{
+				continue;
+			}
+			ContainerReference container = Util.getInstance().getCellContainer(game, cell);
+			if (container == null)
+			{
+				continue;
+			}
+			try
+			{
+				notifications.put(cell, Util.getInstance().getNotificationManager().createNotification(
+						container,
+						new CellListener(cell),
+						Operation.WRITE, Operation.DELETE));
+			}
+			catch (Exception e)
+			{
+				log.error("could not create notification of cell " + cell);
+				e.printStackTrace();
+			}
+		}
+		log.debug("listening to " + notifications.size() + " cells");
+	}
+
+	/**
+	 * The cell is out of range, the snakes that are only in this cell left the area.
+	 * @param cell
+	 */
+	private void leaveCell(Point cell)
+	{
+		List<UUID> left = new ArrayList<UUID>();
+		synchronized (snakeCells)
+		{
+			Iterator<Map.Entry<UUID, Set<Point>>> it = snakeCells.entrySet().iterator();
+			while (it.hasNext())
+			{
+				Map.Entry<UUID, Set<Point>> entry = it.next();
+				if (entry.getValue().remove(cell) && entry.getValue().isEmpty())
+				{
+					it.remove();
+					left.add(entry.getKey());
+				}
+			}
+		}
+		for (UUID id : left)
+		{
+			listener.snakeLeft(id);
+		}
+	}
+
+	/**
+	 * Tracks the snakes written to and deleted from a cell, and passes the writes on.
+	 */
+	private class CellListener implements NotificationListener
+	{
+		private final Point cell;
+
+		public CellListener(Point cell)
+		{
+			this.cell = cell;
+		}
+
+		public void entryOperationFinished(Notification notification, Operation operation,
+				List<? extends Serializable> entries)
+		{
+			if (entries == null)
+			{
+				return;
+			}
+			for (Serializable entry : entries)
+			{
+				// writes return the entries, deletes only the values
+				Serializable value = (entry instanceof Entry) ? ((Entry) entry).getValue() : entry;
+				if (!(value instanceof SnakeSpriteDataHolder))
+				{
+					continue;
+				}
+				UUID id = ((SnakeSpriteDataHolder) value).id;
+				boolean left = false;
+				synchronized (snakeCells)
+				{
+					Set<Point> cells = snakeCells.get(id);
+					if (operation == Operation.WRITE)
+					{
+						if (cells == null)
+						{
+							cells = new HashSet<Point>();
+							snakeCells.put(id, cells);
+						}
+						cells.add(cell);
+					}
+					else if (operation == Operation.DELETE && cells != null && cells.remove(cell) && cells.isEmpty())
+					{
+						snakeCells.remove(id);
+						left = true;
+					}
+				}
+				if (left)
+				{
+					listener.snakeLeft(id);
+				}
+			}
+			if (operation == Operation.WRITE)
+			{
+				listener.entryOperationFinished(notification, operation, entries);
+			}
+		}
+	}
+}
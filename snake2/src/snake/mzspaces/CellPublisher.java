@@ -0,0 +1,162 @@
+package snake.mzspaces;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.mozartspaces.core.ContainerReference;
+import org.mozartspaces.core.MzsCoreException;
+import org.mozartspaces.core.util.JavaBuiltinSerializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import snake.data.Game;
+import snake.util.PerformanceStats;
+
+/**
+ * Writes the state of the own snake to the cell containers its body overlaps (see {@link AreaOfInterest}),
+ * so every client that sees a part of the snake receives it. The state is written with a key and
+ * replaces the state before (see {@link Util#replace}), so every cell holds at most one state of the snake. When the snake leaves a cell, the state is removed from
+ * this cell after it was written to the new cells, so the snake is always in at least one cell.
+ * Publishing returns at once, the state is written by the writer thread of {@link Util}. If the
+ * space is slower than the game, only the latest state is written.
+ * @author Jakob Lahmer, Matthias Steinboeck
+ */
+public class CellPublisher
+{
+	private Logger log = LoggerFactory.getLogger(CellPublisher.class);
+
+	private Game game;
+	private String key;
+
+	// latest state that was not written yet
+	private Serializable pendingData = null;
+	private Set<Point> pendingCells = null;
+	private boolean scheduled = false;
+
+	// cells the state was written to (writer thread only)
+	private Set<Point> writtenCells = Collections.emptySet();
+
+	/**
+	 * @param game the network game
+	 * @param key key of the snake in the cell containers (the player nr)
+	 */
+	public CellPublisher(Game game, String key)
+	{
+		this.game = game;
+		this.key = key;
+	}
+
+	/**
+	 * Write the state of the snake to the cells overlapping the given area.
+	 * The data is copied, so it may be changed by the caller afterwards.
+	 * @param data state of the snake
+	 * @param bounds area of the level covered by the snake
+	 */
+	public void publish(Serializable data, Rectangle bounds)
+	{
+		Serializable copy;
+		try
+		{
+			copy = new JavaBuiltinSerializer().copyObject(data);
+		}
+		catch (MzsCoreException e)
+		{
+			log.error("could not copy state of snake " + key);
+			e.printStackTrace();
+			return;
+		}
+
+		synchronized (this)
+		{
+			pendingData = copy;
+			pendingCells = AreaOfInterest.getCells(bounds);
+			if (scheduled)
+			{
+				// the waiting write takes the new state
+				return;
+			}
+			scheduled = true;
+		}
+		Util.getInstance().executeAsync(new Runnable()
+		{
+			public void run()
+			{
+				write();
+			}
+		});
+	}
+
+	/**
+	 * Remove the state of the snake from its cells (eg when the game is over).
+	 * States published before are not written anymore.
+	 */
+	public void remove()
+	{
+		synchronized (this)
+		{
+			pendingData = null;
+		}
+		Util.getInstance().executeAsync(new Runnable()
+		{
+			public void run()
+			{
+				for (Point cell : writtenCells)
+				{
+					delete(cell);
+				}
+				writtenCells = Collections.emptySet();
+			}
+		});
+	}
+
+	private void write()
+	{
+		Serializable data;
+		Set<Point> cells;
+		synchronized (this)
+		{
+			data = pendingData;
+			cells = pendingCells;
+			pendingData = null;
+			scheduled = false;
+		}
+		if (data == null)
+		{
+			return;
+		}
+
+		Set<Point> written = new HashSet<Point>();
+		long start = System.nanoTime();
+		for (Point cell : cells)
+		{
+			ContainerReference container = Util.getInstance().getCellContainer(game, cell);
+			if (container != null)
+			{
+				Util.getInstance().replace(container, data, key);
+				written.add(cell);
+			}
+		}
+		PerformanceStats.getInstance().recordWrite(System.nanoTime() - start);
+		for (Point cell : writtenCells)
+		{
+			if (!written.contains(cell))
+			{
+				delete(cell);
+			}
+		}
+		writtenCells = written;
+	}
+
+	private void delete(Point cell)
+	{
+		ContainerReference container = Util.getInstance().getCellContainer(game, cell);
+		if (container != null)
+		{
+			Util.getInstance().delete(container, key);
+		}
+	}
+}
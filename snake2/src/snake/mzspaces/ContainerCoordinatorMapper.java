@@ -13,6 +13,8 @@ public class ContainerCoordinatorMapper {
 	// list of all games
 	public static final String GAME_LIST = "gameList";
 	public static final String LEVEL_DATA = "levelData";
+	// files of the levels, split into chunks and keyed by their hash, and the manifests of the levels (see LevelBlobStore)
+	public static final String LEVEL_BLOB = "levelBlob";
 	
 	// mMn nicht benoetigt?
 	public static final String HIGH_SCORE = "highScore";
@@ -20,6 +22,8 @@ public class ContainerCoordinatorMapper {
 	// container fuer ein spiel (beinhaltet: player, gamestate etc)
 	public static final String GAME = "game";
 	public static final String PLAYER = "player";
+	// one container per cell of the level of a game (see AreaOfInterest), holds the snakes in the cell
+	public static final String CELL = "cell";
 	
 	private static HashMap<String, List<Coordinator>> map = new HashMap<String, List<Coordinator>>();
 	
@@ -36,6 +40,13 @@ public class ContainerCoordinatorMapper {
 		list.add(new FifoCoordinator());
 		map.put(LEVEL_DATA, list);
 
+		// LEVEL_BLOB
+		// chunks are keyed by the hash of their file and their number, manifests by the checksum of the level
+		list = new ArrayList<Coordinator>();
+		list.add(new FifoCoordinator());
+		list.add(new KeyCoordinator());
+		map.put(LEVEL_BLOB, list);
+
 		list = new ArrayList<Coordinator>();
 		list.add(new FifoCoordinator());
 		map.put(PLAYER, list);
@@ -45,6 +56,13 @@ public class ContainerCoordinatorMapper {
 		list = new ArrayList<Coordinator>();
 		list.add(new FifoCoordinator());
 		map.put(GAME, list);
+
+		// CELL
+		// a snake is written with its player nr as key, so it is replaced on every update
+		list = new ArrayList<Coordinator>();
+		list.add(new FifoCoordinator());
+		list.add(new KeyCoordinator());
+		map.put(CELL, list);
 	}
 
 	public static List<Coordinator> getCoordinators(String containerName) {
@@ -0,0 +1,439 @@
+package snake.mzspaces;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import javax.swing.SwingUtilities;
+
+import org.mozartspaces.capi3.CountNotMetException;
+import org.mozartspaces.capi3.DuplicateKeyException;
+import org.mozartspaces.capi3.KeyCoordinator;
+import org.mozartspaces.core.ContainerReference;
+import org.mozartspaces.core.Entry;
+import org.mozartspaces.core.MzsConstants.RequestTimeout;
+import org.mozartspaces.core.MzsCoreException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import snake.LevelsManager;
+import snake.data.BlobChunk;
+import snake.data.LevelData;
+import snake.data.LevelManifest;
+import snake.util.Hash;
+
+/**
+ * Distributes the files of the levels through the level blob container.
+ * Every file is stored once, keyed by its hash, and split into chunks of CHUNK_SIZE bytes.
+ * A {@link LevelManifest}, keyed by the checksum of the level, lists the files of a level.
+ * A game only carries the checksum, so game updates never carry the files.
+ * When a client fetches a level, the missing chunks are read in parallel and kept in the
+ * download folder of the levels, so an interrupted download only fetches the chunks
+ * that are still missing the next time.
+ * The menus fetch the levels in the background with {@link #fetchAsync}, so the gui does
+ * not wait for the space.
+ * @author Jakob Lahmer, Matthias Steinboeck
+ */
+public class LevelBlobStore
+{
+	/**
+	 * Receives a level fetched by {@link LevelBlobStore#fetchAsync}.
+	 */
+	public interface FetchListener
+	{
+		/**
+		 * Called on the event dispatch thread when the fetch is finished.
+		 * @param levelData the level or null if it could not be read completely
+		 */
+		void levelFetched(LevelData levelData);
+	}
+
+	// size of a chunk in bytes
+	public static final int CHUNK_SIZE = 64 * 1024;
+	// number of chunks fetched at the same time
+	public static final int FETCH_THREADS = 4;
+
+	private static Logger log = LoggerFactory.getLogger(LevelBlobStore.class);
+
+	// runs the fetches of the menus one after the other
+	private static ExecutorService fetchQueue;
+
+	/**
+	 * Write the files of the level to the space, unless the level is stored already.
+	 * Files that are stored already (eg by a level with the same background) are not written again.
+	 * @param levelData the level, read from the local filesystem
+	 * @return true if the level is stored in the space
+	 */
+	public static boolean publish(LevelData levelData)
+	{
+		ContainerReference container = Util.getInstance().getContainer(ContainerCoordinatorMapper.LEVEL_BLOB);
+		if (container == null || levelData.getCheckSum() == null)
+		{
+			return false;
+		}
+		String manifestKey = getManifestKey(levelData.getCheckSum());
+		if (read(container, manifestKey) != null)
+		{
+			return true;
+		}
+
+		byte[][] files = levelData.getFiles();
+		String[] hashes = new String[files.length];
+		int[] sizes = new int[files.length];
+		try
+		{
+			for (int i = 0; i < files.length; i++)
+			{
+				if (files[i] == null)
+				{
+					log.error("level " + levelData.getLevelDir() + " is incomplete, not published");
+					return false;
+				}
+				hashes[i] = Hash.getDigestStr(files[i]);
+				sizes[i] = files[i].length;
+				for (int chunk = 0; chunk < getChunkCount(sizes[i]); chunk++)
+				{
+					int from = chunk * CHUNK_SIZE;
+					byte[] data = new byte[Math.min(CHUNK_SIZE, sizes[i] - from)];
+					System.arraycopy(files[i], from, data, 0, data.length);
+					write(container, BlobChunk.getKey(hashes[i], chunk), new BlobChunk(hashes[i], chunk, data));
+				}
+			}
+			// the manifest is written last, so a level with a manifest is complete
+			write(container, manifestKey, new LevelManifest(levelData.getLevelDir(), levelData.getLevelName(),
+					levelData.getCheckSum(), hashes, sizes));
+			log.debug("published level " + levelData.getLevelDir());
+			return true;
+		}
+		catch (Exception e)
+		{
+			log.error("could not publish level " + levelData.getLevelDir());
+			e.printStackTrace();
+		}
+		return false;
+	}
+
+	/**
+	 * Write the level like {@link #publish(LevelData)}, but return at once. The level is written
+	 * by the writer thread of {@link Util}, so it is in the space before a game update that
+	 * is requested afterwards (see Util.updateAsync).
+	 * @param levelData the level, read from the local filesystem
+	 */
+	public static void publishAsync(final LevelData levelData)
+	{
+		Util.getInstance().executeAsync(new Runnable()
+		{
+			public void run()
+			{
+				publish(levelData);
+			}
+		});
+	}
+
+	/**
+	 * Check if the level of a game has to be fetched: it does not exist locally, or it differs
+	 * from the level of the game. The level is set as current level, if it exists.
+	 * @param levels the local levels
+	 * @param levelDir directory of the level of the game
+	 * @param checkSum checksum of the level of the game
+	 * @return true if the level has to be fetched
+	 */
+	public static boolean isFetchNeeded(LevelsManager levels, String levelDir, byte[] checkSum)
+	{
+		if (!levels.levelExists(levelDir))
+		{
+			return true;
+		}
+		levels.setCurrentLevel(levelDir);
+		return !Arrays.equals(levels.getLevelHash(), checkSum);
+	}
+
+	/**
+	 * Read the level like {@link #fetch(byte[], String)}, but return at once. The level is
+	 * read by a background thread, the listener gets it on the event dispatch thread.
+	 * @param checkSum checksum of the level (see Game.getLevelCheckSum)
+	 * @param downloadPath folder the chunks are kept in until the level is complete
+	 * @param listener gets the level or null if it could not be read completely
+	 */
+	public static void fetchAsync(final byte[] checkSum, final String downloadPath, final FetchListener listener)
+	{
+		getFetchQueue().execute(new Runnable()
+		{
+			public void run()
+			{
+				final LevelData levelData = fetch(checkSum, downloadPath);
+				SwingUtilities.invokeLater(new Runnable()
+				{
+					public void run()
+					{
+						listener.levelFetched(levelData);
+					}
+				});
+			}
+		});
+	}
+
+	private static synchronized ExecutorService getFetchQueue()
+	{
+		if (fetchQueue == null)
+		{
+			fetchQueue = Executors.newSingleThreadExecutor(new ThreadFactory()
+			{
+				@Override
+				public Thread newThread(Runnable r)
+				{
+					Thread t = new Thread(r, "LevelFetch");
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		}
+		return fetchQueue;
+	}
+
+	/**
+	 * Read the level with the given checksum from the space. Blocks until all chunks are read.
+	 * @param checkSum checksum of the level (see Game.getLevelCheckSum)
+	 * @param downloadPath folder the chunks are kept in until the level is complete
+	 * @return the level or null if it could not be read completely
+	 */
+	public static LevelData fetch(byte[] checkSum, String downloadPath)
+	{
+		final ContainerReference container = Util.getInstance().getContainer(ContainerCoordinatorMapper.LEVEL_BLOB);
+		if (container == null || checkSum == null)
+		{
+			return null;
+		}
+		Serializable found = read(container, getManifestKey(checkSum));
+		if (!(found instanceof LevelManifest))
+		{
+			log.error("level " + Hash.toHexString(checkSum) + " is not in the space");
+			return null;
+		}
+		LevelManifest manifest = (LevelManifest) found;
+		String[] hashes = manifest.getFileHashes();
+		int[] sizes = manifest.getFileSizes();
+
+		ExecutorService fetcher = Executors.newFixedThreadPool(FETCH_THREADS, new ThreadFactory()
+		{
+			@Override
+			public Thread newThread(Runnable r)
+			{
+				Thread t = new Thread(r, "LevelFetcher");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		try
+		{
+			// fetch the chunks that are not in the download folder yet
+			List<Future<Boolean>> pending = new ArrayList<Future<Boolean>>();
+			int missing = 0;
+			for (int i = 0; i < hashes.length; i++)
+			{
+				File folder = new File(downloadPath, hashes[i]);
+				folder.mkdirs();
+				for (int chunk = 0; chunk < getChunkCount(sizes[i]); chunk++)
+				{
+					final File part = new File(folder, String.valueOf(chunk));
+					if (part.exists())
+					{
+						continue;
+					}
+					missing++;
+					final String key = BlobChunk.getKey(hashes[i], chunk);
+					pending.add(fetcher.submit(new Callable<Boolean>()
+					{
+						@Override
+						public Boolean call() throws Exception
+						{
+							return fetchChunk(container, key, part);
+						}
+					}));
+				}
+			}
+			boolean complete = true;
+			for (Future<Boolean> chunk : pending)
+			{
+				complete &= chunk.get();
+			}
+			log.debug("fetched " + missing + " chunks of level " + manifest.getLevelDir());
+			if (!complete)
+			{
+				// the chunks that were read are kept for the next try
+				log.error("level " + manifest.getLevelDir() + " could not be read completely");
+				return null;
+			}
+
+			// join the chunks and check the files
+			byte[][] files = new byte[hashes.length][];
+			for (int i = 0; i < hashes.length; i++)
+			{
+				File folder = new File(downloadPath, hashes[i]);
+				files[i] = join(folder, sizes[i]);
+				if (!Hash.getDigestStr(files[i]).equals(hashes[i]))
+				{
+					log.error("file " + hashes[i] + " of level " + manifest.getLevelDir() + " is damaged");
+					deleteFolder(folder);
+					return null;
+				}
+			}
+			for (int i = 0; i < hashes.length; i++)
+			{
+				deleteFolder(new File(downloadPath, hashes[i]));
+			}
+			return new LevelData(manifest.getLevelDir(), manifest.getLevelName(), manifest.getCheckSum(), files);
+		}
+		catch (Exception e)
+		{
+			log.error("could not fetch level " + manifest.getLevelDir());
+			e.printStackTrace();
+		}
+		finally
+		{
+			fetcher.shutdownNow();
+		}
+		return null;
+	}
+
+	/**
+	 * @param checkSum checksum of the level
+	 * @return key of the manifest of the level in the level blob container
+	 */
+	public static String getManifestKey(byte[] checkSum)
+	{
+		return "level-" + Hash.toHexString(checkSum);
+	}
+
+	private static int getChunkCount(int size)
+	{
+		return (size + CHUNK_SIZE - 1) / CHUNK_SIZE;
+	}
+
+	/**
+	 * Read a chunk and save it to the file. The chunk is written to a temporary file first,
+	 * so the file only exists if the chunk is complete.
+	 */
+	private static boolean fetchChunk(ContainerReference container, String key, File part) throws IOException
+	{
+		Serializable found = read(container, key);
+		if (!(found instanceof BlobChunk))
+		{
+			log.error("chunk " + key + " is not in the space");
+			return false;
+		}
+		File temp = new File(part.getPath() + ".tmp");
+		FileOutputStream writer = new FileOutputStream(temp);
+		try
+		{
+			writer.write(((BlobChunk) found).getData());
+		}
+		finally
+		{
+			writer.close();
+		}
+		return temp.renameTo(part);
+	}
+
+	/**
+	 * Join the chunks in the folder to the file.
+	 */
+	private static byte[] join(File folder, int size) throws IOException
+	{
+		byte[] file = new byte[size];
+		for (int chunk = 0; chunk < getChunkCount(size); chunk++)
+		{
+			FileInputStream reader = new FileInputStream(new File(folder, String.valueOf(chunk)));
+			try
+			{
+				int offset = chunk * CHUNK_SIZE;
+				int length = Math.min(CHUNK_SIZE, size - offset);
+				int read = 0;
+				while (read < length)
+				{
+					int len = reader.read(file, offset + read, length - read);
+					if (len < 0)
+					{
+						throw new IOException("chunk " + chunk + " in " + folder + " is too short");
+					}
+					read += len;
+				}
+			}
+			finally
+			{
+				reader.close();
+			}
+		}
+		return file;
+	}
+
+	private static void deleteFolder(File folder)
+	{
+		File[] files = folder.listFiles();
+		if (files != null)
+		{
+			for (File file : files)
+			{
+				file.delete();
+			}
+		}
+		folder.delete();
+	}
+
+	/**
+	 * @return the entry with the key or null
+	 */
+	private static Serializable read(ContainerReference container, String key)
+	{
+		try
+		{
+			ArrayList<Serializable> entries = Util.getInstance().getConnection().read(
+					container, KeyCoordinator.newSelector(key), RequestTimeout.TRY_ONCE, null);
+			return entries.isEmpty() ? null : entries.get(0);
+		}
+		catch (CountNotMetException e)
+		{
+			return null;
+		}
+		catch (Exception e)
+		{
+			log.error("could not read " + key + " from the level blob container");
+			e.printStackTrace();
+		}
+		return null;
+	}
+
+	/**
+	 * Write the entry with the key, an entry that exists already is kept (the content is the same).
+	 */
+	private static void write(ContainerReference container, String key, Serializable data) throws Exception
+	{
+		try
+		{
+			Util.getInstance().getConnection().write(container, RequestTimeout.ZERO, null,
+					new Entry(data, KeyCoordinator.newCoordinationData(key)));
+		}
+		catch (DuplicateKeyException e)
+		{
+			log.debug(key + " is stored already");
+		}
+		catch (MzsCoreException e)
+		{
+			if (!(e.getCause() instanceof DuplicateKeyException))
+			{
+				throw e;
+			}
+			log.debug(key + " is stored already");
+		}
+	}
+}
@@ -0,0 +1,67 @@
+package snake.mzspaces;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.mozartspaces.capi3.Capi3AspectPort;
+import org.mozartspaces.capi3.CoordinationData;
+import org.mozartspaces.capi3.EntryOperationResult;
+import org.mozartspaces.capi3.KeyCoordinator;
+import org.mozartspaces.capi3.KeyCoordinator.KeyData;
+import org.mozartspaces.capi3.OperationStatus;
+import org.mozartspaces.capi3.Selector;
+import org.mozartspaces.capi3.SubTransaction;
+import org.mozartspaces.capi3.Transaction;
+import org.mozartspaces.core.Entry;
+import org.mozartspaces.core.MzsConstants;
+import org.mozartspaces.core.aspects.AbstractContainerAspect;
+import org.mozartspaces.core.aspects.AspectResult;
+import org.mozartspaces.core.requests.WriteEntriesRequest;
+
+/**
+ * Container aspect, which turns a write with a key into a replace:
+ * an entry with the same key is taken in the sub transaction of the write,
+ * so the write does not fail because of a duplicate key.
+ * This way a snake is written to a cell container (see {@link Util#replace}) with a single
+ * write and without a transaction, instead of a take and a write in a transaction.
+ * The aspect is added when a cell container is created (see {@link Util#getCellContainer}).
+ * @author Jakob Lahmer, Matthias Steinboeck
+ */
+public class ReplaceAspect extends AbstractContainerAspect
+{
+	private static final long serialVersionUID = 4861590427351896377L;
+
+	public ReplaceAspect() {}
+
+	@Override
+	public AspectResult preWrite(WriteEntriesRequest request, Transaction tx,
+			SubTransaction stx, Capi3AspectPort capi3, int executionCount)
+	{
+		for (Entry e : request.getEntries())
+		{
+			for (CoordinationData data : e.getCoordinationData())
+			{
+				if (data instanceof KeyData)
+				{
+					KeyData key = (KeyData) data;
+					List<Selector> selectors = new ArrayList<Selector>();
+					selectors.add(KeyCoordinator.newSelector(key.getKey(), MzsConstants.Selecting.COUNT_MAX, key.getName()));
+
+					EntryOperationResult result = capi3.executeTakeOperation(
+							selectors,
+							request.getIsolation(),
+							stx,
+							request.getContext());
+
+					// the entry is locked by another transaction => the write waits for it, a write
+					// with the timeout zero (see Util#replace) fails at once
+					if (result.getStatus() == OperationStatus.LOCKED || result.getStatus() == OperationStatus.DELAYABLE)
+					{
+						return new AspectResult(result);
+					}
+				}
+			}
+		}
+		return AspectResult.OK;
+	}
+}
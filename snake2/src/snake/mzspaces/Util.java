@@ -1,11 +1,19 @@
 package snake.mzspaces;
 
+import java.awt.Point;
 import java.io.Serializable;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 import org.mozartspaces.capi3.Coordinator;
+import org.mozartspaces.capi3.ContainerNameNotAvailableException;
 import org.mozartspaces.capi3.CountNotMetException;
+import org.mozartspaces.capi3.DuplicateKeyException;
 import org.mozartspaces.capi3.FifoCoordinator;
 import org.mozartspaces.capi3.KeyCoordinator;
 import org.mozartspaces.capi3.KeyCoordinator.KeyData;
@@ -22,6 +30,8 @@ import org.mozartspaces.core.MzsCoreException;
 import org.mozartspaces.core.TransactionReference;
 import org.mozartspaces.core.MzsConstants.Container;
 import org.mozartspaces.core.MzsConstants.RequestTimeout;
+import org.mozartspaces.core.aspects.ContainerIPoint;
+import org.mozartspaces.core.util.JavaBuiltinSerializer;
 import org.mozartspaces.notifications.NotificationManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -43,6 +53,10 @@ public class Util
 	private MzsCore core;
 	private Settings settings;
 	private NotificationManager notificationManager;
+	// runs the asynchronous updates in the order they were requested
+	private ExecutorService writer;
+	// cell containers already looked up, by name
+	private Map<String, ContainerReference> cellContainers = new ConcurrentHashMap<String, ContainerReference>();
 
 	private Logger log = LoggerFactory.getLogger(Util.class);
 	private URI space;
@@ -191,6 +205,86 @@ public class Util
 		return null;
 	}
 
+	/**
+	 * creates/returns the container of a cell of the level of a game (see {@link AreaOfInterest}).
+	 * the references are cached, because the cell of a snake changes often.
+	 * a new container gets a {@link ReplaceAspect}, so the snakes can be written with {@link #replace}
+	 * @param game
+	 * @param cell column and row of the cell
+	 * @return ContainerReference or null
+	 */
+	public ContainerReference getCellContainer(Game game, Point cell) {
+		String containerName = AreaOfInterest.getCellContainerName(game, cell);
+		ContainerReference container = cellContainers.get(containerName);
+		if (container != null) {
+			return container;
+		}
+		try {
+			try {
+				container = getConnection().lookupContainer(containerName, this.getSpaceUri(), RequestTimeout.TRY_ONCE, null);
+			} catch (MzsCoreException e) {
+				try {
+					container = getConnection().createContainer(
+							containerName,
+							this.getSpaceUri(),
+							Container.UNBOUNDED,
+							ContainerCoordinatorMapper.getCoordinators(ContainerCoordinatorMapper.CELL),
+							null,
+							null);
+					getConnection().addContainerAspect(new ReplaceAspect(), container, ContainerIPoint.PRE_WRITE);
+				} catch (ContainerNameNotAvailableException e1) {
+					// created by another player in the meantime
+					container = getConnection().lookupContainer(containerName, this.getSpaceUri(), RequestTimeout.TRY_ONCE, null);
+				}
+			}
+			cellContainers.put(containerName, container);
+			return container;
+		} catch (MzsCoreException e) {
+			e.printStackTrace();
+			System.err.println("Util: Could not load Container (" + containerName + "): " + e.getMessage());
+		} catch (Exception e) {
+			e.printStackTrace();
+			System.err.println("Util: Could not connect to XVSM: " + e.getMessage());
+		}
+		return null;
+	}
+
+	/**
+	 * destroys the containers of all cells of the level of a game (when the game is over).
+	 * cells that were never used have no container, they are skipped
+	 * @param game
+	 * @param columns number of columns of the level
+	 * @param rows number of rows of the level
+	 */
+	public void destroyCellContainers(Game game, int columns, int rows) {
+		for (int column = 0; column < columns; column++) {
+			for (int row = 0; row < rows; row++) {
+				String containerName = AreaOfInterest.getCellContainerName(game, new Point(column, row));
+				try {
+					getConnection().destroyContainer(
+							getConnection().lookupContainer(containerName, this.getSpaceUri(), RequestTimeout.ZERO, null),
+							null);
+				} catch (Exception e) {
+					// not created or already destroyed by another player
+				}
+			}
+		}
+		forgetCellContainers(game);
+	}
+
+	/**
+	 * drops the cached references to the cell containers of a game
+	 * @param game
+	 */
+	public void forgetCellContainers(Game game) {
+		String prefix = AreaOfInterest.getCellContainerPrefix(game);
+		for (String containerName : cellContainers.keySet()) {
+			if (containerName.startsWith(prefix)) {
+				cellContainers.remove(containerName);
+			}
+		}
+	}
+
 	public NotificationManager getNotificationManager() {
 		if (notificationManager == null) {
 			notificationManager = new NotificationManager(core);
@@ -342,7 +436,33 @@ public class Util
 	 */
 	public void delete(String containerName, ArrayList<Selector> selectors,
 			TransactionReference tx) {
-		ContainerReference container = getContainer(containerName);
+		delete(getContainer(containerName), selectors, tx);
+	}
+
+	/**
+	 * deletes an object from the given container identified by its key
+	 *
+	 * @param container the container
+	 * @param key the key that is used in KeyCoordinator.newSelector
+	 */
+	public void delete(ContainerReference container, String key) {
+		ArrayList<Selector> selectors = new ArrayList<Selector>();
+		selectors.add(KeyCoordinator.newSelector(
+				key,
+				MzsConstants.Selecting.COUNT_ALL)
+		);
+		delete(container, selectors, null);
+	}
+
+	/**
+	 * @see Util.delete only with a container reference
+	 *
+	 * @param container the container
+	 * @param selectors a list of selectors that identify the element that should be deleted
+	 * @param tx transaction
+	 */
+	public void delete(ContainerReference container, ArrayList<Selector> selectors,
+			TransactionReference tx) {
 		try {
 			conn.delete(container, selectors, MzsConstants.RequestTimeout.ZERO, tx);
 		} catch (MzsCoreException e) {
@@ -372,6 +492,114 @@ public class Util
 		);
 	}
 
+	/**
+	 * updates an object in the given container using a key coordinator
+	 *
+	 * @param container the container, eg a cell container
+	 * @param data the data that should be updated
+	 * @param key a key identifying the object in the container
+	 */
+	public void update(ContainerReference container, Serializable data, String key) {
+		update(
+			container,
+			data,
+			KeyCoordinator.newSelector(key),
+			KeyCoordinator.newCoordinationData(key)
+		);
+	}
+
+	/**
+	 * writes an object with a key in a single write without a transaction, an object with the
+	 * same key is replaced by the {@link ReplaceAspect} of the container (eg a cell container).
+	 * if the container has no aspect (yet), the write fails on the duplicate key and the object
+	 * is updated with {@link #update(ContainerReference, Serializable, String)}
+	 *
+	 * @param container the container, eg a cell container
+	 * @param data the data that should be written
+	 * @param key a key identifying the object in the container
+	 */
+	public void replace(ContainerReference container, Serializable data, String key) {
+		try {
+			getConnection().write(
+					container,
+					MzsConstants.RequestTimeout.ZERO,
+					null,
+					new Entry(data, KeyCoordinator.newCoordinationData(key))
+			);
+		} catch (DuplicateKeyException e) {
+			update(container, data, key);
+		} catch (MzsCoreException e) {
+			log.error("Could not write to container "+container.getId()+" (mzexception)");
+			e.printStackTrace();
+		} catch (Exception e) {
+			log.error("Could not write to container "+container.getId()+" (java exception)");
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * updates an object like {@link #update(String, Serializable, String)}, but returns at once.
+	 * the data is copied, so it may be changed by the caller afterwards. updates are written
+	 * in the order they were requested, so the gui never waits for the space.
+	 *
+	 * @param containerName the containers name found in the {@link ContainerCoordinatorMapper}
+	 * @param data the data that should be updated
+	 * @param key a key identifying the object in the container
+	 */
+	public void updateAsync(final String containerName, Serializable data, final String key) {
+		final Serializable copy;
+		try {
+			copy = new JavaBuiltinSerializer().copyObject(data);
+		} catch (MzsCoreException e) {
+			log.error("Could not copy data for container "+containerName);
+			e.printStackTrace();
+			return;
+		}
+		getWriter().execute(new Runnable() {
+			@Override
+			public void run() {
+				update(containerName, copy, key);
+			}
+		});
+	}
+
+	/**
+	 * deletes an object like {@link #delete(String, String)}, but returns at once
+	 *
+	 * @param containerName the containers name found in the {@link ContainerCoordinatorMapper}
+	 * @param key the key that is used in KeyCoordinator.newSelector
+	 */
+	public void deleteAsync(final String containerName, final String key) {
+		getWriter().execute(new Runnable() {
+			@Override
+			public void run() {
+				delete(containerName, key);
+			}
+		});
+	}
+
+	/**
+	 * runs a task on the thread of the asynchronous updates, after the updates requested before
+	 * @param task
+	 */
+	public void executeAsync(Runnable task) {
+		getWriter().execute(task);
+	}
+
+	private synchronized ExecutorService getWriter() {
+		if (writer == null) {
+			writer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "SpaceWriter");
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		}
+		return writer;
+	}
+
 	/**
 	 * updates an object in the given container using the provided selector to take and key to write it.
 	 * that all happens in a new transaction.
@@ -383,7 +611,18 @@ public class Util
 	 * @param key keydata used to write
 	 */
 	public void update(String containerName, Serializable data, KeySelector selector, KeyData key) {
-		ContainerReference container = getContainer(containerName);
+		update(getContainer(containerName), data, selector, key);
+	}
+
+	/**
+	 * @see Util.update only with a container reference
+	 *
+	 * @param container the container
+	 * @param data the data that should be updated
+	 * @param selector selector used for take
+	 * @param key keydata used to write
+	 */
+	public void update(ContainerReference container, Serializable data, KeySelector selector, KeyData key) {
 		TransactionReference tx = createTransaction();
 		try {
 			ArrayList<Selector> selectors = new ArrayList<Selector>();
@@ -34,16 +34,16 @@ public class CollectableSprite
 	private int doublePointsState = 0;
 	private Font specialFont;
 
-	//variables for audio clips and images. brightened images are stored in an array,
-	//so the brighten operation has to be performed only once
+	//variables for audio clips and images. the images are shared by all sprites with the same
+	//skin, the brightened images are kept in the effect cache, so the brighten operation has to
+	//be performed only once
 	private ClipsLoader clipsLoader = null;
 	private ImageLoader imgLoader = null;
+	private EffectCache effectCache = EffectCache.getInstance();
 	private BufferedImage imgCollectable = null;
-	private BufferedImage[] imgCollectableBright = null;
 	private BufferedImage imgSpeedUp = null;
-	private BufferedImage[] imgSpeedUpBright = null;
 	private BufferedImage imgDoublePoints = null;
-	private BufferedImage[] imgDoublePointsBright = null;
+	private int brightnessCount = 0;
 	private int imgPos = 0;
 	private int imgWidth = 10;
 	private int imgHeight = 10;
@@ -88,9 +88,10 @@ public class CollectableSprite
 		SkinsManager skinsManager = new SkinsManager();
 		skinsManager.setCurrentSkin(myPlayer.getSkin());
 		clipsLoader = skinsManager.getClipsLoader(); //get a clipsloader holding all sound of the current skin
-		imgCollectable = imgLoader.loadImage(skinsManager.getCollectablePath(), false);
-		imgSpeedUp = imgLoader.loadImage(skinsManager.getSpeedUpPath(), false);
-		imgDoublePoints = imgLoader.loadImage(skinsManager.getDoublePointsPath(), false);
+		SkinAtlas atlas = SkinAtlas.getAtlas(imgLoader, skinsManager);
+		imgCollectable = atlas.getSourceImage(SkinAtlas.COLLECTABLE);
+		imgSpeedUp = atlas.getSourceImage(SkinAtlas.SPEEDUP);
+		imgDoublePoints = atlas.getSourceImage(SkinAtlas.DOUBLEPOINTS);
 		specialFont = new Font("SansSerif", Font.BOLD, 20);
 		createImages();
 		imgWidth = imgCollectable.getWidth();
@@ -101,24 +102,25 @@ public class CollectableSprite
 	}
 
 	/**
-	 * Create all brightened images and store them in arrays, so they don't need to
-	 * be created every time at drawing.
+	 * Create all brightened images in the effect cache, so they don't need to
+	 * be created at drawing. The images of a skin are created only by the first sprite.
 	 */
 	private void createImages()
 	{
-		float brightness = minBrightness;
-		int anz = (int) ( (maxBrightness - minBrightness) / stepBrightness);
-		imgCollectableBright = new BufferedImage[anz];
-		imgSpeedUpBright = new BufferedImage[anz];
-		imgDoublePointsBright = new BufferedImage[anz];
-
-		for (int i = 0; i < anz; i++)
+		brightnessCount = (int) ( (maxBrightness - minBrightness) / stepBrightness);
+		float[] brightness = new float[brightnessCount];
+		for (int i = 0; i < brightnessCount; i++)
 		{
-			imgCollectableBright[i] = imgLoader.getBrighterImage(imgCollectable, brightness);
-			imgSpeedUpBright[i] = imgLoader.getBrighterImage(imgSpeedUp, brightness);
-			imgDoublePointsBright[i] = imgLoader.getBrighterImage(imgDoublePoints, brightness);
-			brightness += stepBrightness;
+			brightness[i] = getBrightness(i);
 		}
+		effectCache.prepare(imgCollectable, brightness, 1.0f);
+		effectCache.prepare(imgSpeedUp, brightness, 1.0f);
+		effectCache.prepare(imgDoublePoints, brightness, 1.0f);
+	}
+
+	private float getBrightness(int pos)
+	{
+		return minBrightness + pos * stepBrightness;
 	}
 
 	/**
@@ -217,7 +219,7 @@ public class CollectableSprite
 		}
 
 		//update brightness value
-		if (imgPos >= imgCollectableBright.length - 1)
+		if (imgPos >= brightnessCount - 1)
 		{
 			brightnessInc = false;
 		}
@@ -241,27 +243,41 @@ public class CollectableSprite
 	/**
 	 * Draw all current collectables, and fading for eaten collectables. Also draw information for
 	 * double points powerup (icon and remaining time in seconds), if it is currently active.
+	 * The drawn regions are added to the dirty regions.
 	 * @param g Graphics
 	 * @param correctionPos correction of the drawing positions  because of scrolling map
+	 * @param dirty regions of the panel that are drawn in this frame, may be null
 	 */
-	public void drawSprite(Graphics g, java.awt.Point correctionPos)
+	public void drawSprite(Graphics g, java.awt.Point correctionPos, DirtyRegions dirty)
 	{
 		Graphics2D g2d = (Graphics2D) g;
+		float brightness = getBrightness(imgPos);
 		//draw collectables (image depending on type)
 		for (int i = 0; i < data.getPositions().length; i++)
 		{
+			BufferedImage image = null;
 			switch (data.getPositions()[i].type)
 			{
 			case normal:
-				g.drawImage(imgCollectableBright[imgPos], data.getPositions()[i].x - correctionPos.x, data.getPositions()[i].y - correctionPos.y, null);
+				image = imgCollectable;
 				break;
 			case speedup:
-				g.drawImage(imgSpeedUpBright[imgPos], data.getPositions()[i].x - correctionPos.x, data.getPositions()[i].y - correctionPos.y, null);
+				image = imgSpeedUp;
 				break;
 			case doublepoints:
-				g.drawImage(imgDoublePointsBright[imgPos], data.getPositions()[i].x - correctionPos.x, data.getPositions()[i].y - correctionPos.y, null);
+				image = imgDoublePoints;
 				break;
 			}
+			if (image != null)
+			{
+				int x = data.getPositions()[i].x - correctionPos.x;
+				int y = data.getPositions()[i].y - correctionPos.y;
+				g.drawImage(effectCache.getFrame(image, brightness, 1.0f), x, y, null);
+				if (dirty != null)
+				{
+					dirty.add(x, y, image.getWidth(), image.getHeight());
+				}
+			}
 		}
 
 		//draw any removing elements
@@ -271,18 +287,32 @@ public class CollectableSprite
 			double state = (Double) data.getEatenStatus().elementAt(i);
 			double sizeChange = 3.0 - 2.0 * state;
 
+			BufferedImage image = null;
 			switch (pos.type)
 			{
 			case normal:
-				imgLoader.drawResizedFadedImage(g2d, imgCollectable, pos.x - correctionPos.x, pos.y - correctionPos.y, sizeChange, sizeChange, (float) state);
+				image = imgCollectable;
 				break;
 			case speedup:
-				imgLoader.drawResizedFadedImage(g2d, imgSpeedUp, pos.x - correctionPos.x, pos.y - correctionPos.y, sizeChange, sizeChange, (float) state);
+				image = imgSpeedUp;
 				break;
 			case doublepoints:
-				imgLoader.drawResizedFadedImage(g2d, imgDoublePoints, pos.x - correctionPos.x, pos.y - correctionPos.y, sizeChange, sizeChange, (float) state);
+				image = imgDoublePoints;
 				break;
 			}
+			if (image != null)
+			{
+				int x = pos.x - correctionPos.x;
+				int y = pos.y - correctionPos.y;
+				imgLoader.drawResizedFadedImage(g2d, image, x, y, sizeChange, sizeChange, (float) state);
+				if (dirty != null)
+				{
+					//same size and position as calculated by drawResizedFadedImage, plus a pixel for rounding
+					int width = (int) (image.getWidth() * sizeChange);
+					int height = (int) (image.getHeight() * sizeChange);
+					dirty.add(x + image.getWidth() / 2 - width / 2 - 1, y + image.getHeight() / 2 - height / 2 - 1, width + 2, height + 2);
+				}
+			}
 		}
 
 		//draw double points time and icon, if active
@@ -293,8 +323,15 @@ public class CollectableSprite
 			g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.7f));
 			g2d.setFont(specialFont);
 			g2d.drawImage(imgDoublePoints,15,85,null);
-			g2d.drawString(String.valueOf (doublePointsState/Snake.DEFAULT_FPS),45,103);
+			String seconds = String.valueOf (doublePointsState/Snake.DEFAULT_FPS);
+			g2d.drawString(seconds,45,103);
 			g2d.setComposite(c);
+			if (dirty != null)
+			{
+				FontMetrics specialMetrics = g2d.getFontMetrics();
+				dirty.add(15, 85, imgDoublePoints.getWidth(), imgDoublePoints.getHeight());
+				dirty.add(44, 102 - specialMetrics.getAscent(), specialMetrics.stringWidth(seconds) + 2, specialMetrics.getHeight() + 2);
+			}
 		}
 	}
 
@@ -0,0 +1,152 @@
+package snake.ui;
+
+import java.awt.Rectangle;
+
+/**
+ * The regions of the panel that were drawn in one frame. The SnakePanel restores these
+ * regions from the background in the next frame and puts only these regions on-screen,
+ * instead of the whole panel. Regions are clipped to the panel, and a region that overlaps
+ * the last added region is merged with it if that does not add much area, so the parts of
+ * a snake end up in a few rectangles. The rectangles are reused, adding a region does not
+ * allocate anything. If more regions are added than the capacity, or the regions cover more
+ * than half of the panel, the regions overflow and the whole panel is drawn, which is
+ * cheaper then.
+ * @author Jakob Lahmer, Matthias Steinboeck
+ */
+public class DirtyRegions
+{
+	private final Rectangle[] regions;
+	private int count = 0;
+	private boolean overflowed = false;
+	private long area = 0;
+	private int width;
+	private int height;
+
+	/**
+	 * Create a new list of regions.
+	 * @param capacity maximum number of regions
+	 * @param width width of the panel
+	 * @param height height of the panel
+	 */
+	public DirtyRegions(int capacity, int width, int height)
+	{
+		regions = new Rectangle[capacity];
+		for (int i = 0; i < capacity; i++)
+		{
+			regions[i] = new Rectangle();
+		}
+		setBounds(width, height);
+	}
+
+	/**
+	 * Set the size of the panel the regions are clipped to.
+	 * @param width width of the panel
+	 * @param height height of the panel
+	 */
+	public void setBounds(int width, int height)
+	{
+		this.width = width;
+		this.height = height;
+	}
+
+	/**
+	 * Add a drawn region.
+	 * @param x x coordinate on the panel
+	 * @param y y coordinate on the panel
+	 * @param w width of the region
+	 * @param h height of the region
+	 */
+	public void add(int x, int y, int w, int h)
+	{
+		//clip to the panel
+		int x2 = Math.min(x + w, width);
+		int y2 = Math.min(y + h, height);
+		x = Math.max(x, 0);
+		y = Math.max(y, 0);
+		if (x >= x2 || y >= y2 || overflowed)
+		{
+			return;
+		}
+
+		if (count > 0)
+		{
+			//merge with the last region, if the union is not much bigger than both regions
+			Rectangle last = regions[count - 1];
+			int ux = Math.min(last.x, x);
+			int uy = Math.min(last.y, y);
+			int ux2 = Math.max(last.x + last.width, x2);
+			int uy2 = Math.max(last.y + last.height, y2);
+			long union = (long) (ux2 - ux) * (uy2 - uy);
+			long separate = (long) last.width * last.height + (long) (x2 - x) * (y2 - y);
+			if (union * 4 <= separate * 5)
+			{
+				area += union - (long) last.width * last.height;
+				last.setBounds(ux, uy, ux2 - ux, uy2 - uy);
+				checkArea();
+				return;
+			}
+		}
+
+		if (count == regions.length)
+		{
+			overflowed = true;
+			return;
+		}
+		regions[count++].setBounds(x, y, x2 - x, y2 - y);
+		area += (long) (x2 - x) * (y2 - y);
+		checkArea();
+	}
+
+	private void checkArea()
+	{
+		if (area * 2 > (long) width * height)
+		{
+			overflowed = true;
+		}
+	}
+
+	/**
+	 * Remove all regions.
+	 */
+	public void clear()
+	{
+		count = 0;
+		overflowed = false;
+		area = 0;
+	}
+
+	/**
+	 * @return number of regions
+	 */
+	public int size()
+	{
+		return count;
+	}
+
+	/**
+	 * Get a region, the rectangle must not be changed or kept.
+	 * @param i index of the region
+	 * @return the region
+	 */
+	public Rectangle get(int i)
+	{
+		return regions[i];
+	}
+
+	/**
+	 * @return true if more regions were added than the capacity or they cover more than half
+	 * of the panel, the whole panel must be drawn then
+	 */
+	public boolean isOverflowed()
+	{
+		return overflowed;
+	}
+
+	/**
+	 * @return number of pixels in the regions, overlapping regions are counted twice
+	 */
+	public long getArea()
+	{
+		return area;
+	}
+}
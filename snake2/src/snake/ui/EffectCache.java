@@ -0,0 +1,188 @@
+package snake.ui;
+
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import snake.util.ImageLoader;
+
+/**
+ * Cache for the frames of the brighten and fade effects of snakes and collectables. A frame
+ * is an image with changed brightness and transparency, it is created once per image and
+ * effect level and shared by all sprites, because the images of a skin are shared too (see
+ * {@link SkinAtlas}). The effect levels are rounded to hundredths, so the discrete steps of
+ * the effects always hit the same frames. The frames of the brighten effect are prepared before
+ * it is shown (see {@link SkinAtlas}), so looking up a frame while playing does not allocate
+ * anything. Other frames are created when they are drawn the first time.
+ * The cache holds at most MEMORY_BUDGET bytes of frames, the least recently used frames are
+ * removed first.
+ * @author Jakob Lahmer, Matthias Steinboeck
+ */
+public class EffectCache
+{
+	public static final long MEMORY_BUDGET = 16 * 1024 * 1024;
+
+	//effect levels are rounded to 1 / RESOLUTION
+	private static final int RESOLUTION = 100;
+
+	private static EffectCache instance = null;
+
+	private Logger log = LoggerFactory.getLogger(EffectCache.class);
+
+	private final ImageLoader imgLoader = new ImageLoader();
+	private final LinkedHashMap<Key, BufferedImage> frames = new LinkedHashMap<Key, BufferedImage>(256, 0.75f, true);
+	private final Key probe = new Key(); //reused for lookups, guarded by this
+	private long usedBytes = 0;
+	private int evictions = 0;
+
+	/**
+	 * Key of a frame: the source image (by identity) and the rounded effect levels.
+	 */
+	private static class Key
+	{
+		private BufferedImage src;
+		private int brightness;
+		private int alpha;
+
+		void set(BufferedImage src, int brightness, int alpha)
+		{
+			this.src = src;
+			this.brightness = brightness;
+			this.alpha = alpha;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return (System.identityHashCode(src) * 31 + brightness) * 31 + alpha;
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			if (!(obj instanceof Key))
+				return false;
+			Key other = (Key) obj;
+			return src == other.src && brightness == other.brightness && alpha == other.alpha;
+		}
+	}
+
+	private EffectCache()
+	{
+	}
+
+	/**
+	 * Get the cache shared by all sprites.
+	 * @return EffectCache
+	 */
+	public static synchronized EffectCache getInstance()
+	{
+		if (instance == null)
+		{
+			instance = new EffectCache();
+		}
+		return instance;
+	}
+
+	/**
+	 * Get the frame of the image with the given brightness and transparency. The frame is
+	 * created if it is not in the cache.
+	 * @param src the source image
+	 * @param brightness brightness value (1.0 = no change)
+	 * @param alpha transparency value (1.0 = opaque)
+	 * @return the frame, or the source image itself if nothing is changed
+	 */
+	public BufferedImage getFrame(BufferedImage src, float brightness, float alpha)
+	{
+		int b = Math.round(brightness * RESOLUTION);
+		int a = Math.round(alpha * RESOLUTION);
+		if (src == null || (b == RESOLUTION && a == RESOLUTION))
+		{
+			return src;
+		}
+		synchronized (this)
+		{
+			probe.set(src, b, a);
+			BufferedImage frame = frames.get(probe);
+			probe.set(null, 0, 0);
+			if (frame != null)
+			{
+				return frame;
+			}
+		}
+		//create the frame outside of the lock, so drawing is not blocked by preparing frames
+		BufferedImage frame = imgLoader.getBrighterFadedImage(src, (float) b / RESOLUTION, (float) a / RESOLUTION);
+		synchronized (this)
+		{
+			Key key = new Key();
+			key.set(src, b, a);
+			BufferedImage existing = frames.get(key);
+			if (existing != null)
+			{
+				return existing;
+			}
+			frames.put(key, frame);
+			usedBytes += getSize(frame);
+			trim();
+		}
+		return frame;
+	}
+
+	/**
+	 * Create the frames of the image for all given brightness values, so they are in the cache
+	 * when the effect is shown.
+	 * @param src the source image
+	 * @param brightness brightness values of the effect
+	 * @param alpha transparency value of the frames
+	 */
+	public void prepare(BufferedImage src, float[] brightness, float alpha)
+	{
+		for (int i = 0; i < brightness.length; i++)
+		{
+			getFrame(src, brightness[i], alpha);
+		}
+	}
+
+	/**
+	 * @return the number of bytes used by the frames in the cache
+	 */
+	public synchronized long getUsedBytes()
+	{
+		return usedBytes;
+	}
+
+	/**
+	 * @return the number of frames in the cache
+	 */
+	public synchronized int getFrameCount()
+	{
+		return frames.size();
+	}
+
+	/**
+	 * Remove the least recently used frames until the cache fits into the budget.
+	 */
+	private void trim()
+	{
+		Iterator<Map.Entry<Key, BufferedImage>> it = frames.entrySet().iterator();
+		while (usedBytes > MEMORY_BUDGET && it.hasNext())
+		{
+			usedBytes -= getSize(it.next().getValue());
+			it.remove();
+			evictions++;
+			if (evictions % 1000 == 1)
+			{
+				log.debug("effect cache is full, " + evictions + " frames removed so far");
+			}
+		}
+	}
+
+	private static long getSize(BufferedImage image)
+	{
+		return (long) image.getWidth() * image.getHeight() * 4;
+	}
+}
@@ -160,7 +160,8 @@ public class FLevelSelection extends JDialog
 		//Vorschau anzeigen
 		levelsManager.setCurrentLevel(lbLevels.getSelectedIndex());
 		ImageLoader loader = new ImageLoader();
-		BufferedImage levelImage = loader.loadImage(levelsManager.getThumbnailPath(), false);
+		//prebuilt thumbnail from the level catalog
+		BufferedImage levelImage = levelsManager.getThumbnailImage();
 		if (levelImage.getWidth() > laPreview.getWidth() || levelImage.getHeight() > laPreview.getHeight())
 		{
 			levelImage = loader.getResizedImage(levelImage, laPreview.getWidth(), laPreview.getHeight());
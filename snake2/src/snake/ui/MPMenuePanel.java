@@ -13,6 +13,7 @@ import snake.*;
 import snake.data.*;
 import snake.mzspaces.DataChangeEvent;
 import snake.mzspaces.DataChangeListener;
+import snake.mzspaces.LevelBlobStore;
 import snake.util.Messages;
 
 /**
@@ -27,6 +28,7 @@ public class MPMenuePanel extends JPanel implements DataChangeListener
 	private Snake snakeMain = null;
 	private GameListManager gameListManager = null;
 	private LevelsManager levels = null;
+	private boolean levelFetching = false; //a level is fetched for the viewed game (event dispatch thread only)
 	private Logger log = LoggerFactory.getLogger(MPMenuePanel.class);
 
 	JLabel laTitel = new JLabel();
@@ -289,13 +291,14 @@ public class MPMenuePanel extends JPanel implements DataChangeListener
 	/**
 	 * Join the selected game as spectator. If a game is joined that has not been started
 	 * yet, the new game menu is opened and the game is automatically displayed when
-	 * started. An already started game can be viewed immediately.
+	 * started. An already started game can be viewed when its level is available, a missing
+	 * level is fetched in the background first.
 	 * @param e ActionEvent
 	 */
 	public void btView_actionPerformed(ActionEvent e)
 	{
 		int selectedIndex = lbGames.getSelectedIndex();
-		if (selectedIndex > -1)
+		if (selectedIndex > -1 && !levelFetching)
 		{
 			//set player state back to not init when necessary
 			if (snakeMain.getMyPlayer().getPlayerState() != PlayerState.notinit)
@@ -311,39 +314,30 @@ public class MPMenuePanel extends JPanel implements DataChangeListener
 				gameListManager.setViewOnly(true, false);
 				gameListManager.joinGameViewOnly(selectedIndex);
 
-				Game currentGame = gameListManager.getCurrentGame();
+				final Game currentGame = gameListManager.getCurrentGame();
 
-				if (!levels.levelExists(currentGame.getLevelDir()))
+				//fetch the level if it does not exist or is not the same as the level of the leader
+				if (LevelBlobStore.isFetchNeeded(levels, currentGame.getLevelDir(), currentGame.getLevelCheckSum()))
 				{
-					LevelData levelData = gameListManager.getCurrentGame().getLevelData();
-					levelData.SaveData(levels);
-				}
-
-				//cancel if level does not exist
-				if (!levels.levelExists(currentGame.getLevelDir()))
-				{
-					Messages.errorMessage(snakeMain,
-																"Error occured: Level \"" + currentGame.getLevelDir() +
-																"\" can't be found!");
-					return;
+					levelFetching = true;
+					LevelBlobStore.fetchAsync(currentGame.getLevelCheckSum(), levels.getDownloadPath(),
+							new LevelBlobStore.FetchListener()
+					{
+						public void levelFetched(LevelData levelData)
+						{
+							levelFetching = false;
+							if (levelData != null)
+							{
+								levelData.SaveData(levels);
+							}
+							viewStartedGame(currentGame);
+						}
+					});
 				}
 				else
 				{
-					//check if level is the same as level of leader
-					levels.setCurrentLevel(currentGame.getLevelDir());
-					byte[] levelHash = levels.getLevelHash();
-					if (!java.util.Arrays.equals(levelHash, currentGame.getLevelCheckSum()))
-					{
-						LevelData levelData = gameListManager.getCurrentGame().getLevelData();
-						levelData.SaveData(levels);
-					}
+					viewStartedGame(currentGame);
 				}
-
-				//init all game sprites and start the game
-				snakeMain.initMyGameSprites();
-				snakeMain.initOtherGameSprites();
-				gameListManager.checkCurrentGame();
-				snakeMain.startMultiplayerGame(); // not necessary, checkCurrentGame does this too
 			}
 			else
 			{
@@ -357,6 +351,29 @@ public class MPMenuePanel extends JPanel implements DataChangeListener
 
 	}
 
+	/**
+	 * View a started game, after its level was fetched if needed.
+	 * @param currentGame the viewed game
+	 */
+	private void viewStartedGame(Game currentGame)
+	{
+		//cancel if level does not exist
+		if (!levels.levelExists(currentGame.getLevelDir()))
+		{
+			Messages.errorMessage(snakeMain,
+														"Error occured: Level \"" + currentGame.getLevelDir() +
+														"\" can't be found!");
+			return;
+		}
+		levels.setCurrentLevel(currentGame.getLevelDir());
+
+		//init all game sprites and start the game
+		snakeMain.initMyGameSprites();
+		snakeMain.initOtherGameSprites();
+		gameListManager.checkCurrentGame();
+		snakeMain.startMultiplayerGame(); // not necessary, checkCurrentGame does this too
+	}
+
 	/**
 	 * Open the highscore.
 	 * @param e ActionEvent
@@ -12,6 +12,7 @@ import snake.Snake;
 import snake.data.*;
 import snake.mzspaces.DataChangeEvent;
 import snake.mzspaces.DataChangeListener;
+import snake.mzspaces.LevelBlobStore;
 import snake.mzspaces.DataChangeType;
 import snake.util.Messages;
 import snake.util.ImageLoader;
@@ -36,6 +37,9 @@ public class MPNewGamePanel extends JPanel implements DataChangeListener
 	private boolean ready = false;
 	private BufferedImage levelImage = null;
 	private String currentLevelDir = null;
+	//level that is fetched in the background or was fetched for this game
+	private volatile boolean levelFetching = false;
+	private volatile byte[] fetchedCheckSum = null;
 	private Game currentGame = null;
 
 	JLabel laTitel = new JLabel();
@@ -382,18 +386,13 @@ public class MPNewGamePanel extends JPanel implements DataChangeListener
 			chKollisionSelbst.setSelected(currentGame.getCollisionTypeOwn());
 			chKollisionAndere.setSelected(currentGame.getCollisionTypeOther());
 
-			//update level info if it has changed
-			if (!currentGame.getLevelDir().equals(currentLevelDir) || levelImage == null)
+			//update level info if it has changed, a missing level is fetched first
+			if ((!currentGame.getLevelDir().equals(currentLevelDir) || levelImage == null) && !fetchLevel(currentGame))
 			{
-				if (!levels.levelExists(currentGame.getLevelDir()))
-				{
-					LevelData levelData = gameListManager.getCurrentGame().getLevelData();
-					levelData.SaveData(levels);
-				}
-
 				//cancel if level does not exist
 				if (!levels.levelExists(currentGame.getLevelDir()))
 				{
+					fetchedCheckSum = null;
 					gameListManager.setDataChangeListener(null);
 					Messages.errorMessage(snakeMain,
 																"Error occured: the level \"" + currentGame.getLevelDir() +
@@ -401,18 +400,7 @@ public class MPNewGamePanel extends JPanel implements DataChangeListener
 					snakeMain.openMPMenue();
 					return;
 				}
-				else
-				{
-					//check if level is the same as level of the leader
-					levels.setCurrentLevel(currentGame.getLevelDir());
-					byte[] levelHash = levels.getLevelHash();
-					if (!java.util.Arrays.equals(levelHash, currentGame.getLevelCheckSum()))
-					{
-						LevelData levelData = gameListManager.getCurrentGame().getLevelData();
-						levelData.SaveData(levels);
-					}
-
-				}
+				levels.setCurrentLevel(currentGame.getLevelDir());
 
 				currentLevelDir = currentGame.getLevelDir();
 				laLevelName.setText(levels.getCurrentLevelName());
@@ -421,7 +409,7 @@ public class MPNewGamePanel extends JPanel implements DataChangeListener
 				{
 					//level has changed, load new thumbnail image and display it
 					ImageLoader loader = new ImageLoader();
-					levelImage = loader.loadImage(levels.getThumbnailPath(), false);
+					levelImage = levels.getThumbnailImage();
 					if (levelImage.getWidth() > laLevelPreview.getWidth() ||
 							levelImage.getHeight() > laLevelPreview.getHeight())
 					{
@@ -442,6 +430,41 @@ public class MPNewGamePanel extends JPanel implements DataChangeListener
 		refreshPlayers(currentGame);
 	}
 
+	/**
+	 * Fetch the level of the game in the background, if it does not exist or is not the same as
+	 * the level of the leader. The form is updated again when the level is saved. A level is
+	 * fetched once, if it could not be fetched the form shows the level that exists (if any).
+	 * @param game the current game
+	 * @return true if the level is being fetched, the level info is not updated then
+	 */
+	private synchronized boolean fetchLevel(Game game)
+	{
+		if (levelFetching)
+		{
+			return true;
+		}
+		if (java.util.Arrays.equals(game.getLevelCheckSum(), fetchedCheckSum)
+				|| !LevelBlobStore.isFetchNeeded(levels, game.getLevelDir(), game.getLevelCheckSum()))
+		{
+			return false;
+		}
+		levelFetching = true;
+		fetchedCheckSum = game.getLevelCheckSum();
+		LevelBlobStore.fetchAsync(game.getLevelCheckSum(), levels.getDownloadPath(), new LevelBlobStore.FetchListener()
+		{
+			public void levelFetched(LevelData levelData)
+			{
+				if (levelData != null)
+				{
+					levelData.SaveData(levels);
+				}
+				levelFetching = false;
+				updateForm(DataChangeType.game);
+			}
+		});
+		return true;
+	}
+
 	/**
 	 * Update the player information.
 	 * @param gameData the current game, if null the game is read from the gamelist
@@ -476,7 +499,8 @@ public class MPNewGamePanel extends JPanel implements DataChangeListener
 			}
 			else
 			{
-				btStart.setEnabled(!ready);
+				//not ready before the level is fetched
+				btStart.setEnabled(!ready && !levelFetching);
 			}
 			//settings can only be edited if player is leader and not ready
 			btLevel.setVisible(gameListManager.myPlayerIsLeader());
@@ -573,7 +597,7 @@ public class MPNewGamePanel extends JPanel implements DataChangeListener
 	 */
 	public void btStart_actionPerformed(ActionEvent e)
 	{
-		if (gameListManager.getCurrentGame().getPlayerAnz() > 1)
+		if (gameListManager.getCurrentGame().getPlayerAnz() > 1 && !levelFetching)
 		{
 			snakeMain.initMyGameSprites();
 			updateForm();
@@ -0,0 +1,187 @@
+package snake.ui;
+
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import snake.SkinsManager;
+import snake.util.ImageLoader;
+
+/**
+ * The images of a skin, shared by all sprites with the same skin. The snake head, snake part
+ * and snake tail are rotated once per ANGLE_STEP degrees, so drawing a snake does not rotate
+ * images anymore. The rotations and the frames of the brighten effect of the snake (see
+ * {@link EffectCache}) are built by a background thread when the atlas is created, an image
+ * that is drawn before it is built is rotated by the drawing thread and kept. The images are
+ * created by the ImageLoader, so they are compatible with the screen and can be accelerated.
+ * @author Jakob Lahmer, Matthias Steinboeck
+ */
+public class SkinAtlas
+{
+	public static final int ANGLE_STEP = 10; //same as the turnstep of the SnakeSprite
+	public static final int ANGLES = 360 / ANGLE_STEP;
+
+	//images that are rotated
+	public static final int HEAD = 0;
+	public static final int PART = 1;
+	public static final int TAIL = 2;
+	private static final int ROTATED_KINDS = 3;
+	//images that are not rotated
+	public static final int COLLECTABLE = 3;
+	public static final int SPEEDUP = 4;
+	public static final int DOUBLEPOINTS = 5;
+	private static final int KINDS = 6;
+
+	private static Logger log = LoggerFactory.getLogger(SkinAtlas.class);
+
+	private static final Map<String, SkinAtlas> atlases = new HashMap<String, SkinAtlas>();
+
+	private static final ExecutorService builder = Executors.newSingleThreadExecutor(new ThreadFactory()
+	{
+		@Override
+		public Thread newThread(Runnable r)
+		{
+			Thread t = new Thread(r, "SkinAtlasBuilder");
+			t.setDaemon(true);
+			t.setPriority(Thread.MIN_PRIORITY);
+			return t;
+		}
+	});
+
+	private final String skinName;
+	private final ImageLoader imgLoader;
+	private final BufferedImage[] sources = new BufferedImage[KINDS];
+	//rotated images, index is kind * ANGLES + angle index
+	private final AtomicReferenceArray<BufferedImage> images = new AtomicReferenceArray<BufferedImage>(ROTATED_KINDS * ANGLES);
+	private volatile boolean built = false;
+
+	/**
+	 * Get the shared atlas of the current skin of the SkinsManager. The first call for a skin
+	 * loads the images of the skin and starts building the rotations in the background.
+	 * @param imgLoader ImageLoader used to load and rotate the images
+	 * @param skinsManager SkinsManager with the skin set as current skin
+	 * @return the atlas of the skin
+	 */
+	public static synchronized SkinAtlas getAtlas(ImageLoader imgLoader, SkinsManager skinsManager)
+	{
+		String skinName = skinsManager.getCurrentSkinName();
+		SkinAtlas atlas = atlases.get(skinName);
+		if (atlas == null)
+		{
+			atlas = new SkinAtlas(skinName, imgLoader, skinsManager);
+			atlases.put(skinName, atlas);
+			final SkinAtlas toBuild = atlas;
+			builder.execute(new Runnable()
+			{
+				public void run()
+				{
+					toBuild.build();
+				}
+			});
+		}
+		return atlas;
+	}
+
+	private SkinAtlas(String skinName, ImageLoader imgLoader, SkinsManager skinsManager)
+	{
+		this.skinName = skinName;
+		this.imgLoader = imgLoader;
+		sources[HEAD] = imgLoader.loadImage(skinsManager.getSnakeHeadPath(), false);
+		sources[PART] = imgLoader.loadImage(skinsManager.getSnakePartPath(), false);
+		sources[TAIL] = imgLoader.loadImage(skinsManager.getSnakeTailPath(), false);
+		sources[COLLECTABLE] = imgLoader.loadImage(skinsManager.getCollectablePath(), false);
+		sources[SPEEDUP] = imgLoader.loadImage(skinsManager.getSpeedUpPath(), false);
+		sources[DOUBLEPOINTS] = imgLoader.loadImage(skinsManager.getDoublePointsPath(), false);
+	}
+
+	/**
+	 * Get the image that is not rotated.
+	 * @param kind HEAD, PART, TAIL, COLLECTABLE, SPEEDUP or DOUBLEPOINTS
+	 * @return the image as loaded from the skin
+	 */
+	public BufferedImage getSourceImage(int kind)
+	{
+		return sources[kind];
+	}
+
+	/**
+	 * Get the image rotated to the direction of the snake.
+	 * @param kind HEAD, PART or TAIL
+	 * @param direction direction of the snake in degrees
+	 * @return the rotated image
+	 */
+	public BufferedImage getImage(int kind, double direction)
+	{
+		int index = kind * ANGLES + getAngleIndex(direction);
+		BufferedImage image = images.get(index);
+		if (image == null)
+		{
+			image = rotate(kind, index);
+		}
+		return image;
+	}
+
+	/**
+	 * @return true if all rotations are built
+	 */
+	public boolean isBuilt()
+	{
+		return built;
+	}
+
+	public String getSkinName()
+	{
+		return skinName;
+	}
+
+	/**
+	 * Get the index of the nearest angle step.
+	 * @param direction direction in degrees
+	 * @return index between 0 and ANGLES - 1
+	 */
+	public static int getAngleIndex(double direction)
+	{
+		int index = (int) Math.round(direction / ANGLE_STEP) % ANGLES;
+		return (index < 0) ? index + ANGLES : index;
+	}
+
+	private void build()
+	{
+		long start = System.currentTimeMillis();
+		EffectCache effectCache = EffectCache.getInstance();
+		float[] brightenLevels = SnakeEffect.getBrightenLevels();
+		for (int index = 0; index < images.length(); index++)
+		{
+			BufferedImage image = images.get(index);
+			if (image == null)
+			{
+				image = rotate(index / ANGLES, index);
+			}
+			//crash and restart effects of the snake
+			effectCache.prepare(image, brightenLevels, 1.0f);
+		}
+		built = true;
+		log.debug("built atlas of skin " + skinName + " in " + (System.currentTimeMillis() - start) + " ms");
+	}
+
+	/**
+	 * Rotate the image, the images of the skin are drawn for a direction of 90 degrees, so they are rotated by
+	 * the direction - 90 degrees. If two threads rotate the same image, the first one is kept.
+	 */
+	private BufferedImage rotate(int kind, int index)
+	{
+		BufferedImage image = imgLoader.getRotatedImage(sources[kind], (index % ANGLES) * ANGLE_STEP - 90);
+		if (images.compareAndSet(index, null, image))
+		{
+			return image;
+		}
+		return images.get(index);
+	}
+}
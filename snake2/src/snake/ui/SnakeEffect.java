@@ -12,18 +12,18 @@ public class SnakeEffect
   private boolean brightenEffect = false;
   private int brightenDuration = 0;
   private float brightenValue = 1.0f;
-  private float brightenMin = 0.8f;
-  private float brightenMax = 2.6f;
-  private float brightenStep = 0.2f;
+  private static final float brightenMin = 0.8f;
+  private static final float brightenMax = 2.6f;
+  private static final float brightenStep = 0.2f;
   private boolean brightenIncrease = false;
 
   //values for fading effect (transparency)
   private boolean fadeEffect = false;
   private int fadeDuration = 0;
   private float fadeValue = 1.0f;
-  private float fadeMin = 0.2f;
-  private float fadeMax = 1.0f;
-  private float fadeStep = 0.1f;
+  private static final float fadeMin = 0.2f;
+  private static final float fadeMax = 1.0f;
+  private static final float fadeStep = 0.1f;
   private boolean fadeIncrease = false;
 
   //values for immovable effect
@@ -150,6 +150,28 @@ public class SnakeEffect
     }
   }
 
+  /**
+   * Get all brightness values the brighten effect can reach, so the frames of the effect
+   * can be prepared before it is shown (see EffectCache). Includes one step beyond the
+   * minimum and maximum, because the effect turns only after it reached them.
+   * @return brightness values
+   */
+  public static float[] getBrightenLevels()
+  {
+    return getLevels(brightenMin, brightenMax, brightenStep);
+  }
+
+  private static float[] getLevels(float min, float max, float step)
+  {
+    int steps = Math.round((max - min) / step);
+    float[] levels = new float[steps + 3];
+    for (int i = 0; i < levels.length; i++)
+    {
+      levels[i] = Math.max(0.0f, min + (i - 1) * step);
+    }
+    return levels;
+  }
+
   public boolean hasBrightenEffect()
   {
     return brightenEffect;
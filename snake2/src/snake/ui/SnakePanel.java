@@ -6,7 +6,6 @@ import org.mozartspaces.core.ContainerReference;
 import org.mozartspaces.core.Entry;
 import org.mozartspaces.core.MzsCoreException;
 import org.mozartspaces.notifications.Notification;
-import org.mozartspaces.notifications.NotificationListener;
 import org.mozartspaces.notifications.NotificationManager;
 import org.mozartspaces.notifications.Operation;
 import org.slf4j.Logger;
@@ -17,8 +16,10 @@ import java.awt.event.*;
 import java.awt.*;
 import java.io.Serializable;
 import java.util.List;
+import java.util.UUID;
 
 import snake.*;
+import snake.mzspaces.AreaOfInterest;
 import snake.mzspaces.Util;
 import snake.util.*;
 import snake.data.*;
@@ -32,7 +33,7 @@ import snake.data.*;
  * @author Thomas Scheller, Markus Karolus
  */
 
-public class SnakePanel extends JPanel implements Runnable, NotificationListener
+public class SnakePanel extends JPanel implements Runnable, AreaOfInterest.Listener
 {
 	/**
 	 * 
@@ -49,6 +50,10 @@ public class SnakePanel extends JPanel implements Runnable, NotificationListener
 	// no. of frames that can be skipped in any one animation loop
 	// i.e the games state is updated but not rendered
 
+	private static final int MAX_DIRTY_REGIONS = 256;
+	// no. of regions that are restored and painted separately, the whole
+	// panel is painted if more regions are drawn in a frame
+
 	private Thread animator; // the thread that performs the animation
 
 	//game modes
@@ -62,6 +67,7 @@ public class SnakePanel extends JPanel implements Runnable, NotificationListener
 
 	private int working_mode = MODE_STARTING;
 	private int modeQuit = MODE_STARTING;
+	private boolean gameEnded = false; //game is over for all players, not only left by this one
 
 	private boolean multiplayer = true;
 
@@ -84,10 +90,28 @@ public class SnakePanel extends JPanel implements Runnable, NotificationListener
 	private Font msgsFont;
 	private FontMetrics metrics;
 
+	// performance overlay (F3)
+	private PerformanceStats stats = PerformanceStats.getInstance();
+	private boolean showStats = false;
+	private Font statsFont;
+	private FontMetrics statsMetrics;
+
 	// off-screen rendering
 	private Graphics dbg;
 	private Image dbImage = null;
 
+	// background layer: the visible part of the level background, drawn again only if the
+	// correction position changes. The regions drawn in the last and in the current frame
+	// are restored from the layer and painted on-screen, the rest of the panel stays.
+	private Image bgLayer = null;
+	private boolean bgLayerValid = false;
+	private Point drawnPos = new Point(0, 0); // correction position of the background in dbImage
+	private boolean drawnValid = false;
+	private boolean repaintAll = true;
+	private volatile boolean screenDamaged = true; // set if swing painted over the panel
+	private DirtyRegions lastRegions = new DirtyRegions(MAX_DIRTY_REGIONS, pWidth, pHeight);
+	private DirtyRegions regions = new DirtyRegions(MAX_DIRTY_REGIONS, pWidth, pHeight);
+
 	private BufferedImage bgImage = null;
 	private BackgroundManager gameMap = null;
 	private Point correctionPos = new Point(0, 0);
@@ -98,6 +122,8 @@ public class SnakePanel extends JPanel implements Runnable, NotificationListener
 	private Game game;
 	private GameListManager gameListManager;
 	private Object notification;
+	// notifications of the cells near to the viewport, the other snakes are written there
+	private AreaOfInterest areaOfInterest;
 	private Logger log = LoggerFactory.getLogger(SnakePanel.class);
 
 	/**
@@ -154,6 +180,8 @@ public class SnakePanel extends JPanel implements Runnable, NotificationListener
 		// set up message font
 		msgsFont = new Font("SansSerif", Font.BOLD, 24);
 		metrics = this.getFontMetrics(msgsFont);
+		statsFont = new Font("Monospaced", Font.PLAIN, 12);
+		statsMetrics = this.getFontMetrics(statsFont);
 	}
 
 	/**
@@ -204,6 +232,11 @@ public class SnakePanel extends JPanel implements Runnable, NotificationListener
 				setMode(MODE_PAUSE);
 				break;
 			}
+			case KeyEvent.VK_F3:
+			{
+				showStats = !showStats;
+				break;
+			}
 			case KeyEvent.VK_1:
 			{
 				if (gameListManager.isViewOnly())
@@ -479,6 +512,7 @@ public class SnakePanel extends JPanel implements Runnable, NotificationListener
 		{
 			collectables.stopNotifier();
 		}
+		gameEnded = true;
 		setMode(MODE_CLOSE);
 
 		snakeMain.gameOver(finalTime);
@@ -532,6 +566,7 @@ public class SnakePanel extends JPanel implements Runnable, NotificationListener
 		//  java.util.Date date = new java.util.Date();
 		//  System.out.println("start at: " + date.toString());
 		//  System.out.println("SnakePanel Loop started");
+		long lastFrameTime = System.nanoTime();
 		while (working_mode != MODE_CLOSE)
 		{
 			gameUpdate(); //update game sprites
@@ -540,6 +575,9 @@ public class SnakePanel extends JPanel implements Runnable, NotificationListener
 
 			specialTimer.stop();
 			timeDiff = (long) (specialTimer.getDuration() * 1000000);
+			long frameTime = System.nanoTime();
+			stats.recordFrame(frameTime - lastFrameTime, timeDiff);
+			lastFrameTime = frameTime;
 			specialTimer.reset();
 			specialTimer.start();
 			sleepTime = (period - timeDiff) - overSleepTime;
@@ -583,11 +621,24 @@ public class SnakePanel extends JPanel implements Runnable, NotificationListener
 				gameUpdate(); // update state but don't render
 				skips++;
 			}
+			if (skips > 0)
+			{
+				stats.recordSkippedFrames(skips);
+			}
+			stats.roll(System.currentTimeMillis());
 		}
 		if (collectables != null)
 		{
 			collectables.stopNotifier();
 		}
+		if (multiplayer && snakeSprite != null)
+		{
+			snakeSprite.getData().removeFromSpace();
+		}
+		if (areaOfInterest != null)
+		{
+			areaOfInterest.destroy(gameEnded);
+		}
 		specialTimer.stop();
 		//  System.out.println("SnakePanel Loop Stopped");
 	}
@@ -657,6 +708,11 @@ public class SnakePanel extends JPanel implements Runnable, NotificationListener
 						log.debug("i dont update myself");
 						continue;
 					}
+					stats.recordNotification(holder.id);
+					if (holder.sentMillis > 0)
+					{
+						stats.recordUpdateAge(System.currentTimeMillis() - holder.sentMillis);
+					}
 
 					// if this sprite has not the same player continue
 					Player player = null;
@@ -675,6 +731,7 @@ public class SnakePanel extends JPanel implements Runnable, NotificationListener
 					log.debug(otherSnakeSprite == null ? "otherSnakeSprite is null" : "player: "+player.getNr());
 					if (player == null || otherSnakeSprite == null) continue;
 					else { log.debug("updating other snake sprite"); }
+					otherSnakeSprite.setInRange(true);
 
 					//update for snake state
 					//snakeState = SnakeState.values()[fired.varOid().readInt(null, CorsoConnection.NO_TIMEOUT)];
@@ -686,7 +743,6 @@ public class SnakePanel extends JPanel implements Runnable, NotificationListener
 						//snake crashed - play sound and show crash effect
 						// System.out.println("Snake crashed.");
 						otherSnakeSprite.crashSnake(true);
-						System.exit(0);
 					}
 					else if (player.getSnakeState() == SnakeState.unverwundbar)
 					{
@@ -726,6 +782,22 @@ public class SnakePanel extends JPanel implements Runnable, NotificationListener
 		}
 	}
 
+	/**
+	 * Called by the AreaOfInterest when another snake left the cells in range, the snake
+	 * is not drawn until a new state of it is received.
+	 * @param id id of the snake (the player nr)
+	 */
+	public void snakeLeft(UUID id)
+	{
+		for (SnakeSprite sprite : otherSnakeSprites)
+		{
+			if (sprite.getData().getOtherPlayer().getNr().equals(id))
+			{
+				sprite.setInRange(false);
+			}
+		}
+	}
+
 	/**
 	 * If game is in running mode, update all game sprites (SnakeSprites, CollectableSprite)
 	 * by calling their updateSprite() methods, and calculate the new correction position
@@ -739,6 +811,7 @@ public class SnakePanel extends JPanel implements Runnable, NotificationListener
 			{
 			case MODE_RUNNING:
 			{
+				stats.recordUpdate();
 				if (snakeSprite != null)
 				{
 					snakeSprite.updateSprite();
@@ -766,6 +839,10 @@ public class SnakePanel extends JPanel implements Runnable, NotificationListener
 					correctionPos = gameMap.calcCorrectionPos(otherSnakeSprites[viewOnlySnakeIX].getHeadPos());
 
 				}
+				if (multiplayer)
+				{
+					updateAreaOfInterest();
+				}
 				break;
 
 			}
@@ -778,9 +855,26 @@ public class SnakePanel extends JPanel implements Runnable, NotificationListener
 		}
 	}
 
+	/**
+	 * Move the area of interest to the current viewport, so only the other snakes
+	 * near to the visible part of the level are received.
+	 */
+	private void updateAreaOfInterest()
+	{
+		if (areaOfInterest == null)
+		{
+			areaOfInterest = new AreaOfInterest(gameListManager.getCurrentGame(), this,
+					gameMap.getBackgroundWidth(), gameMap.getBackgroundHeight());
+		}
+		areaOfInterest.setViewport(new Rectangle(correctionPos.x, correctionPos.y, pWidth, pHeight));
+	}
+
 	/**
 	 * Render all game sprites (SnakeSprites, CollectableSprite), messages (status messages,
 	 * and quit or paused message if needed), and the level background to a BufferedImage.
+	 * While the game is running and the correction position does not change, only the
+	 * regions drawn in the last frame are restored from the background layer, instead of
+	 * drawing the whole background again.
 	 */
 	private void gameRender()
 	{
@@ -788,7 +882,8 @@ public class SnakePanel extends JPanel implements Runnable, NotificationListener
 		{
 			panelResized = false;
 			dbImage = createImage(pWidth, pHeight);
-			if (dbImage == null)
+			bgLayer = createImage(pWidth, pHeight);
+			if (dbImage == null || bgLayer == null)
 			{
 				System.out.println("dbImage is null");
 				return;
@@ -797,17 +892,45 @@ public class SnakePanel extends JPanel implements Runnable, NotificationListener
 			{
 				dbg = dbImage.getGraphics();
 			}
+			bgLayerValid = false;
+			drawnValid = false;
+			lastRegions.setBounds(pWidth, pHeight);
+			regions.setBounds(pWidth, pHeight);
 		}
 
-		// draw the background: use the image or a white colour
-		if (bgImage == null)
+		DirtyRegions swap = lastRegions;
+		lastRegions = regions;
+		regions = swap;
+		regions.clear();
+
+		if (working_mode == MODE_RUNNING && drawnValid && drawnPos.equals(correctionPos)
+				&& !lastRegions.isOverflowed())
 		{
-			dbg.setColor(Color.white);
-			dbg.fillRect(0, 0, pWidth, pHeight);
+			// the background in dbImage is still right, restore the regions of the last frame
+			if (!bgLayerValid)
+			{
+				Graphics g = bgLayer.getGraphics();
+				drawBackground(g);
+				g.dispose();
+				bgLayerValid = true;
+			}
+			for (int i = 0; i < lastRegions.size(); i++)
+			{
+				Rectangle r = lastRegions.get(i);
+				dbg.drawImage(bgLayer, r.x, r.y, r.x + r.width, r.y + r.height,
+						r.x, r.y, r.x + r.width, r.y + r.height, null);
+			}
+			repaintAll = false;
 		}
 		else
 		{
-			dbg.drawImage(bgImage, -correctionPos.x, -correctionPos.y, this);
+			// draw the whole background, the layer is drawn in the next frame if the
+			// correction position stays, so scrolling does not draw the background twice
+			drawBackground(dbg);
+			drawnPos.setLocation(correctionPos);
+			drawnValid = (working_mode == MODE_RUNNING);
+			bgLayerValid = false;
+			repaintAll = true;
 		}
 
 		switch (working_mode)
@@ -817,17 +940,28 @@ public class SnakePanel extends JPanel implements Runnable, NotificationListener
 			// draw game elements
 			if (snakeSprite != null)
 			{
-				snakeSprite.drawSprite(dbg, correctionPos);
+				snakeSprite.drawSprite(dbg, correctionPos, regions);
 			}
 			if (multiplayer)
 			{
 				for (int i = 0; i < otherSnakeSprites.length; i++)
 				{
-					otherSnakeSprites[i].drawSprite(dbg, correctionPos);
+					if (otherSnakeSprites[i].isInRange())
+					{
+						otherSnakeSprites[i].drawSprite(dbg, correctionPos, regions);
+					}
 				}
 			}
-			collectables.drawSprite(dbg, correctionPos);
+			collectables.drawSprite(dbg, correctionPos, regions);
 			printStats(dbg); //print status messages (points, time)
+			if (showStats)
+			{
+				printPerformance(dbg);
+			}
+			if (regions.isOverflowed())
+			{
+				repaintAll = true;
+			}
 			break;
 
 		}
@@ -853,6 +987,23 @@ public class SnakePanel extends JPanel implements Runnable, NotificationListener
 		}
 	}
 
+	/**
+	 * Draw the visible part of the level background: use the image or a white colour.
+	 * @param g Graphics
+	 */
+	private void drawBackground(Graphics g)
+	{
+		if (bgImage == null)
+		{
+			g.setColor(Color.white);
+			g.fillRect(0, 0, pWidth, pHeight);
+		}
+		else
+		{
+			g.drawImage(bgImage, -correctionPos.x, -correctionPos.y, this);
+		}
+	}
+
 	/**
 	 * Print the number of points and the play time to the given graphics object.
 	 * @param g Graphics
@@ -866,12 +1017,49 @@ public class SnakePanel extends JPanel implements Runnable, NotificationListener
 		g.setColor(Color.black);
 		g.setFont(msgsFont);
 
-		g.drawString("Points: " + collectables.getPoints(), 15, 30);
-		g.drawString("Time: " + timeSpentInGame + " sec", 15, 50);
+		String points = "Points: " + collectables.getPoints();
+		String time = "Time: " + timeSpentInGame + " sec";
+		g.drawString(points, 15, 30);
+		g.drawString(time, 15, 50);
+		regions.add(14, 29 - metrics.getAscent(), metrics.stringWidth(points) + 2, metrics.getHeight() + 2);
+		regions.add(14, 49 - metrics.getAscent(), metrics.stringWidth(time) + 2, metrics.getHeight() + 2);
 
 		g.setColor(Color.black);
 	}
 
+	/**
+	 * Print the performance statistics of the last second (see {@link PerformanceStats})
+	 * with a transparent white background window at the top right corner of the screen.
+	 * @param g Graphics
+	 */
+	private void printPerformance(Graphics g)
+	{
+		String[] lines = stats.getLines();
+		int width = 0;
+		for (int i = 0; i < lines.length; i++)
+		{
+			width = Math.max(width, statsMetrics.stringWidth(lines[i]));
+		}
+		int lineHeight = statsMetrics.getHeight();
+		int x = pWidth - width - 15;
+		int y = 10;
+
+		Graphics2D g2d = (Graphics2D) g;
+		Composite c = g2d.getComposite();
+		g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.7f));
+		g2d.setColor(Color.WHITE);
+		g2d.fillRect(x - 5, y, width + 10, lines.length * lineHeight + 6);
+		g2d.setComposite(c);
+
+		g2d.setFont(statsFont);
+		g2d.setColor(Color.black);
+		for (int i = 0; i < lines.length; i++)
+		{
+			g2d.drawString(lines[i], x, y + 3 + statsMetrics.getAscent() + i * lineHeight);
+		}
+		regions.add(x - 5, y, width + 10, lines.length * lineHeight + 6);
+	}
+
 	/**
 	 * Print a message with a transparent white background window at the middle of
 	 * the screen. Every part of the message array is printed as a separate line.
@@ -922,7 +1110,9 @@ public class SnakePanel extends JPanel implements Runnable, NotificationListener
 	}
 
 	/**
-	 * Use active rendering to put the buffered image on-screen.
+	 * Use active rendering to put the buffered image on-screen. Only the regions that were
+	 * restored or drawn in this frame are put on-screen, unless the whole background was
+	 * drawn or swing has painted over the panel.
 	 */
 	private void paintScreen()
 	{
@@ -934,7 +1124,16 @@ public class SnakePanel extends JPanel implements Runnable, NotificationListener
 			{
 				if (dbImage != null)
 				{
-					g.drawImage(dbImage, 0, 0, null);
+					if (repaintAll || screenDamaged)
+					{
+						screenDamaged = false;
+						g.drawImage(dbImage, 0, 0, null);
+					}
+					else
+					{
+						paintRegions(g, lastRegions);
+						paintRegions(g, regions);
+					}
 				}
 				g.dispose();
 			}
@@ -945,6 +1144,32 @@ public class SnakePanel extends JPanel implements Runnable, NotificationListener
 		}
 	}
 
+	private void paintRegions(Graphics g, DirtyRegions dirty)
+	{
+		for (int i = 0; i < dirty.size(); i++)
+		{
+			Rectangle r = dirty.get(i);
+			g.drawImage(dbImage, r.x, r.y, r.x + r.width, r.y + r.height,
+					r.x, r.y, r.x + r.width, r.y + r.height, null);
+		}
+	}
+
+	/**
+	 * Swing paints the panel if it was covered or resized, the animation thread puts the
+	 * whole buffered image on-screen again in the next frame, because it may have been
+	 * drawn only partly.
+	 */
+	@Override
+	protected void paintComponent(Graphics g)
+	{
+		super.paintComponent(g);
+		if (dbImage != null)
+		{
+			g.drawImage(dbImage, 0, 0, null);
+		}
+		screenDamaged = true;
+	}
+
 	/**
 	 * Get the main frame of the game.
 	 * @return Frame
@@ -19,14 +19,17 @@ import snake.data.*;
  */
 public class SnakeSprite
 {
-	private static final double TURNSTEP = 10.0; //degrees the snake can turn in one update;
-								 //should not be changed because arraysize of turned images depends on it!
+	private static final double TURNSTEP = SkinAtlas.ANGLE_STEP; //degrees the snake can turn in one update;
+								 //the atlas has a rotated image for every step
+
+	private static final AlphaComposite TEXT_COMPOSITE = AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.7f);
 
 	private int headSize;
 	private double turn = 0.0;
 
 	private SnakeSpriteData data = null;
 	private boolean writingSnake = true;
+	private volatile boolean inRange = true; //false if a passive snake left the area of interest
 
 	//fonts and metrics for playername and speedup information
 	private Font msgsFont;
@@ -36,11 +39,10 @@ public class SnakeSprite
 	private SkinsManager skinsManager = new SkinsManager();
 	private ImageLoader imgLoader = null;
 
-	//snake images
-	private BufferedImage imgPart = null;
-	private BufferedImage[] imgPartsTurned = new BufferedImage[36]; //rotated images (one every 10�)
+	//snake images, the rotated images are shared by all snakes with the same skin
+	private SkinAtlas atlas = null;
+	private EffectCache effectCache = EffectCache.getInstance();
 	private BufferedImage imgHead = null;
-	private BufferedImage imgTail = null;
 	private BufferedImage imgSpeedUp = null;
 	private Logger log = LoggerFactory.getLogger(SnakeSprite.class);
 
@@ -81,6 +83,7 @@ public class SnakeSprite
 
 		data = new SnakeSpriteData(skinsManager.getClipsLoader(), gameListManager, snakeMain, gameMap, collisionMode); // TODO: multiplayer
 		data.setSprite(this);
+		data.setSnakePanel(snakePanel);
 		writingSnake = true;
 		loadGraphics();
 		restartSnake(); //start effect for the snake
@@ -135,25 +138,37 @@ public class SnakeSprite
 		return data;
 	}
 
+	/**
+	 * Set if a passive snake is in the area of interest of the client (see AreaOfInterest).
+	 * A snake out of range is not drawn, because its last received state is outdated.
+	 * @param value true if the snake is in range
+	 */
+	public void setInRange(boolean value)
+	{
+		inRange = value;
+	}
+
+	/**
+	 * @return true if the snake is in the area of interest of the client
+	 */
+	public boolean isInRange()
+	{
+		return inRange;
+	}
+
 	/**
 	 * Load the graphics for the snake, getting the paths of the images from the
-	 * skinsmanager. Head, part, tail and speedup image are loaded, the part image
-	 * is then rotated and saved in an array for every direction needed, so the rotation
-	 * does not have to be calculated everytime when drawing.
+	 * skinsmanager. Head, part and tail are taken from the SkinAtlas of the skin, which
+	 * holds the images rotated for every direction, so the rotation does not have to be
+	 * calculated when drawing. The speedup image is taken from the atlas too.
 	 */
 	private void loadGraphics()
 	{
-		imgPart = imgLoader.loadImage(skinsManager.getSnakePartPath(), false);
-		imgHead = imgLoader.loadImage(skinsManager.getSnakeHeadPath(), false);
-		imgTail = imgLoader.loadImage(skinsManager.getSnakeTailPath(), false);
-		imgSpeedUp = imgLoader.loadImage(skinsManager.getSpeedUpPath(), false);
+		atlas = SkinAtlas.getAtlas(imgLoader, skinsManager);
+		imgHead = atlas.getSourceImage(SkinAtlas.HEAD);
+		imgSpeedUp = atlas.getSourceImage(SkinAtlas.SPEEDUP);
 		headSize = imgHead.getWidth();
 
-		for (int i = 0; i < imgPartsTurned.length; i++)
-		{
-			imgPartsTurned[i] = imgLoader.getRotatedImage(imgPart, (i * (int) TURNSTEP - 90));
-		}
-
 		data.setSnakePartSize(imgHead.getHeight(), imgHead.getWidth());
 	}
 
@@ -220,11 +235,13 @@ public class SnakeSprite
 	 * the speedup effect if it is running. Also update effects by calling the update()
 	 * method of the SnakeEffect object. The positions of the snake are read from the
 	 * SnakeSpriteData object, the correction coordinates are subtracted from them when
-	 * drawing.
+	 * drawing. The drawn regions are added to the dirty regions, so the SnakePanel can
+	 * restore and repaint only these regions.
 	 * @param g Graphics
 	 * @param correctionPos correction coordinates for the onscreen position of the snake
+	 * @param dirty regions of the panel that are drawn in this frame, may be null
 	 */
-	public void drawSprite(Graphics g, java.awt.Point correctionPos)
+	public void drawSprite(Graphics g, java.awt.Point correctionPos, DirtyRegions dirty)
 	{
 		try {
 			Graphics2D g2d = (Graphics2D) g;
@@ -233,11 +250,9 @@ public class SnakeSprite
 			effect.update(); //called here because the updateSprite method concerns only active snakes
 											 //and the effects are needed for passive snakes also
 			Composite c = g2d.getComposite(); // backup the old composite
-			if (effect.hasFadeEffect())
-			{
-				//when snake has a fade effect, change the alpha composite of the graphics object
-				g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, effect.getFadeValue()));
-			}
+			//brightness and fading of the effects are applied by drawing precomputed frames
+			float brightness = effect.hasBrightenEffect() ? effect.getBrightenValue() : 1.0f;
+			float fade = effect.hasFadeEffect() ? effect.getFadeValue() : 1.0f;
 	
 			//calculate positions that must be drawn
 			int headPos = getPlayer().getHeadPos();
@@ -260,55 +275,68 @@ public class SnakeSprite
 			if (tempPos < 0)
 				tempPos += data.pixelPos.length;
 	
-			//draw the snake: rotation an brighten effects are applied to the image when needed,
+			//draw the snake: the rotated images are taken from the atlas, the frames with the effects from the effect cache,
 			//the map position of the snake is corrected by the correction position to get
 			//screen coordinates
 
 			//draw tail
-			g2d.drawImage(imgLoader.getBrighterImage(imgLoader.getRotatedImage(imgTail, (int) (data.pixelDirection[tempPos] - 90)),effect.hasBrightenEffect() ? effect.getBrightenValue() : 1.0f),
-										(int) data.pixelPos[tempPos].x - correctionPos.x,
-										(int) data.pixelPos[tempPos].y - correctionPos.y, null);
+			drawImage(g2d, effectCache.getFrame(atlas.getImage(SkinAtlas.TAIL, data.pixelDirection[tempPos]), brightness, fade),
+								(int) data.pixelPos[tempPos].x - correctionPos.x,
+								(int) data.pixelPos[tempPos].y - correctionPos.y, dirty);
 			tempPos+=SnakeSpriteData.PARTDIST;
 
 			//draw parts: pixelpositions are read from the SnakeSpriteData object, the array
 			//position is increased by a constant value that is the pixel distance between
 			//two parts.
-			//The rotated images are read from the previously created array, so they dont have
+			//The rotated images are read from the atlas, so they dont have
 			//to be recreated every time they are drawn.
 			for (int ix = tailPos; ix < maxPos-3; ix += SnakeSpriteData.POINTDIST) //the -3 decrease prevents a passive snake to have flickering parts because of inconsistent arrival of notifications from space
 			{
 				tempPos = tempPos % data.pixelPos.length;
-				g2d.drawImage(imgLoader.getBrighterImage(imgPartsTurned[ ( data.pixelDirection[tempPos] / (int) TURNSTEP)],effect.hasBrightenEffect() ? effect.getBrightenValue() : 1.0f),
-											(int) data.pixelPos[tempPos].x - correctionPos.x, (int) data.pixelPos[tempPos].y - correctionPos.y, null);
+				drawImage(g2d, effectCache.getFrame(atlas.getImage(SkinAtlas.PART, data.pixelDirection[tempPos]), brightness, fade),
+									(int) data.pixelPos[tempPos].x - correctionPos.x, (int) data.pixelPos[tempPos].y - correctionPos.y, dirty);
 				tempPos+=SnakeSpriteData.PARTDIST;
 			}
 
 			//draw head
 			if (getPlayer() == null) log.error("\n\nplayer is null\n\n");
 			if (getPlayer().getHeadPart() == null) log.error("\n\nhead part is null\n\n");
-			g2d.drawImage(imgLoader.getBrighterImage(imgLoader.getRotatedImage(imgHead, (int) (getPlayer().getHeadPart().direction - 90)),effect.hasBrightenEffect() ? effect.getBrightenValue() : 1.0f),
-										(int) data.pixelPos[data.pixelHeadPos].x - correctionPos.x,
-										(int) data.pixelPos[data.pixelHeadPos].y - correctionPos.y, null);
+			drawImage(g2d, effectCache.getFrame(atlas.getImage(SkinAtlas.HEAD, getPlayer().getHeadPart().direction), brightness, fade),
+								(int) data.pixelPos[data.pixelHeadPos].x - correctionPos.x,
+								(int) data.pixelPos[data.pixelHeadPos].y - correctionPos.y, dirty);
 
 			//draw name (half transparent)
 			g2d.setColor(Color.darkGray);
 			g2d.setFont(msgsFont);
-			g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.7f));
-			g2d.drawString(getPlayer().getName(),
-										 (int) getPlayer().getHeadPart().x + (imgHead.getWidth() / 2) -
-										 (metrics.stringWidth(getPlayer().getName()) / 2) - correctionPos.x,
-										 (int) getPlayer().getHeadPart().y - 10 - correctionPos.y);
+			g2d.setComposite(TEXT_COMPOSITE);
+			String name = getPlayer().getName();
+			int nameWidth = metrics.stringWidth(name);
+			int nameX = (int) getPlayer().getHeadPart().x + (imgHead.getWidth() / 2) - (nameWidth / 2) - correctionPos.x;
+			int nameY = (int) getPlayer().getHeadPart().y - 10 - correctionPos.y;
+			g2d.drawString(name, nameX, nameY);
+			if (dirty != null)
+			{
+				//antialiased text may be drawn a pixel outside of its bounds
+				dirty.add(nameX - 1, nameY - metrics.getAscent() - 1, nameWidth + 2, metrics.getHeight() + 2);
+			}
 			g2d.setComposite(c); // restore the old composite so it doesn't mess up future rendering
 	
 			//show remaing time and symbol of speedup effect, if active
 			if (speedUp)
 			{
 				g2d.setColor(Color.black);
-				g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.7f));
+				g2d.setComposite(TEXT_COMPOSITE);
 				g2d.setFont(specialFont);
 				g2d.drawImage(imgSpeedUp,15,60,null);
-				g2d.drawString(String.valueOf (speedUpState/Snake.DEFAULT_FPS),45,78);
+				String seconds = String.valueOf (speedUpState/Snake.DEFAULT_FPS);
+				g2d.drawString(seconds,45,78);
 				g2d.setComposite(c);
+				if (dirty != null)
+				{
+					FontMetrics specialMetrics = g2d.getFontMetrics();
+					dirty.add(15, 60, imgSpeedUp.getWidth(), imgSpeedUp.getHeight());
+					dirty.add(44, 77 - specialMetrics.getAscent(), specialMetrics.stringWidth(seconds) + 2, specialMetrics.getHeight() + 2);
+				}
 			}
 		}
 		catch (Exception ex)
@@ -319,6 +347,18 @@ public class SnakeSprite
 		}
 	}
 
+	/**
+	 * Draw an image of the snake and add it to the dirty regions.
+	 */
+	private void drawImage(Graphics2D g2d, BufferedImage image, int x, int y, DirtyRegions dirty)
+	{
+		g2d.drawImage(image, x, y, null);
+		if (dirty != null)
+		{
+			dirty.add(x, y, image.getWidth(), image.getHeight());
+		}
+	}
+
 	/**
 	 * Get the position of the snake head as a rectangle.
 	 * @return Rectangle
@@ -0,0 +1,265 @@
+package snake.util;
+
+import java.awt.image.*;
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.util.*;
+import javax.sound.sampled.*;
+
+/**
+ * An asset pack holds all files of a skin or a level in one file, which is written by
+ * {@link AssetPacker} into the folder of the skin or level. Images are stored as decoded
+ * ARGB rasters and sounds as PCM samples, so loading them needs no PNG/JPEG/WAV decoding
+ * and only one file is opened for the whole skin or level. The pack is read through a
+ * memory mapped buffer and kept open.
+ * <p>
+ * Format (big endian): magic, version and number of entries, then the index with name,
+ * type, size and modification time of the packed file, offset and length of the data and
+ * the header of the type (width, height and alpha of an image, format of a sound). The
+ * data of the entries follows the index, every entry starts at a multiple of 4 bytes.
+ * <p>
+ * A packed file is only used while the loose file is missing or has the same size and
+ * modification time as when it was packed, otherwise the loose file is loaded.
+ * @author Jakob Lahmer, Matthias Steinboeck
+ */
+
+public class AssetPack
+{
+  public static final String PACK_FILENAME = "assets.pack";
+
+  static final int MAGIC = 0x534e4b50; // "SNKP"
+  static final int VERSION = 1;
+
+  static final byte TYPE_RAW = 0;
+  static final byte TYPE_IMAGE = 1;
+  static final byte TYPE_SOUND = 2;
+
+  // open packs, by path of the pack file
+  private static final Map<String, AssetPack> packs = new HashMap<String, AssetPack>();
+
+  private File file;
+  private long lastModified;
+  private MappedByteBuffer buffer;
+  private Map<String, Entry> entries = new HashMap<String, Entry>();
+
+  /**
+   * An entry of the index.
+   */
+  private static class Entry
+  {
+    byte type;
+    long fileSize;
+    long fileTime;
+    int offset;
+    int length;
+    // images
+    int width;
+    int height;
+    boolean alpha;
+    // sounds
+    AudioFormat format;
+  }
+
+  private AssetPack(File file)
+  {
+    this.file = file;
+  }
+
+  /**
+   * Get the pack of the folder the file is in.
+   * @param filePath path of a file of a skin or level
+   * @return the pack or null if the folder has no (valid) pack
+   */
+  public static synchronized AssetPack forFile(String filePath)
+  {
+    File packFile = new File(new File(filePath).getParentFile(), PACK_FILENAME);
+    String key = packFile.getAbsolutePath();
+    AssetPack pack = packs.get(key);
+    if (!packFile.isFile())
+    {
+      packs.remove(key);
+      return null;
+    }
+    if (pack == null || pack.lastModified != packFile.lastModified())
+    {
+      pack = new AssetPack(packFile);
+      if (!pack.open())
+      {
+        packs.remove(key);
+        return null;
+      }
+      packs.put(key, pack);
+    }
+    return pack;
+  }
+
+  /**
+   * Get a packed image.
+   * @param filePath path of the image file
+   * @return the image or null if the image is not in the pack or has changed
+   */
+  public BufferedImage getImage(String filePath)
+  {
+    Entry entry = getEntry(filePath, TYPE_IMAGE);
+    if (entry == null)
+      return null;
+
+    BufferedImage im = new BufferedImage(entry.width, entry.height,
+        entry.alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+    int[] pixels = new int[entry.width * entry.height];
+    getData(entry).asIntBuffer().get(pixels);
+    // setDataElements copies the pixels, so the image stays managed (accelerated)
+    im.getRaster().setDataElements(0, 0, entry.width, entry.height, pixels);
+    return im;
+  }
+
+  /**
+   * Get a packed sound.
+   * @param filePath path of the sound file
+   * @return the PCM samples of the sound or null if the sound is not in the pack or has changed
+   */
+  public AudioInputStream getSound(String filePath)
+  {
+    Entry entry = getEntry(filePath, TYPE_SOUND);
+    if (entry == null)
+      return null;
+
+    byte[] samples = new byte[entry.length];
+    getData(entry).get(samples);
+    return new AudioInputStream(new ByteArrayInputStream(samples), entry.format,
+        samples.length / entry.format.getFrameSize());
+  }
+
+  /**
+   * Get a packed file as it was on disk (eg the properties of a level).
+   * @param filePath path of the file
+   * @return stream of the file or null if the file is not in the pack or has changed
+   */
+  public InputStream getStream(String filePath)
+  {
+    Entry entry = getEntry(filePath, TYPE_RAW);
+    if (entry == null)
+      return null;
+
+    byte[] bytes = new byte[entry.length];
+    getData(entry).get(bytes);
+    return new ByteArrayInputStream(bytes);
+  }
+
+  /**
+   * Get the entry of the file, if it has the type and the loose file has not changed since it was packed.
+   */
+  private Entry getEntry(String filePath, byte type)
+  {
+    File loose = new File(filePath);
+    Entry entry = entries.get(loose.getName());
+    if (entry == null || entry.type != type)
+      return null;
+    if (loose.exists() && (loose.length() != entry.fileSize || loose.lastModified() != entry.fileTime))
+      return null;
+    return entry;
+  }
+
+  /**
+   * @return a view of the data of the entry, the mapped buffer itself is never moved, so
+   * packs can be read by several threads
+   */
+  private ByteBuffer getData(Entry entry)
+  {
+    ByteBuffer data = buffer.duplicate();
+    data.position(entry.offset);
+    data.limit(entry.offset + entry.length);
+    return data.slice();
+  }
+
+  /**
+   * Map the pack and read the index.
+   * @return true if the pack is valid
+   */
+  private boolean open()
+  {
+    try
+    {
+      lastModified = file.lastModified();
+      FileInputStream in = new FileInputStream(file);
+      try
+      {
+        FileChannel channel = in.getChannel();
+        // the mapping stays valid after the channel is closed
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      }
+      finally
+      {
+        in.close();
+      }
+
+      if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+      {
+        System.out.println("Asset pack " + file + " has a wrong format or version");
+        return false;
+      }
+      int count = buffer.getInt();
+      Entry[] index = new Entry[count];
+      for (int i = 0; i < count; i++)
+      {
+        Entry entry = new Entry();
+        String name = readString(buffer);
+        entry.type = buffer.get();
+        entry.fileSize = buffer.getLong();
+        entry.fileTime = buffer.getLong();
+        entry.offset = buffer.getInt();
+        entry.length = buffer.getInt();
+        if (entry.type == TYPE_IMAGE)
+        {
+          entry.width = buffer.getInt();
+          entry.height = buffer.getInt();
+          entry.alpha = buffer.get() != 0;
+        }
+        else if (entry.type == TYPE_SOUND)
+        {
+          entry.format = new AudioFormat(new AudioFormat.Encoding(readString(buffer)), buffer.getFloat(),
+              buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getFloat(), buffer.get() != 0);
+        }
+        entries.put(name, entry);
+        index[i] = entry;
+      }
+      // offsets in the index are relative to the start of the data
+      int dataStart = align(buffer.position());
+      for (int i = 0; i < count; i++)
+      {
+        index[i].offset += dataStart;
+        if (index[i].offset + index[i].length > buffer.capacity())
+        {
+          System.out.println("Asset pack " + file + " is truncated");
+          return false;
+        }
+      }
+      return true;
+    }
+    catch (Exception e)
+    {
+      System.out.println("Could not open asset pack " + file + ":\n" + e);
+      return false;
+    }
+  }
+
+  static int align(int position)
+  {
+    return (position + 3) & ~3;
+  }
+
+  static void writeString(DataOutput out, String s) throws IOException
+  {
+    byte[] bytes = s.getBytes("UTF-8");
+    out.writeShort(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(ByteBuffer buffer) throws IOException
+  {
+    byte[] bytes = new byte[buffer.getShort() & 0xffff];
+    buffer.get(bytes);
+    return new String(bytes, "UTF-8");
+  }
+}
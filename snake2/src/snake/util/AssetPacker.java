@@ -0,0 +1,211 @@
+package snake.util;
+
+import java.awt.image.*;
+import java.io.*;
+import java.util.*;
+import javax.imageio.*;
+import javax.sound.sampled.*;
+
+/**
+ * Tool that writes the {@link AssetPack} of skins and levels. Images are decoded to ARGB
+ * rasters, sounds to PCM samples, all other files are packed as they are.
+ * <p>
+ * Usage: AssetPacker [folder...]<br>
+ * Packs the given skin or level folders, or every folder in skins and levels if no folder is given.
+ * The pack must be written again when a file of the skin or level changes, until then the
+ * changed file is loaded from disk.
+ * @author Jakob Lahmer, Matthias Steinboeck
+ */
+
+public class AssetPacker
+{
+  public static void main(String[] args)
+  {
+    List<File> folders = new ArrayList<File>();
+    if (args.length == 0)
+    {
+      addSubfolders(folders, new File("skins"));
+      addSubfolders(folders, new File("levels"));
+    }
+    else
+    {
+      for (int i = 0; i < args.length; i++)
+        folders.add(new File(args[i]));
+    }
+
+    int failed = 0;
+    for (File folder : folders)
+    {
+      if (!pack(folder))
+        failed++;
+    }
+    if (failed > 0)
+      System.exit(1);
+  }
+
+  /**
+   * Write the pack of a skin or level folder.
+   * @param folder the folder of the skin or level
+   * @return true if the pack was written
+   */
+  public static boolean pack(File folder)
+  {
+    File[] files = folder.listFiles();
+    if (files == null)
+    {
+      System.out.println("Not a folder: " + folder);
+      return false;
+    }
+    Arrays.sort(files);
+
+    File packFile = new File(folder, AssetPack.PACK_FILENAME);
+    File temp = new File(folder, AssetPack.PACK_FILENAME + ".tmp");
+    try
+    {
+      ByteArrayOutputStream index = new ByteArrayOutputStream();
+      DataOutputStream indexOut = new DataOutputStream(index);
+      ByteArrayOutputStream data = new ByteArrayOutputStream();
+      DataOutputStream dataOut = new DataOutputStream(data);
+      int count = 0;
+
+      for (int i = 0; i < files.length; i++)
+      {
+        File file = files[i];
+        if (!file.isFile() || file.isHidden() || file.getName().startsWith(AssetPack.PACK_FILENAME))
+          continue;
+
+        while (data.size() != AssetPack.align(data.size()))
+          dataOut.writeByte(0);
+        int offset = data.size();
+        AssetPack.writeString(indexOut, file.getName());
+        String name = file.getName().toLowerCase();
+        if (name.endsWith(".png") || name.endsWith(".jpg") || name.endsWith(".gif"))
+        {
+          BufferedImage im = ImageIO.read(file);
+          if (im == null)
+          {
+            System.out.println("Can't decode image: " + file);
+            return false;
+          }
+          int width = im.getWidth();
+          int height = im.getHeight();
+          int[] pixels = im.getRGB(0, 0, width, height, null, 0, width);
+          for (int p = 0; p < pixels.length; p++)
+            dataOut.writeInt(pixels[p]);
+
+          writeEntry(indexOut, AssetPack.TYPE_IMAGE, file, offset, data.size() - offset);
+          indexOut.writeInt(width);
+          indexOut.writeInt(height);
+          indexOut.writeBoolean(im.getColorModel().hasAlpha());
+        }
+        else if (name.endsWith(".wav") || name.endsWith(".au") || name.endsWith(".aiff"))
+        {
+          AudioInputStream stream = getPcmStream(file);
+          AudioFormat format = stream.getFormat();
+          copy(stream, dataOut);
+          stream.close();
+
+          writeEntry(indexOut, AssetPack.TYPE_SOUND, file, offset, data.size() - offset);
+          AssetPack.writeString(indexOut, format.getEncoding().toString());
+          indexOut.writeFloat(format.getSampleRate());
+          indexOut.writeInt(format.getSampleSizeInBits());
+          indexOut.writeInt(format.getChannels());
+          indexOut.writeInt(format.getFrameSize());
+          indexOut.writeFloat(format.getFrameRate());
+          indexOut.writeBoolean(format.isBigEndian());
+        }
+        else
+        {
+          InputStream in = new FileInputStream(file);
+          copy(in, dataOut);
+          in.close();
+
+          writeEntry(indexOut, AssetPack.TYPE_RAW, file, offset, data.size() - offset);
+        }
+        count++;
+      }
+
+      // the pack is written to a temporary file first, so a running game never maps a half written pack
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+      try
+      {
+        out.writeInt(AssetPack.MAGIC);
+        out.writeInt(AssetPack.VERSION);
+        out.writeInt(count);
+        index.writeTo(out);
+        while (out.size() != AssetPack.align(out.size()))
+          out.writeByte(0);
+        data.writeTo(out);
+      }
+      finally
+      {
+        out.close();
+      }
+      packFile.delete();
+      if (!temp.renameTo(packFile))
+      {
+        System.out.println("Could not write asset pack " + packFile);
+        return false;
+      }
+      System.out.println("-- " + packFile + " (" + count + " files, " + packFile.length() + " bytes)");
+      return true;
+    }
+    catch (Exception e)
+    {
+      System.out.println("Could not pack " + folder + ":\n" + e);
+      temp.delete();
+      return false;
+    }
+  }
+
+  private static void writeEntry(DataOutputStream indexOut, byte type, File file, int offset, int length) throws IOException
+  {
+    indexOut.writeByte(type);
+    indexOut.writeLong(file.length());
+    indexOut.writeLong(file.lastModified());
+    indexOut.writeInt(offset);
+    indexOut.writeInt(length);
+  }
+
+  /**
+   * Open the sound file, converting ULAW/ALAW formats to PCM like ClipInfo does.
+   */
+  private static AudioInputStream getPcmStream(File file) throws Exception
+  {
+    AudioInputStream stream = AudioSystem.getAudioInputStream(file);
+    AudioFormat format = stream.getFormat();
+    if ( (format.getEncoding() == AudioFormat.Encoding.ULAW) ||
+         (format.getEncoding() == AudioFormat.Encoding.ALAW) )
+    {
+      AudioFormat newFormat =
+         new AudioFormat(AudioFormat.Encoding.PCM_SIGNED,
+                              format.getSampleRate(),
+                              format.getSampleSizeInBits()*2,
+                              format.getChannels(),
+                              format.getFrameSize()*2,
+                              format.getFrameRate(), true);  // big endian
+      stream = AudioSystem.getAudioInputStream(newFormat, stream);
+    }
+    return stream;
+  }
+
+  private static void copy(InputStream in, OutputStream out) throws IOException
+  {
+    byte[] buf = new byte[8192];
+    int len;
+    while ((len = in.read(buf)) > 0)
+      out.write(buf, 0, len);
+  }
+
+  private static void addSubfolders(List<File> folders, File parent)
+  {
+    File[] files = parent.listFiles();
+    if (files == null)
+      return;
+    for (int i = 0; i < files.length; i++)
+    {
+      if (files[i].isDirectory() && !files[i].getName().startsWith("."))
+        folders.add(files[i]);
+    }
+  }
+}
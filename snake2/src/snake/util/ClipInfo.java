@@ -24,6 +24,24 @@ public class ClipInfo implements LineListener
     loadClip(fnm);
   }
 
+  public ClipInfo(String nm, AudioInputStream stream, String fnm)
+  // use a PCM stream that is decoded already (eg from an asset pack)
+  {
+    name = nm;
+    try {
+      openClip(stream, fnm);
+    }
+    catch (LineUnavailableException noLineException) {
+      System.out.println("No audio line available for : " + fnm);
+    }
+    catch (IOException ioException) {
+      System.out.println("Could not read: " + fnm);
+    }
+    catch (Exception e) {
+      System.out.println("Problem with " + fnm);
+    }
+  }
+
   private void loadClip(String fnm)
   {
     try {
@@ -55,21 +73,7 @@ public class ClipInfo implements LineListener
         format = newFormat;
       }
 
-      DataLine.Info info = new DataLine.Info(Clip.class, format);
-
-      // make sure sound system supports data line
-      if (!AudioSystem.isLineSupported(info)) {
-        System.out.println("Unsupported Clip File: " + fnm);
-        return;
-      }
-
-      // get clip line resource
-      clip = (Clip) AudioSystem.getLine(info);
-
-      // listen to clip for events
-      clip.addLineListener(this);
-
-      clip.open(stream);    // open the sound file as a clip
+      openClip(stream, fnm);
     }
 
     catch (UnsupportedAudioFileException audioException) {
@@ -86,6 +90,27 @@ public class ClipInfo implements LineListener
     }
   }
 
+  private void openClip(AudioInputStream stream, String fnm)
+      throws LineUnavailableException, IOException
+  {
+    AudioFormat format = stream.getFormat();
+    DataLine.Info info = new DataLine.Info(Clip.class, format);
+
+    // make sure sound system supports data line
+    if (!AudioSystem.isLineSupported(info)) {
+      System.out.println("Unsupported Clip File: " + fnm);
+      return;
+    }
+
+    // get clip line resource
+    clip = (Clip) AudioSystem.getLine(info);
+
+    // listen to clip for events
+    clip.addLineListener(this);
+
+    clip.open(stream);    // open the sound file as a clip
+  }
+
   public void update(LineEvent lineEvent)
   //Called when the clip's line detects open, close, start, or
   //stop events. The watcher (if one exists) is notified.
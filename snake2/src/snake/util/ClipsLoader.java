@@ -20,34 +20,41 @@ package snake.util;
 */
 
 import java.util.*;
+import javax.sound.sampled.AudioInputStream;
 
 public class ClipsLoader
 {
-  private HashMap clipsMap;
+  private Map<String, ClipInfo> clipsMap;
     /* The key is the clip 'name', the object (value)
        is a ClipInfo object */
 
   public ClipsLoader()
   {
-    clipsMap = new HashMap();
+    clipsMap = new HashMap<String, ClipInfo>();
   }
 
   // ----------- manipulate a particular clip --------
 
   public void load(String name, String fnm)
-  // create a ClipInfo object for name and store it
+  // create a ClipInfo object for name and store it,
+  // the PCM samples are taken from the asset pack of the folder if there is one
   {
     if (clipsMap.containsKey(name))
       System.out.println( "Error: " + name + "already stored");
     else {
-      clipsMap.put(name, new ClipInfo(name, fnm) );
+      AssetPack pack = AssetPack.forFile(fnm);
+      AudioInputStream packed = (pack == null) ? null : pack.getSound(fnm);
+      if (packed != null)
+        clipsMap.put(name, new ClipInfo(name, packed, fnm) );
+      else
+        clipsMap.put(name, new ClipInfo(name, fnm) );
       System.out.println("-- " + name + "/" + fnm);
     }
   }
 
   public void close(String name)
   // close the specified clip
-  {  ClipInfo ci = (ClipInfo) clipsMap.get(name);
+  {  ClipInfo ci = clipsMap.get(name);
      if (ci == null)
        System.out.println( "Error: " + name + "not stored");
      else
@@ -56,7 +63,7 @@ public class ClipsLoader
 
   public void play(String name, boolean toLoop)
   // play (perhaps loop) the specified clip
-  {  ClipInfo ci = (ClipInfo) clipsMap.get(name);
+  {  ClipInfo ci = clipsMap.get(name);
      if (ci == null)
        System.out.println( "Error: " + name + "not stored");
      else
@@ -65,7 +72,7 @@ public class ClipsLoader
 
   public void stop(String name)
   // stop the clip, resetting it to the beginning
-  { ClipInfo ci = (ClipInfo) clipsMap.get(name);
+  { ClipInfo ci = clipsMap.get(name);
     if (ci == null)
       System.out.println( "Error: " + name + "not stored");
     else
@@ -73,7 +80,7 @@ public class ClipsLoader
   }
 
   public void pause(String name)
-  { ClipInfo ci = (ClipInfo) clipsMap.get(name);
+  { ClipInfo ci = clipsMap.get(name);
     if (ci == null)
       System.out.println( "Error: " + name + "not stored");
     else
@@ -81,7 +88,7 @@ public class ClipsLoader
   }
 
   public void resume(String name)
-  { ClipInfo ci = (ClipInfo) clipsMap.get(name);
+  { ClipInfo ci = clipsMap.get(name);
     if (ci == null)
       System.out.println( "Error: " + name + "not stored");
     else
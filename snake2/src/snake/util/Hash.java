@@ -1,6 +1,7 @@
 package snake.util;
 
 import java.io.*;
+import java.nio.channels.FileChannel;
 import java.security.*;
 
 /**
@@ -10,8 +11,12 @@ import java.security.*;
 
 public class Hash
 {
+  // files that are larger are mapped into memory instead of being read through a buffer
+  private static final long MAP_THRESHOLD = 64 * 1024;
+
   /**
    * Use MessageDigest class to create a hash from the list of files.
+   * Large files are hashed through a memory mapped FileChannel, the hash is the same.
    * @param fileList list of files
    * @param algo name of the hash algorithm
    * @return hashcode as a byte array
@@ -25,6 +30,13 @@ public class Hash
     for (int i = 0; i < fileList.length; i++)
     {
       FileInputStream in = new FileInputStream(fileList[i]);
+      FileChannel channel = in.getChannel();
+      if (channel.size() > MAP_THRESHOLD)
+      {
+        messagedigest.update(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        in.close();
+        continue;
+      }
       int len = 1;
       while (len > 0)
       {
@@ -39,6 +51,19 @@ public class Hash
     return messagedigest.digest();
   }
 
+  /**
+   * Make MD5 hash from a byte array, eg the content of a file.
+   * @param data bytes to hash
+   * @return hashcode as a string
+   * @throws Exception
+   */
+  public static String getDigestStr(byte[] data) throws Exception
+  {
+    MessageDigest messagedigest = MessageDigest.getInstance("MD5");
+    messagedigest.update(data);
+    return toHexString(messagedigest.digest());
+  }
+
   /**
    * Convert a byte array into a hex string.
    * @param bytes byte[]
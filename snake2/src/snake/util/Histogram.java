@@ -0,0 +1,102 @@
+package snake.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of positive values (eg durations in microseconds) with a fixed number of buckets.
+ * Values below 2 * SUB_BUCKETS have a bucket of their own, larger values are put into
+ * SUB_BUCKETS buckets per power of two, so a percentile is at most about 3% away from the
+ * recorded value. Recording a value only increments a counter, it does not allocate anything
+ * and may be done by several threads at once.
+ * @author Jakob Lahmer, Matthias Steinboeck
+ */
+
+public class Histogram
+{
+  private static final int SUB_BITS = 4;
+  private static final int SUB_BUCKETS = 1 << SUB_BITS;
+  // largest value that is recorded exactly, larger values are counted as this value
+  public static final long MAX_VALUE = (1L << 31) - 1;
+
+  private final AtomicLongArray counts = new AtomicLongArray(getBucket(MAX_VALUE) + 1);
+
+  /**
+   * Add a value.
+   * @param value the value, negative values are counted as 0
+   */
+  public void record(long value)
+  {
+    counts.incrementAndGet(getBucket(value));
+  }
+
+  /**
+   * @return number of recorded values
+   */
+  public long getCount()
+  {
+    long count = 0;
+    for (int i = 0; i < counts.length(); i++)
+      count += counts.get(i);
+    return count;
+  }
+
+  /**
+   * Get the value that the given part of the recorded values is smaller than or equal to.
+   * @param percentile part of the values between 0.0 and 1.0, eg 0.99
+   * @return the middle of the bucket of the percentile, 0 if no value was recorded
+   */
+  public long getPercentile(double percentile)
+  {
+    long count = getCount();
+    if (count == 0)
+      return 0;
+
+    long rank = Math.max(1, (long) Math.ceil(percentile * count));
+    long seen = 0;
+    for (int i = 0; i < counts.length(); i++)
+    {
+      seen += counts.get(i);
+      if (seen >= rank)
+        return getLowerBound(i) + (getWidth(i) - 1) / 2;
+    }
+    return MAX_VALUE;
+  }
+
+  /**
+   * Remove all values.
+   */
+  public void reset()
+  {
+    for (int i = 0; i < counts.length(); i++)
+      counts.set(i, 0);
+  }
+
+  private static int getBucket(long value)
+  {
+    if (value < 0)
+      value = 0;
+    else if (value > MAX_VALUE)
+      value = MAX_VALUE;
+
+    if (value < 2 * SUB_BUCKETS)
+      return (int) value;
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+    return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+  }
+
+  private static long getLowerBound(int bucket)
+  {
+    if (bucket < 2 * SUB_BUCKETS)
+      return bucket;
+    int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+    return (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (exponent - SUB_BITS);
+  }
+
+  private static long getWidth(int bucket)
+  {
+    if (bucket < 2 * SUB_BUCKETS)
+      return 1;
+    return 1L << (bucket / SUB_BUCKETS - 1);
+  }
+}
@@ -24,7 +24,7 @@ public class ImageLoader
   /**
    * Load the image, returning it as a BufferedImage
    * which is compatible with the graphics device being used.
-   * Uses ImageIO.
+   * Uses the asset pack of the folder if there is one (see {@link AssetPack}), ImageIO otherwise.
    * @param filePath the path of the image file
    * @param fromResource true if the image should be loaded from a resource file
    * @return the loaded image
@@ -34,6 +34,14 @@ public class ImageLoader
     try
     {
       BufferedImage im = null;
+      if (!fromResource)
+      {
+        AssetPack pack = AssetPack.forFile(filePath);
+        if (pack != null)
+          im = pack.getImage(filePath);
+        if (im != null)
+          return im;
+      }
       if (fromResource)
         im = ImageIO.read(getClass().getResource(filePath));
       else
@@ -136,6 +144,41 @@ public class ImageLoader
     return dest;
   }
 
+  /**
+   * Create a new image with changed brightness and transparency, by using a RescaleOp.
+   * Used to precompute the frames of effects (see snake.ui.EffectCache).
+   * @param src the source image
+   * @param brightness new brightness value for the image (1.0 = no change)
+   * @param alpha factor for the alpha channel of the image (1.0 = no change)
+   * @return the changed image as a new BufferedImage object
+   */
+  public BufferedImage getBrighterFadedImage(BufferedImage src, float brightness, float alpha)
+  {
+    if (src == null)
+    {
+      System.out.println("getBrighterFadedImage: input image is null");
+      return null;
+    }
+
+    BufferedImage dest = gc.createCompatibleImage(
+        src.getWidth(), src.getHeight(), Transparency.TRANSLUCENT);
+    Graphics2D g2d = dest.createGraphics();
+    if (hasAlpha(src))
+    {
+      float[] scaleFactors = {brightness, brightness, brightness, alpha};
+      float[] offsets = {0.0f, 0.0f, 0.0f, 0.0f};
+      g2d.drawImage(src, new RescaleOp(scaleFactors, offsets, null), 0, 0);
+    }
+    else //not transparent, the alpha is applied by the composite
+    {
+      g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, alpha));
+      g2d.drawImage(src, new RescaleOp(brightness, 0, null), 0, 0);
+    }
+    g2d.dispose();
+
+    return dest;
+  }
+
   /**
    * Checks an image if it has an alpha channel.
    * @param im the image to check
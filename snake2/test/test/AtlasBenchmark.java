@@ -0,0 +1,147 @@
+package test;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import snake.Snake;
+import snake.SkinsManager;
+import snake.ui.SkinAtlas;
+import snake.util.ImageLoader;
+
+/**
+ * Compares the time to draw the snakes of a frame with the {@link SkinAtlas} and the way the
+ * snakes were drawn before, when every SnakeSprite kept its own rotations of the snake part
+ * and rotated the head and the tail in every frame.
+ * 4 and 32 snakes are drawn into an image of the size of the panel, the background is drawn
+ * before every frame but not measured. The snakes are not simulated, every snake winds over
+ * the panel on a path of its own.
+ * Run with ant benchmark.atlas
+ * @author Jakob Lahmer, Matthias Steinboeck
+ */
+public class AtlasBenchmark
+{
+	private static final int PARTS = 10; //parts between head and tail
+	private static final int PARTDIST = 12; //pixels between two parts
+	private static final int WARMUP = 100;
+	private static final int FRAMES = 300;
+
+	private static ImageLoader imgLoader;
+	private static SkinAtlas atlas;
+	private static BufferedImage imgHead;
+	private static BufferedImage imgTail;
+	private static BufferedImage[] imgPartsTurned = new BufferedImage[SkinAtlas.ANGLES];
+
+	public static void main(String[] args) throws Exception
+	{
+		imgLoader = new ImageLoader();
+		SkinsManager skinsManager = new SkinsManager();
+		skinsManager.setCurrentSkin("Snake");
+		atlas = SkinAtlas.getAtlas(imgLoader, skinsManager);
+		while (!atlas.isBuilt())
+		{
+			Thread.sleep(5);
+		}
+		//the images of the sprite before the atlas
+		imgHead = imgLoader.loadImage(skinsManager.getSnakeHeadPath(), false);
+		imgTail = imgLoader.loadImage(skinsManager.getSnakeTailPath(), false);
+		BufferedImage imgPart = imgLoader.loadImage(skinsManager.getSnakePartPath(), false);
+		for (int i = 0; i < imgPartsTurned.length; i++)
+		{
+			imgPartsTurned[i] = imgLoader.getRotatedImage(imgPart, (i * SkinAtlas.ANGLE_STEP - 90));
+		}
+
+		BufferedImage background = imgLoader.loadImage("levels/Level1/back.jpg", false);
+		BufferedImage screen = new BufferedImage(Snake.PWIDTH, Snake.PHEIGHT, BufferedImage.TYPE_INT_RGB);
+		System.out.println("snakes | parts/snake | rotated per frame (ms/frame) | atlas (ms/frame)");
+		for (int count : new int[] {4, 32})
+		{
+			double rotated = measure(screen, background, count, false);
+			double atlased = measure(screen, background, count, true);
+			System.out.println(String.format("%6d | %11d | %28.3f | %16.3f", count, PARTS + 2, rotated, atlased));
+		}
+	}
+
+	/**
+	 * Draw the snakes in every frame.
+	 * @return milliseconds per frame to draw the snakes
+	 */
+	private static double measure(BufferedImage screen, BufferedImage background, int count, boolean useAtlas)
+	{
+		Random random = new Random(1);
+		int[] offsets = new int[count];
+		for (int i = 0; i < count; i++)
+		{
+			offsets[i] = random.nextInt(1000);
+		}
+		long total = 0;
+		for (int frame = 0; frame < WARMUP + FRAMES; frame++)
+		{
+			Graphics2D g2d = screen.createGraphics();
+			g2d.drawImage(background, 0, 0, null);
+			long start = System.nanoTime();
+			for (int s = 0; s < count; s++)
+			{
+				drawSnake(g2d, offsets[s] + frame, s, useAtlas);
+			}
+			long time = System.nanoTime() - start;
+			g2d.dispose();
+			if (frame >= WARMUP)
+			{
+				total += time;
+			}
+		}
+		return total / 1000000.0 / FRAMES;
+	}
+
+	/**
+	 * Draw a snake from the tail to the head, like the SnakeSprite does.
+	 */
+	private static void drawSnake(Graphics2D g2d, int step, int snake, boolean useAtlas)
+	{
+		for (int i = 0; i <= PARTS + 1; i++)
+		{
+			int pos = step * 2 + i * PARTDIST;
+			int x = getX(pos, snake);
+			int y = getY(pos, snake);
+			int direction = getDirection(pos, snake);
+			BufferedImage image;
+			if (useAtlas)
+			{
+				int kind = (i == 0) ? SkinAtlas.TAIL : (i == PARTS + 1) ? SkinAtlas.HEAD : SkinAtlas.PART;
+				image = atlas.getImage(kind, direction);
+			}
+			else if (i == 0)
+			{
+				image = imgLoader.getRotatedImage(imgTail, direction - 90);
+			}
+			else if (i == PARTS + 1)
+			{
+				image = imgLoader.getRotatedImage(imgHead, direction - 90);
+			}
+			else
+			{
+				image = imgPartsTurned[SkinAtlas.getAngleIndex(direction)];
+			}
+			g2d.drawImage(imgLoader.getBrighterImage(image, 1.0f), x, y, null);
+		}
+	}
+
+	private static int getX(int pos, int snake)
+	{
+		return (int) (Snake.PWIDTH / 2 + Math.cos(pos / 80.0 + snake) * (120 + snake * 7 % 230));
+	}
+
+	private static int getY(int pos, int snake)
+	{
+		return (int) (Snake.PHEIGHT / 2 + Math.sin(pos / 62.0 + snake) * (90 + snake * 11 % 200));
+	}
+
+	private static int getDirection(int pos, int snake)
+	{
+		int dx = getX(pos + 1, snake) - getX(pos - 1, snake);
+		int dy = getY(pos + 1, snake) - getY(pos - 1, snake);
+		int direction = (int) Math.round(Math.toDegrees(Math.atan2(dy, dx)));
+		return (direction < 0) ? direction + 360 : direction;
+	}
+}
@@ -0,0 +1,218 @@
+package test;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+
+import snake.Snake;
+import snake.SkinsManager;
+import snake.ui.DirtyRegions;
+import snake.ui.EffectCache;
+import snake.ui.SkinAtlas;
+import snake.util.ImageLoader;
+
+/**
+ * Compares drawing every frame completely with drawing only the {@link DirtyRegions}, the
+ * way the SnakePanel does it: the regions of the last frame are restored from the background,
+ * the sprites are drawn, and only the regions of both frames are copied to the screen.
+ * The screen is an image here, so the time does not include the display.
+ * 1, 4, 16 and 32 snakes, a few pulsing collectables and the texts of the panel are drawn.
+ * After the frames the screens of both ways are compared, they must be equal.
+ * Run with ant benchmark.dirtyregions
+ * @author Jakob Lahmer, Matthias Steinboeck
+ */
+public class DirtyRegionsBenchmark
+{
+	private static final int WIDTH = Snake.PWIDTH;
+	private static final int HEIGHT = Snake.PHEIGHT;
+	private static final int MAX_DIRTY_REGIONS = 256; //same as the SnakePanel
+	private static final int PARTS = 20;
+	private static final int COLLECTABLES = 5;
+	private static final int FRAMES = 2000;
+
+	private static SkinAtlas atlas;
+	private static EffectCache effectCache;
+	private static Font font = new Font("SansSerif", Font.BOLD, 24);
+	private static FontMetrics metrics;
+
+	public static void main(String[] args) throws Exception
+	{
+		ImageLoader imgLoader = new ImageLoader();
+		SkinsManager skinsManager = new SkinsManager();
+		skinsManager.setCurrentSkin("Snake");
+		atlas = SkinAtlas.getAtlas(imgLoader, skinsManager);
+		while (!atlas.isBuilt())
+		{
+			Thread.sleep(5);
+		}
+		effectCache = EffectCache.getInstance();
+		BufferedImage background = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+		background.createGraphics().drawImage(imgLoader.loadImage("levels/Level1/back.jpg", false), 0, 0, null);
+
+		boolean ok = true;
+		System.out.println("snakes | full redraw (ms/frame) | dirty regions (ms/frame) | painted | full frames | differing pixels");
+		for (int count : new int[] {1, 4, 16, 32})
+		{
+			BufferedImage fullScreen = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+			BufferedImage dirtyScreen = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+			double full = 0;
+			double dirty = 0;
+			long[] painted = new long[1];
+			int[] fullFrames = new int[1];
+			//the last round is measured
+			for (int round = 0; round < 3; round++)
+			{
+				full = drawFull(background, fullScreen, count);
+				dirty = drawDirty(background, dirtyScreen, count, painted, fullFrames);
+			}
+			int differing = 0;
+			for (int y = 0; y < HEIGHT; y++)
+			{
+				for (int x = 0; x < WIDTH; x++)
+				{
+					if (fullScreen.getRGB(x, y) != dirtyScreen.getRGB(x, y))
+						differing++;
+				}
+			}
+			ok &= (differing == 0);
+			System.out.println(String.format("%6d | %22.3f | %24.3f | %6.1f%% | %11d | %16d",
+					count, full, dirty, 100.0 * painted[0] / FRAMES / (WIDTH * HEIGHT), fullFrames[0], differing));
+		}
+		System.out.println(ok ? "OK" : "FAILED: the screens differ");
+		System.exit(ok ? 0 : 1);
+	}
+
+	/**
+	 * Draw the background and the sprites into the double buffer and copy it to the screen
+	 * in every frame.
+	 * @return milliseconds per frame
+	 */
+	private static double drawFull(BufferedImage background, BufferedImage screen, int count)
+	{
+		BufferedImage dbImage = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+		Graphics2D dbg = dbImage.createGraphics();
+		Graphics2D g = screen.createGraphics();
+		long start = System.nanoTime();
+		for (int frame = 0; frame < FRAMES; frame++)
+		{
+			dbg.drawImage(background, 0, 0, null);
+			drawSprites(dbg, count, frame, null);
+			g.drawImage(dbImage, 0, 0, null);
+		}
+		long time = System.nanoTime() - start;
+		dbg.dispose();
+		g.dispose();
+		return time / 1000000.0 / FRAMES;
+	}
+
+	/**
+	 * Restore the regions of the last frame, draw the sprites and copy the regions of both
+	 * frames to the screen, the whole panel is drawn if the regions overflow.
+	 * @param painted gets the painted area of all frames
+	 * @param fullFrames gets the number of frames that were drawn completely
+	 * @return milliseconds per frame
+	 */
+	private static double drawDirty(BufferedImage background, BufferedImage screen, int count,
+			long[] painted, int[] fullFrames)
+	{
+		BufferedImage dbImage = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+		Graphics2D dbg = dbImage.createGraphics();
+		Graphics2D g = screen.createGraphics();
+		DirtyRegions lastRegions = new DirtyRegions(MAX_DIRTY_REGIONS, WIDTH, HEIGHT);
+		DirtyRegions regions = new DirtyRegions(MAX_DIRTY_REGIONS, WIDTH, HEIGHT);
+		painted[0] = 0;
+		fullFrames[0] = 0;
+		dbg.drawImage(background, 0, 0, null);
+		boolean first = true;
+		long start = System.nanoTime();
+		for (int frame = 0; frame < FRAMES; frame++)
+		{
+			DirtyRegions swap = lastRegions;
+			lastRegions = regions;
+			regions = swap;
+			regions.clear();
+			if (!first)
+			{
+				if (lastRegions.isOverflowed())
+					dbg.drawImage(background, 0, 0, null);
+				else
+					paintRegions(dbg, background, lastRegions);
+			}
+			drawSprites(dbg, count, frame, regions);
+			if (first || lastRegions.isOverflowed() || regions.isOverflowed())
+			{
+				g.drawImage(dbImage, 0, 0, null);
+				fullFrames[0]++;
+				painted[0] += WIDTH * HEIGHT;
+			}
+			else
+			{
+				paintRegions(g, dbImage, lastRegions);
+				paintRegions(g, dbImage, regions);
+				painted[0] += lastRegions.getArea() + regions.getArea();
+			}
+			first = false;
+		}
+		long time = System.nanoTime() - start;
+		dbg.dispose();
+		g.dispose();
+		return time / 1000000.0 / FRAMES;
+	}
+
+	private static void paintRegions(Graphics g, BufferedImage src, DirtyRegions dirty)
+	{
+		for (int i = 0; i < dirty.size(); i++)
+		{
+			Rectangle r = dirty.get(i);
+			g.drawImage(src, r.x, r.y, r.x + r.width, r.y + r.height, r.x, r.y, r.x + r.width, r.y + r.height, null);
+		}
+	}
+
+	/**
+	 * Draw the snakes, the collectables and the texts of a frame. Every snake winds over the
+	 * panel on a path of its own.
+	 * @param dirty gets the drawn regions, may be null
+	 */
+	private static void drawSprites(Graphics2D g2d, int count, int frame, DirtyRegions dirty)
+	{
+		for (int s = 0; s < count; s++)
+		{
+			for (int p = 0; p < PARTS; p++)
+			{
+				int kind = (p == PARTS - 1) ? SkinAtlas.HEAD : (p == 0) ? SkinAtlas.TAIL : SkinAtlas.PART;
+				BufferedImage image = atlas.getImage(kind, (s * 37 + frame + p * 10) % 360);
+				int x = (int) (WIDTH / 2 + Math.cos((frame + p * 3 + s * 50) / 40.0 + s) * (120 + s * 7 % 230));
+				int y = (int) (HEIGHT / 2 + Math.sin((frame + p * 3 + s * 50) / 31.0 + s) * (90 + s * 11 % 200));
+				g2d.drawImage(image, x, y, null);
+				if (dirty != null)
+					dirty.add(x, y, image.getWidth(), image.getHeight());
+			}
+		}
+		BufferedImage collectable = atlas.getSourceImage(SkinAtlas.COLLECTABLE);
+		for (int i = 0; i < COLLECTABLES; i++)
+		{
+			int x = 60 + i * 140;
+			int y = 500 - i * 80;
+			g2d.drawImage(effectCache.getFrame(collectable, 1.0f + (frame % 60) * 0.04f, 1.0f), x, y, null);
+			if (dirty != null)
+				dirty.add(x, y, collectable.getWidth(), collectable.getHeight());
+		}
+		g2d.setColor(Color.black);
+		g2d.setFont(font);
+		if (metrics == null)
+			metrics = g2d.getFontMetrics();
+		String points = "Points: " + (frame / 10);
+		String time = "Time: " + (frame / 20) + " sec";
+		g2d.drawString(points, 15, 30);
+		g2d.drawString(time, 15, 50);
+		if (dirty != null)
+		{
+			dirty.add(14, 29 - metrics.getAscent(), metrics.stringWidth(points) + 2, metrics.getHeight() + 2);
+			dirty.add(14, 49 - metrics.getAscent(), metrics.stringWidth(time) + 2, metrics.getHeight() + 2);
+		}
+	}
+}
@@ -0,0 +1,135 @@
+package test;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import snake.BackgroundManager;
+import snake.Snake;
+
+/**
+ * Compares the obstacle checks of the BackgroundManager (one lookup in the clearance field
+ * built when the level is loaded) with the way they were done before, reading the area
+ * around the position with getRGB on every call.
+ * For every level both ways are compared at every pixel of the map, including 5 pixels
+ * beyond each edge, for the area of a snake head and of a collectable. Then the time and the
+ * allocated bytes per call of freePlaceSnake are measured at random positions, and the time
+ * to load the level.
+ * Exits with status 1 if the two ways disagree anywhere.
+ * Run with ant benchmark.freeplace
+ * @author Jakob Lahmer, Matthias Steinboeck
+ */
+public class FreePlaceBenchmark
+{
+	private static final int CALLS = 2000000;
+	private static final int ROUNDS = 4; //the last round is measured
+	private static final int BORDER = Color.BLACK.getRGB();
+
+	private static com.sun.management.ThreadMXBean threads = null;
+
+	public static void main(String[] args)
+	{
+		if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)
+		{
+			threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		}
+		boolean ok = true;
+		System.out.println("level  | size      | load (ms) | mismatches | getRGB (ns, B/call) | clearance (ns, B/call)");
+		for (int level = 1; new File("levels/Level" + level).isDirectory(); level++)
+		{
+			String dir = "levels/Level" + level;
+			long start = System.nanoTime();
+			BackgroundManager gameMap = new BackgroundManager(Snake.PHEIGHT, Snake.PWIDTH, dir + "/back.gif", dir + "/back.properties");
+			double load = (System.nanoTime() - start) / 1000000.0;
+			BufferedImage map = gameMap.getMapImage();
+
+			int mismatches = 0;
+			for (int y = -5; y < map.getHeight() + 5; y++)
+			{
+				for (int x = -5; x < map.getWidth() + 5; x++)
+				{
+					if (scan(map, x + 7, y + 7, 8) != gameMap.freePlaceSnake(x, y))
+						mismatches++;
+					if (scan(map, x + 9, y + 9, 10) != gameMap.freePlaceCollectable(x, y))
+						mismatches++;
+				}
+			}
+			ok &= (mismatches == 0);
+
+			Random random = new Random(1);
+			int[] xs = new int[CALLS];
+			int[] ys = new int[CALLS];
+			for (int i = 0; i < CALLS; i++)
+			{
+				xs[i] = random.nextInt(map.getWidth());
+				ys[i] = random.nextInt(map.getHeight());
+			}
+			double[] scanCost = null;
+			double[] lookupCost = null;
+			for (int round = 0; round < ROUNDS; round++)
+			{
+				scanCost = measure(map, null, xs, ys);
+				lookupCost = measure(null, gameMap, xs, ys);
+			}
+			System.out.println(String.format("Level%d | %4dx%-4d | %9.1f | %10d | %9.1f ns %5s | %12.1f ns %5s",
+					level, map.getWidth(), map.getHeight(), load, mismatches,
+					scanCost[0], bytes(scanCost[1]), lookupCost[0], bytes(lookupCost[1])));
+		}
+		System.out.println(ok ? "OK" : "FAILED: the checks disagree");
+		System.exit(ok ? 0 : 1);
+	}
+
+	/**
+	 * Call freePlaceSnake, or the scan with the same area, at all positions.
+	 * @param map obstacle map to scan, null to use the BackgroundManager
+	 * @return ns and allocated bytes per call (bytes are -1 if not supported by the vm)
+	 */
+	private static double[] measure(BufferedImage map, BackgroundManager gameMap, int[] xs, int[] ys)
+	{
+		long id = Thread.currentThread().getId();
+		long bytes = (threads != null) ? threads.getThreadAllocatedBytes(id) : -1;
+		int free = 0;
+		long start = System.nanoTime();
+		for (int i = 0; i < xs.length; i++)
+		{
+			boolean isFree = (map != null) ? scan(map, xs[i] + 7, ys[i] + 7, 8) : gameMap.freePlaceSnake(xs[i], ys[i]);
+			if (isFree)
+				free++;
+		}
+		long time = System.nanoTime() - start;
+		if (bytes >= 0)
+			bytes = threads.getThreadAllocatedBytes(id) - bytes;
+		if (free < 0)
+			System.out.println(); //keeps the result of the calls
+		return new double[] {(double) time / xs.length, (bytes >= 0) ? (double) bytes / xs.length : -1};
+	}
+
+	/**
+	 * The obstacle check before the clearance field: the area is moved into the map and
+	 * read with getRGB.
+	 */
+	private static boolean scan(BufferedImage map, int x, int y, int size)
+	{
+		int[] pixels = new int[size * size];
+		int areaX = Math.max(0, x - size / 2);
+		int areaY = Math.max(0, y - size / 2);
+		if (areaX > map.getWidth() - size)
+			areaX = map.getWidth() - size;
+		if (areaY > map.getHeight() - size)
+			areaY = map.getHeight() - size;
+		map.getRGB(areaX, areaY, size, size, pixels, 0, size);
+		for (int i = 0; i < pixels.length; i++)
+		{
+			if (pixels[i] == BORDER)
+				return false;
+		}
+		return true;
+	}
+
+	private static String bytes(double perCall)
+	{
+		return (perCall < 0) ? "?" : Math.round(perCall) + " B";
+	}
+}
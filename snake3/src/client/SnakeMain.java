@@ -5,6 +5,7 @@ import javax.swing.JFrame;
 import mzs.event.DataChangeEventData;
 import mzs.event.i.DataChangeEventListener;
 import mzs.util.Util;
+import mzs.util.i.SpaceCallback;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -18,6 +19,7 @@ import client.data.game.GameList;
 import client.data.player.Player;
 import client.event.MenuEventData;
 import client.event.MenuEventMPNewData;
+import client.event.MenuEventType;
 import client.event.i.GameStateEventListener;
 import client.event.i.MenuEventListener;
 import client.gui.GameFrame;
@@ -98,19 +100,20 @@ public class SnakeMain extends JFrame implements MenuEventListener, GameStateEve
 					
 			/** MULTIPLAYER **/
 				case MULTIPLAYER_MENU:
-					if(this.initMultiplayer())	{
-						menuFrame.showMultiplayerMenu();
-					}
+					// menu is shown when the games are loaded
+					this.initMultiplayer();
 					break;
 				case MULTIPLAYER_NEW:
-					if(this.createNewMultiplayerGame(eventData)) {
-						this.menuFrame.showMultiplayerNewGameMenu();
-					}
+					// menu is shown when the game is written to space
+					this.createNewMultiplayerGame(eventData);
 					break;
 				case MULTIPLAYER_JOIN:
-					if(this.joinMultiplayerGame(eventData))	{
-						this.menuFrame.showMultiplayerNewGameMenu();
-					}
+					// menu is shown when the game is joined
+					this.joinMultiplayerGame(eventData);
+					break;
+				case MULTIPLAYER_MORE_GAMES:
+					// the list is extended when the games are read
+					this.gameList.loadMoreGames();
 					break;
 				case MULTIPLAYER_LEAVE:
 					this.leaveMultiplayerGame();
@@ -149,69 +152,130 @@ public class SnakeMain extends JFrame implements MenuEventListener, GameStateEve
 	/** MP **/
 	/**
 	 * initialises the multiplayer game (creates the gamelist and loads games from space)
+	 * the space is accessed in the background, the multiplayer menu is shown when the games are loaded
 	 */
-	private boolean initMultiplayer()	{
+	private void initMultiplayer()	{
 		this.gameList.setDataChangeEventListener(this.menuFrame.getMPMenuPanel());
-		if(!this.gameList.initGameList()) {
-			Messages.errorMessage(this, "Can't connect to XVSM Server.");
-			return false;
-		}
-		return true;
+		this.gameList.initGameList(new SpaceCallback<Boolean>() {
+			@Override
+			public void done(Boolean loaded) {
+				if(loaded)	{
+					showMenu(MenuEventType.MULTIPLAYER_MENU);
+				} else	{
+					failed(null);
+				}
+			}
+			@Override
+			public void failed(Throwable cause) {
+				Messages.errorMessage(SnakeMain.this, "Can't connect to XVSM Server.");
+			}
+		});
 	}
 	/**
 	 * creates a new multiplayer game
 	 * @param menuData
 	 */
-	private boolean createNewMultiplayerGame(MenuEventData eventData) {
+	private void createNewMultiplayerGame(MenuEventData eventData) {
 		// check instance
 		if(eventData instanceof MenuEventMPNewData)	{
-			eventData = (MenuEventMPNewData) eventData;
-			gameList.setDataChangeEventListener(this.menuFrame.getMPMenuNewGamePanel());
+			final String name = ((MenuEventMPNewData) eventData).getMpName();
 //			gameListManager.setViewOnly(false, false);
 //			String gameName = tfNeu.getText();
-			//check if name exists
-			if (gameList.gameNameExists(((MenuEventMPNewData) eventData).getMpName()))	{
-				Messages.errorMessage(this,"A game with this name already exists,\nplease choose another name.");
-				gameList.setDataChangeEventListener(this.menuFrame.getMPMenuPanel());
-				return false;
-			}
-
-			//set player state back to not init when necessary
-//			if (snakeMain.getMyPlayer().getPlayerState() != PlayerState.notinit)	{
-//				snakeMain.getMyPlayer().setPlayerState(PlayerState.notinit);
-//				//myPlayer.saveToSpace();
-//			}
-
-			gameList.createGame(((MenuEventMPNewData) eventData).getMpName(), this.player);
-			// change data change listener
-			return true;
+			//check if name exists (the name index of the space rejects a duplicate name too)
+			gameList.findGame(name, new SpaceCallback<Game>() {
+				@Override
+				public void done(Game game) {
+					if (game != null)	{
+						Messages.errorMessage(SnakeMain.this, "A game with this name already exists,\nplease choose another name.");
+						return;
+					}
+					createNewMultiplayerGame(name);
+				}
+				@Override
+				public void failed(Throwable cause) {
+					Messages.errorMessage(SnakeMain.this, "Can't create game: " + cause.getMessage());
+				}
+			});
+			return;
 		}
 		Messages.errorMessage(this, "No valid Event Object given");
-		return false;
 	}
 	
+	/**
+	 * creates a new multiplayer game with a name that is not in use
+	 * @param name
+	 */
+	private void createNewMultiplayerGame(String name) {
+		gameList.setDataChangeEventListener(this.menuFrame.getMPMenuNewGamePanel());
+
+		//set player state back to not init when necessary
+//		if (snakeMain.getMyPlayer().getPlayerState() != PlayerState.notinit)	{
+//			snakeMain.getMyPlayer().setPlayerState(PlayerState.notinit);
+//			//myPlayer.saveToSpace();
+//		}
+
+		gameList.createGame(name, this.player, new SpaceCallback<Boolean>() {
+			@Override
+			public void done(Boolean result) {
+				showMenu(MenuEventType.MULTIPLAYER_NEW);
+			}
+			@Override
+			public void failed(Throwable cause) {
+				gameList.abortCreateGame(menuFrame.getMPMenuPanel());
+				Messages.errorMessage(SnakeMain.this, "Can't create game: " + cause.getMessage());
+			}
+		});
+	}
+
 	/**
 	 * 
 	 * join an existing multiplayer game
 	 * @param eventData
-	 * @return
 	 */
-	private boolean joinMultiplayerGame(MenuEventData eventData) {
+	private void joinMultiplayerGame(MenuEventData eventData) {
 		if(eventData instanceof MenuEventMPNewData)	{
-			if (!gameList.joinGame(((MenuEventMPNewData) eventData).getMpName(), this.player, this.menuFrame.getMPMenuNewGamePanel()))	{
-				Messages.infoMessage(this,"Can't join game, because it's full or already started.");
-				return false;
-			}
+			gameList.joinGame(((MenuEventMPNewData) eventData).getMpName(), this.player, this.menuFrame.getMPMenuNewGamePanel(), new SpaceCallback<Boolean>() {
+				@Override
+				public void done(Boolean joined) {
+					if(joined)	{
+						showMenu(MenuEventType.MULTIPLAYER_JOIN);
+					} else	{
+						Messages.infoMessage(SnakeMain.this, "Can't join game, because it's full or already started.");
+					}
+				}
+				@Override
+				public void failed(Throwable cause) {
+					Messages.errorMessage(SnakeMain.this, "Can't join game: " + cause.getMessage());
+				}
+			});
 			//set player state back to not init when necessary
 //			if (this.player.getPlayerState() != PlayerState.notinit)	{
 //				snakeMain.getMyPlayer().setPlayerState(PlayerState.notinit);
 //				//myPlayer.saveToSpace();
 //			}
 			
-			return true;
+			return;
 		}
 		Messages.errorMessage(this, "No valid Event Object given");
-		return false;
+	}
+	
+	/**
+	 * shows the menu after an asynchronous multiplayer action finished
+	 * @param type the menu action that finished
+	 */
+	private void showMenu(MenuEventType type)	{
+		switch (type)	{
+			case MULTIPLAYER_MENU:
+				this.menuFrame.showMultiplayerMenu();
+				break;
+			case MULTIPLAYER_NEW:
+			case MULTIPLAYER_JOIN:
+				this.menuFrame.showMultiplayerNewGameMenu();
+				break;
+			default:
+				break;
+		}
+		this.pack();
 	}
 	
 	private void leaveMultiplayerGame()	{
@@ -248,7 +312,7 @@ public class SnakeMain extends JFrame implements MenuEventListener, GameStateEve
 	 */
 	private void startMultiplayer(Game game) {
 		this.initGame();
-		gameFrame.startGame(false, true, game);
+		gameFrame.startGame(false, game, this.player);
 	}
 
 
@@ -3,6 +3,7 @@ package client.data;
 import java.awt.Dimension;
 import java.awt.event.KeyEvent;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 
 import org.slf4j.Logger;
@@ -11,10 +12,18 @@ import org.slf4j.LoggerFactory;
 import mzs.data.SnakeDataHolder;
 
 public class Snake {
-	private ArrayList<SnakePart> snakeParts = new ArrayList<SnakePart>();
+	// replaced by updateSnakeParts (game loop) while the snake is drawn
+	private volatile ArrayList<SnakePart> snakeParts = new ArrayList<SnakePart>();
+	// a snake that is moved locally is drawn between its last two moves:
+	// the parts before the last move and the parts to draw (null if the parts are drawn as they are)
+	private ArrayList<SnakePart> previousParts;
+	private volatile List<SnakePart> drawnParts;
 
 	private float direction = 45;
-	private int distance = 18;
+	// distance between two parts, the snake moves by one part per move
+	public static final int PART_DISTANCE = 18;
+
+	private int distance = PART_DISTANCE;
 
 	private UUID id;
 	// represents snake in space
@@ -39,13 +48,26 @@ public class Snake {
 	}
 	
 	public Snake() {
-		id = UUID.randomUUID();
+		this(UUID.randomUUID(), 100, 200, 45);
+	}
+	
+	/**
+	 * creates a snake at the given position, used by the server to place the snakes of a game
+	 * 
+	 * @param id
+	 * @param x x position of the head
+	 * @param y y position of the head
+	 * @param direction
+	 */
+	public Snake(UUID id, int x, int y, float direction) {
+		this.id = id;
+		this.direction = direction;
 		// dataholder has same id as Snake (SnakeDataHolder represents snake in space)
 		dataHolder = new SnakeDataHolder(getId());
 		
 		SnakePart head = new SnakePart();
-		head.setX(100);
-		head.setY(200);
+		head.setX(x);
+		head.setY(y);
 		head.setDirection(getDirection());
 		snakeParts.add(head);
 		snakeParts.add(new SnakePart());
@@ -81,6 +103,14 @@ public class Snake {
 		this.snakeParts = snakeParts;
 	}
 	
+	/**
+	 * @return the parts to draw, the interpolated parts if the snake is drawn between two moves
+	 */
+	public List<SnakePart> getDrawnParts() {
+		List<SnakePart> parts = drawnParts;
+		return (parts != null) ? parts : snakeParts;
+	}
+	
 	public SnakePart getHeadPart()	{
 		return this.snakeParts.get(0);
 	}
@@ -203,6 +233,26 @@ public class Snake {
 		snakeParts.add(0, tail);
 	}
 
+	/**
+	 * keeps a copy of the parts before the next move, so the snake can be drawn between
+	 * its position before and after the move (see {@link #interpolate(double)})
+	 */
+	public void keepPreviousParts() {
+		previousParts = SnakeStateBuffer.copy(snakeParts);
+	}
+
+	/**
+	 * sets the parts to draw to the position between the last two moves
+	 * @param alpha time since the last move, relative to the time between two moves (0 = before the move, 1 = after the move)
+	 */
+	public void interpolate(double alpha) {
+		if (previousParts == null) {
+			drawnParts = null;
+			return;
+		}
+		drawnParts = SnakeStateBuffer.interpolateMove(previousParts, snakeParts, alpha);
+	}
+
 	/**
 	 * move snake depending on keyEvent
 	 * @param e
@@ -213,6 +263,27 @@ public class Snake {
 	}
 	
 	
+	/**
+	 * checks if the head of this snake hits a part of the other snake.
+	 * if the other snake is this snake, the parts next to the head are skipped
+	 * 
+	 * @param other
+	 * @return true if the head hits the other snake
+	 */
+	public boolean collidesWith(Snake other) {
+		SnakePart head = getHeadPart();
+		int minDistance = distance * 2 / 3;
+		for (int i = (other == this) ? 3 : 0; i < other.snakeParts.size(); i++) {
+			SnakePart part = other.snakeParts.get(i);
+			int dx = part.getX() - head.getX();
+			int dy = part.getY() - head.getY();
+			if (dx * dx + dy * dy < minDistance * minDistance) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
 	/**
 	 * called for remote snakes, to adopt position
 	 * 
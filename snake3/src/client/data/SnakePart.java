@@ -1,11 +1,18 @@
 package client.data;
 
-import java.io.Serializable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 
-public class SnakePart implements Serializable {
+import mzs.util.WireFormat;
+
+public class SnakePart implements Externalizable {
 
 	private static final long serialVersionUID = 1L;
-	
+
 	private int x;
 	private int y;
 	private float d;
@@ -29,8 +36,53 @@ public class SnakePart implements Serializable {
 	public float getDirection() {
 		return d;
 	}
-	
+
 	public void setDirection(float d) {
 		this.d = d;
 	}
+
+	/**
+	 * @return a new part with the same position and direction
+	 */
+	public SnakePart copy() {
+		SnakePart part = new SnakePart();
+		part.x = x;
+		part.y = y;
+		part.d = d;
+		return part;
+	}
+
+	/**
+	 * writes the part without version byte (used by the containing SnakeDataHolder)
+	 * @param out
+	 * @throws IOException
+	 */
+	public void write(DataOutput out) throws IOException {
+		out.writeInt(x);
+		out.writeInt(y);
+		out.writeFloat(d);
+	}
+
+	/**
+	 * reads a part written by {@link #write(DataOutput)}
+	 * @param in
+	 * @throws IOException
+	 */
+	public void read(DataInput in) throws IOException {
+		x = in.readInt();
+		y = in.readInt();
+		d = in.readFloat();
+	}
+
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		WireFormat.writeVersion(out);
+		write(out);
+	}
+
+	@Override
+	public void readExternal(ObjectInput in) throws IOException {
+		WireFormat.readVersion(in, "SnakePart");
+		read(in);
+	}
 }
@@ -0,0 +1,260 @@
+package client.data;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+import mzs.data.SnakeDataHolder;
+
+/**
+ * keeps the last states of a snake received from the server and calculates the parts
+ * to draw at any time between them.
+ *
+ * the snake is drawn slightly behind the newest state (by the largest gap between the
+ * buffered states plus one tick), so there is usually a newer state to move towards.
+ * between two states every part slides along the line of the snake (the positions the
+ * parts of the head had before), so the snake moves smoothly even if a state is only
+ * received every few ticks. if no newer state arrived in time, the head moves on in its
+ * direction for at most MAX_EXTRAPOLATION ticks (dead reckoning).
+ *
+ * the buffer is used by the game loop only (see {@link client.gui.GameFrame}).
+ *
+ * @author Jakob Lahmer, Matthias Steinboeck
+ */
+public class SnakeStateBuffer {
+
+	// number of states kept
+	private static final int CAPACITY = 4;
+	// max number of ticks the snake is moved on without a new state
+	private static final double MAX_EXTRAPOLATION = 1.0;
+
+	private final long tickMillis;
+	private final LinkedList<SnakeDataHolder> states = new LinkedList<SnakeDataHolder>();
+
+	// local time of server tick 0, the smallest offset seen (state with the least delay)
+	private long clockOffset;
+
+	/**
+	 * @param tickMillis time between two ticks of the server
+	 */
+	public SnakeStateBuffer(long tickMillis) {
+		this.tickMillis = tickMillis;
+	}
+
+	/**
+	 * adds a state received from the server, older states than the newest one are ignored
+	 * @param state
+	 * @param nowMillis local time the state was received
+	 */
+	public void add(SnakeDataHolder state, long nowMillis) {
+		if (!states.isEmpty() && state.getTick() <= states.getLast().getTick()) {
+			return;
+		}
+		long offset = nowMillis - state.getTick() * tickMillis;
+		if (states.isEmpty() || offset < clockOffset) {
+			clockOffset = offset;
+		}
+		states.addLast(state);
+		if (states.size() > CAPACITY) {
+			states.removeFirst();
+		}
+	}
+
+	public boolean isEmpty() {
+		return states.isEmpty();
+	}
+
+	/**
+	 * @return the newest state or null
+	 */
+	public SnakeDataHolder getNewest() {
+		return states.isEmpty() ? null : states.getLast();
+	}
+
+	/**
+	 * @return number of ticks the snake is drawn behind the newest state
+	 */
+	public double getDelayTicks() {
+		int gap = 1;
+		SnakeDataHolder previous = null;
+		for (SnakeDataHolder state : states) {
+			if (previous != null) {
+				gap = Math.max(gap, state.getTick() - previous.getTick());
+			}
+			previous = state;
+		}
+		return gap + 1;
+	}
+
+	/**
+	 * calculates the parts of the snake at the given time
+	 * @param nowMillis local time
+	 * @return new parts, empty if no state was received yet
+	 */
+	public ArrayList<SnakePart> sample(long nowMillis) {
+		if (states.isEmpty()) {
+			return new ArrayList<SnakePart>();
+		}
+		double renderTick = (nowMillis - clockOffset) / (double) tickMillis - getDelayTicks();
+
+		SnakeDataHolder previous = null;
+		for (SnakeDataHolder state : states) {
+			if (renderTick < state.getTick()) {
+				if (previous == null) {
+					return copy(state.getParts());
+				}
+				return interpolate(previous, state, renderTick - previous.getTick());
+			}
+			previous = state;
+		}
+
+		// no state for this time yet
+		SnakeDataHolder newest = states.getLast();
+		if (!newest.isAlive()) {
+			return copy(newest.getParts());
+		}
+		double ahead = Math.min(renderTick - newest.getTick(), MAX_EXTRAPOLATION);
+		List<SnakePart> parts = newest.getParts();
+		ArrayList<SnakePart> result = new ArrayList<SnakePart>(parts.size());
+		for (int i = 0; i < parts.size(); i++) {
+			result.add(pointOnTrail(parts, i - ahead, step(parts)));
+		}
+		return result;
+	}
+
+	/**
+	 * parts between two states
+	 * @param from
+	 * @param to
+	 * @param progress ticks since the tick of from
+	 */
+	private ArrayList<SnakePart> interpolate(SnakeDataHolder from, SnakeDataHolder to, double progress) {
+		List<SnakePart> a = from.getParts();
+		List<SnakePart> b = to.getParts();
+		int gap = to.getTick() - from.getTick();
+		return interpolate(a, b, gap, progress);
+	}
+
+	/**
+	 * parts of a snake between two consecutive moves, used to draw a snake that is moved
+	 * locally between its moves (see {@link Snake#interpolate(double)})
+	 * @param from parts before the move
+	 * @param to parts after the move
+	 * @param alpha 0 = from, 1 = to
+	 * @return new parts
+	 */
+	public static ArrayList<SnakePart> interpolateMove(List<SnakePart> from, List<SnakePart> to, double alpha) {
+		return interpolate(from, to, 1, alpha);
+	}
+
+	private static ArrayList<SnakePart> interpolate(List<SnakePart> a, List<SnakePart> b, int gap, double progress) {
+		ArrayList<SnakePart> result = new ArrayList<SnakePart>(b.size());
+
+		if (shift(a, b) == gap) {
+			// the snake moved one part per tick: the parts follow the trail of new parts and old parts
+			List<SnakePart> trail = new ArrayList<SnakePart>(b);
+			trail.addAll(a.subList(a.size() - gap, a.size()));
+			int step = step(b);
+			for (int i = 0; i < b.size(); i++) {
+				result.add(pointOnTrail(trail, i + gap - progress, step));
+			}
+		} else {
+			// anything else (eg the snake got longer): move every part straight to its new position
+			double alpha = progress / gap;
+			int step = step(b);
+			for (int i = 0; i < b.size(); i++) {
+				if (i < a.size()) {
+					result.add(between(a.get(i), b.get(i), alpha, step));
+				} else {
+					result.add(b.get(i).copy());
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * the position at a fractional index of the trail, a negative index lies ahead
+	 * of the first part in its direction
+	 */
+	private static SnakePart pointOnTrail(List<SnakePart> trail, double index, int step) {
+		if (index <= 0) {
+			SnakePart head = trail.get(0);
+			double angle = (360 - head.getDirection()) * Math.PI / 180;
+			SnakePart part = new SnakePart();
+			part.setX((int) Math.round(head.getX() + Math.sin(angle) * step * index));
+			part.setY((int) Math.round(head.getY() + Math.cos(angle) * step * index));
+			part.setDirection(head.getDirection());
+			return part;
+		}
+		int i = (int) Math.floor(index);
+		if (i >= trail.size() - 1) {
+			return trail.get(trail.size() - 1).copy();
+		}
+		// between trail[i] (nearer to the head) and trail[i + 1]
+		return between(trail.get(i + 1), trail.get(i), 1 - (index - i), step);
+	}
+
+	/**
+	 * linear interpolation between two parts, parts that are too far apart (the snake
+	 * crossed the border of the map) are not interpolated
+	 * @param alpha 0 = a, 1 = b
+	 */
+	private static SnakePart between(SnakePart a, SnakePart b, double alpha, int step) {
+		int dx = b.getX() - a.getX();
+		int dy = b.getY() - a.getY();
+		if (dx * dx + dy * dy > 4 * step * step) {
+			return (alpha < 0.5 ? a : b).copy();
+		}
+		SnakePart part = new SnakePart();
+		part.setX((int) Math.round(a.getX() + dx * alpha));
+		part.setY((int) Math.round(a.getY() + dy * alpha));
+		part.setDirection(alpha < 0.5 ? a.getDirection() : b.getDirection());
+		return part;
+	}
+
+	/**
+	 * the distance a snake moves per tick, measured between the first two parts
+	 */
+	private static int step(List<SnakePart> parts) {
+		if (parts.size() > 1) {
+			int dx = parts.get(0).getX() - parts.get(1).getX();
+			int dy = parts.get(0).getY() - parts.get(1).getY();
+			int step = (int) Math.round(Math.sqrt(dx * dx + dy * dy));
+			// not measurable if the snake crossed the border
+			if (step > 0 && step < 40) {
+				return step;
+			}
+		}
+		return Snake.PART_DISTANCE;
+	}
+
+	/**
+	 * number of parts that were added at the head (and dropped at the tail) from a to b, -1 if none fits
+	 */
+	private static int shift(List<SnakePart> a, List<SnakePart> b) {
+		if (a.size() != b.size()) {
+			return -1;
+		}
+		for (int shift = 0; shift < b.size(); shift++) {
+			boolean match = true;
+			for (int i = shift; i < b.size() && match; i++) {
+				SnakePart p = b.get(i);
+				SnakePart q = a.get(i - shift);
+				match = p.getX() == q.getX() && p.getY() == q.getY();
+			}
+			if (match) {
+				return shift;
+			}
+		}
+		return -1;
+	}
+
+	static ArrayList<SnakePart> copy(List<SnakePart> parts) {
+		ArrayList<SnakePart> result = new ArrayList<SnakePart>(parts.size());
+		for (SnakePart part : parts) {
+			result.add(part.copy());
+		}
+		return result;
+	}
+}
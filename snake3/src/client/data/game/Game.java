@@ -3,10 +3,17 @@
  */
 package client.data.game;
 
-import java.io.Serializable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 import java.util.ArrayList;
 import java.util.UUID;
 
+import mzs.util.WireFormat;
+
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -19,13 +26,15 @@ import client.data.state.PlayerState;
  * @author Jakob Lahmer, Matthias Steinbck
  *
  */
-public class Game implements Serializable
+public class Game implements Externalizable
 {
 	private static final long serialVersionUID = -213203048176262335L;
 
 	public static final int MAXPLAYERS = 4; //up to 4 players
 
 	private ArrayList<Player> players = new ArrayList<Player>();
+	// size of players, a field so the QueryCoordinator of the game list can filter by it (see LobbyQuery)
+	private int playerCount = 0;
 	private UUID id = UUID.randomUUID();
 	private String name = null;
 //	private String levelDir = snake.LevelsManager.DEFAULTLEVELDIR;
@@ -78,7 +87,7 @@ public class Game implements Serializable
 
 	public int getPlayerCount()
 	{
-		return players.size();
+		return playerCount;
 	}
 
 	public byte[] getLevelCheckSum()
@@ -133,6 +142,7 @@ public class Game implements Serializable
 	public boolean joinGame(Player player) {
 		if (getPlayerCount() < MAXPLAYERS && indexOf(player) == -1)	{
 			players.add(player);
+			playerCount = players.size();
 			if (leader == null) {
 				leader = player;
 			}
@@ -149,6 +159,7 @@ public class Game implements Serializable
 		int index = indexOf(player);
 		if (index > -1)	{
 			players.remove(index);
+			playerCount = players.size();
 		}
 	}
 	
@@ -185,6 +196,73 @@ public class Game implements Serializable
 	}
 	
 	
+	/**
+	 * writes the game: version, id, name, checksum, state, win value, players and
+	 * the index of the leader in the player list
+	 * @param out
+	 * @throws IOException
+	 */
+	public void write(DataOutput out) throws IOException {
+		WireFormat.writeVersion(out);
+		WireFormat.writeUUID(out, id);
+		WireFormat.writeString(out, name);
+		WireFormat.writeBytes(out, levelCheckSum);
+		out.writeByte(state.ordinal());
+		out.writeInt(winValue);
+		out.writeByte(players.size());
+		for (Player p : players) {
+			p.write(out);
+		}
+		// -1: no leader, -2: leader is not part of the player list (anymore) and follows
+		int leaderIndex = (leader == null) ? -1 : players.indexOf(leader);
+		if (leader != null && leaderIndex < 0) {
+			out.writeByte(-2);
+			leader.write(out);
+		} else {
+			out.writeByte(leaderIndex);
+		}
+	}
+
+	/**
+	 * reads a game written by {@link #write(DataOutput)}
+	 * @param in
+	 * @throws IOException
+	 */
+	public void read(DataInput in) throws IOException {
+		WireFormat.readVersion(in, "Game");
+		id = WireFormat.readUUID(in);
+		name = WireFormat.readString(in);
+		levelCheckSum = WireFormat.readBytes(in);
+		state = GameState.values()[in.readByte()];
+		winValue = in.readInt();
+		int count = in.readUnsignedByte();
+		players = new ArrayList<Player>(count);
+		for (int i = 0; i < count; i++) {
+			Player p = new Player();
+			p.read(in);
+			players.add(p);
+		}
+		playerCount = count;
+		int leaderIndex = in.readByte();
+		leader = null;
+		if (leaderIndex >= 0) {
+			leader = players.get(leaderIndex);
+		} else if (leaderIndex == -2) {
+			leader = new Player();
+			leader.read(in);
+		}
+	}
+
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		write(out);
+	}
+
+	@Override
+	public void readExternal(ObjectInput in) throws IOException {
+		read(in);
+	}
+
 	/**
 	 * Return a String representation of the game, giving information about the current
 	 * number of players and the game state. This is shown in the multiplayer game list.
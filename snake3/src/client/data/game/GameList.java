@@ -4,21 +4,21 @@
 package client.data.game;
 
 import java.io.Serializable;
-import java.net.ConnectException;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Vector;
+import java.util.concurrent.Callable;
 
+import mzs.data.GameSummary;
 import mzs.event.DataChangeEventGameData;
 import mzs.event.DataChangeEventGameListData;
 import mzs.event.DataChangeEventType;
 import mzs.event.i.DataChangeEventListener;
 import mzs.util.ContainerCoordinatorMapper;
+import mzs.util.LeaseRenewer;
+import mzs.util.LobbyQuery;
 import mzs.util.Util;
+import mzs.util.i.SpaceCallback;
 
-import org.mozartspaces.capi3.FifoCoordinator;
-import org.mozartspaces.capi3.FifoCoordinator.FifoSelector;
-import org.mozartspaces.core.ContainerReference;
 import org.mozartspaces.core.Entry;
 import org.mozartspaces.core.MzsCoreException;
 import org.mozartspaces.notifications.Notification;
@@ -36,21 +36,37 @@ import client.event.i.GameStateEventListener;
  * @author Jakob Lahmer, Matthias Steinbck
  *
  * stores games of space locally, notified by xvsm notifications
+ *
+ * only the joinable games are read, sorted by name and a page at a time (see {@link LobbyQuery}),
+ * so the list stays small however many games there are. games are looked up by name in the space.
+ *
+ * the list holds the summaries of the games (see {@link GameSummary}), the menu only listens to the
+ * summary container. the whole game is read when it is joined, and the game list container is
+ * only listened to while the player is in the lobby of a game.
  */
 public class GameList implements Serializable, NotificationListener {
 
 	private static final long serialVersionUID = -7243366780152664842L;
 
-	private Vector<Game> games;
+	private Vector<GameSummary> games;
 	private DataChangeEventListener listener;
 	
 	private Logger log = LoggerFactory.getLogger(GameList.class);
 
 	private Notification notification;
+	// notification on the game list, only while there is a current game
+	private Notification gameNotification;
+	// heartbeat of the player while there is a current game
+	private LeaseRenewer leaseRenewer = new LeaseRenewer();
 
 	private Game currentGame = null;
 
 	private GameStateEventListener stateListener;
+
+	// name of the last game read, the next page starts after it
+	private String cursor = null;
+	private boolean morePages = false;
+	private boolean loadingPage = false;
 	
 	
 	
@@ -61,7 +77,7 @@ public class GameList implements Serializable, NotificationListener {
 	 * @param playerList
 	 */
 	public GameList(GameStateEventListener stateListener)	{
-		this.games = new Vector<Game>();
+		this.games = new Vector<GameSummary>();
 		this.stateListener = stateListener;
 	}
 	
@@ -73,48 +89,59 @@ public class GameList implements Serializable, NotificationListener {
 		this.listener = listener;
 	}
 	
-	public boolean initGameList()	{
-		games = new Vector<Game>();
-		// read current games and add them to the local vector
-		ContainerReference gamesContainer;
-		try {
-			gamesContainer = Util.getInstance().getContainer(ContainerCoordinatorMapper.GAME_LIST);
-			//log.debug("trying to read games!");
-			ArrayList<Serializable> spaceGames = Util.getInstance().getConnection().read(
-					gamesContainer, 
-					//AnyCoordinator.newSelector(),
-					FifoCoordinator.newSelector(FifoSelector.COUNT_ALL),
-					0,
-					null);
-			
-			for (Serializable spaceGame : spaceGames) {
-				if (spaceGame instanceof Game) {
-					//log.debug("player of game "+((Game)spaceGame).getNr()+" "+((Game)spaceGame).getPlayerAnz());
-					games.add((Game) spaceGame);
+	/**
+	 * reads the games from space and creates the notification in the background.
+	 * the callback is informed on the event dispatch thread, after the listener got the games
+	 * @param callback
+	 */
+	public void initGameList(final SpaceCallback<Boolean> callback)	{
+		Util.getInstance().getAsync().submit(new Callable<Boolean>() {
+			@Override
+			public Boolean call() throws Exception {
+				return loadGameList();
+			}
+		}, new SpaceCallback<Boolean>() {
+			@Override
+			public void done(Boolean loaded) {
+				if(loaded)	{
+					// inform listener about games
+					listener.dataChanged(new DataChangeEventGameListData(DataChangeEventType.GAME, games));
 				}
+				callback.done(loaded);
 			}
-		} catch (MzsCoreException e1) {
-			// this exception is ok, normally it should be:
-			// The Count(1) of Selector 'AnyCoordinator' was not met. (0 Entries available)
-			if (e1.getMessage().indexOf("0 Entries available") < 0) {
-				// but if its not this exception, we do NOT like it.
-				log.info("ERROR reading games!\n"+e1.getMessage());
-			} else {
-				log.info("ERROR connecting to space!");
+			@Override
+			public void failed(Throwable cause) {
+				callback.failed(cause);
 			}
-			return false;
-		} catch (ConnectException e2) {
+		});
+	}
+	
+	/**
+	 * reads the games from space and creates the notification (blocking)
+	 * @return true if the games could be read
+	 */
+	private boolean loadGameList()	{
+		games = new Vector<GameSummary>();
+		cursor = null;
+		morePages = false;
+		// read the first page of joinable games
+		try {
+			Util.getInstance().prewarmContainers();
+			addPage(LobbyQuery.readJoinable(null, LobbyQuery.PAGE_SIZE));
+		} catch (MzsCoreException e1) {
+			// no games is not an error (see LobbyQuery)
+			log.info("ERROR reading games!\n"+e1.getMessage());
 			return false;
 		} catch (Exception e1) {
 			return false;
 		}
 		
-		// create a notification that updates the list whenever a game gets added
+		// create a notification that updates the list whenever a summary gets added
 		NotificationManager notifManager;
 		try {
 			notifManager = Util.getInstance().getNotificationManager();
 			this.notification = notifManager.createNotification(
-					Util.getInstance().getContainer(ContainerCoordinatorMapper.GAME_LIST),
+					Util.getInstance().getContainer(ContainerCoordinatorMapper.GAME_SUMMARY),
 					this,
 					Operation.WRITE, Operation.DELETE
 			);
@@ -135,108 +162,217 @@ public class GameList implements Serializable, NotificationListener {
 			}
 		}
 		
-		// inform listener about games
-		listener.dataChanged(new DataChangeEventGameListData(DataChangeEventType.GAME, this.games));
-		
 		return true;
 	}
 
 	/**
-	 * Check if the game name is already in use.
-	 * @param name game name to check
-	 * @return true if the a game with that name already exists
+	 * @return true if there are more joinable games than the ones read
 	 */
-	public boolean gameNameExists(String name)	{
-		for (int i = 0; i < games.size(); i++)	{
-			if ( ( (Game) games.elementAt(i)).getName().equals(name))	{
-				return true;
+	public boolean hasMoreGames()	{
+		return morePages;
+	}
+
+	/**
+	 * reads the next page of joinable games in the background, the listener gets the extended list.
+	 * nothing is done if all games are read or a page is being read
+	 */
+	public void loadMoreGames()	{
+		if (!morePages || loadingPage)	{
+			return;
+		}
+		loadingPage = true;
+		final String after = cursor;
+		Util.getInstance().getAsync().submit(new Callable<List<GameSummary>>() {
+			@Override
+			public List<GameSummary> call() throws Exception {
+				return LobbyQuery.readJoinable(after, LobbyQuery.PAGE_SIZE);
 			}
+		}, new SpaceCallback<List<GameSummary>>() {
+			@Override
+			public void done(List<GameSummary> page) {
+				loadingPage = false;
+				// the list was read again in the meantime
+				if (after == null || !after.equals(cursor))	{
+					return;
+				}
+				addPage(page);
+				if (currentGame == null && listener != null)	{
+					listener.dataChanged(new DataChangeEventGameListData(DataChangeEventType.GAME, games));
+				}
+			}
+			@Override
+			public void failed(Throwable cause) {
+				loadingPage = false;
+				log.info("ERROR reading games!\n" + cause);
+			}
+		});
+	}
+
+	/**
+	 * adds a page of games read from space
+	 * @param page
+	 */
+	private void addPage(List<GameSummary> page)	{
+		for (GameSummary game : page)	{
+			if (!games.contains(game))	{
+				games.add(game);
+			}
+		}
+		morePages = (page.size() >= LobbyQuery.PAGE_SIZE);
+		if (!page.isEmpty())	{
+			cursor = page.get(page.size() - 1).getName();
 		}
-		return false;
 	}
 
 	/**
-	 * returns a game identified by name
-	 * @param gameName
-	 * @return Game or null
+	 * updates a summary that was written to space in the games read so far. the game is
+	 * removed if it is not joinable anymore, and added at its place if it belongs to
+	 * the pages read (its name is not after the cursor)
+	 * @param game
+	 * @return true if the list changed
 	 */
-	public Game getGamePerName(String gameName)	{
-		for (int i = 0; i < games.size(); i++)	{
-			if ((games.elementAt(i)).getName().equals(gameName))	{
-				return games.elementAt(i);
+	private boolean updatePage(GameSummary game)	{
+		boolean inPage = LobbyQuery.isJoinable(game)
+				&& (!morePages || cursor == null || game.getName().compareTo(cursor) <= 0);
+		int index = games.indexOf(game);
+		if (index >= 0)	{
+			if (inPage)	{
+				games.set(index, game);
+			} else	{
+				games.remove(index);
 			}
+			return true;
+		}
+		if (!inPage)	{
+			return false;
+		}
+		int position = 0;
+		while (position < games.size() && games.get(position).getName().compareTo(game.getName()) < 0)	{
+			position++;
 		}
-		return null;
+		games.add(position, game);
+		return true;
 	}
-	
+
 	/**
+	 * looks up a game by its name in the space, without blocking
+	 * @param name
+	 * @param callback gets the game or null if there is no game with this name
+	 */
+	public void findGame(final String name, SpaceCallback<Game> callback)	{
+		Util.getInstance().getAsync().submit(new Callable<Game>() {
+			@Override
+			public Game call() throws Exception {
+				return LobbyQuery.readByName(name);
+			}
+		}, callback);
+	}
+
+	/**
+	 * joins the game, the callback gets false if the game is not joinable.
+	 * the game is read from space, so the check uses its current state
 	 * @param mpName
-	 * @return
+	 * @param player
+	 * @param newListener listener that is used if the game was joined
+	 * @param callback
 	 */
-	public boolean joinGame(String mpName, Player player, DataChangeEventListener newListener) {
-		if(!isGameJoinable(mpName))
-			return false;
-		
-		Game game = this.getGamePerName(mpName);
-		if(!game.joinGame(player))
-			return false;
+	public void joinGame(String mpName, final Player player, final DataChangeEventListener newListener, final SpaceCallback<Boolean> callback) {
+		this.findGame(mpName, new SpaceCallback<Game>() {
+			@Override
+			public void done(final Game game) {
+				if(game == null || !LobbyQuery.isJoinable(game) || !game.joinGame(player))	{
+					callback.done(false);
+					return;
+				}
 
-		this.currentGame = game;
-		if(this.updateCurrentGame())	{
-			this.listener = newListener;
-			return true;
-		}
-		
-		this.currentGame = null;
-		return false;
+				currentGame = game;
+				updateCurrentGame(new SpaceCallback<Boolean>() {
+					@Override
+					public void done(Boolean result) {
+						listener = newListener;
+						listenToCurrentGame(true);
+						leaseRenewer.start(player, game);
+						callback.done(true);
+					}
+					@Override
+					public void failed(Throwable cause) {
+						game.leaveGame(player);
+						currentGame = null;
+						callback.done(false);
+					}
+				});
+			}
+			@Override
+			public void failed(Throwable cause) {
+				callback.failed(cause);
+			}
+		});
 	}
 	
 	public void leaveCurrentGame(Player player, DataChangeEventListener newListener)	{
 		this.currentGame.leaveGame(player);
 		this.listener = newListener;
+		this.listenToCurrentGame(false);
+		this.leaseRenewer.stop();
 		
 		// check if game has players
 		if(this.currentGame.getPlayerCount() < 1)	{
+			final Game game = this.currentGame;
 			this.removeCurrentGame();
+			Util.getInstance().getAsync().submit(new Callable<Void>() {
+				@Override
+				public Void call() throws Exception {
+					Util.getInstance().destroyGameContainer(game);
+					return null;
+				}
+			}, null);
 		} else {
 			// determine new leader
 			if(this.currentGame.getLeader().equals(player))	{
 				this.currentGame.updateLeader();
 			}
-			this.updateCurrentGame();
+			this.updateCurrentGame(null);
 		}
 		this.currentGame = null;
 	}
 	
-	/**
-	 * check if given game is joinable
-	 * @param index
-	 * @return
-	 */
-	private boolean isGameJoinable(String name)	{
-		Game game;
-		if((game = this.getGamePerName(name)) != null)	{
-			return (game.getPlayerCount() < Game.MAXPLAYERS) && (game.getState() == GameState.OPENEND);
-		}
-		return false;
-	}
-	
 	/**
 	 * Add a new game to the list.
 	 * @param name name of the game
 	 * @param leader leader and creator of the game
-	 * @param initData LevelData
-	 * @return Game
+	 * @param callback informed when the game was written to space, if the write failed
+	 * 		(eg the name is in use) {@link #abortCreateGame(DataChangeEventListener)} has to be called
 	 */
-	public void createGame(String name, Player leader /*,LevelData initData */)
+	public void createGame(String name, Player leader /*,LevelData initData */, SpaceCallback<Boolean> callback)
 	{
 		// create the game, initialize it with nr 0, because our IndexAspect creates teh number
 		this.currentGame = new Game(0, name, leader);
 //		game.setLevelData(initData);
-		games.addElement(currentGame);
+		// listen before the game is written, so no player that joins is missed
+		this.listenToCurrentGame(true);
+		this.leaseRenewer.start(leader, currentGame);
 		
-		// however we have to write it to the space. but first we have to delete this very game:
-		this.updateCurrentGame();
+		// however we have to write it to the space (an existing entry is replaced)
+		this.updateCurrentGame(callback);
+	}
+	
+	/**
+	 * undoes {@link #createGame(String, Player, SpaceCallback)} if the game could not be written:
+	 * the game is not the current game anymore, its notification and the lease are stopped and
+	 * the listener gets the games of the lobby again
+	 * @param newListener listener of the lobby
+	 */
+	public void abortCreateGame(DataChangeEventListener newListener)	{
+		this.listener = newListener;
+		if(this.currentGame != null)	{
+			this.listenToCurrentGame(false);
+			this.leaseRenewer.stop();
+			this.currentGame = null;
+		}
+		// changes of the list were not passed on while there was a current game
+		if(this.listener != null)	{
+			this.listener.dataChanged(new DataChangeEventGameListData(DataChangeEventType.GAME, this.games));
+		}
 	}
 	
 	/**
@@ -251,33 +387,67 @@ public class GameList implements Serializable, NotificationListener {
 		
 		if(this.currentGame.isReadyToStart())	{
 			this.currentGame.startGame();
+			final Game game = this.currentGame;
+			// the game container has to exist before the other players get notified
+			Util.getInstance().getAsync().submit(new Callable<Boolean>() {
+				@Override
+				public Boolean call() throws Exception {
+					Util.getInstance().createGameContainer(game);
+					return Util.getInstance().upsert(
+							Util.getInstance().getContainer(ContainerCoordinatorMapper.GAME_LIST),
+							game,
+							String.valueOf(game.getId()),
+							LobbyQuery.indexes(game));
+				}
+			}, null);
+		} else {
+			this.updateCurrentGame(null);
 		}
 		
 		log.info("GAME STATE: " + currentGame.getState());
 		
-		this.updateCurrentGame();
-		
 		return this.currentGame.isReadyToStart();
 	}
 	
 	
 	/**
-	 * updates the current game in space
-	 * @return
+	 * updates the current game in space without blocking
+	 * @param callback may be null
 	 */
-	private boolean updateCurrentGame()	{
-		try {
-			Util.getInstance().update(
-					ContainerCoordinatorMapper.GAME_LIST,
-					this.currentGame,
-					String.valueOf(this.currentGame.getId())
-			);
-			return true;
-		} catch (Exception e) {
-			// TODO: handle exception
-			e.printStackTrace();
-		}
-		return false;
+	private void updateCurrentGame(SpaceCallback<Boolean> callback)	{
+		Util.getInstance().getAsync().upsert(
+				ContainerCoordinatorMapper.GAME_LIST,
+				this.currentGame,
+				String.valueOf(this.currentGame.getId()),
+				callback,
+				LobbyQuery.indexes(this.currentGame)
+		);
+	}
+	
+	/**
+	 * creates or destroys the notification on the game list in the background, so the
+	 * changes of the current game (eg players that join) are received in its lobby
+	 * @param listen
+	 */
+	private void listenToCurrentGame(final boolean listen)	{
+		Util.getInstance().getAsync().submit(new Callable<Void>() {
+			@Override
+			public Void call() throws Exception {
+				synchronized (GameList.this)	{
+					if (listen && gameNotification == null)	{
+						gameNotification = Util.getInstance().getNotificationManager().createNotification(
+								Util.getInstance().getContainer(ContainerCoordinatorMapper.GAME_LIST),
+								GameList.this,
+								Operation.WRITE
+						);
+					} else if (!listen && gameNotification != null)	{
+						gameNotification.destroy();
+						gameNotification = null;
+					}
+				}
+				return null;
+			}
+		}, null);
 	}
 	
 	/**
@@ -286,8 +456,8 @@ public class GameList implements Serializable, NotificationListener {
 	 */
 	public void removeCurrentGame()	{
 		if(this.currentGame != null)	{
-			games.remove(this.currentGame);
-			Util.getInstance().delete(ContainerCoordinatorMapper.GAME_LIST, String.valueOf(this.currentGame.getId()));
+			games.remove(new GameSummary(this.currentGame));
+			Util.getInstance().getAsync().delete(ContainerCoordinatorMapper.GAME_LIST, String.valueOf(this.currentGame.getId()), null);
 		}
 	}
 	
@@ -304,7 +474,7 @@ public class GameList implements Serializable, NotificationListener {
 
 		switch (operation) {
 		case WRITE:
-			// if a game is written to the container add it to the local vector
+			// a game is written to the game list, a summary to the summary container
 			if (entries != null)
 			for (Serializable entry : entries) {
 				// log.debug("entry has type "+entry.getClass());
@@ -312,32 +482,15 @@ public class GameList implements Serializable, NotificationListener {
 				// log.debug("value of entry has type "+obj.getClass());
 				if (obj instanceof Game) {
 					Game game = (Game) obj;
-					boolean found = false;
-					// if we have this game already replace it.
-					// log.debug("trying to find game with nr "+game.getNr());
-					for (int i = 0; i < games.size(); i++) {
-						if (games.get(i).getId().equals(game.getId())) {
-							found = true;
-//							games.get(i).syncWith(game);
-							this.games.remove(i);
-							this.games.add(i, game);
-							
-							if(this.currentGame == null)
-								changed = true;
-							else if(this.currentGame.equals(game))	{
-								// update current game
-								this.currentGame = this.games.get(i);
-								changed = true;
-							}
-							break;
-						}
+					if (this.currentGame != null && this.currentGame.equals(game))	{
+						// update current game
+						this.currentGame = game;
+						changed = true;
 					}
-					// if not, we have to add it
-					if (!found) {
-						// log.debug("game not found, adding it: "+games.size());
-						games.add(game);
-						//log.debug("\n\nADD we have "+game.getPlayerAnz()+" player\n\n");
-						// log.debug("game list size after add: "+games.size());
+				}
+				if (obj instanceof GameSummary) {
+					// keep the list of joinable games up to date
+					if (this.updatePage((GameSummary) obj) && this.currentGame == null)	{
 						changed = true;
 					}
 				}
@@ -355,18 +508,17 @@ public class GameList implements Serializable, NotificationListener {
 			// on the other hand, if the game gets removed, we have to remove it too
 			if (entries != null)
 			for (Serializable entry : entries) {
-				Game game = null;
-				if (entry instanceof Game) {
-					game = (Game)entry;
+				GameSummary game = null;
+				if (entry instanceof GameSummary) {
+					game = (GameSummary)entry;
 				}
 				if (entry instanceof Entry) { 
 					Serializable obj = ((Entry) entry).getValue();
-					if (obj instanceof Game) {
-						game = (Game) obj;
+					if (obj instanceof GameSummary) {
+						game = (GameSummary) obj;
 					}
 				}
-				if (game != null) {
-					games.remove(game);
+				if (game != null && games.remove(game) && this.currentGame == null) {
 					changed = true;
 				}
 			}
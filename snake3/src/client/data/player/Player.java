@@ -3,9 +3,16 @@
  */
 package client.data.player;
 
-import java.io.Serializable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 import java.util.UUID;
 
+import mzs.util.WireFormat;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -15,7 +22,7 @@ import client.data.state.PlayerState;
  * @author Jakob Lahmer, Matthias Steinbck
  *
  */
-public class Player implements Serializable {
+public class Player implements Externalizable {
 
 	private static final long serialVersionUID = -6686013630813091200L;
 	
@@ -26,6 +33,13 @@ public class Player implements Serializable {
 
 	private static Logger log = LoggerFactory.getLogger(Player.class);
 	
+	/**
+	 * only used for deserialization
+	 */
+	public Player()
+	{
+	}
+	
 	/**
 	 * Default constructor for a newly created player.
 	 * @param name name of the player
@@ -101,6 +115,42 @@ public class Player implements Serializable {
 		return state == PlayerState.STARTING;
 	}
 	
+	/**
+	 * writes the player: version, id, name, skin and state
+	 * @param out
+	 * @throws IOException
+	 */
+	public void write(DataOutput out) throws IOException {
+		WireFormat.writeVersion(out);
+		WireFormat.writeUUID(out, id);
+		WireFormat.writeString(out, name);
+		WireFormat.writeString(out, skin);
+		out.writeByte(state.ordinal());
+	}
+
+	/**
+	 * reads a player written by {@link #write(DataOutput)}
+	 * @param in
+	 * @throws IOException
+	 */
+	public void read(DataInput in) throws IOException {
+		WireFormat.readVersion(in, "Player");
+		id = WireFormat.readUUID(in);
+		name = WireFormat.readString(in);
+		skin = WireFormat.readString(in);
+		state = PlayerState.values()[in.readByte()];
+	}
+
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		write(out);
+	}
+
+	@Override
+	public void readExternal(ObjectInput in) throws IOException {
+		read(in);
+	}
+
 	/**
 	 * Checks if object is another player an equal to this player. Two players
 	 * are equal if their oid is the same.
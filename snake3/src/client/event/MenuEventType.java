@@ -16,6 +16,7 @@ public enum MenuEventType {
 		MULTIPLAYER_MENU,
 		MULTIPLAYER_HIGHSCORE,
 		MULTIPLAYER_JOIN,
+		MULTIPLAYER_MORE_GAMES,
 		MULTIPLAYER_LEAVE,
 		MULTIPLAYER_WATCH,
 		MULTIPLAYER_START,
@@ -3,8 +3,12 @@ package client.gui;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 import javax.swing.JPanel;
 
@@ -18,16 +22,33 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import mzs.data.SnakeDataHolder;
+import mzs.data.TurnInput;
+import mzs.data.WorldSnapshot;
 import mzs.util.ContainerCoordinatorMapper;
+import mzs.util.LatestValueMailbox;
+import mzs.util.PositionPublisher;
 import mzs.util.Util;
 
+import server.TickEngine;
+import util.PerformanceStats;
+import util.Settings;
+
 import client.data.Snake;
+import client.data.SnakeStateBuffer;
 import client.data.game.Game;
+import client.data.player.Player;
 
 public class GameFrame extends JPanel implements Runnable, KeyListener, NotificationListener {
 
 	private static final long serialVersionUID = 1L;
 
+	// max number of ticks simulated before a frame is drawn, if the loop is further behind
+	// (eg the system was busy) the rest of the time is dropped
+	private static final int MAX_TICKS_PER_FRAME = 5;
+	// server ticks after which the current input is sent again, so an input whose write
+	// failed is not kept by the server until the player turns again
+	private static final int INPUT_RESEND_TICKS = 4;
+
 	private GamePanel panel;
 	private boolean running = true;						// game is running
 	
@@ -46,6 +67,27 @@ public class GameFrame extends JPanel implements Runnable, KeyListener, Notifica
 
 	private Game game = null;
 
+	// container of the multiplayer game, holds the positions of all snakes of this game
+	private ContainerReference gameContainer;
+	// container the inputs of my snake are written to, the server moves the snakes
+	private ContainerReference inputContainer;
+	// writes the inputs of my snake to the input container in the background
+	private PositionPublisher publisher;
+	// last tick received from the server
+	private volatile int serverTick = 0;
+	private volatile boolean alive = true;
+	// last snapshot received from the server, base of the next delta (guarded by snapshotLock,
+	// notifications may be delivered on several threads of mozartspaces)
+	private WorldSnapshot lastSnapshot;
+	private final Object snapshotLock = new Object();
+	// latest state per snake, filled by the notifications and drained by the game loop
+	private final LatestValueMailbox<UUID, SnakeDataHolder> mailbox = new LatestValueMailbox<UUID, SnakeDataHolder>();
+	// received states and the drawn snake per snake id (only used by the game loop)
+	private final Map<UUID, SnakeStateBuffer> buffers = new HashMap<UUID, SnakeStateBuffer>();
+	private final Map<UUID, Snake> remoteSnakes = new HashMap<UUID, Snake>();
+	// statistics of the game loop and the network, shown by the panel (F3)
+	private final PerformanceStats stats = PerformanceStats.getInstance();
+
 
 	private static Logger log = LoggerFactory.getLogger(GameFrame.class);
 	
@@ -59,13 +101,23 @@ public class GameFrame extends JPanel implements Runnable, KeyListener, Notifica
 		this.setFocusable(true);
 	}
 
-	public void startGame(boolean isViewer, boolean isMultiplayer, Game mpGame)	{
+	/**
+	 * starts a multiplayer game, the snakes are moved by the server
+	 * @param isViewer
+	 * @param mpGame
+	 * @param player the player of this client, the snake gets the id of the player
+	 */
+	public void startGame(boolean isViewer, Game mpGame, Player player)	{
 		this.game = mpGame;
-		this.startGame(isViewer, isMultiplayer);
+		this.startGame(isViewer, true, player.getId());
 	}
 	
 	
 	public void startGame(boolean isViewer, boolean isMultiplayer)	{
+		this.startGame(isViewer, isMultiplayer, null);
+	}
+	
+	private void startGame(boolean isViewer, boolean isMultiplayer, UUID snakeId)	{
 		// the JPanel now has focus, so receives key events
 		this.requestFocusInWindow();
 		
@@ -73,7 +125,8 @@ public class GameFrame extends JPanel implements Runnable, KeyListener, Notifica
 		this.isViewer = isViewer;
 		if(!this.isViewer)	{
 			// create Snake if player is not a viewer
-			snake = new Snake();
+			// in a multiplayer game the parts are set by the server
+			snake = (snakeId == null) ? new Snake() : new Snake(snakeId);
 			addKeyListener(this);
 			// add snake to panel
 			panel.addSnake(snake);
@@ -115,50 +168,120 @@ public class GameFrame extends JPanel implements Runnable, KeyListener, Notifica
 		/*
 		 * @TODO check if this is the best solution, or create an MPGameFrame extending this one
 		 */
-		if(this.isMultiplayer)
+		if(this.isMultiplayer)	{
+			this.gameContainer = Util.getInstance().getGameContainer(this.game);
+			this.inputContainer = Util.getInstance().getInputContainer(this.game);
+			this.publisher = new PositionPublisher(this.inputContainer);
 			this.registerNotificationListener();
-		boolean first = true;
+		}
+		byte lastTurn = TurnInput.NONE;
+		int lastTurnTick = 0;
+		List<SnakeDataHolder> received = new ArrayList<SnakeDataHolder>();
+		// the snake is moved in fixed ticks (multiplayer snakes by the server), the frames are drawn
+		// at the frame rate and show the snakes between their ticks
+		Settings settings = Util.getInstance().getSettings();
+		long tickNanos = TimeUnit.MILLISECONDS.toNanos(settings.getTickMillis());
+		long frameNanos = TimeUnit.SECONDS.toNanos(1) / settings.getFrameRate();
+		long nextFrame = System.nanoTime();
+		long lastTime = nextFrame;
+		long lastFrame = nextFrame;
+		// time not simulated yet
+		long accumulator = 0;
 		while (running ) {
-			if(!isViewer)	{
-				if (headRight) {
-					snake.move(+20);
-				} else if (headLeft) {
-					snake.move(-20);
+			long frameStart = System.nanoTime();
+			// apply the snake states received since the last tick
+			received.clear();
+			mailbox.drainTo(received);
+			for (SnakeDataHolder snakedataholder : received) {
+				this.applySnakeData(snakedataholder);
+			}
+			// draw the snakes of the server between the received states
+			long now = System.currentTimeMillis();
+			for (Map.Entry<UUID, SnakeStateBuffer> buffer : buffers.entrySet()) {
+				remoteSnakes.get(buffer.getKey()).setSnakeParts(buffer.getValue().sample(now));
+			}
+			
+			if(!isViewer && !isMultiplayer)	{
+				long time = System.nanoTime();
+				accumulator += time - lastTime;
+				lastTime = time;
+				int ticks = 0;
+				while (accumulator >= tickNanos) {
+					if (ticks == MAX_TICKS_PER_FRAME) {
+						log.debug("game loop is " + (accumulator / tickNanos) + " ticks behind, skipping them");
+						accumulator %= tickNanos;
+						break;
+					}
+					snake.keepPreviousParts();
+					if (headRight) {
+						snake.move(+20);
+					} else if (headLeft) {
+						snake.move(-20);
+					}
+					snake.moveForward();
+					stats.recordUpdate();
+					accumulator -= tickNanos;
+					ticks++;
 				}
-				snake.moveForward();
-				
-				if(isMultiplayer)	{
-					// update own snake in space
-					// first update contains all snakeparts, further updates contain tail and headpart
-					Util.getInstance().update(
-							"game_test", 
-							snake.getSnakeDataHolder(first),
-							snake.getId().toString());
+				// draw the snake between the last two ticks
+				snake.interpolate((double) accumulator / tickNanos);
+			}
+			
+			if(!isViewer && isMultiplayer && alive)	{
+				// only the input is sent, the server moves the snake
+				// an input stays valid on the server until it changes, the publisher does not retry
+				// a failed write, so the input is also sent again every INPUT_RESEND_TICKS ticks
+				byte turn = headRight ? TurnInput.RIGHT : (headLeft ? TurnInput.LEFT : TurnInput.NONE);
+				int tick = serverTick;
+				if(turn != lastTurn || tick - lastTurnTick >= INPUT_RESEND_TICKS)	{
+					publisher.publish(
+							snake.getId().toString(),
+							new TurnInput(snake.getId(), tick + 1, turn));
+					lastTurn = turn;
+					lastTurnTick = tick;
 				}
-				// first only in first iteration true => all snakeparts are written to space, not just head an last
-				// => force all parts being transported to make it possible, that snake is drawn completely in second window later
-//				if(first) first = false;
 			}
 			
-			panel.repaint();
+			// the game thread draws and presents the frame itself
+			panel.render();
+			long frameEnd = System.nanoTime();
+			stats.recordFrame(frameEnd - lastFrame, frameEnd - frameStart);
+			lastFrame = frameEnd;
+			stats.roll(System.currentTimeMillis());
 			
+			// frames are timed from a fixed start, so the time to update and draw does not add up
+			nextFrame += frameNanos;
+			long sleep = nextFrame - System.nanoTime();
+			if (sleep < -frameNanos) {
+				// more than a frame late (eg the system was busy), do not try to catch up
+				stats.recordSkippedFrames(-sleep / frameNanos);
+				nextFrame = System.nanoTime();
+			}
 			try {
-				Thread.sleep(150);
+				if (sleep > 0) {
+					Thread.sleep(sleep / 1000000, (int) (sleep % 1000000));
+				}
 			} catch (InterruptedException e) {
 				e.printStackTrace();
 			}
 		}
+		
+		if(publisher != null)	{
+			publisher.shutdown();
+			log.info("game ended: " + publisher + ", " + mailbox);
+		}
 	}
 
 	/**
 	 * registers the notificationListener for all written Data to Game Container
+	 * (only snakes of this game write to it)
 	 */
 	private void registerNotificationListener() {
 		
 		// create notification
 		try {
 			this.gamespaceWriteNotification = Util.getInstance().getNotificationManager().createNotification(
-					Util.getInstance().getContainer("game_test"),
+					this.gameContainer,
 					this,
 					Operation.WRITE);
 		} catch (MzsCoreException e) {
@@ -181,6 +304,8 @@ public class GameFrame extends JPanel implements Runnable, KeyListener, Notifica
 	 * @see org.mozartspaces.notifications.NotificationListener#entryOperationFinished(org.mozartspaces.notifications.Notification, org.mozartspaces.notifications.Operation, java.util.List)
 	 * 
 	 * notification Listener
+	 * 
+	 * only posts the received states to the mailbox, the game loop applies them
 	 */
 	@Override
 	public void entryOperationFinished(Notification notification, Operation operation,
@@ -202,31 +327,67 @@ public class GameFrame extends JPanel implements Runnable, KeyListener, Notifica
 				
 				Serializable obj = ((Entry) entry).getValue();
 				
-				if (obj instanceof SnakeDataHolder) {
-					SnakeDataHolder snakedataholder = (SnakeDataHolder) obj;
-					
-//					log.info("received: " + snakedataholder);
-					
-					/**
-					 * @TODO is there a better way to exclude notifications from my own snake?!?!?!?!?
-					 * 
-					 */
-					if(this.snake.equals(new Snake(snakedataholder.getId())))	{
-						return;
+				if (obj instanceof WorldSnapshot) {
+					WorldSnapshot snapshot = (WorldSnapshot) obj;
+					// resolving and posting is one step, so the snakes are posted in the order of the snapshots
+					synchronized (snapshotLock) {
+						// a delta needs the previous snapshot, if one was missed wait for the next keyframe
+						if(!snapshot.resolve(this.lastSnapshot))	{
+							log.debug("skipped snapshot of tick " + snapshot.getTick() + ", waiting for keyframe");
+							continue;
+						}
+						this.lastSnapshot = snapshot;
+						for (SnakeDataHolder snakedataholder : snapshot.getSnakes()) {
+							stats.recordNotification(snakedataholder.getId());
+							mailbox.post(snakedataholder.getId(), snakedataholder);
+						}
 					}
-					
-					// how to get the key easier... lulz
-					if(!this.hasSnake(snakedataholder.getId()))	{
-						// @TODO check it
-						// create Snake (this is here temporarly - i think)
-						this.addSnake(new Snake(snakedataholder.getId()));
+					stats.recordUpdate();
+					// the clocks of server and client are assumed to be in sync, older servers do not send the time
+					long age = System.currentTimeMillis() - snapshot.getTime();
+					if(snapshot.getTime() > 0 && age >= 0)	{
+						stats.recordUpdateAge(age);
 					}
-					// update snake
-					this.updateSnake(snakedataholder);
+				} else if (obj instanceof SnakeDataHolder) {
+					SnakeDataHolder snakedataholder = (SnakeDataHolder) obj;
+					stats.recordNotification(snakedataholder.getId());
+					mailbox.post(snakedataholder.getId(), snakedataholder);
 				}
 			}
 		}
 	}
+	
+	/**
+	 * buffers the data of a snake sent by the server (and creates the snake), called by the game loop
+	 * @param snakedataholder
+	 */
+	private void applySnakeData(SnakeDataHolder snakedataholder)	{
+//		log.info("received: " + snakedataholder);
+		
+		// the server sends my snake as well
+		if(this.snake != null && this.snake.equals(new Snake(snakedataholder.getId())))	{
+			this.serverTick = snakedataholder.getTick();
+			if(this.alive && !snakedataholder.isAlive())	{
+				log.info("my snake crashed in tick " + snakedataholder.getTick());
+				this.alive = false;
+			}
+		}
+		
+		SnakeStateBuffer buffer = buffers.get(snakedataholder.getId());
+		if(buffer == null)	{
+			Snake s = (this.snake != null && this.snake.getId().equals(snakedataholder.getId())) ? this.snake : null;
+			if(s == null)	{
+				// create Snake (this is here temporarly - i think)
+				s = new Snake(snakedataholder.getId());
+				this.addSnake(s);
+			}
+			remoteSnakes.put(s.getId(), s);
+			buffer = new SnakeStateBuffer(TickEngine.TICK_MILLIS);
+			buffers.put(s.getId(), buffer);
+		}
+		// the parts are set from the buffer in every frame
+		buffer.add(snakedataholder, System.currentTimeMillis());
+	}
 
 	@Override
 	public void keyPressed(KeyEvent e) {
@@ -241,6 +402,10 @@ public class GameFrame extends JPanel implements Runnable, KeyListener, Notifica
 			headLeft = false;
 			headRight = true;
 			break;
+		case KeyEvent.VK_F3:
+			// show or hide the statistics
+			panel.setShowStats(!panel.isShowStats());
+			break;
 		}
 	}
 
@@ -1,12 +1,17 @@
 package client.gui;
 
+import java.awt.Canvas;
+import java.awt.Color;
 import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.FontMetrics;
 import java.awt.Graphics;
+import java.awt.Toolkit;
+import java.awt.image.BufferStrategy;
 import java.awt.image.BufferedImage;
-import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
-
-import javax.swing.JPanel;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -15,38 +20,65 @@ import mzs.data.SnakeDataHolder;
 
 import client.data.Snake;
 import client.gui.graphics.ImageLoader;
+import client.gui.graphics.SkinAtlas;
+
+import util.Level;
+import util.PerformanceStats;
 
 /**
  * represents the GamePanel, where everything is drawn
  * 
+ * the panel is rendered actively by the game thread (see {@link #render()}), not by the event
+ * dispatch thread: a frame is drawn into the back buffer of a BufferStrategy and presented at
+ * once, by page flipping where the pipeline supports it and by copying an accelerated
+ * (VolatileImage) back buffer otherwise. the back buffer can lose its contents (eg when the
+ * display mode changes), then the frame is drawn again.
+ * 
  * @author Jakob Lahmer, Matthias Steinbck
  *
  */
-public class GamePanel extends JPanel {
+public class GamePanel extends Canvas {
 
 	private static final long serialVersionUID = 1L;
 	private BufferedImage gameMap;
 	private Dimension gameMapSize;
-	private ArrayList<Snake> snakes;
+	// the own snake is added before the game thread starts, the others by the game loop,
+	// all of them are drawn by the game thread in render()
+	private List<Snake> snakes;
+	private List<SnakeSprite> sprites;
+	// rotated snake images, shared by all sprites
+	private SkinAtlas atlas;
+	// created on the first frame, when the panel is displayable
+	private BufferStrategy strategy;
+	// statistics overlay, switched on and off by the game frame (F3)
+	private volatile boolean showStats = false;
+	private final Font statsFont = new Font("Monospaced", Font.PLAIN, 12);
+	private final Color statsBackground = new Color(0, 0, 0, 160);
 
 	Logger log = LoggerFactory.getLogger(GamePanel.class);
 	
 	
 	public GamePanel() {
-		this.snakes = new ArrayList<Snake>();
+		this.snakes = new CopyOnWriteArrayList<Snake>();
+		this.sprites = new CopyOnWriteArrayList<SnakeSprite>();
+		this.atlas = SkinAtlas.get(SkinAtlas.DEFAULT_SKIN);
 		
 		ImageLoader loader = new ImageLoader();
-		gameMap = loader.loadImage("res/levels/Level1/back.jpg", false);
+		gameMap = loader.loadImage(Level.BACKGROUND, false);
 
 		gameMapSize = new Dimension(gameMap.getWidth(null), gameMap.getHeight(null));
 		setPreferredSize(gameMapSize);
 		setMinimumSize(gameMapSize);
 		setMaximumSize(gameMapSize);
-		setLayout(null);
+		// the game thread draws every frame, repaints of the system are not needed
+		setIgnoreRepaint(true);
+		// the key events go to the GameFrame
+		setFocusable(false);
 	}
 
 	public void addSnake(Snake s)	{
 		snakes.add(s);
+		sprites.add(new SnakeSprite(s, atlas));
 		s.setGamePanelDimensions(gameMapSize);
 	}
 	
@@ -66,14 +98,90 @@ public class GamePanel extends JPanel {
 	}
 	
 	
-	@Override
-	public void paintComponent(Graphics g) {
-		super.paintComponent(g);
+	/**
+	 * draws a frame and presents it, called by the game thread
+	 * @return false if the panel is not displayable yet, nothing is drawn then
+	 */
+	public boolean render() {
+		if (strategy == null) {
+			if (!isDisplayable()) {
+				return false;
+			}
+			createBufferStrategy(2);
+			strategy = getBufferStrategy();
+			log.info("rendering with " + (strategy.getCapabilities().isPageFlipping() ? "page flipping" : "back buffer copies")
+					+ ", accelerated back buffer: " + strategy.getCapabilities().getBackBufferCapabilities().isAccelerated());
+		}
+		do {
+			// draw again if the back buffer was restored while drawing
+			do {
+				Graphics g = strategy.getDrawGraphics();
+				try {
+					draw(g);
+				} finally {
+					g.dispose();
+				}
+			} while (strategy.contentsRestored());
+			strategy.show();
+		// draw again if the back buffer was lost before it was shown
+		} while (strategy.contentsLost());
+		// flush the pipeline, otherwise some systems (eg X11) present frames late
+		Toolkit.getDefaultToolkit().sync();
+		return true;
+	}
+
+	private void draw(Graphics g) {
 		//background
-		g.drawImage(gameMap, 0, 0, this);
-		for(Snake s : this.snakes)	{
-			SnakeSprite sprite = new SnakeSprite(s);
+		g.drawImage(gameMap, 0, 0, null);
+		for(SnakeSprite sprite : this.sprites)	{
 			sprite.draw(g);
 		}
+		if (showStats) {
+			drawStats(g);
+		}
+	}
+
+	/**
+	 * draws the statistics of the last second in the top right corner
+	 */
+	private void drawStats(Graphics g) {
+		String[] lines = PerformanceStats.getInstance().getLines();
+		g.setFont(statsFont);
+		FontMetrics metrics = g.getFontMetrics();
+		int width = 0;
+		for (String line : lines) {
+			width = Math.max(width, metrics.stringWidth(line));
+		}
+		int lineHeight = metrics.getHeight();
+		int x = gameMapSize.width - width - 15;
+		int y = 5;
+		g.setColor(statsBackground);
+		g.fillRect(x - 5, y, width + 10, lines.length * lineHeight + 10);
+		g.setColor(Color.WHITE);
+		for (int i = 0; i < lines.length; i++) {
+			g.drawString(lines[i], x, y + 5 + metrics.getAscent() + i * lineHeight);
+		}
+	}
+
+	public boolean isShowStats() {
+		return showStats;
+	}
+
+	/**
+	 * @param showStats true to draw the statistics over the game
+	 */
+	public void setShowStats(boolean showStats) {
+		this.showStats = showStats;
+	}
+
+	/**
+	 * the panel is drawn by the game thread only
+	 */
+	@Override
+	public void paint(Graphics g) {
+	}
+
+	@Override
+	public void update(Graphics g) {
 	}
 }
@@ -1,39 +1,42 @@
 package client.gui;
 
 import java.awt.Graphics;
-import java.awt.image.BufferedImage;
+import java.util.List;
 
 import client.data.Snake;
 import client.data.SnakePart;
-import client.gui.graphics.ImageLoader;
+import client.gui.graphics.SkinAtlas;
 
+/**
+ * draws a snake with the rotated images of its skin (see {@link SkinAtlas}),
+ * so drawing a part is a single blit
+ */
 public class SnakeSprite {
 	private Snake snake;
+	private SkinAtlas atlas;
 
-	public SnakeSprite(Snake snake) {
+	public SnakeSprite(Snake snake, SkinAtlas atlas) {
 		this.snake = snake;
+		this.atlas = atlas;
 	}
 
-	public void draw(Graphics g) {
-		ImageLoader snakePartImageLoader = new ImageLoader();
-		BufferedImage part = snakePartImageLoader.loadImage("res/skins/Snake/snakepart.png", false);
-		BufferedImage head = snakePartImageLoader.loadImage("res/skins/Snake/snakehead.png", false);
-		BufferedImage tail = snakePartImageLoader.loadImage("res/skins/Snake/snaketail.png", false);
+	public Snake getSnake() {
+		return snake;
+	}
 
-		for (int i = 0; i < snake.getSnakeParts().size(); i++) {
-			SnakePart p = snake.getSnakeParts().get(i);
+	public void draw(Graphics g) {
+		// the parts of a remote snake are replaced by the game loop while drawing,
+		// a local snake is drawn between its last two moves
+		List<SnakePart> parts = snake.getDrawnParts();
+		for (int i = 0; i < parts.size(); i++) {
+			SnakePart p = parts.get(i);
 
-			BufferedImage image = part;
-			if (i == 0) image = head;
-			if (i == snake.getSnakeParts().size()-1) image = tail;
+			int kind = SkinAtlas.PART;
+			if (i == 0) kind = SkinAtlas.HEAD;
+			if (i == parts.size()-1) kind = SkinAtlas.TAIL;
 
 			//System.out.println("drawing on "+p.getX()+" "+p.getY()+" "+p.getDirection());
-			g.drawImage(
-				snakePartImageLoader.getRotatedImage(image, (int) p.getDirection()),
-				p.getX(),
-				p.getY(),
-				null
-			);
+			g.drawImage(atlas.getImage(kind, p.getDirection()), p.getX(), p.getY(), null);
 		}
 	}
 }
@@ -0,0 +1,182 @@
+package client.gui.graphics;
+
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import javax.imageio.ImageIO;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * the rotated images of the head, the parts and the tail of a snake skin.
+ *
+ * every image is rotated once per ANGLE_STEP degrees and shared by all snake sprites of the skin,
+ * so drawing a snake only blits images. the rotations are built by a background thread when the
+ * atlas is created; an image that is drawn before it is built is rotated by the drawing thread
+ * and kept. the images are compatible with the screen, so java2d can keep them accelerated.
+ *
+ * @author Jakob Lahmer, Matthias Steinboeck
+ */
+public class SkinAtlas {
+
+	public static final String SKIN_PATH = "res/skins/";
+	public static final String DEFAULT_SKIN = "Snake";
+
+	// directions are rounded to steps of ANGLE_STEP degrees
+	public static final int ANGLE_STEP = 5;
+	public static final int ANGLES = 360 / ANGLE_STEP;
+
+	public static final int HEAD = 0;
+	public static final int PART = 1;
+	public static final int TAIL = 2;
+
+	private static final String[] FILENAMES = { "snakehead.png", "snakepart.png", "snaketail.png" };
+
+	private static Logger log = LoggerFactory.getLogger(SkinAtlas.class);
+
+	private static final Map<String, SkinAtlas> atlases = new HashMap<String, SkinAtlas>();
+
+	private static final ExecutorService builder = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, "SkinAtlasBuilder");
+			t.setDaemon(true);
+			t.setPriority(Thread.MIN_PRIORITY);
+			return t;
+		}
+	});
+
+	private final String skin;
+	// null if there is no screen (eg in a headless test), plain images are used then
+	private final GraphicsConfiguration gc;
+	private final BufferedImage[] sources = new BufferedImage[FILENAMES.length];
+	// rotated images, index is kind * ANGLES + angle index
+	private final AtomicReferenceArray<BufferedImage> images =
+		new AtomicReferenceArray<BufferedImage>(FILENAMES.length * ANGLES);
+	private volatile boolean built = false;
+
+	/**
+	 * returns the shared atlas of the skin, the first call loads the images of the skin
+	 * and starts building the rotations in the background
+	 * @param skin name of the skin
+	 * @return the atlas
+	 */
+	public static synchronized SkinAtlas get(String skin) {
+		SkinAtlas atlas = atlases.get(skin);
+		if (atlas == null) {
+			atlas = new SkinAtlas(skin);
+			atlases.put(skin, atlas);
+			final SkinAtlas toBuild = atlas;
+			builder.execute(new Runnable() {
+				@Override
+				public void run() {
+					toBuild.build();
+				}
+			});
+		}
+		return atlas;
+	}
+
+	private SkinAtlas(String skin) {
+		this.skin = skin;
+		this.gc = GraphicsEnvironment.isHeadless() ? null
+				: GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
+		for (int kind = 0; kind < FILENAMES.length; kind++) {
+			File file = new File(SKIN_PATH + skin, FILENAMES[kind]);
+			try {
+				sources[kind] = ImageIO.read(file);
+			} catch (IOException e) {
+				log.error("could not load " + file);
+			}
+		}
+	}
+
+	/**
+	 * returns the image rotated to the direction
+	 * @param kind HEAD, PART or TAIL
+	 * @param direction direction in degrees, clockwise
+	 * @return the rotated image or null if the image of the skin could not be loaded
+	 */
+	public BufferedImage getImage(int kind, float direction) {
+		int index = kind * ANGLES + getAngleIndex(direction);
+		BufferedImage image = images.get(index);
+		if (image == null) {
+			image = rotate(kind, index);
+		}
+		return image;
+	}
+
+	/**
+	 * @return true if all rotations are built
+	 */
+	public boolean isBuilt() {
+		return built;
+	}
+
+	public String getSkin() {
+		return skin;
+	}
+
+	/**
+	 * @param direction direction in degrees, may be negative or larger than 360
+	 * @return index of the nearest angle step
+	 */
+	public static int getAngleIndex(float direction) {
+		int index = Math.round(direction / ANGLE_STEP) % ANGLES;
+		return (index < 0) ? index + ANGLES : index;
+	}
+
+	private void build() {
+		long start = System.currentTimeMillis();
+		for (int kind = 0; kind < FILENAMES.length; kind++) {
+			for (int angle = 0; angle < ANGLES; angle++) {
+				int index = kind * ANGLES + angle;
+				if (images.get(index) == null) {
+					rotate(kind, index);
+				}
+			}
+		}
+		built = true;
+		log.debug("built atlas of skin " + skin + " in " + (System.currentTimeMillis() - start) + " ms");
+	}
+
+	/**
+	 * rotates the source image around its center, like {@link ImageLoader#getRotatedImage(BufferedImage, int)}.
+	 * if two threads rotate the same image, the first one is kept.
+	 */
+	private BufferedImage rotate(int kind, int index) {
+		BufferedImage src = sources[kind];
+		if (src == null) {
+			return null;
+		}
+		int width = src.getWidth();
+		int height = src.getHeight();
+		BufferedImage dest = (gc != null)
+			? gc.createCompatibleImage(width, height, Transparency.TRANSLUCENT)
+			: new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+		Graphics2D g2d = dest.createGraphics();
+		// quality is cheap here, every image is rotated only once
+		g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+		g2d.rotate(Math.toRadians((index % ANGLES) * ANGLE_STEP), width / 2, height / 2);
+		g2d.drawImage(src, 0, 0, null);
+		g2d.dispose();
+
+		if (images.compareAndSet(index, null, dest)) {
+			return dest;
+		}
+		return images.get(index);
+	}
+}
@@ -8,24 +8,28 @@ import java.awt.Font;
 import java.awt.Rectangle;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.AdjustmentEvent;
+import java.awt.event.AdjustmentListener;
 import java.util.Vector;
 
 import javax.swing.JButton;
 import javax.swing.JList;
+import javax.swing.JScrollBar;
 import javax.swing.JScrollPane;
 import javax.swing.JTextField;
 import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import util.Messages;
 
+import mzs.data.GameSummary;
 import mzs.event.DataChangeEventData;
 import mzs.event.DataChangeEventGameListData;
 import mzs.event.i.DataChangeEventListener;
 
-import client.data.game.Game;
 import client.event.MenuEventData;
 import client.event.MenuEventMPNewData;
 import client.event.MenuEventType;
@@ -98,7 +102,7 @@ public class MPMenuPanel extends MenuPanel implements DataChangeEventListener {
 				// check if game was selected
 				if (lbGames.getSelectedIndex() > -1)	{
 					//check if game can be joined
-					menuEventListener.menuChanged(new MenuEventMPNewData(MenuEventType.MULTIPLAYER_JOIN, ((Game)lbGames.getSelectedValue()).getName()));
+					menuEventListener.menuChanged(new MenuEventMPNewData(MenuEventType.MULTIPLAYER_JOIN, ((GameSummary)lbGames.getSelectedValue()).getName()));
 					/*
 					if (!gameListManager.isGameJoinable(lbGames.getSelectedIndex()))
 					{
@@ -133,6 +137,15 @@ public class MPMenuPanel extends MenuPanel implements DataChangeEventListener {
 		btJoin.setEnabled(false);
 		gameListScrollPanel.setVerticalScrollBarPolicy(JScrollPane.VERTICAL_SCROLLBAR_ALWAYS);
 		gameListScrollPanel.setBounds(new Rectangle(280, 224, 240, 148));
+		// the games are read a page at a time, the next page is read when the end of the list is shown
+		gameListScrollPanel.getVerticalScrollBar().addAdjustmentListener(new AdjustmentListener() {
+			@Override
+			public void adjustmentValueChanged(AdjustmentEvent e) {
+				if (!e.getValueIsAdjusting()) {
+					requestMoreGamesAtEnd();
+				}
+			}
+		});
 		btExit.setBounds(new Rectangle(325, 463, 150, 32));
 		btExit.setFont(new java.awt.Font("Dialog", Font.BOLD, 16));
 		btExit.setText("Back");
@@ -178,7 +191,7 @@ public class MPMenuPanel extends MenuPanel implements DataChangeEventListener {
 	 * fill the Listbox with the list of games. Select the same game after filling
 	 * that was selected before if possible.
 	 */
-	private void fillGameList(Vector<Game> withGames)
+	private void fillGameList(Vector<GameSummary> withGames)
 	{
 		int oldIndex = lbGames.getSelectedIndex();
 		//log.debug("list currently has "+lbGames.getModel().getSize()+" elements");
@@ -205,6 +218,25 @@ public class MPMenuPanel extends MenuPanel implements DataChangeEventListener {
 		}
 		//log.debug("now it has "+lbGames.getModel().getSize()+" elements");
 		this.updateUI();
+		// if the list is not scrollable (yet) there is no scroll event, check after the list is laid out
+		SwingUtilities.invokeLater(new Runnable() {
+			@Override
+			public void run() {
+				requestMoreGamesAtEnd();
+			}
+		});
+	}
+
+	/**
+	 * requests the next page of games if the end of the list is shown, this is also the case
+	 * if all games fit into the list. the game list ignores the request if all games are read
+	 */
+	private void requestMoreGamesAtEnd() {
+		JScrollBar bar = gameListScrollPanel.getVerticalScrollBar();
+		// a hidden list has no size, it would read all pages
+		if (gameListScrollPanel.isShowing() && bar.getValue() + bar.getVisibleAmount() >= bar.getMaximum()) {
+			menuEventListener.menuChanged(new MenuEventData(MenuEventType.MULTIPLAYER_MORE_GAMES));
+		}
 	}
 	
 	/* (non-Javadoc)
@@ -26,6 +26,8 @@ import client.event.i.MenuEventListener;
 import client.gui.graphics.GraphicsHelper;
 import client.gui.graphics.ImageLoader;
 
+import util.Level;
+
 /**
  * represents the Main Menu
  * 	is parent for all other menu Panels
@@ -50,7 +52,7 @@ public class MenuPanel extends JPanel {
 		this.menuEventListener = menuChangeEventListener;
 
 		ImageLoader loader = new ImageLoader();
-		gameMap = loader.loadImage("res/levels/Level1/back.jpg", false);
+		gameMap = loader.loadImage(Level.BACKGROUND, false);
 
 		gameMapSize = new Dimension(gameMap.getWidth(null), gameMap.getHeight(null));
 		setPreferredSize(gameMapSize);
@@ -0,0 +1,151 @@
+package mzs.data;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.UUID;
+
+import mzs.util.WireFormat;
+
+import client.data.game.Game;
+import client.data.state.GameState;
+
+/**
+ * what the multiplayer menu shows of a game: name, number of players and state.
+ *
+ * the server writes a summary of every game of the game list to the summary container
+ * (keyed by the game id) whenever the game is written, and removes it with the game
+ * (see {@link server.Server}). the menu only listens to the summaries, the whole game
+ * (with its players) is read when a player joins it.
+ *
+ * @author Jakob Lahmer, Matthias Steinboeck
+ */
+public class GameSummary implements Externalizable {
+
+	private static final long serialVersionUID = 1L;
+
+	private UUID id;
+	private String name;
+	// fields (not methods), so the QueryCoordinator can filter by them (see mzs.util.LobbyQuery)
+	private GameState state;
+	private int playerCount;
+	private int maxPlayers;
+
+	/**
+	 * only used for deserialization
+	 */
+	public GameSummary()	{
+	}
+
+	/**
+	 * @param game the game to summarize
+	 */
+	public GameSummary(Game game)	{
+		this.id = game.getId();
+		this.name = game.getName();
+		this.state = game.getState();
+		this.playerCount = game.getPlayerCount();
+		this.maxPlayers = Game.MAXPLAYERS;
+	}
+
+	public UUID getId() {
+		return id;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public GameState getState() {
+		return state;
+	}
+
+	public int getPlayerCount() {
+		return playerCount;
+	}
+
+	public int getMaxPlayers() {
+		return maxPlayers;
+	}
+
+	/**
+	 * writes the summary: version, id, name, state, player count and max players
+	 * @param out
+	 * @throws IOException
+	 */
+	public void write(DataOutput out) throws IOException {
+		WireFormat.writeVersion(out);
+		WireFormat.writeUUID(out, id);
+		WireFormat.writeString(out, name);
+		out.writeByte(state.ordinal());
+		out.writeByte(playerCount);
+		out.writeByte(maxPlayers);
+	}
+
+	/**
+	 * reads a summary written by {@link #write(DataOutput)}
+	 * @param in
+	 * @throws IOException
+	 */
+	public void read(DataInput in) throws IOException {
+		WireFormat.readVersion(in, "GameSummary");
+		id = WireFormat.readUUID(in);
+		name = WireFormat.readString(in);
+		state = GameState.values()[in.readByte()];
+		playerCount = in.readUnsignedByte();
+		maxPlayers = in.readUnsignedByte();
+	}
+
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		write(out);
+	}
+
+	@Override
+	public void readExternal(ObjectInput in) throws IOException {
+		read(in);
+	}
+
+	/**
+	 * same text as {@link Game#toString()}, shown in the multiplayer game list
+	 * @return String representation of the game
+	 */
+	@Override
+	public String toString() {
+		switch (state) {
+		case OPENEND:
+			return name + " (" + playerCount + "/" + maxPlayers + " open)";
+		case READY:
+			return name + " (" + playerCount + "/" + maxPlayers + " started)";
+		case RUNNING:
+		case ACTIVE:
+			return name + " (" + playerCount + "/" + maxPlayers + " running)";
+		case ENDED:
+			return name + " (" + playerCount + "/" + maxPlayers + " game over)";
+		case UNKNOWN:
+		default:
+			return name;
+		}
+	}
+
+	/**
+	 * same if the id is equal
+	 * @param obj Object to compare
+	 * @return true if object is a summary of the same game
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (obj instanceof GameSummary) {
+			return id.equals(((GameSummary) obj).id);
+		}
+		return false;
+	}
+
+	@Override
+	public int hashCode() {
+		return id.hashCode();
+	}
+}
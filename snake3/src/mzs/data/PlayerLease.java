@@ -0,0 +1,91 @@
+package mzs.data;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.UUID;
+
+import mzs.util.WireFormat;
+
+/**
+ * the heartbeat of a player in a multiplayer game.
+ *
+ * while a player is in a game, the client writes its lease (keyed by the player id) to the
+ * lease container every RENEW_MILLIS (see {@link mzs.util.LeaseRenewer}). the server takes
+ * the time a lease was written by its own clock, so the clocks of the clients do not matter.
+ * a player whose lease was not renewed for LEASE_MILLIS is removed from its game
+ * (see {@link server.Reaper}).
+ *
+ * @author Jakob Lahmer, Matthias Steinboeck
+ */
+public class PlayerLease implements Externalizable {
+
+	private static final long serialVersionUID = 1L;
+
+	// time a lease is valid after it was written
+	public static final long LEASE_MILLIS = 10000;
+	// time between two renewals, a lease survives two lost renewals
+	public static final long RENEW_MILLIS = 3000;
+
+	private UUID playerId;
+	private UUID gameId;
+
+	/**
+	 * only used for deserialization
+	 */
+	public PlayerLease()	{
+	}
+
+	public PlayerLease(UUID playerId, UUID gameId)	{
+		this.playerId = playerId;
+		this.gameId = gameId;
+	}
+
+	public UUID getPlayerId() {
+		return playerId;
+	}
+
+	public UUID getGameId() {
+		return gameId;
+	}
+
+	/**
+	 * writes the lease: version, player id and game id
+	 * @param out
+	 * @throws IOException
+	 */
+	public void write(DataOutput out) throws IOException {
+		WireFormat.writeVersion(out);
+		WireFormat.writeUUID(out, playerId);
+		WireFormat.writeUUID(out, gameId);
+	}
+
+	/**
+	 * reads a lease written by {@link #write(DataOutput)}
+	 * @param in
+	 * @throws IOException
+	 */
+	public void read(DataInput in) throws IOException {
+		WireFormat.readVersion(in, "PlayerLease");
+		playerId = WireFormat.readUUID(in);
+		gameId = WireFormat.readUUID(in);
+	}
+
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		write(out);
+	}
+
+	@Override
+	public void readExternal(ObjectInput in) throws IOException {
+		read(in);
+	}
+
+	@Override
+	public String toString() {
+		return "lease of player " + playerId + " in game " + gameId;
+	}
+}
@@ -1,12 +1,19 @@
 package mzs.data;
 
-import java.io.Serializable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 import java.util.ArrayList;
 import java.util.UUID;
 
+import mzs.util.WireFormat;
+
 import client.data.SnakePart;
 
-public class SnakeDataHolder implements Serializable {
+public class SnakeDataHolder implements Externalizable {
 
 	private static final long serialVersionUID = 1L;
 
@@ -14,8 +21,18 @@ public class SnakeDataHolder implements Serializable {
 
 	// id equals snake id and should not be changed
 	private UUID id;
-	
-	
+
+	// tick of the server, the position belongs to (0 if not sent by the server)
+	private int tick;
+	private boolean alive = true;
+
+	/**
+	 * only used for deserialization
+	 */
+	public SnakeDataHolder()	{
+		this.parts = new ArrayList<SnakePart>();
+	}
+
 	public SnakeDataHolder(UUID id) 	{
 		this.id = id;
 		this.parts = new ArrayList<SnakePart>();
@@ -24,7 +41,23 @@ public class SnakeDataHolder implements Serializable {
 	public UUID getId() {
 		return id;
 	}
-	
+
+	public int getTick() {
+		return tick;
+	}
+
+	public void setTick(int tick) {
+		this.tick = tick;
+	}
+
+	public boolean isAlive() {
+		return alive;
+	}
+
+	public void setAlive(boolean alive) {
+		this.alive = alive;
+	}
+
 	public void reset()	{
 		parts = new ArrayList<SnakePart>();
 	}
@@ -32,7 +65,7 @@ public class SnakeDataHolder implements Serializable {
 	public void addPart(SnakePart part)	{
 		parts.add(part);
 	}
-	
+
 	public void setParts(ArrayList<SnakePart> parts) {
 		this.parts = parts;
 	}
@@ -42,9 +75,72 @@ public class SnakeDataHolder implements Serializable {
 		return parts;
 	}
 
+	/**
+	 * the parts of a snake are reused while it moves, so a holder that is handed to
+	 * another thread (eg {@link mzs.util.PositionPublisher}) has to be copied
+	 * @return a new holder with copies of all parts
+	 */
+	public SnakeDataHolder copy() {
+		SnakeDataHolder holder = new SnakeDataHolder(id);
+		holder.tick = tick;
+		holder.alive = alive;
+		holder.parts = new ArrayList<SnakePart>(parts.size());
+		for (SnakePart part : parts) {
+			holder.parts.add(part.copy());
+		}
+		return holder;
+	}
+
+	/**
+	 * writes the holder: version, id, tick, alive flag, number of parts and the parts
+	 * @param out
+	 * @throws IOException
+	 */
+	public void write(DataOutput out) throws IOException {
+		WireFormat.writeVersion(out);
+		WireFormat.writeUUID(out, id);
+		out.writeInt(tick);
+		out.writeBoolean(alive);
+		out.writeShort(parts.size());
+		for (SnakePart part : parts) {
+			part.write(out);
+		}
+	}
+
+	/**
+	 * reads a holder written by {@link #write(DataOutput)}
+	 * @param in
+	 * @throws IOException
+	 */
+	public void read(DataInput in) throws IOException {
+		byte version = WireFormat.readVersion(in, "SnakeDataHolder");
+		id = WireFormat.readUUID(in);
+		if (version >= 2) {
+			tick = in.readInt();
+			alive = in.readBoolean();
+		}
+		int count = in.readUnsignedShort();
+		parts = new ArrayList<SnakePart>(count);
+		for (int i = 0; i < count; i++) {
+			SnakePart part = new SnakePart();
+			part.read(in);
+			parts.add(part);
+		}
+	}
+
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		write(out);
+	}
+
+	@Override
+	public void readExternal(ObjectInput in) throws IOException {
+		read(in);
+	}
+
 	@Override
 	public String toString() {
-		return "SnakeDataHolder [parts=" + parts + ", id=" + id + "]";
+		return "SnakeDataHolder [parts=" + parts + ", id=" + id + ", tick=" + tick + ", alive=" + alive + "]";
 	}
-	
+
 }
@@ -0,0 +1,98 @@
+package mzs.data;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.UUID;
+
+import mzs.util.WireFormat;
+
+/**
+ * the input of a player in a multiplayer game: the direction the snake turns.
+ *
+ * clients write their input (keyed by the snake id) to the input container of the game,
+ * the server applies it to the snake in every tick until a newer input is written
+ * (see {@link server.TickEngine}).
+ *
+ * @author Jakob Lahmer, Matthias Steinboeck
+ */
+public class TurnInput implements Externalizable {
+
+	private static final long serialVersionUID = 1L;
+
+	public static final byte LEFT = -1;
+	public static final byte NONE = 0;
+	public static final byte RIGHT = 1;
+
+	// id of the snake
+	private UUID id;
+	// tick of the server, the input was made for
+	private int tick;
+	private byte turn = NONE;
+
+	/**
+	 * only used for deserialization
+	 */
+	public TurnInput()	{
+	}
+
+	public TurnInput(UUID id, int tick, byte turn)	{
+		this.id = id;
+		this.tick = tick;
+		this.turn = turn;
+	}
+
+	public UUID getId() {
+		return id;
+	}
+
+	public int getTick() {
+		return tick;
+	}
+
+	public byte getTurn() {
+		return turn;
+	}
+
+	/**
+	 * writes the input: version, id, tick and turn
+	 * @param out
+	 * @throws IOException
+	 */
+	public void write(DataOutput out) throws IOException {
+		WireFormat.writeVersion(out);
+		WireFormat.writeUUID(out, id);
+		out.writeInt(tick);
+		out.writeByte(turn);
+	}
+
+	/**
+	 * reads an input written by {@link #write(DataOutput)}
+	 * @param in
+	 * @throws IOException
+	 */
+	public void read(DataInput in) throws IOException {
+		WireFormat.readVersion(in, "TurnInput");
+		id = WireFormat.readUUID(in);
+		tick = in.readInt();
+		turn = in.readByte();
+	}
+
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		write(out);
+	}
+
+	@Override
+	public void readExternal(ObjectInput in) throws IOException {
+		read(in);
+	}
+
+	@Override
+	public String toString() {
+		return "TurnInput [id=" + id + ", tick=" + tick + ", turn=" + turn + "]";
+	}
+}
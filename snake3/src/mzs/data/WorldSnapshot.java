@@ -0,0 +1,270 @@
+package mzs.data;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.ArrayList;
+import java.util.List;
+
+import mzs.util.WireFormat;
+
+import client.data.SnakePart;
+
+/**
+ * the state of all snakes of a game in one tick, written by the server as a single entry
+ * to the game container (see {@link server.SnapshotAggregator}).
+ *
+ * a snapshot is either a keyframe, that contains all snakes completely, or a delta to the
+ * snapshot of the base tick. snakes move by adding parts at the head and dropping them at
+ * the tail, so a delta only contains the new head parts of each snake and how far the
+ * snake moved. a snake whose parts can not be described like this is sent completely.
+ *
+ * a received delta has to be resolved against the previous snapshot
+ * (see {@link #resolve(WorldSnapshot)}) before the snakes can be read.
+ *
+ * @author Jakob Lahmer, Matthias Steinboeck
+ */
+public class WorldSnapshot implements Externalizable {
+
+	private static final long serialVersionUID = 1L;
+
+	// base tick of a keyframe
+	public static final int KEYFRAME = -1;
+	// max number of new head parts in a delta
+	private static final int MAX_SHIFT = 8;
+	// shift of a snake that is sent completely
+	private static final byte FULL = -1;
+
+	private int tick;
+	private int baseTick = KEYFRAME;
+	// time the server took the snapshot (ms), 0 if sent by an older server
+	private long time;
+	// the snakes, null if a received delta was not resolved yet
+	private List<SnakeDataHolder> snakes;
+
+	// snakes of the base tick, only used for writing a delta
+	private transient List<SnakeDataHolder> base;
+	// received delta per snake, until it is resolved
+	private transient List<SnakeDelta> deltas;
+
+	/**
+	 * only used for deserialization
+	 */
+	public WorldSnapshot()	{
+	}
+
+	/**
+	 * @param tick
+	 * @param snakes state of all snakes in this tick
+	 * @param baseTick tick of the base snapshot, or KEYFRAME
+	 * @param base snakes of the base snapshot in the same order, null for a keyframe
+	 */
+	public WorldSnapshot(int tick, List<SnakeDataHolder> snakes, int baseTick, List<SnakeDataHolder> base)	{
+		this.tick = tick;
+		this.snakes = snakes;
+		this.baseTick = (base == null) ? KEYFRAME : baseTick;
+		this.base = base;
+		this.time = System.currentTimeMillis();
+	}
+
+	public int getTick() {
+		return tick;
+	}
+
+	public int getBaseTick() {
+		return baseTick;
+	}
+
+	/**
+	 * @return time the server took the snapshot (ms), 0 if unknown
+	 */
+	public long getTime() {
+		return time;
+	}
+
+	public boolean isKeyframe() {
+		return baseTick == KEYFRAME;
+	}
+
+	/**
+	 * @return the snakes, null if the snapshot is a delta, that was not resolved yet
+	 */
+	public List<SnakeDataHolder> getSnakes() {
+		return snakes;
+	}
+
+	/**
+	 * applies a received delta to the previous snapshot
+	 * @param previous the last resolved snapshot of the client, may be null
+	 * @return true if the snakes of this snapshot are available, false if the
+	 * 		previous snapshot is not the base of this delta (wait for the next keyframe)
+	 */
+	public boolean resolve(WorldSnapshot previous) {
+		if (snakes != null) {
+			return true;
+		}
+		if (previous == null || previous.snakes == null || previous.tick != baseTick
+				|| previous.snakes.size() != deltas.size()) {
+			return false;
+		}
+		List<SnakeDataHolder> resolved = new ArrayList<SnakeDataHolder>(deltas.size());
+		for (int i = 0; i < deltas.size(); i++) {
+			SnakeDelta delta = deltas.get(i);
+			SnakeDataHolder old = previous.snakes.get(i);
+			SnakeDataHolder holder = new SnakeDataHolder(old.getId());
+			holder.setTick(tick);
+			holder.setAlive(delta.alive);
+			ArrayList<SnakePart> parts = new ArrayList<SnakePart>(delta.parts);
+			if (delta.shift != FULL) {
+				// the parts of the previous tick follow the new head, the tail is dropped
+				List<SnakePart> oldParts = old.getParts();
+				parts.addAll(oldParts.subList(0, oldParts.size() - delta.shift));
+			}
+			holder.setParts(parts);
+			resolved.add(holder);
+		}
+		snakes = resolved;
+		deltas = null;
+		return true;
+	}
+
+	/**
+	 * writes the snapshot: version, tick, base tick, time, number of snakes and the snakes
+	 * (completely for a keyframe, as delta otherwise)
+	 * @param out
+	 * @throws IOException
+	 */
+	public void write(DataOutput out) throws IOException {
+		WireFormat.writeVersion(out);
+		out.writeInt(tick);
+		out.writeInt(baseTick);
+		out.writeLong(time);
+		out.writeByte(snakes.size());
+		for (int i = 0; i < snakes.size(); i++) {
+			SnakeDataHolder holder = snakes.get(i);
+			if (isKeyframe()) {
+				WireFormat.writeUUID(out, holder.getId());
+				out.writeBoolean(holder.isAlive());
+				writeParts(out, holder.getParts());
+			} else {
+				out.writeBoolean(holder.isAlive());
+				int shift = shift(base.get(i).getParts(), holder.getParts());
+				out.writeByte(shift);
+				if (shift == FULL) {
+					writeParts(out, holder.getParts());
+				} else {
+					for (int j = 0; j < shift; j++) {
+						holder.getParts().get(j).write(out);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * reads a snapshot written by {@link #write(DataOutput)}
+	 * @param in
+	 * @throws IOException
+	 */
+	public void read(DataInput in) throws IOException {
+		byte version = WireFormat.readVersion(in, "WorldSnapshot");
+		tick = in.readInt();
+		baseTick = in.readInt();
+		time = (version >= 3) ? in.readLong() : 0;
+		int count = in.readUnsignedByte();
+		if (isKeyframe()) {
+			snakes = new ArrayList<SnakeDataHolder>(count);
+			for (int i = 0; i < count; i++) {
+				SnakeDataHolder holder = new SnakeDataHolder(WireFormat.readUUID(in));
+				holder.setTick(tick);
+				holder.setAlive(in.readBoolean());
+				holder.setParts(readParts(in, in.readUnsignedShort()));
+				snakes.add(holder);
+			}
+		} else {
+			snakes = null;
+			deltas = new ArrayList<SnakeDelta>(count);
+			for (int i = 0; i < count; i++) {
+				SnakeDelta delta = new SnakeDelta();
+				delta.alive = in.readBoolean();
+				delta.shift = in.readByte();
+				if (delta.shift == FULL) {
+					delta.parts = readParts(in, in.readUnsignedShort());
+				} else {
+					delta.parts = readParts(in, delta.shift);
+				}
+				deltas.add(delta);
+			}
+		}
+	}
+
+	/**
+	 * finds the number of new head parts, if the snake moved by adding parts at the head
+	 * and dropping the same number of parts at the tail
+	 * @return number of new parts or FULL
+	 */
+	private static byte shift(List<SnakePart> before, List<SnakePart> after) {
+		if (before.size() != after.size()) {
+			return FULL;
+		}
+		for (int shift = 0; shift <= MAX_SHIFT && shift < after.size(); shift++) {
+			boolean match = true;
+			for (int i = shift; i < after.size() && match; i++) {
+				match = samePart(after.get(i), before.get(i - shift));
+			}
+			if (match) {
+				return (byte) shift;
+			}
+		}
+		return FULL;
+	}
+
+	private static boolean samePart(SnakePart a, SnakePart b) {
+		return a.getX() == b.getX() && a.getY() == b.getY() && a.getDirection() == b.getDirection();
+	}
+
+	private static void writeParts(DataOutput out, List<SnakePart> parts) throws IOException {
+		out.writeShort(parts.size());
+		for (SnakePart part : parts) {
+			part.write(out);
+		}
+	}
+
+	private static ArrayList<SnakePart> readParts(DataInput in, int count) throws IOException {
+		ArrayList<SnakePart> parts = new ArrayList<SnakePart>(count);
+		for (int i = 0; i < count; i++) {
+			SnakePart part = new SnakePart();
+			part.read(in);
+			parts.add(part);
+		}
+		return parts;
+	}
+
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		write(out);
+	}
+
+	@Override
+	public void readExternal(ObjectInput in) throws IOException {
+		read(in);
+	}
+
+	@Override
+	public String toString() {
+		return "WorldSnapshot [tick=" + tick + ", baseTick=" + baseTick + ", snakes=" + snakes + "]";
+	}
+
+	/**
+	 * the change of one snake in a received delta
+	 */
+	private static class SnakeDelta {
+		private boolean alive;
+		private byte shift;
+		// new head parts, or all parts if shift is FULL
+		private ArrayList<SnakePart> parts;
+	}
+}
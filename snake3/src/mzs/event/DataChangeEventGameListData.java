@@ -2,17 +2,17 @@ package mzs.event;
 
 import java.util.Vector;
 
-import client.data.game.Game;
+import mzs.data.GameSummary;
 
 public class DataChangeEventGameListData extends DataChangeEventData {
 
-	private Vector<Game> gameListData;
+	private Vector<GameSummary> gameListData;
 	
 	public DataChangeEventGameListData(DataChangeEventType changeType)	{
 		super(changeType);
 	}
 	
-	public DataChangeEventGameListData(DataChangeEventType changeType, Vector<Game> gameListData)	{
+	public DataChangeEventGameListData(DataChangeEventType changeType, Vector<GameSummary> gameListData)	{
 		super(changeType);
 		this.gameListData = gameListData;
 	}
@@ -20,14 +20,14 @@ public class DataChangeEventGameListData extends DataChangeEventData {
 	/**
 	 * @return the gameListData
 	 */
-	public Vector<Game> getGameListData() {
+	public Vector<GameSummary> getGameListData() {
 		return gameListData;
 	}
 
 	/**
 	 * @param gameListData the gameListData to set
 	 */
-	public void setGameListData(Vector<Game> gameListData) {
+	public void setGameListData(Vector<GameSummary> gameListData) {
 		this.gameListData = gameListData;
 	}
 	
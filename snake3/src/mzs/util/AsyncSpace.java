@@ -0,0 +1,260 @@
+package mzs.util;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import javax.swing.SwingUtilities;
+
+import mzs.util.i.SpaceCallback;
+
+import org.mozartspaces.capi3.CoordinationData;
+import org.mozartspaces.capi3.IsolationLevel;
+import org.mozartspaces.capi3.KeyCoordinator;
+import org.mozartspaces.capi3.Selector;
+import org.mozartspaces.core.AsyncCapi;
+import org.mozartspaces.core.ContainerReference;
+import org.mozartspaces.core.Entry;
+import org.mozartspaces.core.MzsConstants;
+import org.mozartspaces.core.MzsCore;
+import org.mozartspaces.core.Request;
+import org.mozartspaces.core.RequestCallbackHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * non-blocking access to the space, used by the menus (see {@link client.data.game.GameList}).
+ *
+ * single entry operations are sent with the asynchronous api of mozartspaces, operations
+ * that need several requests (eg lookup or create a container, create a notification) run
+ * on a background worker. the callbacks are always called on the swing event dispatch
+ * thread, so a slow space never freezes the gui.
+ *
+ * @author Jakob Lahmer, Matthias Steinboeck
+ */
+public class AsyncSpace {
+
+	private static Logger log = LoggerFactory.getLogger(AsyncSpace.class);
+
+	private final AsyncCapi async;
+	private final ExecutorService worker;
+	private final SnakeSerializer serializer = new SnakeSerializer();
+
+	public AsyncSpace(MzsCore core) {
+		this.async = new AsyncCapi(core);
+		this.worker = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "AsyncSpace");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+
+	/**
+	 * runs a (blocking) task on the background worker, tasks are run in the order they are submitted
+	 * @param task
+	 * @param callback may be null
+	 */
+	public <T> void submit(final Callable<T> task, final SpaceCallback<T> callback) {
+		worker.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					done(callback, task.call());
+				} catch (Throwable e) {
+					failed(callback, e);
+				}
+			}
+		});
+	}
+
+	/**
+	 * resolves a container without blocking, cached containers are returned at once
+	 * @param containerName the containers name found in the {@link ContainerCoordinatorMapper}
+	 * @param callback
+	 */
+	public void getContainer(final String containerName, final SpaceCallback<ContainerReference> callback) {
+		ContainerReference container = Util.getInstance().getCachedContainer(containerName);
+		if (container != null) {
+			done(callback, container);
+			return;
+		}
+		submit(new Callable<ContainerReference>() {
+			@Override
+			public ContainerReference call() throws Exception {
+				ContainerReference container = Util.getInstance().getContainer(containerName);
+				if (container == null) {
+					throw new Exception("Could not load Container (" + containerName + ")");
+				}
+				return container;
+			}
+		}, callback);
+	}
+
+	/**
+	 * non-blocking version of {@link Util#upsert(String, Serializable, String)}.
+	 * the data is copied, so it may be changed by the caller afterwards.
+	 * @param containerName
+	 * @param data
+	 * @param key
+	 * @param callback may be null
+	 */
+	public void upsert(String containerName, Serializable data, final String key, final SpaceCallback<Boolean> callback,
+			final CoordinationData... indexes) {
+		final Serializable copy = copy(data, callback);
+		if (copy == null) {
+			return;
+		}
+		getContainer(containerName, new SpaceCallback<ContainerReference>() {
+			@Override
+			public void done(ContainerReference container) {
+				write(container, copy, key, callback, indexes);
+			}
+			@Override
+			public void failed(Throwable cause) {
+				AsyncSpace.failed(callback, cause);
+			}
+		});
+	}
+
+	/**
+	 * non-blocking version of {@link Util#upsert(ContainerReference, Serializable, String, CoordinationData...)}.
+	 * the data is copied, so it may be changed by the caller afterwards.
+	 * @param container
+	 * @param data
+	 * @param key
+	 * @param callback may be null
+	 * @param indexes further coordination data, eg the name index of a game
+	 */
+	public void upsert(ContainerReference container, Serializable data, String key, SpaceCallback<Boolean> callback,
+			CoordinationData... indexes) {
+		Serializable copy = copy(data, callback);
+		if (copy != null) {
+			write(container, copy, key, callback, indexes);
+		}
+	}
+
+	/**
+	 * copies the data before it is queued, the write is serialized later on another thread
+	 * @return the copy or null if the data could not be copied (the callback is notified)
+	 */
+	private Serializable copy(Serializable data, SpaceCallback<Boolean> callback) {
+		try {
+			return serializer.copyObject(data);
+		} catch (Exception e) {
+			failed(callback, e);
+			return null;
+		}
+	}
+
+	private void write(ContainerReference container, Serializable data, String key, SpaceCallback<Boolean> callback,
+			CoordinationData... indexes) {
+		List<Entry> entries = new ArrayList<Entry>();
+		entries.add(Util.newKeyedEntry(data, key, indexes));
+		async.write(
+				entries,
+				container,
+				Util.UPSERT_TIMEOUT,
+				null,
+				IsolationLevel.READ_COMMITTED,
+				null,
+				new EdtHandler<Boolean>(container, callback, Boolean.TRUE));
+	}
+
+	/**
+	 * deletes all objects with the given key without blocking
+	 * @param containerName
+	 * @param key
+	 * @param callback may be null
+	 */
+	public void delete(String containerName, final String key, final SpaceCallback<Boolean> callback) {
+		getContainer(containerName, new SpaceCallback<ContainerReference>() {
+			@Override
+			public void done(ContainerReference container) {
+				List<Selector> selectors = new ArrayList<Selector>();
+				selectors.add(KeyCoordinator.newSelector(key, MzsConstants.Selecting.COUNT_ALL));
+				async.delete(
+						container,
+						selectors,
+						MzsConstants.RequestTimeout.ZERO,
+						null,
+						IsolationLevel.READ_COMMITTED,
+						null,
+						new EdtHandler<Boolean>(container, callback, Boolean.TRUE));
+			}
+			@Override
+			public void failed(Throwable cause) {
+				AsyncSpace.failed(callback, cause);
+			}
+		});
+	}
+
+	/**
+	 * calls the callback on the event dispatch thread
+	 */
+	private static <T> void done(final SpaceCallback<T> callback, final T result) {
+		if (callback == null) {
+			return;
+		}
+		SwingUtilities.invokeLater(new Runnable() {
+			@Override
+			public void run() {
+				callback.done(result);
+			}
+		});
+	}
+
+	/**
+	 * calls the callback on the event dispatch thread
+	 */
+	private static <T> void failed(final SpaceCallback<T> callback, final Throwable cause) {
+		log.error("space operation failed: " + cause.getMessage());
+		if (callback == null) {
+			return;
+		}
+		SwingUtilities.invokeLater(new Runnable() {
+			@Override
+			public void run() {
+				callback.failed(cause);
+			}
+		});
+	}
+
+	/**
+	 * passes the result of a request to a callback on the event dispatch thread
+	 */
+	private static class EdtHandler<T> implements RequestCallbackHandler {
+
+		private final ContainerReference container;
+		private final SpaceCallback<T> callback;
+		private final T result;
+
+		/**
+		 * @param container container of the request, removed from the cache if it is unknown
+		 * @param callback
+		 * @param result the result passed to the callback when the request was processed
+		 */
+		public EdtHandler(ContainerReference container, SpaceCallback<T> callback, T result) {
+			this.container = container;
+			this.callback = callback;
+			this.result = result;
+		}
+
+		@Override
+		public void requestProcessed(Request<?> request, Serializable requestResult) {
+			done(callback, result);
+		}
+
+		@Override
+		public void requestFailed(Request<?> request, Throwable cause) {
+			Util.getInstance().invalidateContainer(container, cause);
+			failed(callback, cause);
+		}
+	}
+}
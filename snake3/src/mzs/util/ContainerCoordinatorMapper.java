@@ -2,16 +2,25 @@ package mzs.util;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.mozartspaces.capi3.Coordinator;
 import org.mozartspaces.capi3.FifoCoordinator;
 import org.mozartspaces.capi3.KeyCoordinator;
 import org.mozartspaces.capi3.LindaCoordinator;
+import org.mozartspaces.capi3.QueryCoordinator;
 
 public class ContainerCoordinatorMapper {
 	// list of all games
 	public static final String GAME_LIST = "gameList";
+	// name of the KeyCoordinator of the game list that indexes the games by name (see LobbyQuery)
+	public static final String GAME_NAME_INDEX = "gameName";
+	// summaries of the games for the multiplayer menu, written by the server (see GameSummary)
+	public static final String GAME_SUMMARY = "gameSummary";
+	// heartbeats of the players in a game, one lease per player (see PlayerLease)
+	public static final String PLAYER_LEASE = "playerLease";
 	public static final String LEVEL_DATA = "levelData";
 	
 	// mMn nicht benoetigt?
@@ -20,8 +29,12 @@ public class ContainerCoordinatorMapper {
 	// container fuer ein spiel (beinhaltet: player, gamestate etc)
 	public static final String GAME = "game";
 	public static final String PLAYER = "player";
+	// container for the inputs of the players of a game (read by the server)
+	public static final String INPUT = "input";
 	
 	private static HashMap<String, List<Coordinator>> map = new HashMap<String, List<Coordinator>>();
+	// containers whose keyed writes replace the entry with the same key (see server.ReplaceAspect)
+	private static Set<String> replaced = new HashSet<String>();
 	
 	static {
 		// GAME_LIST
@@ -30,7 +43,24 @@ public class ContainerCoordinatorMapper {
 		list.add(new FifoCoordinator());
 		list.add(new KeyCoordinator());
 		//list.add(new LindaCoordinator());
+		// games are looked up by name in the space (see LobbyQuery)
+		list.add(new KeyCoordinator(GAME_NAME_INDEX));
 		map.put(GAME_LIST, list);
+
+		// GAME_SUMMARY
+		// one summary per game, keyed by the game id. the joinable games are queried (see LobbyQuery)
+		list = new ArrayList<Coordinator>();
+		list.add(new FifoCoordinator());
+		list.add(new KeyCoordinator());
+		list.add(new QueryCoordinator());
+		map.put(GAME_SUMMARY, list);
+
+		// PLAYER_LEASE
+		// the lease of a player is written with the player id as key
+		list = new ArrayList<Coordinator>();
+		list.add(new FifoCoordinator());
+		list.add(new KeyCoordinator());
+		map.put(PLAYER_LEASE, list);
 		
 		list = new ArrayList<Coordinator>();
 		list.add(new FifoCoordinator());
@@ -41,18 +71,48 @@ public class ContainerCoordinatorMapper {
 		map.put(PLAYER, list);
 
 		// GAME
-		// each (network) game gets its own container to share playerinfo etc
+		// each (network) game gets its own container to share playerinfo, snake positions etc
+		// snake positions are written with the snake id as key
 		list = new ArrayList<Coordinator>();
 		list.add(new FifoCoordinator());
+		list.add(new KeyCoordinator());
 		map.put(GAME, list);
-		
+
+		// INPUT
+		// each network game gets a container for the turn inputs of the players
+		// the latest input of a snake is written with the snake id as key
 		list = new ArrayList<Coordinator>();
 		list.add(new FifoCoordinator());
 		list.add(new KeyCoordinator());
-		map.put("game_test", list);
+		map.put(INPUT, list);
+
+		// all of them are written with Util.upsert
+		replaced.add(GAME_LIST);
+		replaced.add(GAME_SUMMARY);
+		replaced.add(PLAYER_LEASE);
+		replaced.add(GAME);
+		replaced.add(INPUT);
 	}
 
 	public static List<Coordinator> getCoordinators(String containerName) {
 		return map.get(containerName);
 	}
+
+	/**
+	 * @param containerName name of a well known container, or GAME / INPUT for the per game containers
+	 * @return true if a keyed write replaces the entry with the same key in this container
+	 */
+	public static boolean isReplacedByKey(String containerName) {
+		return replaced.contains(containerName);
+	}
+
+	/**
+	 * @return names of the well known containers (without the per game containers)
+	 */
+	public static List<String> getContainerNames() {
+		ArrayList<String> names = new ArrayList<String>(map.keySet());
+		names.remove(GAME);
+		names.remove(INPUT);
+		return names;
+	}
 }
@@ -0,0 +1,95 @@
+package mzs.util;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.mozartspaces.capi3.ContainerNotFoundException;
+import org.mozartspaces.capi3.InvalidContainerException;
+import org.mozartspaces.core.ContainerReference;
+
+/**
+ * caches the references of the containers, so a container name has to be resolved in
+ * the space only once (see {@link Util#getContainer(String)} and {@link Util#getGameContainer(client.data.game.Game)}).
+ *
+ * references are cached per container name and per game id. an entry is invalidated
+ * when the space reports, that the container does not exist anymore, game entries are
+ * evicted when the game ends.
+ *
+ * @author Jakob Lahmer, Matthias Steinboeck
+ */
+public class ContainerRegistry {
+
+	private final Map<String, ContainerReference> containers = new ConcurrentHashMap<String, ContainerReference>();
+	private final Map<UUID, ContainerReference> gameContainers = new ConcurrentHashMap<UUID, ContainerReference>();
+
+	/**
+	 * @param containerName
+	 * @return the cached reference or null
+	 */
+	public ContainerReference get(String containerName) {
+		return containers.get(containerName);
+	}
+
+	public void put(String containerName, ContainerReference container) {
+		if (container != null) {
+			containers.put(containerName, container);
+		}
+	}
+
+	/**
+	 * @param gameId
+	 * @return the cached reference of the game container or null
+	 */
+	public ContainerReference getGame(UUID gameId) {
+		return gameContainers.get(gameId);
+	}
+
+	public void putGame(UUID gameId, ContainerReference container) {
+		if (container != null) {
+			gameContainers.put(gameId, container);
+		}
+	}
+
+	/**
+	 * removes the container of a game that ended
+	 * @param gameId
+	 */
+	public void evictGame(UUID gameId) {
+		gameContainers.remove(gameId);
+	}
+
+	/**
+	 * removes all entries pointing to the given container
+	 * @param container
+	 */
+	public void invalidate(ContainerReference container) {
+		if (container == null) {
+			return;
+		}
+		containers.values().removeAll(Collections.singleton(container));
+		gameContainers.values().removeAll(Collections.singleton(container));
+	}
+
+	/**
+	 * invalidates the container, if the exception (or one of its causes) says,
+	 * that the container is unknown to the space
+	 * @param container the container used by the failed operation
+	 * @param e the exception of the failed operation
+	 * @return true if the container was invalidated
+	 */
+	public boolean invalidateIfUnknown(ContainerReference container, Throwable e) {
+		for (Throwable t = e; t != null; t = t.getCause()) {
+			if (t instanceof ContainerNotFoundException || t instanceof InvalidContainerException) {
+				invalidate(container);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public int size() {
+		return containers.size() + gameContainers.size();
+	}
+}
@@ -0,0 +1,84 @@
+package mzs.util;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * hands the latest value per key from the notification threads of mozartspaces to the
+ * game loop, without locks.
+ *
+ * every key has a single slot. {@link #post(Object, Object)} replaces the value in the slot
+ * (latest value wins) and returns at once, it never blocks and does not depend on the
+ * number of values posted before. the game loop takes all new values once per tick
+ * with {@link #drainTo(Collection)}, so only the game loop changes the state that is drawn.
+ *
+ * @author Jakob Lahmer, Matthias Steinboeck
+ */
+public class LatestValueMailbox<K, V> {
+
+	private final ConcurrentHashMap<K, AtomicReference<V>> slots = new ConcurrentHashMap<K, AtomicReference<V>>();
+
+	private final AtomicLong posted = new AtomicLong();
+	private final AtomicLong coalesced = new AtomicLong();
+
+	/**
+	 * stores the value as latest value of the key
+	 * @param key
+	 * @param value must not be null
+	 * @return true if a value that was not drained yet was replaced
+	 */
+	public boolean post(K key, V value) {
+		AtomicReference<V> slot = slots.get(key);
+		if (slot == null) {
+			AtomicReference<V> newSlot = new AtomicReference<V>();
+			slot = slots.putIfAbsent(key, newSlot);
+			if (slot == null) {
+				slot = newSlot;
+			}
+		}
+		posted.incrementAndGet();
+		if (slot.getAndSet(value) != null) {
+			coalesced.incrementAndGet();
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * removes the latest value of every key, that got a value since the last drain
+	 * @param target the values are added to it
+	 * @return number of values added
+	 */
+	public int drainTo(Collection<? super V> target) {
+		int count = 0;
+		for (AtomicReference<V> slot : slots.values()) {
+			V value = slot.getAndSet(null);
+			if (value != null) {
+				target.add(value);
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * @return number of values posted
+	 */
+	public long getPosted() {
+		return posted.get();
+	}
+
+	/**
+	 * @return number of values that were replaced before they were drained
+	 */
+	public long getCoalesced() {
+		return coalesced.get();
+	}
+
+	@Override
+	public String toString() {
+		return "LatestValueMailbox [keys=" + slots.size() + ", posted=" + posted + ", coalesced=" + coalesced + "]";
+	}
+}
@@ -0,0 +1,77 @@
+package mzs.util;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import mzs.data.PlayerLease;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import client.data.game.Game;
+import client.data.player.Player;
+
+/**
+ * renews the lease of the player while the player is in a multiplayer game (see {@link PlayerLease}).
+ *
+ * the lease is written every RENEW_MILLIS without blocking (see {@link AsyncSpace}). when the
+ * player leaves the game, the lease is removed. if the client dies, the lease is not renewed
+ * anymore and the server removes the player from the game.
+ *
+ * @author Jakob Lahmer, Matthias Steinboeck
+ */
+public class LeaseRenewer implements Runnable {
+
+	private static Logger log = LoggerFactory.getLogger(LeaseRenewer.class);
+
+	private ScheduledExecutorService timer;
+	private volatile PlayerLease lease;
+
+	/**
+	 * starts renewing the lease of the player in the game, a previous lease is replaced
+	 * @param player
+	 * @param game
+	 */
+	public synchronized void start(Player player, Game game) {
+		lease = new PlayerLease(player.getId(), game.getId());
+		if (timer == null) {
+			timer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "LeaseRenewer");
+					t.setDaemon(true);
+					return t;
+				}
+			});
+			timer.scheduleAtFixedRate(this, 0, PlayerLease.RENEW_MILLIS, TimeUnit.MILLISECONDS);
+		} else {
+			run();
+		}
+	}
+
+	/**
+	 * stops renewing and removes the lease
+	 */
+	public synchronized void stop() {
+		if (timer != null) {
+			timer.shutdownNow();
+			timer = null;
+		}
+		if (lease != null) {
+			Util.getInstance().getAsync().delete(ContainerCoordinatorMapper.PLAYER_LEASE, String.valueOf(lease.getPlayerId()), null);
+			lease = null;
+		}
+	}
+
+	@Override
+	public void run() {
+		PlayerLease current = lease;
+		if (current == null) {
+			return;
+		}
+		log.debug("renewing " + current);
+		Util.getInstance().getAsync().upsert(ContainerCoordinatorMapper.PLAYER_LEASE, current, String.valueOf(current.getPlayerId()), null);
+	}
+}
@@ -0,0 +1,150 @@
+package mzs.util;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.mozartspaces.capi3.ComparableProperty;
+import org.mozartspaces.capi3.CoordinationData;
+import org.mozartspaces.capi3.CountNotMetException;
+import org.mozartspaces.capi3.KeyCoordinator;
+import org.mozartspaces.capi3.Matchmaker;
+import org.mozartspaces.capi3.Matchmakers;
+import org.mozartspaces.capi3.Property;
+import org.mozartspaces.capi3.Query;
+import org.mozartspaces.capi3.QueryCoordinator;
+import org.mozartspaces.capi3.Selector;
+import org.mozartspaces.core.ContainerReference;
+import org.mozartspaces.core.MzsConstants;
+import org.mozartspaces.core.MzsConstants.RequestTimeout;
+import org.mozartspaces.core.MzsCoreException;
+
+import mzs.data.GameSummary;
+
+import client.data.game.Game;
+import client.data.state.GameState;
+
+/**
+ * the queries of the multiplayer menu. they are evaluated by the coordinators of the containers,
+ * so only the games the menu needs are read, not the whole list.
+ *
+ * 	- a game by its name, using the name index of the game list (a KeyCoordinator, the names are unique)
+ * 	- summaries of the joinable games (open and not full) sorted by name, one page at a time.
+ * 	  the cursor of a page is the name of the last game of the previous page
+ *
+ * @author Jakob Lahmer, Matthias Steinboeck
+ */
+public class LobbyQuery {
+
+	// number of games read at once
+	public static final int PAGE_SIZE = 50;
+
+	/**
+	 * the coordination data a game is written with besides its id
+	 * @param game
+	 * @return the name index
+	 */
+	public static CoordinationData[] indexes(Game game) {
+		return new CoordinationData[] {
+			KeyCoordinator.newCoordinationData(game.getName(), ContainerCoordinatorMapper.GAME_NAME_INDEX)
+		};
+	}
+
+	/**
+	 * @param game
+	 * @return true if a player can join the game
+	 */
+	public static boolean isJoinable(Game game) {
+		return (game.getPlayerCount() < Game.MAXPLAYERS) && (game.getState() == GameState.OPENEND);
+	}
+
+	/**
+	 * @param summary
+	 * @return true if a player can join the game
+	 */
+	public static boolean isJoinable(GameSummary summary) {
+		return (summary.getPlayerCount() < summary.getMaxPlayers()) && (summary.getState() == GameState.OPENEND);
+	}
+
+	/**
+	 * @param name
+	 * @return selector of the game with the name
+	 */
+	public static Selector byName(String name) {
+		return KeyCoordinator.newSelector(name, 1, ContainerCoordinatorMapper.GAME_NAME_INDEX);
+	}
+
+	/**
+	 * @param cursor name of the last game of the previous page, null for the first page
+	 * @param pageSize number of games, 0 for all. the query selects exactly this number of games
+	 * 		(it fails if there are less, see {@link #readJoinable(String, int)})
+	 * @return selector of the summaries of the next joinable games sorted by name
+	 */
+	public static Selector joinable(String cursor, int pageSize) {
+		Matchmaker open = Matchmakers.and(
+				Property.forName("state").equalTo(GameState.OPENEND),
+				ComparableProperty.forName("playerCount").lessThan(Game.MAXPLAYERS));
+		if (cursor != null) {
+			open = Matchmakers.and(open, ComparableProperty.forName("name").greaterThan(cursor));
+		}
+		Query query = new Query()
+				.filter(open)
+				.sortup(ComparableProperty.forName("name"));
+		if (pageSize > 0) {
+			query = query.cnt(pageSize);
+		}
+		return QueryCoordinator.newSelector(query, MzsConstants.Selecting.COUNT_MAX);
+	}
+
+	/**
+	 * reads a game by its name (blocking)
+	 * @param name
+	 * @return the game or null if there is no game with this name
+	 * @throws MzsCoreException
+	 */
+	public static Game readByName(String name) throws MzsCoreException {
+		List<Game> games = read(ContainerCoordinatorMapper.GAME_LIST, byName(name), Game.class);
+		return games.isEmpty() ? null : games.get(0);
+	}
+
+	/**
+	 * reads the summaries of a page of joinable games (blocking)
+	 * @param cursor name of the last game of the previous page, null for the first page
+	 * @param pageSize
+	 * @return the summaries sorted by name, a page with less than pageSize games is the last one
+	 * @throws MzsCoreException
+	 */
+	public static List<GameSummary> readJoinable(String cursor, int pageSize) throws MzsCoreException {
+		List<GameSummary> page = read(ContainerCoordinatorMapper.GAME_SUMMARY, joinable(cursor, pageSize), GameSummary.class);
+		if (page.isEmpty()) {
+			// less than pageSize games left (the count of the query is not met), read the rest
+			page = read(ContainerCoordinatorMapper.GAME_SUMMARY, joinable(cursor, 0), GameSummary.class);
+		}
+		return page;
+	}
+
+	private static <T> List<T> read(String containerName, Selector selector, Class<T> type) throws MzsCoreException {
+		ContainerReference container = Util.getInstance().getContainer(containerName);
+		if (container == null) {
+			throw new MzsCoreException(containerName + " not available");
+		}
+		List<T> games = new ArrayList<T>();
+		ArrayList<Serializable> entries;
+		try {
+			entries = Util.getInstance().getConnection().read(container, selector, RequestTimeout.TRY_ONCE, null);
+		} catch (CountNotMetException e) {
+			return games;
+		} catch (MzsCoreException e) {
+			Util.getInstance().invalidateContainer(container, e);
+			throw e;
+		} catch (Exception e) {
+			throw new MzsCoreException(e);
+		}
+		for (Serializable entry : entries) {
+			if (type.isInstance(entry)) {
+				games.add(type.cast(entry));
+			}
+		}
+		return games;
+	}
+}
@@ -0,0 +1,138 @@
+package mzs.util;
+
+import java.io.Serializable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.mozartspaces.core.ContainerReference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import util.PerformanceStats;
+
+/**
+ * writes snake positions or inputs to a (game) container without blocking the game loop.
+ *
+ * the game loop hands the latest position of a snake to {@link #publish(String, Serializable)},
+ * which only stores it in a slot per key (latest value wins) and returns. a background
+ * sender drains the slots and writes the values to the space. if the space is slower than
+ * the game loop, positions that were not sent yet are replaced by newer ones (coalesced)
+ * instead of being queued.
+ *
+ * the published values must not be changed after publishing, so pass a copy
+ * (eg {@link mzs.data.SnakeDataHolder#copy()}).
+ *
+ * @author Jakob Lahmer, Matthias Steinboeck
+ */
+public class PositionPublisher implements Runnable {
+
+	private static Logger log = LoggerFactory.getLogger(PositionPublisher.class);
+
+	private final ContainerReference container;
+
+	// one slot per key, holds the latest value that was not sent yet (or null)
+	private final ConcurrentHashMap<String, AtomicReference<Serializable>> slots = new ConcurrentHashMap<String, AtomicReference<Serializable>>();
+	// keys with a filled slot, every key is at most once in the queue
+	private final LinkedBlockingQueue<String> pending = new LinkedBlockingQueue<String>();
+
+	private final AtomicLong published = new AtomicLong();
+	private final AtomicLong coalesced = new AtomicLong();
+	private final AtomicLong failed = new AtomicLong();
+
+	private volatile boolean running = true;
+	private final Thread sender;
+
+	/**
+	 * creates the publisher and starts the sender thread
+	 * @param container the container the values are written to
+	 */
+	public PositionPublisher(ContainerReference container) {
+		this.container = container;
+		this.sender = new Thread(this, "PositionPublisher");
+		this.sender.setDaemon(true);
+		this.sender.start();
+	}
+
+	/**
+	 * stores the value as latest value of the key, never blocks
+	 * @param key key of the value in the container (snake id)
+	 * @param value the value
+	 */
+	public void publish(String key, Serializable value) {
+		AtomicReference<Serializable> slot = slots.get(key);
+		if (slot == null) {
+			AtomicReference<Serializable> newSlot = new AtomicReference<Serializable>();
+			slot = slots.putIfAbsent(key, newSlot);
+			if (slot == null) {
+				slot = newSlot;
+			}
+		}
+		if (slot.getAndSet(value) == null) {
+			pending.offer(key);
+		} else {
+			// previous value was not sent yet, it is dropped
+			coalesced.incrementAndGet();
+		}
+	}
+
+	@Override
+	public void run() {
+		while (running) {
+			String key;
+			try {
+				key = pending.take();
+			} catch (InterruptedException e) {
+				continue;
+			}
+			Serializable value = slots.get(key).getAndSet(null);
+			if (value == null) {
+				continue;
+			}
+			long start = System.nanoTime();
+			boolean written = Util.getInstance().upsert(container, value, key);
+			PerformanceStats.getInstance().recordWrite(System.nanoTime() - start);
+			if (written) {
+				published.incrementAndGet();
+			} else {
+				failed.incrementAndGet();
+			}
+		}
+		log.debug("publisher stopped: " + this);
+	}
+
+	/**
+	 * stops the sender thread, values that were not sent yet are dropped
+	 */
+	public void shutdown() {
+		running = false;
+		sender.interrupt();
+	}
+
+	/**
+	 * @return number of values written to the space
+	 */
+	public long getPublished() {
+		return published.get();
+	}
+
+	/**
+	 * @return number of values that were replaced by a newer value before they were sent
+	 */
+	public long getCoalesced() {
+		return coalesced.get();
+	}
+
+	/**
+	 * @return number of values that could not be written
+	 */
+	public long getFailed() {
+		return failed.get();
+	}
+
+	@Override
+	public String toString() {
+		return "PositionPublisher [published=" + published + ", coalesced=" + coalesced + ", failed=" + failed + "]";
+	}
+}
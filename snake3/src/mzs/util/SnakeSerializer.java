@@ -0,0 +1,280 @@
+package mzs.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutput;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamException;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.mozartspaces.capi3.CoordinationData;
+import org.mozartspaces.capi3.KeyCoordinator;
+import org.mozartspaces.core.Entry;
+import org.mozartspaces.core.util.SerializationException;
+import org.mozartspaces.core.util.Serializer;
+
+import mzs.data.GameSummary;
+import mzs.data.PlayerLease;
+import mzs.data.SnakeDataHolder;
+import mzs.data.TurnInput;
+import mzs.data.WorldSnapshot;
+
+import client.data.SnakePart;
+import client.data.game.Game;
+import client.data.player.Player;
+
+/**
+ * Serializer for the snake space, configured in res/mzs/mozartspaces.xml and
+ * res/mzs/mozartspaces_player.xml (serializer mzs.util.SnakeSerializer).
+ *
+ * SnakeDataHolder, SnakePart, Game, Player, TurnInput, WorldSnapshot, GameSummary and PlayerLease are written with their hand written
+ * binary encoding (see {@link WireFormat}), prefixed by a type tag. an Entry is written
+ * the same way (its value and its coordination data), as long as its coordination data
+ * are key data only, which is all the snake space uses.
+ * every other object is written with java serialization. because these classes are
+ * Externalizable, they are written compactly as well, when they are part of a
+ * request that falls back to java serialization, and every Entry in such a request is
+ * replaced by a {@link CompactEntry} (eg the entries of a write request).
+ *
+ * @author Jakob Lahmer, Matthias Steinboeck
+ */
+public class SnakeSerializer implements Serializer {
+
+	private static final byte TAG_JAVA = 0;
+	private static final byte TAG_SNAKE_DATA_HOLDER = 1;
+	private static final byte TAG_SNAKE_PART = 2;
+	private static final byte TAG_GAME = 3;
+	private static final byte TAG_PLAYER = 4;
+	private static final byte TAG_TURN_INPUT = 5;
+	private static final byte TAG_WORLD_SNAPSHOT = 6;
+	private static final byte TAG_GAME_SUMMARY = 7;
+	private static final byte TAG_PLAYER_LEASE = 8;
+	private static final byte TAG_ENTRY = 9;
+
+	/**
+	 * public no-arg constructor, needed by mozartspaces
+	 */
+	public SnakeSerializer() { }
+
+	@Override
+	public <T> byte[] serialize(T object) throws SerializationException {
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+			DataOutputStream out = new DataOutputStream(bytes);
+			if (object instanceof SnakeDataHolder) {
+				out.writeByte(TAG_SNAKE_DATA_HOLDER);
+				((SnakeDataHolder) object).write(out);
+			} else if (object instanceof SnakePart) {
+				out.writeByte(TAG_SNAKE_PART);
+				WireFormat.writeVersion(out);
+				((SnakePart) object).write(out);
+			} else if (object instanceof Game) {
+				out.writeByte(TAG_GAME);
+				((Game) object).write(out);
+			} else if (object instanceof Player) {
+				out.writeByte(TAG_PLAYER);
+				((Player) object).write(out);
+			} else if (object instanceof TurnInput) {
+				out.writeByte(TAG_TURN_INPUT);
+				((TurnInput) object).write(out);
+			} else if (object instanceof WorldSnapshot) {
+				out.writeByte(TAG_WORLD_SNAPSHOT);
+				((WorldSnapshot) object).write(out);
+			} else if (object instanceof GameSummary) {
+				out.writeByte(TAG_GAME_SUMMARY);
+				((GameSummary) object).write(out);
+			} else if (object instanceof PlayerLease) {
+				out.writeByte(TAG_PLAYER_LEASE);
+				((PlayerLease) object).write(out);
+			} else if (object instanceof Entry && CompactEntry.isCompact((Entry) object)) {
+				Entry entry = (Entry) object;
+				out.writeByte(TAG_ENTRY);
+				WireFormat.writeVersion(out);
+				WireFormat.writeBytes(out, serialize(entry.getValue()));
+				CompactEntry.writeCoordinationData(out, entry.getCoordinationData());
+			} else {
+				out.writeByte(TAG_JAVA);
+				ObjectOutputStream objects = new EntryReplacingOutputStream(out);
+				objects.writeObject(object);
+				objects.flush();
+			}
+			out.flush();
+			return bytes.toByteArray();
+		} catch (IOException e) {
+			throw new SerializationException("could not serialize " + object, e);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public <T> T deserialize(byte[] serializedObject) throws SerializationException {
+		if (serializedObject == null || serializedObject.length == 0) {
+			throw new SerializationException("nothing to deserialize");
+		}
+		try {
+			DataInputStream in = new DataInputStream(
+					new ByteArrayInputStream(serializedObject, 1, serializedObject.length - 1));
+			switch (serializedObject[0]) {
+			case TAG_SNAKE_DATA_HOLDER:
+				SnakeDataHolder holder = new SnakeDataHolder();
+				holder.read(in);
+				return (T) holder;
+			case TAG_SNAKE_PART:
+				WireFormat.readVersion(in, "SnakePart");
+				SnakePart part = new SnakePart();
+				part.read(in);
+				return (T) part;
+			case TAG_GAME:
+				Game game = new Game();
+				game.read(in);
+				return (T) game;
+			case TAG_PLAYER:
+				Player player = new Player();
+				player.read(in);
+				return (T) player;
+			case TAG_TURN_INPUT:
+				TurnInput input = new TurnInput();
+				input.read(in);
+				return (T) input;
+			case TAG_WORLD_SNAPSHOT:
+				WorldSnapshot snapshot = new WorldSnapshot();
+				snapshot.read(in);
+				return (T) snapshot;
+			case TAG_GAME_SUMMARY:
+				GameSummary summary = new GameSummary();
+				summary.read(in);
+				return (T) summary;
+			case TAG_PLAYER_LEASE:
+				PlayerLease lease = new PlayerLease();
+				lease.read(in);
+				return (T) lease;
+			case TAG_ENTRY:
+				WireFormat.readVersion(in, "Entry");
+				Serializable value = deserialize(WireFormat.readBytes(in));
+				return (T) new Entry(value, CompactEntry.readCoordinationData(in));
+			case TAG_JAVA:
+				return (T) new ObjectInputStream(in).readObject();
+			default:
+				throw new SerializationException("unknown type tag " + serializedObject[0]);
+			}
+		} catch (IOException e) {
+			throw new SerializationException("could not deserialize", e);
+		} catch (ClassNotFoundException e) {
+			throw new SerializationException("could not deserialize", e);
+		}
+	}
+
+	@Override
+	public <T> T copyObject(T object) throws SerializationException {
+		return this.<T>deserialize(serialize(object));
+	}
+
+	/**
+	 * java serialization that writes every Entry with key data only as a {@link CompactEntry}
+	 */
+	private static class EntryReplacingOutputStream extends ObjectOutputStream {
+
+		EntryReplacingOutputStream(OutputStream out) throws IOException {
+			super(out);
+			enableReplaceObject(true);
+		}
+
+		@Override
+		protected Object replaceObject(Object obj) throws IOException {
+			if (obj instanceof Entry && CompactEntry.isCompact((Entry) obj)) {
+				return new CompactEntry((Entry) obj);
+			}
+			return obj;
+		}
+	}
+
+	/**
+	 * stands in for an Entry in java serialization: the value is written as an object (so
+	 * the snake data use their own encoding), the key data as strings instead of the
+	 * descriptors of Entry, its set and KeyData. reads back as the Entry.
+	 */
+	static final class CompactEntry implements Externalizable {
+
+		private static final long serialVersionUID = 1L;
+
+		private Entry entry;
+
+		/**
+		 * public no-arg constructor, needed by Externalizable
+		 */
+		public CompactEntry() { }
+
+		CompactEntry(Entry entry) {
+			this.entry = entry;
+		}
+
+		/**
+		 * @param entry
+		 * @return true if all coordination data of the entry are key data
+		 */
+		static boolean isCompact(Entry entry) {
+			Set<CoordinationData> coordinationData = entry.getCoordinationData();
+			if (coordinationData.size() > Byte.MAX_VALUE) {
+				return false;
+			}
+			for (CoordinationData data : coordinationData) {
+				if (!(data instanceof KeyCoordinator.KeyData)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		static void writeCoordinationData(DataOutput out, Set<CoordinationData> coordinationData) throws IOException {
+			out.writeByte(coordinationData.size());
+			for (CoordinationData data : coordinationData) {
+				KeyCoordinator.KeyData key = (KeyCoordinator.KeyData) data;
+				WireFormat.writeString(out, key.getKey());
+				WireFormat.writeString(out, key.getName());
+			}
+		}
+
+		static List<CoordinationData> readCoordinationData(DataInput in) throws IOException {
+			int size = in.readByte();
+			List<CoordinationData> coordinationData = new ArrayList<CoordinationData>(size);
+			for (int i = 0; i < size; i++) {
+				String key = WireFormat.readString(in);
+				String name = WireFormat.readString(in);
+				coordinationData.add((name == null)
+						? KeyCoordinator.newCoordinationData(key)
+						: KeyCoordinator.newCoordinationData(key, name));
+			}
+			return coordinationData;
+		}
+
+		@Override
+		public void writeExternal(ObjectOutput out) throws IOException {
+			WireFormat.writeVersion(out);
+			out.writeObject(entry.getValue());
+			writeCoordinationData(out, entry.getCoordinationData());
+		}
+
+		@Override
+		public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+			WireFormat.readVersion(in, "Entry");
+			Serializable value = (Serializable) in.readObject();
+			entry = new Entry(value, readCoordinationData(in));
+		}
+
+		private Object readResolve() throws ObjectStreamException {
+			return entry;
+		}
+	}
+}
@@ -3,7 +3,9 @@ package mzs.util;
 import java.io.Serializable;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.List;
 
+import org.mozartspaces.capi3.CoordinationData;
 import org.mozartspaces.capi3.Coordinator;
 import org.mozartspaces.capi3.CountNotMetException;
 import org.mozartspaces.capi3.FifoCoordinator;
@@ -22,10 +24,13 @@ import org.mozartspaces.core.MzsCoreException;
 import org.mozartspaces.core.TransactionReference;
 import org.mozartspaces.core.MzsConstants.Container;
 import org.mozartspaces.core.MzsConstants.RequestTimeout;
+import org.mozartspaces.core.aspects.ContainerIPoint;
 import org.mozartspaces.notifications.NotificationManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import server.ReplaceAspect;
+
 import client.data.game.Game;
 
 import util.Settings;
@@ -37,6 +42,9 @@ import util.Settings;
  */
 public class Util
 {
+	// ms an upsert waits for the lock of the entry it replaces (see server.ReplaceAspect)
+	public static final long UPSERT_TIMEOUT = 1000;
+
 	private static Util instance;
 	private static boolean server;
 	private final String spaceName = "snakeSpace"; //starting point name in the space
@@ -44,6 +52,8 @@ public class Util
 	private MzsCore core;
 	private Settings settings;
 	private NotificationManager notificationManager;
+	private ContainerRegistry registry = new ContainerRegistry();
+	private AsyncSpace async;
 
 	private Logger log = LoggerFactory.getLogger(Util.class);
 	private URI space;
@@ -118,6 +128,16 @@ public class Util
 		}
 	}
 
+	/**
+	 * returns the non-blocking access to the space, use it from the gui
+	 * @return AsyncSpace
+	 */
+	public synchronized AsyncSpace getAsync() {
+		if (async == null) {
+			async = new AsyncSpace(core);
+		}
+		return async;
+	}
 	
 	public URI getSpaceUri() {
 		return space;
@@ -133,14 +153,20 @@ public class Util
 	 * @return ContainerReference or null
 	 */
 	public ContainerReference getContainer(String containerName) {
+		ContainerReference container = registry.get(containerName);
+		if (container != null) {
+			return container;
+		}
     	log.debug("getting container "+containerName+" "+ this.getSpaceUri());
 		try {
-			return CapiUtil.lookupOrCreateContainer(
+			container = CapiUtil.lookupOrCreateContainer(
 					containerName,
 					this.getSpaceUri(),
 					ContainerCoordinatorMapper.getCoordinators(containerName),
 					null,
 					getConnection());
+			registry.put(containerName, container);
+			return container;
 		} catch (MzsCoreException e) {
 			
 			e.printStackTrace();
@@ -154,20 +180,66 @@ public class Util
 		return null;
 	}
 	
+	/**
+	 * @param containerName
+	 * @return the cached ContainerReference or null, if the container was not resolved yet
+	 */
+	public ContainerReference getCachedContainer(String containerName) {
+		return registry.get(containerName);
+	}
+	
+	/**
+	 * resolves the well known containers (see {@link ContainerCoordinatorMapper#getContainerNames()}),
+	 * so the first operations on them do not need an extra lookup
+	 */
+	public void prewarmContainers() {
+		for (String containerName : ContainerCoordinatorMapper.getContainerNames()) {
+			getContainer(containerName);
+		}
+		log.debug(registry.size() + " containers cached");
+	}
+	
+	/**
+	 * removes a container from the cache, if the exception says that the space does
+	 * not know the container (anymore)
+	 * @param container
+	 * @param e
+	 */
+	public void invalidateContainer(ContainerReference container, Throwable e) {
+		if (registry.invalidateIfUnknown(container, e)) {
+			log.info("container " + container + " is unknown to the space, removed from cache");
+		}
+	}
+	
+	/**
+	 * returns the name of the container of a certain game
+	 * @param game
+	 * @return
+	 */
+	public String getGameContainerName(Game game) {
+		return ContainerCoordinatorMapper.GAME + "-" + game.getId();
+	}
+	
 	/**
 	 * creates/returns a container for a certain game. in every game-container, the players and their current position is held 
 	 * @param game
 	 * @return
 	 */
 	public ContainerReference getGameContainer(Game game) {
-		String containerName = "game-"+game.getId();
+		ContainerReference container = registry.getGame(game.getId());
+		if (container != null) {
+			return container;
+		}
+		String containerName = getGameContainerName(game);
 		try {
-			return CapiUtil.lookupOrCreateContainer(
+			container = CapiUtil.lookupOrCreateContainer(
 					containerName,
 					this.getSpaceUri(),
 					ContainerCoordinatorMapper.getCoordinators(ContainerCoordinatorMapper.GAME),
 					null,
 					getConnection());
+			registry.putGame(game.getId(), container);
+			return container;
 		} catch (MzsCoreException e) {
 			
 			e.printStackTrace();
@@ -181,6 +253,141 @@ public class Util
 		return null;
 	}
 	
+	/**
+	 * returns the name of the input container of a certain game
+	 * @param game
+	 * @return
+	 */
+	public String getInputContainerName(Game game) {
+		return ContainerCoordinatorMapper.INPUT + "-" + game.getId();
+	}
+	
+	/**
+	 * creates/returns the container for the turn inputs of the players of a game (see {@link mzs.data.TurnInput})
+	 * @param game
+	 * @return ContainerReference or null
+	 */
+	public ContainerReference getInputContainer(Game game) {
+		String containerName = getInputContainerName(game);
+		ContainerReference container = registry.get(containerName);
+		if (container != null) {
+			return container;
+		}
+		try {
+			container = CapiUtil.lookupOrCreateContainer(
+					containerName,
+					this.getSpaceUri(),
+					ContainerCoordinatorMapper.getCoordinators(ContainerCoordinatorMapper.INPUT),
+					null,
+					getConnection());
+			registry.put(containerName, container);
+			return container;
+		} catch (MzsCoreException e) {
+			
+			e.printStackTrace();
+			System.err.println("Util: Could not load Container (" + containerName + "): " + e.getMessage());
+			
+		} catch (Exception e) {
+			e.printStackTrace();
+			System.err.println("Util: Could not connect to XVSM: " + e.getMessage());
+		}
+		return null;
+	}
+	
+	/**
+	 * creates a fresh container (and input container) for a game that is started
+	 * (old positions of a previous container with the same name are dropped).
+	 * called by the client that starts the game, so it installs the ReplaceAspect of the
+	 * containers as well, before any player writes to them
+	 * @param game
+	 * @return ContainerReference or null
+	 */
+	public ContainerReference createGameContainer(Game game) {
+		registry.evictGame(game.getId());
+		try {
+			ContainerReference inputContainer = forceCreateContainer(
+					getInputContainerName(game),
+					ContainerCoordinatorMapper.getCoordinators(ContainerCoordinatorMapper.INPUT));
+			registry.put(getInputContainerName(game), inputContainer);
+			if (ContainerCoordinatorMapper.isReplacedByKey(ContainerCoordinatorMapper.INPUT)) {
+				addReplaceAspect(inputContainer);
+			}
+			ContainerReference container = forceCreateContainer(
+					getGameContainerName(game),
+					ContainerCoordinatorMapper.getCoordinators(ContainerCoordinatorMapper.GAME));
+			registry.putGame(game.getId(), container);
+			if (ContainerCoordinatorMapper.isReplacedByKey(ContainerCoordinatorMapper.GAME)) {
+				addReplaceAspect(container);
+			}
+			return container;
+		} catch (MzsCoreException e) {
+			log.error("Could not create container for game "+game.getId());
+			e.printStackTrace();
+		}
+		return null;
+	}
+	
+	/**
+	 * installs the ReplaceAspect on a container, so a keyed write replaces the entry with
+	 * the same key (see {@link #upsert(ContainerReference, Serializable, String, CoordinationData...)}).
+	 * the container is not checked, the callers only pass containers listed in
+	 * {@link ContainerCoordinatorMapper#isReplacedByKey(String)}: the server for the well known
+	 * containers (server.Server#initAspects), the client that starts a game for the containers
+	 * of the game ({@link #createGameContainer(Game)}).
+	 * @param container
+	 * @return true if the aspect was installed
+	 */
+	public boolean addReplaceAspect(ContainerReference container) {
+		if (container == null) {
+			return false;
+		}
+		try {
+			getConnection().addContainerAspect(new ReplaceAspect(), container, ContainerIPoint.PRE_WRITE);
+			return true;
+		} catch (MzsCoreException e) {
+			log.error("Could not install the replace aspect on container " + container + ": " + e.getMessage());
+		} catch (Exception e) {
+			log.error("Could not install the replace aspect on container " + container + " (java exception)");
+			e.printStackTrace();
+		}
+		return false;
+	}
+
+	/**
+	 * destroys the container and the input container of a game, called when the last player left the game
+	 * @param game
+	 */
+	public void destroyGameContainer(Game game) {
+		ContainerReference container = registry.getGame(game.getId());
+		registry.evictGame(game.getId());
+		destroyContainer(getGameContainerName(game), container);
+		
+		container = registry.get(getInputContainerName(game));
+		registry.invalidate(container);
+		destroyContainer(getInputContainerName(game), container);
+	}
+	
+	/**
+	 * destroys a container
+	 * @param containerName
+	 * @param container the reference of the container, looked up if null
+	 */
+	private void destroyContainer(String containerName, ContainerReference container) {
+		try {
+			if (container == null) {
+				container = getConnection().lookupContainer(containerName, this.getSpaceUri(), RequestTimeout.TRY_ONCE, null);
+			}
+			getConnection().destroyContainer(container, null);
+			log.debug("Container " + containerName + " destroyed");
+		} catch (MzsCoreException e) {
+			// container was never created (game did not start)
+			log.debug("Container " + containerName + " not destroyed: " + e.getMessage());
+		} catch (Exception e) {
+			log.error("Could not destroy container " + containerName + " (java exception)");
+			e.printStackTrace();
+		}
+	}
+	
 	
 	public NotificationManager getNotificationManager() {
 		if (notificationManager == null) {
@@ -224,6 +431,10 @@ public class Util
 
     
     public ContainerReference forceCreateContainer(String containerName) throws MzsCoreException	{
+    	return forceCreateContainer(containerName, ContainerCoordinatorMapper.getCoordinators(containerName));
+    }
+    
+    public ContainerReference forceCreateContainer(String containerName, List<Coordinator> coordinators) throws MzsCoreException	{
     	System.out.println("force-creating container "+containerName+" "+ this.getSpaceUri()); //settings.getUri(server));
         ContainerReference cref = null;
     	
@@ -239,7 +450,7 @@ public class Util
 						containerName, 
 						this.getSpaceUri(),
 						Container.UNBOUNDED, 
-						ContainerCoordinatorMapper.getCoordinators(containerName),
+						coordinators,
 						null,
 						null);
 			} catch (Exception e) {
@@ -247,6 +458,10 @@ public class Util
 				e.printStackTrace();
 			}
 	        System.out.println("Container " + containerName + " created");
+    	}
+    	// well known containers are cached by name, game containers by game id (see createGameContainer)
+    	if (ContainerCoordinatorMapper.getCoordinators(containerName) != null) {
+    		registry.put(containerName, cref);
     	}
 		return cref;
     }
@@ -336,6 +551,7 @@ public class Util
 		try {
 			conn.delete(container, selectors, MzsConstants.RequestTimeout.ZERO, tx);
 		} catch (MzsCoreException e) {
+			invalidateContainer(container, e);
 			// TODO Auto-generated catch block
 			log.error("Could not delete from container "+container.getId()+" (mzexception)");
 			e.printStackTrace();
@@ -346,6 +562,67 @@ public class Util
 		}
 	}
 	
+	/**
+	 * writes an object with the given key to the container, an existing object with the same
+	 * key is replaced by the ReplaceAspect of the container (see {@link #addReplaceAspect(ContainerReference)}). so unlike update
+	 * this is a single write without a transaction.
+	 * if the entry with the same key is locked by a transaction, the write waits until the
+	 * transaction is committed, at most UPSERT_TIMEOUT ms, and fails then (mozartspaces does
+	 * not retry the write when the transaction is rolled back, so it fails after the timeout).
+	 *
+	 * @param containerName the containers name found in the {@link ContainerCoordinatorMapper}
+	 * @param data the data that should be written
+	 * @param key a key identifying the object in the container
+	 * @return true if the object was written
+	 */
+	public boolean upsert(String containerName, Serializable data, String key) {
+		return upsert(getContainer(containerName), data, key);
+	}
+
+	/**
+	 * @see Util.upsert only with a container reference
+	 *
+	 * @param container the container, eg a game container (see {@link #getGameContainer(Game)})
+	 * @param data the data that should be written
+	 * @param key a key identifying the object in the container
+	 * @param indexes further coordination data, eg the name index of a game (see {@link LobbyQuery#indexes(Game)})
+	 * @return true if the object was written
+	 */
+	public boolean upsert(ContainerReference container, Serializable data, String key, CoordinationData... indexes) {
+		try {
+			getConnection().write(
+					container,
+					UPSERT_TIMEOUT,
+					null,
+					newKeyedEntry(data, key, indexes)
+			);
+			return true;
+		} catch (MzsCoreException e) {
+			invalidateContainer(container, e);
+			log.error("Could not write to container "+container+" (mzexception): "+e.getMessage());
+		} catch (Exception e) {
+			log.error("Could not write to container "+container+" (java exception)");
+			e.printStackTrace();
+		}
+		return false;
+	}
+
+	/**
+	 * creates an entry identified by the key (see server.ReplaceAspect)
+	 * @param data
+	 * @param key
+	 * @param indexes further coordination data
+	 * @return the entry
+	 */
+	public static Entry newKeyedEntry(Serializable data, String key, CoordinationData... indexes) {
+		List<CoordinationData> coordinationData = new ArrayList<CoordinationData>(indexes.length + 1);
+		coordinationData.add(KeyCoordinator.newCoordinationData(key));
+		for (CoordinationData index : indexes) {
+			coordinationData.add(index);
+		}
+		return new Entry(data, coordinationData);
+	}
+
 	/**
 	 * updates an object in the given container using a key coordinator
 	 *
@@ -355,7 +632,23 @@ public class Util
 	 */
 	public void update(String containerName, Serializable data, String key) {
 		update(
-			containerName,
+			getContainer(containerName),
+			data,
+			key
+		);
+	}
+
+	/**
+	 * updates an object in the given container using a key coordinator
+	 *
+	 * @param container the container, eg a game container (see {@link #getGameContainer(Game)})
+	 * @param data the data that should be updated
+	 * @param key a key identifying the object in the container
+	 * @return true if the object was written
+	 */
+	public boolean update(ContainerReference container, Serializable data, String key) {
+		return update(
+			container,
 			data,
 			KeyCoordinator.newSelector(key),
 			KeyCoordinator.newCoordinationData(key)
@@ -373,7 +666,19 @@ public class Util
 	 * @param key keydata used to write
 	 */
 	public void update(String containerName, Serializable data, KeySelector selector, KeyData key) {
-		ContainerReference container = getContainer(containerName);
+		update(getContainer(containerName), data, selector, key);
+	}
+
+	/**
+	 * @see Util.update only with a container reference
+	 *
+	 * @param container the container
+	 * @param data the data that should be updated
+	 * @param selector selector used for take
+	 * @param key keydata used to write
+	 * @return true if the transaction was committed
+	 */
+	public boolean update(ContainerReference container, Serializable data, KeySelector selector, KeyData key) {
 		TransactionReference tx = createTransaction();
 		try {
 			ArrayList<Selector> selectors = new ArrayList<Selector>();
@@ -398,7 +703,9 @@ public class Util
 			);
 
 			Util.getInstance().getConnection().commitTransaction(tx);
+			return true;
 		} catch (MzsCoreException e) {
+			invalidateContainer(container, e);
 			// TODO Auto-generated catch block
 			e.printStackTrace();
 			try {
@@ -423,6 +730,7 @@ public class Util
 				e1.printStackTrace();
 			}
 		}
+		return false;
 	}
 
 }
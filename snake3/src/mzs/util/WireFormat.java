@@ -0,0 +1,100 @@
+package mzs.util;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.UUID;
+
+/**
+ * helper methods for the hand written binary encodings of the data that is
+ * shared over the space (see {@link SnakeSerializer}).
+ *
+ * every encoded object starts with a version byte, so the format can be changed
+ * later without breaking clients that still run an older version.
+ *
+ * @author Jakob Lahmer, Matthias Steinboeck
+ */
+public class WireFormat {
+
+	// current version of all encodings
+	// 2: SnakeDataHolder carries the tick and the alive flag of the server
+	// 3: WorldSnapshot carries the time it was taken
+	public static final byte VERSION = 3;
+
+	private WireFormat() { }
+
+	/**
+	 * writes the version byte of an encoding
+	 * @param out
+	 * @throws IOException
+	 */
+	public static void writeVersion(DataOutput out) throws IOException {
+		out.writeByte(VERSION);
+	}
+
+	/**
+	 * reads the version byte of an encoding and checks if it is supported
+	 * @param in
+	 * @param type name of the encoded type (used in the error message)
+	 * @return the version read
+	 * @throws IOException if the version is unknown
+	 */
+	public static byte readVersion(DataInput in, String type) throws IOException {
+		byte version = in.readByte();
+		if (version < 1 || version > VERSION) {
+			throw new IOException("unsupported wire version " + version + " for " + type);
+		}
+		return version;
+	}
+
+	public static void writeUUID(DataOutput out, UUID id) throws IOException {
+		out.writeLong(id.getMostSignificantBits());
+		out.writeLong(id.getLeastSignificantBits());
+	}
+
+	public static UUID readUUID(DataInput in) throws IOException {
+		return new UUID(in.readLong(), in.readLong());
+	}
+
+	/**
+	 * writes a string that may be null
+	 * @param out
+	 * @param s
+	 * @throws IOException
+	 */
+	public static void writeString(DataOutput out, String s) throws IOException {
+		out.writeBoolean(s != null);
+		if (s != null) {
+			out.writeUTF(s);
+		}
+	}
+
+	public static String readString(DataInput in) throws IOException {
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+
+	/**
+	 * writes a byte array that may be null (length -1)
+	 * @param out
+	 * @param b
+	 * @throws IOException
+	 */
+	public static void writeBytes(DataOutput out, byte[] b) throws IOException {
+		if (b == null) {
+			out.writeInt(-1);
+		} else {
+			out.writeInt(b.length);
+			out.write(b);
+		}
+	}
+
+	public static byte[] readBytes(DataInput in) throws IOException {
+		int length = in.readInt();
+		if (length < 0) {
+			return null;
+		}
+		byte[] b = new byte[length];
+		in.readFully(b);
+		return b;
+	}
+}
@@ -0,0 +1,16 @@
+/**
+ * 
+ */
+package mzs.util.i;
+
+/**
+ * receives the result of an asynchronous space operation (see {@link mzs.util.AsyncSpace}).
+ * the methods are always called on the swing event dispatch thread.
+ * 
+ * @author Jakob Lahmer, Matthias Steinboeck
+ *
+ */
+public interface SpaceCallback<T> {
+	public void done(T result);
+	public void failed(Throwable cause);
+}
@@ -0,0 +1,371 @@
+package server;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import mzs.data.PlayerLease;
+import mzs.util.ContainerCoordinatorMapper;
+import mzs.util.LobbyQuery;
+import mzs.util.Util;
+
+import org.mozartspaces.capi3.CountNotMetException;
+import org.mozartspaces.capi3.KeyCoordinator;
+import org.mozartspaces.core.Capi;
+import org.mozartspaces.core.ContainerReference;
+import org.mozartspaces.core.Entry;
+import org.mozartspaces.core.MzsConstants.RequestTimeout;
+import org.mozartspaces.core.MzsCoreException;
+import org.mozartspaces.core.TransactionReference;
+import org.mozartspaces.notifications.Notification;
+import org.mozartspaces.notifications.NotificationListener;
+import org.mozartspaces.notifications.Operation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import client.data.game.Game;
+import client.data.player.Player;
+import client.data.state.GameState;
+
+/**
+ * removes the players of dead clients from their games.
+ *
+ * the clients renew the lease of their player while they are in a game (see {@link PlayerLease}).
+ * the reaper remembers the time (of the server clock) every player was seen last: when a game
+ * with the player was written or a lease of the player. a player that was not seen for
+ * LEASE_MILLIS is removed from the game, and a new leader is chosen if needed. a game without
+ * players is removed from the game list and its containers are destroyed. the game is read
+ * from the game list and written back (or deleted) in one transaction, the read locks the
+ * game, so a client that changes the game at the same time waits for the reaper and its
+ * change is not lost. mozartspaces does not always deliver the notifications of a committed
+ * transaction (the entries are read with the transaction, that may be gone already), so the
+ * reaper passes its changes to the game list listener itself.
+ *
+ * the numbers of reaped players, games and destroyed containers and an estimate of the number
+ * of containers are logged whenever something is reaped and every METRICS_MILLIS.
+ *
+ * @author Jakob Lahmer, Matthias Steinboeck
+ */
+public class Reaper implements Runnable, NotificationListener {
+
+	private static Logger log = LoggerFactory.getLogger(Reaper.class);
+
+	// time between two checks of the leases
+	public static final long REAP_MILLIS = 2000;
+	// time between two logs of the metrics, if nothing was reaped
+	public static final long METRICS_MILLIS = 60000;
+	// containers of a started game (game and input container, see Util.createGameContainer)
+	private static final int CONTAINERS_PER_GAME = 2;
+	// time the transaction that removes players from a game may take
+	private static final int TX_TIMEOUT_MILLIS = 5000;
+
+	private final Capi conn;
+	// gets the changes of the game list made by the reaper (the server)
+	private final NotificationListener gameListListener;
+
+	// latest version of every game of the game list
+	private final Map<UUID, Game> games = new ConcurrentHashMap<UUID, Game>();
+	// time every player of a game was seen last
+	private final Map<UUID, Long> lastSeen = new ConcurrentHashMap<UUID, Long>();
+
+	private ScheduledExecutorService timer;
+	private Notification leaseNotification;
+
+	private long reapedPlayers = 0;
+	private long reapedGames = 0;
+	private long destroyedContainers = 0;
+	private long lastMetrics = 0;
+
+	/**
+	 * @param conn connection to the space
+	 * @param gameListListener gets the games written to or deleted from the game list by the reaper
+	 */
+	public Reaper(Capi conn, NotificationListener gameListListener) {
+		this.conn = conn;
+		this.gameListListener = gameListListener;
+	}
+
+	/**
+	 * listens to the leases and starts checking them in the background
+	 */
+	public synchronized void start() {
+		if (timer != null) {
+			return;
+		}
+		try {
+			leaseNotification = Util.getInstance().getNotificationManager().createNotification(
+					Util.getInstance().getContainer(ContainerCoordinatorMapper.PLAYER_LEASE),
+					this,
+					Operation.WRITE);
+		} catch (MzsCoreException e) {
+			log.error("ERROR: could not create lease notification (mzsexception)");
+			e.printStackTrace();
+		} catch (InterruptedException e) {
+			log.error("ERROR: could not create lease notification (interrupted)");
+			e.printStackTrace();
+		}
+		timer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "Reaper");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		lastMetrics = System.currentTimeMillis();
+		timer.scheduleAtFixedRate(this, REAP_MILLIS, REAP_MILLIS, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * stops checking the leases
+	 */
+	public synchronized void stop() {
+		if (timer != null) {
+			timer.shutdownNow();
+			timer = null;
+		}
+		if (leaseNotification != null) {
+			try {
+				leaseNotification.destroy();
+			} catch (Exception e) {
+				log.error("could not destroy lease notification");
+			}
+			leaseNotification = null;
+		}
+	}
+
+	/**
+	 * a game was written to the game list. its new players get a full lease, so a client
+	 * that dies before its first renewal is reaped as well
+	 * @param game
+	 */
+	public void gameWritten(Game game) {
+		games.put(game.getId(), game);
+		long now = System.currentTimeMillis();
+		for (Player player : game.getPlayers()) {
+			if (!lastSeen.containsKey(player.getId())) {
+				lastSeen.put(player.getId(), now);
+			}
+		}
+	}
+
+	/**
+	 * a game was removed from the game list
+	 * @param game
+	 */
+	public void gameRemoved(Game game) {
+		games.remove(game.getId());
+		for (Player player : game.getPlayers()) {
+			lastSeen.remove(player.getId());
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.mozartspaces.notifications.NotificationListener#entryOperationFinished(org.mozartspaces.notifications.Notification, org.mozartspaces.notifications.Operation, java.util.List)
+	 */
+	@Override
+	public void entryOperationFinished(Notification notification, Operation operation,
+			List<? extends Serializable> entries) {
+		if (entries == null) {
+			return;
+		}
+		long now = System.currentTimeMillis();
+		for (Serializable entry : entries) {
+			Serializable obj = (entry instanceof Entry) ? ((Entry) entry).getValue() : entry;
+			if (obj instanceof PlayerLease) {
+				lastSeen.put(((PlayerLease) obj).getPlayerId(), now);
+			}
+		}
+	}
+
+	@Override
+	public void run() {
+		try {
+			reap(System.currentTimeMillis());
+		} catch (Exception e) {
+			// keep the timer running
+			log.error("ERROR: reaping failed");
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * removes the players whose lease expired at the given time
+	 * @param now
+	 */
+	public synchronized void reap(long now) {
+		boolean reaped = false;
+		for (Game known : new ArrayList<Game>(games.values())) {
+			if (expired(known, now).isEmpty()) {
+				continue;
+			}
+			reaped |= reapGame(known.getId(), now);
+		}
+		if (reaped || now - lastMetrics >= METRICS_MILLIS) {
+			lastMetrics = now;
+			log.info("reaper: " + games.size() + " games, ~" + getEstimatedContainerCount() + " containers (estimated), reaped "
+					+ reapedPlayers + " players, " + reapedGames + " games, destroyed " + destroyedContainers + " containers");
+		}
+	}
+
+	/**
+	 * reads the game from the game list and writes it back without its expired players in
+	 * one transaction (deletes it if it has no players left). the players may have changed
+	 * since the game was seen, so the expired ones are determined again from the read game
+	 * @param id
+	 * @param now
+	 * @return true if players were removed
+	 */
+	private boolean reapGame(UUID id, long now) {
+		ContainerReference container = Util.getInstance().getContainer(ContainerCoordinatorMapper.GAME_LIST);
+		if (container == null) {
+			return false;
+		}
+		TransactionReference tx = Util.getInstance().createTransaction(TX_TIMEOUT_MILLIS);
+		if (tx == null) {
+			return false;
+		}
+		try {
+			Game game = readGame(container, id, tx);
+			List<Player> expired = (game == null) ? new ArrayList<Player>() : expired(game, now);
+			if (expired.isEmpty()) {
+				conn.rollbackTransaction(tx);
+				return false;
+			}
+			boolean leaderLeft = false;
+			for (Player player : expired) {
+				leaderLeft |= player.equals(game.getLeader());
+				game.leaveGame(player);
+			}
+			if (game.getPlayerCount() > 0) {
+				if (leaderLeft) {
+					game.updateLeader();
+				}
+				// replaces the game (see ReplaceAspect), the server gets a write as for every other change
+				conn.write(container, RequestTimeout.ZERO, tx,
+						Util.newKeyedEntry(game, String.valueOf(game.getId()), LobbyQuery.indexes(game)));
+			} else {
+				conn.delete(container, KeyCoordinator.newSelector(String.valueOf(game.getId())), RequestTimeout.ZERO, tx);
+			}
+			conn.commitTransaction(tx);
+			removed(game, expired);
+			// may be passed a second time by the notification, which does no harm
+			gameListListener.entryOperationFinished(null, (game.getPlayerCount() > 0) ? Operation.WRITE : Operation.DELETE,
+					Collections.singletonList(game));
+			return true;
+		} catch (MzsCoreException e) {
+			// eg the game is locked by a client, tried again at the next check
+			log.error("could not remove players from game " + id + ": " + e.getMessage());
+			try {
+				conn.rollbackTransaction(tx);
+			} catch (MzsCoreException e1) {
+				// the transaction timed out
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * @param game
+	 * @param now
+	 * @return the players of the game, that were not seen for LEASE_MILLIS
+	 */
+	private List<Player> expired(Game game, long now) {
+		List<Player> expired = new ArrayList<Player>();
+		for (Player player : game.getPlayers()) {
+			Long seen = lastSeen.get(player.getId());
+			if (seen == null) {
+				// joined after the game was seen the last time
+				lastSeen.put(player.getId(), now);
+			} else if (now - seen > PlayerLease.LEASE_MILLIS) {
+				expired.add(player);
+			}
+		}
+		return expired;
+	}
+
+	/**
+	 * cleans up after the players were removed from the game (the transaction was committed):
+	 * deletes their leases, and destroys the containers of the game if it is empty
+	 * @param game the game without the players
+	 * @param players
+	 */
+	private void removed(Game game, List<Player> players) {
+		for (Player player : players) {
+			log.info("lease of player " + player.getName() + " in game " + game.getName() + " expired");
+			lastSeen.remove(player.getId());
+			Util.getInstance().delete(ContainerCoordinatorMapper.PLAYER_LEASE, String.valueOf(player.getId()));
+			reapedPlayers++;
+		}
+
+		if (game.getPlayerCount() < 1) {
+			games.remove(game.getId());
+			if (game.getState() != GameState.OPENEND) {
+				Util.getInstance().destroyGameContainer(game);
+				destroyedContainers += CONTAINERS_PER_GAME;
+			}
+			reapedGames++;
+			log.info("game " + game.getName() + " has no players left, removed");
+		} else {
+			games.put(game.getId(), game);
+		}
+	}
+
+	/**
+	 * reads a game of the game list by its id
+	 * @param container the game list
+	 * @param id
+	 * @param tx the game is locked by this transaction
+	 * @return the game or null if it is not in the list anymore
+	 * @throws MzsCoreException if the game could not be read, eg it is locked by another transaction
+	 */
+	private Game readGame(ContainerReference container, UUID id, TransactionReference tx) throws MzsCoreException {
+		try {
+			ArrayList<Serializable> entries = conn.read(container,
+					KeyCoordinator.newSelector(String.valueOf(id)), RequestTimeout.TRY_ONCE, tx);
+			if (!entries.isEmpty() && entries.get(0) instanceof Game) {
+				return (Game) entries.get(0);
+			}
+		} catch (CountNotMetException e) {
+			// removed in the meantime
+			games.remove(id);
+		}
+		return null;
+	}
+
+	/**
+	 * the number is an estimate, it is not read from the space: the well known containers are
+	 * counted and two containers for every started game of the game list. containers of games
+	 * the reaper has not seen (or that were not destroyed by their clients) are not counted
+	 * @return estimated number of containers
+	 */
+	public int getEstimatedContainerCount() {
+		int count = ContainerCoordinatorMapper.getContainerNames().size();
+		for (Game game : games.values()) {
+			if (game.getState() != GameState.OPENEND) {
+				count += CONTAINERS_PER_GAME;
+			}
+		}
+		return count;
+	}
+
+	public synchronized long getReapedPlayers() {
+		return reapedPlayers;
+	}
+
+	public synchronized long getReapedGames() {
+		return reapedGames;
+	}
+
+	public synchronized long getDestroyedContainers() {
+		return destroyedContainers;
+	}
+}
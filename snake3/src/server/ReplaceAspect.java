@@ -0,0 +1,73 @@
+package server;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.mozartspaces.capi3.Capi3AspectPort;
+import org.mozartspaces.capi3.CoordinationData;
+import org.mozartspaces.capi3.EntryOperationResult;
+import org.mozartspaces.capi3.KeyCoordinator;
+import org.mozartspaces.capi3.KeyCoordinator.KeyData;
+import org.mozartspaces.capi3.OperationStatus;
+import org.mozartspaces.capi3.Selector;
+import org.mozartspaces.capi3.SubTransaction;
+import org.mozartspaces.capi3.Transaction;
+import org.mozartspaces.core.Entry;
+import org.mozartspaces.core.MzsConstants;
+import org.mozartspaces.core.aspects.AbstractContainerAspect;
+import org.mozartspaces.core.aspects.AspectResult;
+import org.mozartspaces.core.requests.WriteEntriesRequest;
+
+/**
+ * Container aspect, which turns a write with a key into a replace:
+ * an entry with the same key is taken in the sub transaction of the write,
+ * so the write does not fail because of a duplicate key.
+ * only the key of the unnamed KeyCoordinator identifies an entry. keys of named KeyCoordinators
+ * are indexes (eg the name of a game, see {@link mzs.util.LobbyQuery}), a duplicate index key
+ * lets the write fail.
+ *
+ * this way an update (see {@link mzs.util.Util#upsert}) is a single write and
+ * needs no transaction on client side.
+ *
+ * the aspect is installed only on the containers that are written with upsert (see
+ * {@link mzs.util.Util#addReplaceAspect}), a keyed write to any other container keeps failing
+ * on a duplicate key.
+ */
+public class ReplaceAspect extends AbstractContainerAspect {
+
+	private static final long serialVersionUID = -3260468794853587215L;
+
+	// name of the unnamed KeyCoordinator
+	private static final String ID_KEY = new KeyCoordinator().getName();
+
+	public ReplaceAspect()	{}
+
+	@Override
+	public AspectResult preWrite(WriteEntriesRequest request, Transaction tx,
+			SubTransaction stx, Capi3AspectPort capi3, int executionCount) {
+
+		for (Entry e : request.getEntries()) {
+			for (CoordinationData data : e.getCoordinationData()) {
+				if (data instanceof KeyData && ID_KEY.equals(((KeyData) data).getName())) {
+					KeyData key = (KeyData) data;
+					List<Selector> selectors = new ArrayList<Selector>();
+					selectors.add(KeyCoordinator.newSelector(key.getKey(), MzsConstants.Selecting.COUNT_MAX, key.getName()));
+
+					EntryOperationResult result = capi3.executeTakeOperation(
+							selectors,
+							request.getIsolation(),
+							stx,
+							request.getContext());
+
+					// entry is locked by another transaction => the write is retried when that transaction
+					// commits, until the timeout of the write expires (Util.UPSERT_TIMEOUT), then it fails
+					if (result.getStatus() == OperationStatus.LOCKED || result.getStatus() == OperationStatus.DELAYABLE) {
+						return new AspectResult(result);
+					}
+				}
+			}
+		}
+		return AspectResult.OK;
+	}
+
+}
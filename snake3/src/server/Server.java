@@ -7,19 +7,42 @@
 package server;
 
 
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import mzs.data.GameSummary;
 import mzs.util.ContainerCoordinatorMapper;
 import mzs.util.Util;
 
 import org.mozartspaces.core.Capi;
+import org.mozartspaces.core.ContainerReference;
+import org.mozartspaces.core.Entry;
 import org.mozartspaces.core.MzsCoreException;
+import org.mozartspaces.notifications.Notification;
+import org.mozartspaces.notifications.NotificationListener;
+import org.mozartspaces.notifications.Operation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import client.data.game.Game;
+import client.data.player.Player;
+import client.data.state.GameState;
+
+import util.Level;
+
 
 /**
  * server class
+ * 
+ * hosts the simulation of the running games (see {@link TickEngine}), keeps
+ * a {@link GameSummary} of every game of the game list for the multiplayer menu
+ * and removes the players of dead clients from their games (see {@link Reaper})
  */
-public class Server {
+public class Server implements NotificationListener {
 
 	private static Logger log = LoggerFactory.getLogger(server.Server.class);
 	
@@ -32,6 +55,13 @@ public class Server {
 
 
 	private Capi conn;
+	
+	private Notification gameListNotification;
+	
+	// simulation of the running games per game id
+	private Map<UUID, TickEngine> engines = new ConcurrentHashMap<UUID, TickEngine>();
+
+	private Reaper reaper;
 
 	/**
 	 * 
@@ -46,7 +76,10 @@ public class Server {
 			e.printStackTrace();
 		}
 		this.initXVSMContainers();
+		this.initAspects();
+		reaper = new Reaper(conn, this);
 		this.initNotificationListeners();
+		reaper.start();
 	}
 
 
@@ -60,6 +93,9 @@ public class Server {
 			// gamesContainerRef = Util.getOrCreateNamedContainer(core.getConfig().getSpaceUri(), "snake.gamesContainer", capi);
 			
 			Util.getInstance().forceCreateContainer(ContainerCoordinatorMapper.GAME_LIST);
+			Util.getInstance().forceCreateContainer(ContainerCoordinatorMapper.GAME_SUMMARY);
+			Util.getInstance().forceCreateContainer(ContainerCoordinatorMapper.PLAYER_LEASE);
+			Util.getInstance().prewarmContainers();
 		} catch (MzsCoreException e) {
 			log.debug("error creating containers");
 			// TODO Auto-generated catch block
@@ -68,11 +104,111 @@ public class Server {
 		log.debug("containers created successfully!");
 	}
 
+	/**
+	 * installs the aspects of the well known containers, the per game containers get
+	 * theirs from the client that creates them (see Util.createGameContainer)
+	 */
+	private void initAspects() {
+		for (String containerName : ContainerCoordinatorMapper.getContainerNames()) {
+			// keyed writes replace the entry with the same key (Util.upsert)
+			if (ContainerCoordinatorMapper.isReplacedByKey(containerName)
+					&& !Util.getInstance().addReplaceAspect(Util.getInstance().getContainer(containerName))) {
+				log.error("error installing aspects of container " + containerName);
+			}
+		}
+	}
+
 	/**
 	 * inits the needed notification listeners
 	 */
 	private void initNotificationListeners() {
-		
+		// games that are started or removed
+		try {
+			gameListNotification = Util.getInstance().getNotificationManager().createNotification(
+					Util.getInstance().getContainer(ContainerCoordinatorMapper.GAME_LIST),
+					this,
+					Operation.WRITE, Operation.DELETE);
+		} catch (MzsCoreException e) {
+			log.error("ERROR: could not create notification (mzsexception)");
+			e.printStackTrace();
+		} catch (InterruptedException e) {
+			log.error("ERROR: could not create notification (interrupted)");
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * starts the simulation of a game, that was started by its players
+	 * @param game
+	 */
+	private void hostGame(Game game) {
+		ContainerReference gameContainer = Util.getInstance().getGameContainer(game);
+		ContainerReference inputContainer = Util.getInstance().getInputContainer(game);
+		if (gameContainer == null || inputContainer == null) {
+			log.error("could not host game " + game.getId() + ", containers not available");
+			return;
+		}
+		List<UUID> snakeIds = new ArrayList<UUID>();
+		for (Player p : game.getPlayers()) {
+			snakeIds.add(p.getId());
+		}
+		TickEngine engine = new TickEngine(conn, gameContainer, inputContainer, snakeIds, Level.getMapSize());
+		engines.put(game.getId(), engine);
+		engine.start(TickEngine.TICK_MILLIS);
+		log.info("hosting game " + game.getName() + " with " + snakeIds.size() + " snakes");
+	}
+
+	/**
+	 * stops the simulation of a game, that was removed from the game list
+	 * @param game
+	 */
+	private void releaseGame(Game game) {
+		TickEngine engine = engines.remove(game.getId());
+		if (engine != null) {
+			engine.stop();
+			log.info("game " + game.getName() + " ended after tick " + engine.getTick());
+		}
+	}
+
+	/**
+	 * writes (or removes) the summary of a game, that was written to (or removed from) the game list
+	 * @param game
+	 * @param operation
+	 */
+	private void updateSummary(Game game, Operation operation) {
+		if (operation == Operation.DELETE) {
+			Util.getInstance().delete(ContainerCoordinatorMapper.GAME_SUMMARY, String.valueOf(game.getId()));
+		} else {
+			Util.getInstance().upsert(ContainerCoordinatorMapper.GAME_SUMMARY, new GameSummary(game), String.valueOf(game.getId()));
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.mozartspaces.notifications.NotificationListener#entryOperationFinished(org.mozartspaces.notifications.Notification, org.mozartspaces.notifications.Operation, java.util.List)
+	 */
+	@Override
+	public synchronized void entryOperationFinished(Notification notification, Operation operation,
+			List<? extends Serializable> entries) {
+		if (entries == null) {
+			return;
+		}
+		for (Serializable entry : entries) {
+			Serializable obj = (entry instanceof Entry) ? ((Entry) entry).getValue() : entry;
+			if (!(obj instanceof Game)) {
+				continue;
+			}
+			Game game = (Game) obj;
+			updateSummary(game, operation);
+			if (operation == Operation.DELETE) {
+				reaper.gameRemoved(game);
+				releaseGame(game);
+			} else {
+				reaper.gameWritten(game);
+				if (game.getState() == GameState.READY && !engines.containsKey(game.getId())) {
+					hostGame(game);
+				}
+			}
+		}
 	}
 }
 
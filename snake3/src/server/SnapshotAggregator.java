@@ -0,0 +1,80 @@
+package server;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import mzs.data.SnakeDataHolder;
+import mzs.data.WorldSnapshot;
+
+/**
+ * collects the latest state of every snake of a tick and combines them to one
+ * {@link WorldSnapshot}, so a tick is a single write (and a single notification per client)
+ * instead of one per snake.
+ *
+ * every snapshot is a delta to the previous one, except every KEYFRAME_INTERVAL ticks
+ * and whenever the snakes of the game changed. clients that missed a snapshot (or joined
+ * late) wait for the next keyframe.
+ *
+ * @author Jakob Lahmer, Matthias Steinboeck
+ */
+public class SnapshotAggregator {
+
+	// a keyframe every 10 ticks (1.5 seconds with TickEngine.TICK_MILLIS)
+	public static final int KEYFRAME_INTERVAL = 10;
+
+	// latest state per snake of the current tick
+	private final Map<UUID, SnakeDataHolder> collected = new LinkedHashMap<UUID, SnakeDataHolder>();
+
+	private List<SnakeDataHolder> previous;
+	private int previousTick;
+	private int keyframeInterval;
+
+	public SnapshotAggregator()	{
+		this(KEYFRAME_INTERVAL);
+	}
+
+	/**
+	 * @param keyframeInterval number of ticks between two keyframes, 1 sends keyframes only
+	 */
+	public SnapshotAggregator(int keyframeInterval)	{
+		this.keyframeInterval = keyframeInterval;
+	}
+
+	/**
+	 * stores the state of a snake for the current tick, a later state of the same snake
+	 * replaces it. the holder must not be changed afterwards
+	 * @param holder
+	 */
+	public void collect(SnakeDataHolder holder) {
+		collected.put(holder.getId(), holder);
+	}
+
+	/**
+	 * combines the collected snakes to the snapshot of the tick, snakes that were not
+	 * collected in this tick keep their previous state
+	 * @param tick
+	 * @return the snapshot (keyframe or delta to the previous snapshot)
+	 */
+	public WorldSnapshot snapshot(int tick) {
+		List<SnakeDataHolder> snakes = new ArrayList<SnakeDataHolder>();
+		if (previous != null) {
+			for (SnakeDataHolder holder : previous) {
+				SnakeDataHolder current = collected.remove(holder.getId());
+				snakes.add(current != null ? current : holder);
+			}
+		}
+		// new snakes are added at the end
+		boolean changed = !collected.isEmpty();
+		snakes.addAll(collected.values());
+		collected.clear();
+
+		boolean keyframe = previous == null || changed || tick % keyframeInterval == 0;
+		WorldSnapshot snapshot = new WorldSnapshot(tick, snakes, previousTick, keyframe ? null : previous);
+		previous = snakes;
+		previousTick = tick;
+		return snapshot;
+	}
+}
@@ -0,0 +1,265 @@
+package server;
+
+import java.awt.Dimension;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import mzs.data.SnakeDataHolder;
+import mzs.data.TurnInput;
+import mzs.data.WorldSnapshot;
+
+import org.mozartspaces.capi3.FifoCoordinator;
+import org.mozartspaces.capi3.KeyCoordinator;
+import org.mozartspaces.core.Capi;
+import org.mozartspaces.core.ContainerReference;
+import org.mozartspaces.core.Entry;
+import org.mozartspaces.core.MzsConstants;
+import org.mozartspaces.core.MzsConstants.RequestTimeout;
+import org.mozartspaces.core.MzsCoreException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import client.data.Snake;
+
+/**
+ * simulates the snakes of a running multiplayer game on the server.
+ *
+ * the clients only write their {@link TurnInput} to the input container of the game.
+ * in every tick the engine reads the latest input of each snake, turns and moves all
+ * snakes, resolves collisions and writes the state of all snakes as one {@link WorldSnapshot}
+ * (see {@link SnapshotAggregator}) to the game container. so every client sees the same
+ * positions and the same collisions.
+ *
+ * the engine only needs a Capi and the two containers, so it runs headless
+ * (eg with an embedded core, calling {@link #tick()} directly).
+ *
+ * @author Jakob Lahmer, Matthias Steinboeck
+ */
+public class TickEngine implements Runnable {
+
+	private static Logger log = LoggerFactory.getLogger(TickEngine.class);
+
+	// time between two ticks, the single player game moves at the same speed (see GameFrame)
+	public static final long TICK_MILLIS = 150;
+	// degrees a snake turns per tick
+	public static final int TURN_ANGLE = 20;
+	// key of the snapshot in the game container
+	public static final String SNAPSHOT_KEY = "world";
+
+	private final Capi capi;
+	private final ContainerReference gameContainer;
+	private final ContainerReference inputContainer;
+
+	// snakes in the order of the players of the game
+	private final Map<UUID, Snake> snakes = new LinkedHashMap<UUID, Snake>();
+	private final Map<UUID, Byte> turns = new HashMap<UUID, Byte>();
+	private final Map<UUID, Integer> inputTicks = new HashMap<UUID, Integer>();
+	private final Set<UUID> dead = new HashSet<UUID>();
+	private final SnapshotAggregator aggregator = new SnapshotAggregator();
+
+	private int tick = 0;
+	private ScheduledExecutorService timer;
+
+	/**
+	 * places one snake per id on the map
+	 * @param capi connection to the space
+	 * @param gameContainer container the state of the snakes is written to
+	 * @param inputContainer container the clients write their inputs to
+	 * @param snakeIds ids of the snakes (the player ids)
+	 * @param mapSize size of the map (see Level#getMapSize()), snakes leaving the map enter it on the other side
+	 */
+	public TickEngine(Capi capi, ContainerReference gameContainer, ContainerReference inputContainer,
+			List<UUID> snakeIds, Dimension mapSize) {
+		this.capi = capi;
+		this.gameContainer = gameContainer;
+		this.inputContainer = inputContainer;
+
+		// snakes start next to each other at the bottom and head up
+		for (int i = 0; i < snakeIds.size(); i++) {
+			UUID id = snakeIds.get(i);
+			Snake snake = new Snake(
+					id,
+					mapSize.width * (i + 1) / (snakeIds.size() + 1),
+					mapSize.height * 3 / 4,
+					0);
+			snake.setGamePanelDimensions(mapSize);
+			snakes.put(id, snake);
+			turns.put(id, TurnInput.NONE);
+			inputTicks.put(id, -1);
+		}
+	}
+
+	/**
+	 * starts ticking in the background
+	 * @param periodMillis time between two ticks
+	 */
+	public synchronized void start(long periodMillis) {
+		if (timer != null) {
+			return;
+		}
+		timer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "TickEngine");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		// publish the start positions at once
+		publish();
+		timer.scheduleAtFixedRate(this, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * stops ticking
+	 */
+	public synchronized void stop() {
+		if (timer != null) {
+			timer.shutdownNow();
+			timer = null;
+		}
+	}
+
+	@Override
+	public void run() {
+		try {
+			if (!tick()) {
+				log.info("all snakes are dead after tick " + tick);
+				stop();
+			}
+		} catch (RuntimeException e) {
+			// an exception would cancel the timer
+			log.error("tick " + tick + " failed");
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * advances the game by one tick: reads the inputs, moves the snakes,
+	 * resolves collisions and publishes the new state
+	 * @return false if no snake is alive anymore
+	 */
+	public synchronized boolean tick() {
+		if (dead.size() == snakes.size()) {
+			return false;
+		}
+		readInputs();
+		tick++;
+
+		for (Snake snake : snakes.values()) {
+			if (dead.contains(snake.getId())) {
+				continue;
+			}
+			byte turn = turns.get(snake.getId());
+			if (turn != TurnInput.NONE) {
+				snake.move(turn * TURN_ANGLE);
+			}
+			snake.moveForward();
+		}
+
+		// all snakes moved before collisions are checked, so the order of the players does not matter
+		List<UUID> crashed = new ArrayList<UUID>();
+		for (Snake snake : snakes.values()) {
+			if (dead.contains(snake.getId())) {
+				continue;
+			}
+			for (Snake other : snakes.values()) {
+				if (snake.collidesWith(other)) {
+					crashed.add(snake.getId());
+					break;
+				}
+			}
+		}
+		dead.addAll(crashed);
+		if (!crashed.isEmpty()) {
+			log.debug("tick " + tick + ": crashed " + crashed);
+		}
+
+		publish();
+		return dead.size() < snakes.size();
+	}
+
+	/**
+	 * reads the latest input of every snake, an input stays valid until a newer one is written
+	 */
+	private void readInputs() {
+		ArrayList<Serializable> inputs;
+		try {
+			inputs = capi.read(
+					inputContainer,
+					FifoCoordinator.newSelector(MzsConstants.Selecting.COUNT_ALL),
+					RequestTimeout.TRY_ONCE,
+					null);
+		} catch (MzsCoreException e) {
+			log.error("could not read inputs: " + e.getMessage());
+			return;
+		}
+		for (Serializable obj : inputs) {
+			if (!(obj instanceof TurnInput)) {
+				continue;
+			}
+			TurnInput input = (TurnInput) obj;
+			Integer lastTick = inputTicks.get(input.getId());
+			// unknown snake or older than the input already applied
+			if (lastTick == null || input.getTick() < lastTick) {
+				continue;
+			}
+			inputTicks.put(input.getId(), input.getTick());
+			turns.put(input.getId(), input.getTurn());
+		}
+	}
+
+	/**
+	 * writes the state of all snakes as one snapshot
+	 * (the snapshot of the previous tick is replaced by the ReplaceAspect)
+	 */
+	private void publish() {
+		for (Snake snake : snakes.values()) {
+			SnakeDataHolder holder = snake.getSnakeDataHolder(true).copy();
+			holder.setTick(tick);
+			holder.setAlive(!dead.contains(snake.getId()));
+			aggregator.collect(holder);
+		}
+		try {
+			capi.write(
+					new Entry(aggregator.snapshot(tick), KeyCoordinator.newCoordinationData(SNAPSHOT_KEY)),
+					gameContainer,
+					RequestTimeout.ZERO,
+					null);
+		} catch (MzsCoreException e) {
+			log.error("could not publish tick " + tick + ": " + e.getMessage());
+		}
+	}
+
+	public synchronized int getTick() {
+		return tick;
+	}
+
+	/**
+	 * @param id
+	 * @return the simulated snake or null
+	 */
+	public synchronized Snake getSnake(UUID id) {
+		return snakes.get(id);
+	}
+
+	public synchronized Collection<Snake> getSnakes() {
+		return new ArrayList<Snake>(snakes.values());
+	}
+
+	public synchronized boolean isAlive(UUID id) {
+		return snakes.containsKey(id) && !dead.contains(id);
+	}
+}
@@ -0,0 +1,65 @@
+package util;
+
+import java.awt.Dimension;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * the level the game is played in. the map of the level has the size of its background
+ * image, the client draws the background (see GamePanel) and the server moves the snakes
+ * on a map of the same size (see TickEngine), so both use this class.
+ *
+ * @author Jakob Lahmer, Matthias Steinboeck
+ */
+public class Level {
+
+	// background image of the level, the map has the size of this image
+	public static final String BACKGROUND = "res/levels/Level1/back.jpg";
+
+	private static Dimension mapSize;
+
+	/**
+	 * reads the size of the background image (the image itself is not decoded)
+	 * @return size of the map
+	 * @throws IllegalStateException if the background image can not be read
+	 */
+	public static synchronized Dimension getMapSize() {
+		if (mapSize == null) {
+			mapSize = readSize(new File(BACKGROUND));
+		}
+		return new Dimension(mapSize);
+	}
+
+	private static Dimension readSize(File file) {
+		ImageInputStream in = null;
+		try {
+			in = ImageIO.createImageInputStream(file);
+			Iterator<ImageReader> readers = (in == null) ? null : ImageIO.getImageReaders(in);
+			if (readers == null || !readers.hasNext()) {
+				throw new IllegalStateException("no image found at " + file);
+			}
+			ImageReader reader = readers.next();
+			try {
+				reader.setInput(in);
+				return new Dimension(reader.getWidth(0), reader.getHeight(0));
+			} finally {
+				reader.dispose();
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException("could not read the size of " + file + ": " + e.getMessage());
+		} finally {
+			if (in != null) {
+				try {
+					in.close();
+				} catch (IOException e) {
+					// only read
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,340 @@
+package util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * statistics of the game loop and the network: update (tick) and render rate, frame times,
+ * skipped frames, states received per snake, latency of writes to the space and age of the
+ * server snapshots when they arrive.
+ *
+ * the values are recorded into counters and histograms of a fixed size, so recording does not
+ * allocate anything and the statistics can always be on. the game loop calls {@link #roll(long)}
+ * in every frame; once per WINDOW_MILLIS the values of the last window are calculated and the
+ * histograms start again. the getters return the values of the last window, the game panel
+ * shows them if the overlay is switched on (F3).
+ *
+ * @author Jakob Lahmer, Matthias Steinboeck
+ */
+public class PerformanceStats {
+
+	public static final long WINDOW_MILLIS = 1000;
+	// number of snakes whose states are counted separately at the same time
+	public static final int MAX_SNAKES = 64;
+
+	private static PerformanceStats instance;
+
+	// recorded by the game loop
+	private final AtomicLong updates = new AtomicLong();
+	private final AtomicLong frames = new AtomicLong();
+	private final AtomicLong skippedFrames = new AtomicLong();
+	// microseconds between two drawn frames
+	private final Histogram frameTimes = new Histogram();
+	// microseconds to update, draw and show a frame
+	private final Histogram renderTimes = new Histogram();
+	// recorded by the notification and publisher threads,
+	// the slot of a snake is freed by roll() when it sent nothing for a whole window
+	private final AtomicReferenceArray<Object> snakeIds = new AtomicReferenceArray<Object>(MAX_SNAKES);
+	private final AtomicLongArray notifications = new AtomicLongArray(MAX_SNAKES);
+	// microseconds
+	private final Histogram writeLatencies = new Histogram();
+	// milliseconds
+	private final Histogram updateAges = new Histogram();
+
+	// values of the last window, calculated by the game loop
+	private long windowStart;
+	private long lastUpdates;
+	private long lastFrames;
+	private long lastSkippedFrames;
+	private final long[] lastNotifications = new long[MAX_SNAKES];
+	private final double[] notificationRates = new double[MAX_SNAKES];
+	private volatile double updateRate;
+	private volatile double renderRate;
+	private volatile long frameTime50;
+	private volatile long frameTime99;
+	private volatile long renderTime99;
+	private volatile long windowSkippedFrames;
+	private volatile double minNotificationRate;
+	private volatile double maxNotificationRate;
+	private volatile int notifyingSnakes;
+	private volatile long writeLatency50;
+	private volatile long writeLatency99;
+	private volatile long updateAge50;
+	private volatile long updateAge99;
+	private volatile String[] lines = new String[0];
+
+	private PerformanceStats() {
+	}
+
+	/**
+	 * @return the statistics of this process
+	 */
+	public static synchronized PerformanceStats getInstance() {
+		if (instance == null) {
+			instance = new PerformanceStats();
+		}
+		return instance;
+	}
+
+	/**
+	 * counts an update of the game state (a local tick or a snapshot of the server)
+	 */
+	public void recordUpdate() {
+		updates.incrementAndGet();
+	}
+
+	/**
+	 * counts a drawn frame
+	 * @param frameNanos time since the last drawn frame
+	 * @param renderNanos time to update, draw and show the frame
+	 */
+	public void recordFrame(long frameNanos, long renderNanos) {
+		frames.incrementAndGet();
+		frameTimes.record(frameNanos / 1000);
+		renderTimes.record(renderNanos / 1000);
+	}
+
+	/**
+	 * counts frames that were not drawn in time
+	 * @param count
+	 */
+	public void recordSkippedFrames(long count) {
+		skippedFrames.addAndGet(count);
+	}
+
+	/**
+	 * counts a received state of a snake, the first state of a snake takes a free slot
+	 * @param snakeId
+	 */
+	public void recordNotification(Object snakeId) {
+		// freed slots leave gaps, so the snake may have a slot behind a free one
+		for (int i = 0; i < MAX_SNAKES; i++) {
+			if (snakeId.equals(snakeIds.get(i))) {
+				notifications.incrementAndGet(i);
+				return;
+			}
+		}
+		for (int i = 0; i < MAX_SNAKES; i++) {
+			Object id = snakeIds.get(i);
+			if (id == null && snakeIds.compareAndSet(i, null, snakeId)) {
+				id = snakeId;
+			} else if (id == null) {
+				id = snakeIds.get(i);
+			}
+			if (snakeId.equals(id)) {
+				notifications.incrementAndGet(i);
+				return;
+			}
+		}
+		// more than MAX_SNAKES snakes at the same time are not counted
+	}
+
+	/**
+	 * records the time a write to the space took
+	 * @param nanos
+	 */
+	public void recordWrite(long nanos) {
+		writeLatencies.record(nanos / 1000);
+	}
+
+	/**
+	 * records the age of a state when it arrived, from taking it on the server to receiving
+	 * the notification. the clocks of server and client are assumed to be in sync.
+	 * @param millis
+	 */
+	public void recordUpdateAge(long millis) {
+		updateAges.record(millis);
+	}
+
+	/**
+	 * calculates the values of the last window if it is over, called by the game loop in every frame
+	 * @param nowMillis
+	 * @return true if a new window started
+	 */
+	public boolean roll(long nowMillis) {
+		if (windowStart == 0) {
+			windowStart = nowMillis;
+			return false;
+		}
+		long elapsed = nowMillis - windowStart;
+		if (elapsed < WINDOW_MILLIS) {
+			return false;
+		}
+		double seconds = elapsed / 1000.0;
+		windowStart = nowMillis;
+
+		long count = updates.get();
+		updateRate = (count - lastUpdates) / seconds;
+		lastUpdates = count;
+		count = frames.get();
+		renderRate = (count - lastFrames) / seconds;
+		lastFrames = count;
+		count = skippedFrames.get();
+		windowSkippedFrames = count - lastSkippedFrames;
+		lastSkippedFrames = count;
+
+		frameTime50 = frameTimes.getPercentile(0.5);
+		frameTime99 = frameTimes.getPercentile(0.99);
+		renderTime99 = renderTimes.getPercentile(0.99);
+		frameTimes.reset();
+		renderTimes.reset();
+		writeLatency50 = writeLatencies.getPercentile(0.5);
+		writeLatency99 = writeLatencies.getPercentile(0.99);
+		writeLatencies.reset();
+		updateAge50 = updateAges.getPercentile(0.5);
+		updateAge99 = updateAges.getPercentile(0.99);
+		updateAges.reset();
+
+		double min = Double.MAX_VALUE;
+		double max = 0;
+		int snakes = 0;
+		for (int i = 0; i < MAX_SNAKES; i++) {
+			Object id = snakeIds.get(i);
+			if (id == null) {
+				continue;
+			}
+			count = notifications.get(i);
+			notificationRates[i] = (count - lastNotifications[i]) / seconds;
+			lastNotifications[i] = count;
+			if (notificationRates[i] > 0) {
+				min = Math.min(min, notificationRates[i]);
+				max = Math.max(max, notificationRates[i]);
+				snakes++;
+			} else {
+				// a snake of an earlier game, the slot is free for the next snake
+				// (the rate is the difference of the counts, so the count is not reset)
+				snakeIds.compareAndSet(i, id, null);
+			}
+		}
+		minNotificationRate = (snakes > 0) ? min : 0;
+		maxNotificationRate = max;
+		notifyingSnakes = snakes;
+
+		lines = createLines();
+		return true;
+	}
+
+	private String[] createLines() {
+		return new String[] {
+			String.format("updates %.1f/s, frames %.1f/s, skipped %d", updateRate, renderRate, windowSkippedFrames),
+			String.format("frame time p50 %.1f ms, p99 %.1f ms (render p99 %.1f ms)",
+					frameTime50 / 1000.0, frameTime99 / 1000.0, renderTime99 / 1000.0),
+			String.format("states %.1f-%.1f/s per snake (%d snakes)",
+					minNotificationRate, maxNotificationRate, notifyingSnakes),
+			String.format("space write p50 %.1f ms, p99 %.1f ms", writeLatency50 / 1000.0, writeLatency99 / 1000.0),
+			String.format("update age p50 %d ms, p99 %d ms", updateAge50, updateAge99)
+		};
+	}
+
+	/**
+	 * @return the values of the last window as text, one line per value
+	 */
+	public String[] getLines() {
+		return lines;
+	}
+
+	/**
+	 * @return updates of the game state per second
+	 */
+	public double getUpdateRate() {
+		return updateRate;
+	}
+
+	/**
+	 * @return drawn frames per second
+	 */
+	public double getRenderRate() {
+		return renderRate;
+	}
+
+	/**
+	 * @return median time between two drawn frames in microseconds
+	 */
+	public long getFrameTime50() {
+		return frameTime50;
+	}
+
+	/**
+	 * @return 99th percentile of the time between two drawn frames in microseconds
+	 */
+	public long getFrameTime99() {
+		return frameTime99;
+	}
+
+	/**
+	 * @return 99th percentile of the time to update, draw and show a frame in microseconds
+	 */
+	public long getRenderTime99() {
+		return renderTime99;
+	}
+
+	/**
+	 * @return frames skipped in the last window
+	 */
+	public long getSkippedFrames() {
+		return windowSkippedFrames;
+	}
+
+	/**
+	 * @return frames skipped since the start
+	 */
+	public long getTotalSkippedFrames() {
+		return skippedFrames.get();
+	}
+
+	/**
+	 * @param snakeId
+	 * @return received states of the snake per second, 0 if nothing was received
+	 */
+	public double getNotificationRate(Object snakeId) {
+		for (int i = 0; i < MAX_SNAKES; i++) {
+			if (snakeId.equals(snakeIds.get(i))) {
+				return notificationRates[i];
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * @return lowest rate of received states of the snakes that sent something
+	 */
+	public double getMinNotificationRate() {
+		return minNotificationRate;
+	}
+
+	/**
+	 * @return highest rate of received states of the snakes that sent something
+	 */
+	public double getMaxNotificationRate() {
+		return maxNotificationRate;
+	}
+
+	/**
+	 * @return median duration of a write to the space in microseconds
+	 */
+	public long getWriteLatency50() {
+		return writeLatency50;
+	}
+
+	/**
+	 * @return 99th percentile of the duration of a write to the space in microseconds
+	 */
+	public long getWriteLatency99() {
+		return writeLatency99;
+	}
+
+	/**
+	 * @return median age of the received states in ms
+	 */
+	public long getUpdateAge50() {
+		return updateAge50;
+	}
+
+	/**
+	 * @return 99th percentile of the age of the received states in ms
+	 */
+	public long getUpdateAge99() {
+		return updateAge99;
+	}
+}
@@ -8,7 +8,8 @@ import java.net.URISyntaxException;
 import sun.reflect.ReflectionFactory.GetReflectionFactoryAction;
 
 /**
- * Settings for corso connection, player name, snake skin and standard playtime or points.
+ * Settings for corso connection, player name, snake skin, standard playtime or points and the
+ * timing of the game loop (duration of a tick and frames per second).
  * Also methods are provided to save the settings to and load the settings from a properties file.
  * @author Thomas Scheller, Markus Karolus
  */
@@ -23,6 +24,12 @@ public class Settings
 	private int playPoints = 20; //points for points-playmode
 	private String snakeSkin = "Snake"; //name of the used snake skin
 
+	//game loop: the snake moves once per tick, the frames in between are interpolated
+	public static final int DEFAULT_TICK_MILLIS = 150;
+	public static final int DEFAULT_FRAME_RATE = 60;
+	private int tickMillis = DEFAULT_TICK_MILLIS; //duration of a tick in ms
+	private int frameRate = DEFAULT_FRAME_RATE; //frames drawn per second
+
 	private Properties props = new Properties();
 	private final String filePath = "res/snake.properties"; //name of properties file
 	private String connectionUsername;
@@ -48,6 +55,9 @@ public class Settings
 			port = Integer.parseInt(props.getProperty("port"));
 			playerName = props.getProperty("playername");
 			snakeSkin = props.getProperty("snakeskin");
+			//optional, older config files don't have them
+			tickMillis = Integer.parseInt(props.getProperty("tickmillis", String.valueOf(DEFAULT_TICK_MILLIS)));
+			frameRate = Integer.parseInt(props.getProperty("framerate", String.valueOf(DEFAULT_FRAME_RATE)));
 
 			in.close();
 		}
@@ -78,6 +88,8 @@ public class Settings
 			props.setProperty("port",String.valueOf(port));
 			props.setProperty("playername",playerName);
 			props.setProperty("snakeskin",snakeSkin);
+			props.setProperty("tickmillis",String.valueOf(tickMillis));
+			props.setProperty("framerate",String.valueOf(frameRate));
 
 			props.store(out, "Snake Properties");
 			out.flush();
@@ -103,6 +115,8 @@ public class Settings
 		playTime = 60;
 		playPoints = 20;
 		snakeSkin = "Snake";
+		tickMillis = DEFAULT_TICK_MILLIS;
+		frameRate = DEFAULT_FRAME_RATE;
 	}
 
 	public void setServer(String value)
@@ -185,6 +199,32 @@ public class Settings
 		return snakeSkin;
 	}
 
+	public void setTickMillis(int value)
+	{
+		tickMillis = value;
+	}
+
+	/**
+	 * @return duration of a tick of the game loop in ms, at least 1
+	 */
+	public int getTickMillis()
+	{
+		return Math.max(tickMillis, 1);
+	}
+
+	public void setFrameRate(int value)
+	{
+		frameRate = value;
+	}
+
+	/**
+	 * @return frames per second drawn by the game loop, at least 1
+	 */
+	public int getFrameRate()
+	{
+		return Math.max(frameRate, 1);
+	}
+
 	public URI getUri() {
 		try {
 			return new URI("xvsm://"+ server +":" + getPort());
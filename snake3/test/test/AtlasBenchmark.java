@@ -0,0 +1,115 @@
+package test;
+
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import client.data.Snake;
+import client.data.SnakePart;
+import client.gui.SnakeSprite;
+import client.gui.graphics.ImageLoader;
+import client.gui.graphics.SkinAtlas;
+
+import util.Level;
+
+/**
+ * compares the time to draw the snakes of a frame with the {@link SkinAtlas} and the way
+ * the snakes were drawn before, when the SnakeSprite loaded the images of the skin and
+ * rotated every part in every frame.
+ *
+ * draws 4 and 32 snakes into an image of the size of the map, the background is drawn
+ * before every frame but not measured.
+ *
+ * run with ant benchmark.atlas
+ *
+ * @author Jakob Lahmer, Matthias Steinboeck
+ */
+public class AtlasBenchmark {
+
+	private static final int WARMUP = 100;
+	private static final int FRAMES = 300;
+
+	public static void main(String[] args) throws Exception {
+		Dimension map = Level.getMapSize();
+		ImageLoader loader = new ImageLoader();
+		BufferedImage background = loader.loadImage(Level.BACKGROUND, false);
+		BufferedImage screen = new BufferedImage(map.width, map.height, BufferedImage.TYPE_INT_RGB);
+		SkinAtlas atlas = SkinAtlas.get(SkinAtlas.DEFAULT_SKIN);
+		while (!atlas.isBuilt()) {
+			Thread.sleep(5);
+		}
+
+		Random random = new Random(1);
+		System.out.println("snakes | parts/snake | rotated per frame (ms/frame) | atlas (ms/frame)");
+		for (int count : new int[] { 4, 32 }) {
+			List<Snake> snakes = new ArrayList<Snake>();
+			List<SnakeSprite> sprites = new ArrayList<SnakeSprite>();
+			for (int i = 0; i < count; i++) {
+				Snake snake = new Snake(UUID.randomUUID(),
+						50 + random.nextInt(map.width - 100),
+						50 + random.nextInt(map.height - 100),
+						random.nextInt(36) * 10);
+				snake.setGamePanelDimensions(map);
+				snakes.add(snake);
+				sprites.add(new SnakeSprite(snake, atlas));
+			}
+			double rotated = measure(screen, background, snakes, sprites, loader, random, false);
+			double atlased = measure(screen, background, snakes, sprites, loader, random, true);
+			System.out.println(String.format("%6d | %11d | %28.3f | %16.3f",
+					count, snakes.get(0).getSnakeParts().size(), rotated, atlased));
+		}
+	}
+
+	/**
+	 * moves the snakes and draws them in every frame
+	 * @return milliseconds per frame to draw the snakes
+	 */
+	private static double measure(BufferedImage screen, BufferedImage background, List<Snake> snakes,
+			List<SnakeSprite> sprites, ImageLoader loader, Random random, boolean useAtlas) {
+		long total = 0;
+		for (int frame = 0; frame < WARMUP + FRAMES; frame++) {
+			for (Snake snake : snakes) {
+				snake.move((random.nextInt(3) - 1) * 20);
+				snake.moveForward();
+			}
+			Graphics2D g = screen.createGraphics();
+			g.drawImage(background, 0, 0, null);
+			long start = System.nanoTime();
+			for (int i = 0; i < snakes.size(); i++) {
+				if (useAtlas) {
+					sprites.get(i).draw(g);
+				} else {
+					drawRotated(g, snakes.get(i), loader);
+				}
+			}
+			long time = System.nanoTime() - start;
+			g.dispose();
+			if (frame >= WARMUP) {
+				total += time;
+			}
+		}
+		return total / 1000000.0 / FRAMES;
+	}
+
+	/**
+	 * draws a snake like the SnakeSprite did before the atlas
+	 */
+	private static void drawRotated(Graphics g, Snake snake, ImageLoader loader) {
+		BufferedImage part = loader.loadImage(SkinAtlas.SKIN_PATH + SkinAtlas.DEFAULT_SKIN + "/snakepart.png", false);
+		BufferedImage head = loader.loadImage(SkinAtlas.SKIN_PATH + SkinAtlas.DEFAULT_SKIN + "/snakehead.png", false);
+		BufferedImage tail = loader.loadImage(SkinAtlas.SKIN_PATH + SkinAtlas.DEFAULT_SKIN + "/snaketail.png", false);
+		List<SnakePart> parts = snake.getSnakeParts();
+		for (int i = 0; i < parts.size(); i++) {
+			SnakePart p = parts.get(i);
+			BufferedImage image = part;
+			if (i == 0) image = head;
+			if (i == parts.size()-1) image = tail;
+			g.drawImage(loader.getRotatedImage(image, (int) p.getDirection()), p.getX(), p.getY(), null);
+		}
+	}
+}
@@ -0,0 +1,229 @@
+package test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import mzs.util.LatestValueMailbox;
+
+/**
+ * hammers a {@link LatestValueMailbox} from many notifier threads while a game loop
+ * thread drains it.
+ *
+ * first every key has one notifier thread, checks that
+ * 	- values of a key never go back in time
+ * 	- the last value of every key is delivered
+ * 	- every posted value was either drained or replaced by a newer one
+ *
+ * then all notifier threads post to the same few keys, checks that
+ * 	- no value is drained twice
+ * 	- every posted value was either drained or replaced by a newer one
+ * 	- the last value of every key is delivered (posted by one thread after all others are done)
+ *
+ * exits with status 1 if a check fails (ant stress.mailbox)
+ *
+ * @author Jakob Lahmer, Matthias Steinboeck
+ */
+public class MailboxStressTest {
+
+	private static final int THREADS = 16;
+	private static final int KEYS_PER_THREAD = 8;
+	private static final int POSTS_PER_THREAD = 500000;
+	private static final int SHARED_KEYS = 8;
+	private static final int SHARED_POSTS_PER_THREAD = 200000;
+
+	public static void main(String[] args) throws Exception {
+		boolean ok = ownKeys();
+		ok &= sharedKeys();
+		System.out.println(ok ? "OK" : "FAILED");
+		System.exit(ok ? 0 : 1);
+	}
+
+	/**
+	 * every key has one notifier thread
+	 * @return true if all checks passed
+	 */
+	private static boolean ownKeys() throws Exception {
+		final LatestValueMailbox<Integer, long[]> mailbox = new LatestValueMailbox<Integer, long[]>();
+		final int keys = THREADS * KEYS_PER_THREAD;
+		final long[] lastDrained = new long[keys];
+		final AtomicBoolean running = new AtomicBoolean(true);
+		final AtomicLong drained = new AtomicLong();
+		final AtomicLong backwards = new AtomicLong();
+		final CountDownLatch start = new CountDownLatch(1);
+		final CountDownLatch done = new CountDownLatch(THREADS);
+
+		for (int t = 0; t < THREADS; t++) {
+			final int firstKey = t * KEYS_PER_THREAD;
+			new Thread("Notifier-" + t) {
+				@Override
+				public void run() {
+					try {
+						start.await();
+					} catch (InterruptedException e) {
+						return;
+					}
+					for (int i = 1; i <= POSTS_PER_THREAD; i++) {
+						int key = firstKey + (i % KEYS_PER_THREAD);
+						// value: key and sequence number of the key
+						mailbox.post(key, new long[] { key, (i + KEYS_PER_THREAD - 1) / KEYS_PER_THREAD });
+					}
+					done.countDown();
+				}
+			}.start();
+		}
+
+		Thread loop = new Thread("GameLoop") {
+			@Override
+			public void run() {
+				List<long[]> received = new ArrayList<long[]>();
+				while (running.get()) {
+					drain(mailbox, received, lastDrained, drained, backwards);
+				}
+				// values posted after the last drain of the loop
+				drain(mailbox, received, lastDrained, drained, backwards);
+			}
+		};
+		loop.start();
+
+		long begin = System.nanoTime();
+		start.countDown();
+		done.await();
+		running.set(false);
+		loop.join();
+		long millis = (System.nanoTime() - begin) / 1000000;
+
+		long posted = (long) THREADS * POSTS_PER_THREAD;
+		long expectedLast = POSTS_PER_THREAD / KEYS_PER_THREAD;
+		int wrongLast = 0;
+		for (int key = 0; key < keys; key++) {
+			if (lastDrained[key] != expectedLast) {
+				wrongLast++;
+			}
+		}
+		boolean countsMatch = (drained.get() + mailbox.getCoalesced() == posted) && mailbox.getPosted() == posted;
+
+		System.out.println(THREADS + " notifier threads, " + keys + " keys, " + posted + " posts in " + millis + " ms");
+		System.out.println("drained: " + drained + ", coalesced: " + mailbox.getCoalesced()
+				+ ", " + (millis * 1000000L / posted) + " ns per post");
+		System.out.println("values going back: " + backwards + ", keys with wrong last value: " + wrongLast
+				+ ", drained + coalesced = posted: " + countsMatch);
+
+		return backwards.get() == 0 && wrongLast == 0 && countsMatch;
+	}
+
+	/**
+	 * all notifier threads post to the same keys, every posted value has its own id
+	 * @return true if all checks passed
+	 */
+	private static boolean sharedKeys() throws Exception {
+		final LatestValueMailbox<Integer, long[]> mailbox = new LatestValueMailbox<Integer, long[]>();
+		final int ids = THREADS * SHARED_POSTS_PER_THREAD + SHARED_KEYS;
+		// only used by the game loop, read by main after the loop was joined
+		final boolean[] seen = new boolean[ids + 1];
+		final long[] lastDrained = new long[SHARED_KEYS];
+		final AtomicBoolean running = new AtomicBoolean(true);
+		final AtomicLong drained = new AtomicLong();
+		final AtomicLong duplicates = new AtomicLong();
+		final CountDownLatch start = new CountDownLatch(1);
+		final CyclicBarrier posted = new CyclicBarrier(THREADS);
+		final CountDownLatch done = new CountDownLatch(THREADS);
+
+		for (int t = 0; t < THREADS; t++) {
+			final int thread = t;
+			new Thread("SharedNotifier-" + t) {
+				@Override
+				public void run() {
+					try {
+						start.await();
+						for (int i = 0; i < SHARED_POSTS_PER_THREAD; i++) {
+							int key = (thread + i) % SHARED_KEYS;
+							mailbox.post(key, new long[] { key, thread * SHARED_POSTS_PER_THREAD + i + 1 });
+						}
+						// the last value of a key is posted when no other thread posts anymore
+						posted.await();
+						for (int key = thread; key < SHARED_KEYS; key += THREADS) {
+							mailbox.post(key, new long[] { key, lastId(key) });
+						}
+					} catch (Exception e) {
+						e.printStackTrace();
+					}
+					done.countDown();
+				}
+			}.start();
+		}
+
+		Thread loop = new Thread("GameLoop") {
+			@Override
+			public void run() {
+				List<long[]> received = new ArrayList<long[]>();
+				while (running.get()) {
+					drainShared(mailbox, received, seen, lastDrained, drained, duplicates);
+				}
+				// values posted after the last drain of the loop
+				drainShared(mailbox, received, seen, lastDrained, drained, duplicates);
+			}
+		};
+		loop.start();
+
+		long begin = System.nanoTime();
+		start.countDown();
+		done.await();
+		running.set(false);
+		loop.join();
+		long millis = (System.nanoTime() - begin) / 1000000;
+
+		int wrongLast = 0;
+		for (int key = 0; key < SHARED_KEYS; key++) {
+			if (lastDrained[key] != lastId(key)) {
+				wrongLast++;
+			}
+		}
+		boolean countsMatch = (drained.get() + mailbox.getCoalesced() == ids) && mailbox.getPosted() == ids;
+
+		System.out.println(THREADS + " notifier threads, " + SHARED_KEYS + " shared keys, " + ids + " posts in " + millis + " ms");
+		System.out.println("drained: " + drained + ", coalesced: " + mailbox.getCoalesced()
+				+ ", " + (millis * 1000000L / ids) + " ns per post");
+		System.out.println("values drained twice: " + duplicates + ", keys with wrong last value: " + wrongLast
+				+ ", drained + coalesced = posted: " + countsMatch);
+
+		return duplicates.get() == 0 && wrongLast == 0 && countsMatch;
+	}
+
+	/**
+	 * @return id of the value that is posted last to the shared key
+	 */
+	private static long lastId(int key) {
+		return (long) THREADS * SHARED_POSTS_PER_THREAD + key + 1;
+	}
+
+	private static void drainShared(LatestValueMailbox<Integer, long[]> mailbox, List<long[]> received,
+			boolean[] seen, long[] lastDrained, AtomicLong drained, AtomicLong duplicates) {
+		received.clear();
+		drained.addAndGet(mailbox.drainTo(received));
+		for (long[] value : received) {
+			int id = (int) value[1];
+			if (seen[id]) {
+				duplicates.incrementAndGet();
+			}
+			seen[id] = true;
+			lastDrained[(int) value[0]] = value[1];
+		}
+	}
+
+	private static void drain(LatestValueMailbox<Integer, long[]> mailbox, List<long[]> received,
+			long[] lastDrained, AtomicLong drained, AtomicLong backwards) {
+		received.clear();
+		drained.addAndGet(mailbox.drainTo(received));
+		for (long[] value : received) {
+			int key = (int) value[0];
+			if (value[1] <= lastDrained[key]) {
+				backwards.incrementAndGet();
+			}
+			lastDrained[key] = value[1];
+		}
+	}
+}
@@ -0,0 +1,181 @@
+package test;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.UUID;
+
+import mzs.data.SnakeDataHolder;
+import mzs.util.SnakeSerializer;
+
+import org.mozartspaces.capi3.KeyCoordinator;
+import org.mozartspaces.core.Entry;
+import org.mozartspaces.core.util.JavaBuiltinSerializer;
+import org.mozartspaces.core.util.Serializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import client.data.SnakePart;
+import client.data.game.Game;
+import client.data.player.Player;
+import client.data.state.GameState;
+import client.data.state.PlayerState;
+
+/**
+ * compares the {@link SnakeSerializer} with the way the data was written before:
+ * the java builtin serializer of mozartspaces (javabuiltin) with the Serializable
+ * classes of the baseline (see the Baseline classes below, they have the same fields).
+ * size of the serialized objects and time of a round trip (serialize and deserialize)
+ * for the objects that are written to the space most often, also as the value of an
+ * entry, the way they are written in a request.
+ *
+ * run with ant benchmark.serializer
+ *
+ * @author Jakob Lahmer, Matthias Steinboeck
+ */
+public class SerializerBenchmark {
+
+	private static final int WARMUP = 200000;
+	private static final int ROUNDS = 200000;
+
+	public static void main(String[] args) throws Exception {
+		UUID id = UUID.randomUUID();
+		SnakeDataHolder holder = new SnakeDataHolder(id);
+		BaselineSnakeDataHolder baselineHolder = new BaselineSnakeDataHolder(id);
+		for (int i = 0; i < 2; i++) {
+			SnakePart part = new SnakePart();
+			part.setX(i);
+			part.setY(2 * i);
+			part.setDirection(45f);
+			holder.addPart(part);
+			baselineHolder.parts.add(new BaselineSnakePart(i, 2 * i, 45f));
+		}
+		Game game = new Game(0, "test", new Player("jakob", "Snake"));
+		game.joinGame(new Player("matthias", "Train"));
+		BaselineGame baselineGame = new BaselineGame("test", new BaselinePlayer("jakob", "Snake"));
+		baselineGame.join(new BaselinePlayer("matthias", "Train"));
+
+		Serializer javabuiltin = new JavaBuiltinSerializer();
+		Serializer snake = new SnakeSerializer();
+
+		Object[][] objects = {
+				{ "SnakeDataHolder", baselineHolder, holder },
+				{ "Game", baselineGame, game },
+				{ "Entry(holder)",
+						new Entry(baselineHolder, KeyCoordinator.newCoordinationData("key")),
+						new Entry(holder, KeyCoordinator.newCoordinationData("key")) },
+				{ "Entry(game)",
+						new Entry(baselineGame, KeyCoordinator.newCoordinationData("key")),
+						new Entry(game, KeyCoordinator.newCoordinationData("test", "gameName")) },
+				// an entry nested in another object, like the entries of a write request
+				{ "[Entry(holder)]",
+						list(new Entry(baselineHolder, KeyCoordinator.newCoordinationData("key"))),
+						list(new Entry(holder, KeyCoordinator.newCoordinationData("key"))) } };
+
+		System.out.println("object          | baseline javabuiltin: bytes  us/round trip | snake: bytes  us/round trip");
+		for (Object[] row : objects) {
+			int[] javaBytes = new int[1];
+			int[] snakeBytes = new int[1];
+			double javaMicros = roundTrip(javabuiltin, row[1], javaBytes);
+			double snakeMicros = roundTrip(snake, row[2], snakeBytes);
+			System.out.println(String.format("%-15s | %27d %15.1f | %12d %15.1f",
+					row[0], javaBytes[0], javaMicros, snakeBytes[0], snakeMicros));
+		}
+	}
+
+	private static ArrayList<Entry> list(Entry entry) {
+		ArrayList<Entry> list = new ArrayList<Entry>();
+		list.add(entry);
+		return list;
+	}
+
+	/**
+	 * @param serializer
+	 * @param object
+	 * @param size gets the size of the serialized object
+	 * @return microseconds per round trip
+	 */
+	private static double roundTrip(Serializer serializer, Object object, int[] size) throws Exception {
+		byte[] bytes = serializer.serialize(object);
+		size[0] = bytes.length;
+		Object copy = serializer.deserialize(bytes);
+		if (copy == null || copy.getClass() != object.getClass()) {
+			throw new IllegalStateException("round trip of " + object + " returned " + copy);
+		}
+		if (copy instanceof Entry && !((Entry) copy).getCoordinationData().equals(((Entry) object).getCoordinationData())) {
+			throw new IllegalStateException("round trip of " + object + " returned " + copy);
+		}
+		for (int i = 0; i < WARMUP; i++) {
+			serializer.deserialize(serializer.serialize(object));
+		}
+		long start = System.nanoTime();
+		for (int i = 0; i < ROUNDS; i++) {
+			serializer.deserialize(serializer.serialize(object));
+		}
+		return (System.nanoTime() - start) / 1000.0 / ROUNDS;
+	}
+
+	/*
+	 * the fields of the Serializable classes of the baseline
+	 */
+
+	private static class BaselineSnakePart implements Serializable {
+		private static final long serialVersionUID = 1L;
+		private int x;
+		private int y;
+		private float d;
+
+		BaselineSnakePart(int x, int y, float d) {
+			this.x = x;
+			this.y = y;
+			this.d = d;
+		}
+	}
+
+	private static class BaselineSnakeDataHolder implements Serializable {
+		private static final long serialVersionUID = 1L;
+		private ArrayList<BaselineSnakePart> parts = new ArrayList<BaselineSnakePart>();
+		private UUID id;
+
+		BaselineSnakeDataHolder(UUID id) {
+			this.id = id;
+		}
+	}
+
+	private static class BaselinePlayer implements Serializable {
+		private static final long serialVersionUID = -6686013630813091200L;
+		private UUID id = UUID.randomUUID();
+		private String name;
+		private String skin;
+		private PlayerState state = PlayerState.NOTINIT;
+
+		BaselinePlayer(String name, String skin) {
+			this.name = name;
+			this.skin = skin;
+		}
+	}
+
+	private static class BaselineGame implements Serializable {
+		private static final long serialVersionUID = -213203048176262335L;
+		private ArrayList<BaselinePlayer> players = new ArrayList<BaselinePlayer>();
+		private UUID id = UUID.randomUUID();
+		private String name;
+		private byte[] levelCheckSum;
+		private GameState state = GameState.OPENEND;
+		private int winValue = 10;
+		private BaselinePlayer leader;
+		// the logger of the baseline Game was not transient, so it was written as well
+		private Logger log = LoggerFactory.getLogger(Game.class);
+
+		BaselineGame(String name, BaselinePlayer leader) {
+			this.name = name;
+			join(leader);
+		}
+
+		void join(BaselinePlayer player) {
+			players.add(player);
+			if (leader == null) {
+				leader = player;
+			}
+		}
+	}
+}
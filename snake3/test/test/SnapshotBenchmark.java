@@ -0,0 +1,135 @@
+package test;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import mzs.data.SnakeDataHolder;
+import mzs.util.SnakeSerializer;
+import mzs.util.Util;
+
+import org.mozartspaces.core.ContainerReference;
+import org.mozartspaces.core.Entry;
+import org.mozartspaces.notifications.Notification;
+import org.mozartspaces.notifications.NotificationListener;
+import org.mozartspaces.notifications.Operation;
+
+import server.Server;
+import server.SnapshotAggregator;
+import server.TickEngine;
+import client.data.Snake;
+import client.data.game.Game;
+
+import util.Level;
+
+/**
+ * compares the traffic of a game, when every snake is written as an own entry per tick
+ * and when all snakes of a tick are written as one (delta encoded) WorldSnapshot.
+ *
+ * starts an embedded server, simulates games with 1 to 8 players (every player is a
+ * notification listener on the game container) and prints the notifications and bytes
+ * every client receives per second at the tick rate of the server.
+ *
+ * run with -Dmozartspaces.configurationFile=res/mzs/mozartspaces.xml (ant benchmark.snapshot)
+ *
+ * @author Jakob Lahmer, Matthias Steinboeck
+ */
+public class SnapshotBenchmark {
+
+	private static final int TICKS = 200;
+	private static final int[] PLAYERS = { 1, 2, 3, 4, 8 };
+
+	private static final SnakeSerializer serializer = new SnakeSerializer();
+
+	public static void main(String[] args) throws Exception {
+		new Server();
+		double ticksPerSecond = 1000.0 / TickEngine.TICK_MILLIS;
+
+		System.out.println("players | per snake: notif/s  bytes/s (per client) | snapshot: notif/s  bytes/s (per client)");
+		for (int players : PLAYERS) {
+			long[] perSnake = run(players, false);
+			long[] snapshot = run(players, true);
+			System.out.println(String.format("%7d | %18.1f %9.0f | %17.1f %9.0f",
+					players,
+					perSnake[0] * ticksPerSecond / TICKS / players,
+					perSnake[1] * ticksPerSecond / TICKS / players,
+					snapshot[0] * ticksPerSecond / TICKS / players,
+					snapshot[1] * ticksPerSecond / TICKS / players));
+		}
+		System.exit(0);
+	}
+
+	/**
+	 * simulates one game
+	 * @param players
+	 * @param snapshots true: one snapshot per tick, false: one entry per snake and tick
+	 * @return notifications and bytes received by all clients
+	 */
+	private static long[] run(int players, boolean snapshots) throws Exception {
+		Game game = new Game();
+		ContainerReference container = Util.getInstance().createGameContainer(game);
+
+		final AtomicLong notifications = new AtomicLong();
+		final AtomicLong bytes = new AtomicLong();
+		List<Notification> listeners = new ArrayList<Notification>();
+		for (int i = 0; i < players; i++) {
+			listeners.add(Util.getInstance().getNotificationManager().createNotification(
+					container,
+					new NotificationListener() {
+						@Override
+						public void entryOperationFinished(Notification notification, Operation operation,
+								List<? extends Serializable> entries) {
+							notifications.incrementAndGet();
+							for (Serializable entry : entries) {
+								try {
+									bytes.addAndGet(serializer.serialize(((Entry) entry).getValue()).length);
+								} catch (Exception e) {
+									e.printStackTrace();
+								}
+							}
+						}
+					},
+					Operation.WRITE));
+		}
+
+		List<Snake> snakes = new ArrayList<Snake>();
+		for (int i = 0; i < players; i++) {
+			Snake snake = new Snake(UUID.randomUUID(), 100 * (i + 1), 450, 0);
+			snake.setGamePanelDimensions(Level.getMapSize());
+			snakes.add(snake);
+		}
+
+		Random random = new Random(42);
+		SnapshotAggregator aggregator = new SnapshotAggregator();
+		for (int tick = 1; tick <= TICKS; tick++) {
+			for (Snake snake : snakes) {
+				snake.move((random.nextInt(3) - 1) * TickEngine.TURN_ANGLE);
+				snake.moveForward();
+				SnakeDataHolder holder = snake.getSnakeDataHolder(true).copy();
+				holder.setTick(tick);
+				if (snapshots) {
+					aggregator.collect(holder);
+				} else {
+					Util.getInstance().upsert(container, holder, snake.getId().toString());
+				}
+			}
+			if (snapshots) {
+				Util.getInstance().upsert(container, aggregator.snapshot(tick), TickEngine.SNAPSHOT_KEY);
+			}
+		}
+
+		// wait for the notifications of the last ticks
+		long expected = (long) players * TICKS * (snapshots ? 1 : players);
+		for (int i = 0; i < 100 && notifications.get() < expected; i++) {
+			Thread.sleep(50);
+		}
+		for (Notification n : listeners) {
+			n.destroy();
+		}
+		Util.getInstance().destroyGameContainer(game);
+		return new long[] { notifications.get(), bytes.get() };
+	}
+}
@@ -0,0 +1,179 @@
+package test;
+
+import java.awt.Dimension;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.UUID;
+
+import mzs.data.SnakeDataHolder;
+import mzs.data.TurnInput;
+import mzs.data.WorldSnapshot;
+import mzs.util.ContainerCoordinatorMapper;
+
+import org.mozartspaces.capi3.KeyCoordinator;
+import org.mozartspaces.core.Capi;
+import org.mozartspaces.core.ContainerReference;
+import org.mozartspaces.core.DefaultMzsCore;
+import org.mozartspaces.core.Entry;
+import org.mozartspaces.core.MzsConstants.Container;
+import org.mozartspaces.core.MzsConstants.RequestTimeout;
+import org.mozartspaces.core.MzsCore;
+import org.mozartspaces.core.aspects.ContainerIPoint;
+
+import server.ReplaceAspect;
+import server.TickEngine;
+import client.data.SnakePart;
+
+import util.Level;
+
+/**
+ * drives a {@link TickEngine} against an embedded core, the way the server hosts a game:
+ * the inputs are written to the input container, the engine ticks and the snapshot is
+ * read from the game container.
+ *
+ * checks that
+ * 	- every tick publishes one snapshot with all snakes
+ * 	- the snakes move and stay on the map of the level
+ * 	- a written input turns only its snake, and stays valid until a newer input is written
+ * 	- an input older than the applied one is ignored
+ *
+ * exits with status 1 if a check fails (ant test.tickengine)
+ *
+ * @author Jakob Lahmer, Matthias Steinboeck
+ */
+public class TickEngineTest {
+
+	private static Capi capi;
+	private static ContainerReference gameContainer;
+	private static ContainerReference inputContainer;
+	private static boolean ok = true;
+
+	public static void main(String[] args) throws Exception {
+		MzsCore core = DefaultMzsCore.newInstance();
+		try {
+			capi = new Capi(core);
+			inputContainer = createContainer("tickengine-input", ContainerCoordinatorMapper.INPUT);
+			gameContainer = createContainer("tickengine-game", ContainerCoordinatorMapper.GAME);
+			run();
+		} finally {
+			core.shutdown(true);
+		}
+		System.out.println(ok ? "OK" : "FAILED");
+		System.exit(ok ? 0 : 1);
+	}
+
+	private static void run() throws Exception {
+		Dimension map = Level.getMapSize();
+		UUID turning = UUID.randomUUID();
+		UUID straight = UUID.randomUUID();
+		TickEngine engine = new TickEngine(capi, gameContainer, inputContainer, Arrays.asList(turning, straight), map);
+
+		// no inputs yet, both snakes go straight ahead
+		WorldSnapshot previous = null;
+		for (int tick = 1; tick <= 3; tick++) {
+			check(engine.tick(), "tick " + tick + ": snakes alive");
+			WorldSnapshot snapshot = readSnapshot();
+			check(snapshot.getTick() == tick, "tick " + tick + ": snapshot of tick " + snapshot.getTick());
+			check(snapshot.getSnakes().size() == 2, "tick " + tick + ": " + snapshot.getSnakes().size() + " snakes");
+			for (SnakeDataHolder holder : snapshot.getSnakes()) {
+				SnakePart head = head(holder);
+				check(holder.isAlive(), "tick " + tick + ": snake alive");
+				check(head.getX() >= 0 && head.getX() < map.width && head.getY() >= 0 && head.getY() < map.height,
+						"tick " + tick + ": head " + head.getX() + "/" + head.getY() + " on the map " + map);
+				if (previous != null) {
+					SnakePart last = head(find(previous, holder.getId()));
+					check(head.getX() != last.getX() || head.getY() != last.getY(), "tick " + tick + ": snake moved");
+					check(head.getDirection() == last.getDirection(), "tick " + tick + ": direction without input");
+				}
+			}
+			previous = snapshot;
+		}
+
+		// one input turns its snake in every tick until a newer input is written
+		writeInput(new TurnInput(turning, engine.getTick() + 1, TurnInput.LEFT));
+		for (int i = 0; i < 2; i++) {
+			engine.tick();
+			WorldSnapshot snapshot = readSnapshot();
+			checkTurn(previous, snapshot, turning, TurnInput.LEFT);
+			checkTurn(previous, snapshot, straight, TurnInput.NONE);
+			previous = snapshot;
+		}
+		writeInput(new TurnInput(turning, engine.getTick() + 1, TurnInput.NONE));
+		engine.tick();
+		WorldSnapshot snapshot = readSnapshot();
+		checkTurn(previous, snapshot, turning, TurnInput.NONE);
+		previous = snapshot;
+
+		// an input of an earlier tick is ignored
+		writeInput(new TurnInput(turning, 1, TurnInput.RIGHT));
+		engine.tick();
+		snapshot = readSnapshot();
+		checkTurn(previous, snapshot, turning, TurnInput.NONE);
+		check(snapshot.getTick() == engine.getTick(), "snapshot of the last tick");
+	}
+
+	/**
+	 * creates a container with the coordinators and the ReplaceAspect of a game container
+	 * (see Util#createGameContainer)
+	 */
+	private static ContainerReference createContainer(String name, String type) throws Exception {
+		ContainerReference container = capi.createContainer(
+				name,
+				null,
+				Container.UNBOUNDED,
+				ContainerCoordinatorMapper.getCoordinators(type),
+				null,
+				null);
+		capi.addContainerAspect(new ReplaceAspect(), container, ContainerIPoint.PRE_WRITE);
+		return container;
+	}
+
+	private static void writeInput(TurnInput input) throws Exception {
+		capi.write(
+				new Entry(input, KeyCoordinator.newCoordinationData(input.getId().toString())),
+				inputContainer,
+				RequestTimeout.ZERO,
+				null);
+	}
+
+	private static WorldSnapshot readSnapshot() throws Exception {
+		ArrayList<Serializable> entries = capi.read(
+				gameContainer,
+				KeyCoordinator.newSelector(TickEngine.SNAPSHOT_KEY),
+				RequestTimeout.TRY_ONCE,
+				null);
+		return (WorldSnapshot) entries.get(0);
+	}
+
+	/**
+	 * checks that the snake turned by the angle of one input between the two snapshots
+	 */
+	private static void checkTurn(WorldSnapshot previous, WorldSnapshot snapshot, UUID id, byte turn) {
+		float before = head(find(previous, id)).getDirection();
+		float after = head(find(snapshot, id)).getDirection();
+		float turned = ((after - before) % 360 + 360) % 360;
+		float expected = ((turn * TickEngine.TURN_ANGLE) % 360 + 360) % 360;
+		check(turned == expected, "tick " + snapshot.getTick() + ": turned by " + turned + " instead of " + expected);
+	}
+
+	private static SnakeDataHolder find(WorldSnapshot snapshot, UUID id) {
+		for (SnakeDataHolder holder : snapshot.getSnakes()) {
+			if (holder.getId().equals(id)) {
+				return holder;
+			}
+		}
+		throw new IllegalStateException("snake " + id + " missing in tick " + snapshot.getTick());
+	}
+
+	private static SnakePart head(SnakeDataHolder holder) {
+		return holder.getParts().get(0);
+	}
+
+	private static void check(boolean condition, String message) {
+		if (!condition) {
+			System.out.println("FAILED: " + message);
+			ok = false;
+		}
+	}
+}